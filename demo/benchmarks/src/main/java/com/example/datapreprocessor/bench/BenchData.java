@@ -0,0 +1,72 @@
+package com.example.datapreprocessor.bench;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+/** 端到端基准用的小规模合成数据，列结构与真实导出一致 */
+final class BenchData {
+
+    private static final String[] DURATIONS = {"PT5M", "PT10M", "PT20M", "PT30M", "PT1H", "PT1H30M", "PT2H", ""};
+
+    static void recipes(Path file, int rows) throws IOException {
+        Random r = new Random(1);
+        try (BufferedWriter w = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            w.write("RecipeId,Name,AuthorId,AuthorName,CookTime,PrepTime,TotalTime,DatePublished,Description,"
+                    + "RecipeCategory,Keywords,RecipeIngredientParts,AggregatedRating,ReviewCount,Calories,FatContent,"
+                    + "SaturatedFatContent,CholesterolContent,SodiumContent,CarbohydrateContent,FiberContent,"
+                    + "SugarContent,ProteinContent,RecipeServings,RecipeYield,RecipeInstructions,FavoriteUsers\n");
+            for (int i = 1; i <= rows; i++) {
+                String cook = DURATIONS[r.nextInt(DURATIONS.length)];
+                String prep = DURATIONS[r.nextInt(DURATIONS.length)];
+                String total = DURATIONS[r.nextInt(DURATIONS.length)];
+                w.write(i + ",\"Recipe " + i + "\"," + r.nextInt(rows) + ",Author," + cook + "," + prep + "," + total
+                        + ",2005-09-16T18:21:00Z,\"A tasty dish, serves many\",Dessert,\"c(\"\"Easy\"\", \"\"Quick\"\")\","
+                        + "\"c(\"\"flour\"\", \"\"sugar\"\")\",4.5," + r.nextInt(50) + ".0,"
+                        + "170.9,10.0,1.2,8.0,29.8,22.8,1.3,6.0,2.0," + (1 + r.nextInt(8)) + ".0,4 servings,"
+                        + "\"Mix.\nBake.\nServe.\",\"c(\"\"" + r.nextInt(rows) + "\"\")\"\n");
+            }
+        }
+    }
+
+    static void reviews(Path file, int rows) throws IOException {
+        Random r = new Random(2);
+        try (BufferedWriter w = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            w.write("ReviewId,RecipeId,AuthorId,AuthorName,Rating,Review,DateSubmitted,DateModified,Likes\n");
+            for (int i = 1; i <= rows; i++) {
+                int day = 1 + r.nextInt(28);
+                int day2 = Math.min(28, day + r.nextInt(3) - 1);
+                w.write(i + "," + r.nextInt(rows) + ".0," + r.nextInt(rows) + ",Reviewer," + (1 + r.nextInt(5))
+                        + ",\"Great, would cook again\",2010-05-" + pad(day) + "T12:00:00Z,2010-05-" + pad(day2)
+                        + "T12:30:00.123Z,\n");
+            }
+        }
+    }
+
+    static void users(Path file, int rows) throws IOException {
+        Random r = new Random(3);
+        try (BufferedWriter w = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            w.write("AuthorId,AuthorName,Gender,Age,Followers,Following,FollowerUsers,FollowingUsers\n");
+            for (int i = 1; i <= rows; i++) {
+                int n = r.nextInt(6);
+                StringBuilder following = new StringBuilder();
+                for (int k = 0; k < n; k++) {
+                    if (k > 0) following.append(',');
+                    following.append(1 + r.nextInt(rows));
+                }
+                String list = n == 0 ? "" : "\"c(\"\"" + following + "\"\")\"";
+                w.write(i + ",User" + i + "," + (r.nextBoolean() ? "Male" : "Female") + "," + (18 + r.nextInt(60))
+                        + "," + r.nextInt(6) + "," + n + ",," + list + "\n");
+            }
+        }
+    }
+
+    private static String pad(int d) {
+        return d < 10 ? "0" + d : Integer.toString(d);
+    }
+
+    private BenchData() {}
+}
@@ -0,0 +1,64 @@
+package com.example.datapreprocessor.bench;
+
+import com.example.datapreprocessor.recipe.RecipePreprocessor;
+import com.example.datapreprocessor.review.ReviewPreprocessor;
+import com.example.datapreprocessor.user.UserPreprocessor;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/** 三个预处理器的端到端耗时，控制台输出被丢弃 */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+public class PreprocessorBenchmark {
+
+    @Param({"10000", "100000", "1000000"})
+    int rows;
+
+    Path dir;
+    PrintStream stdout;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        dir = Files.createTempDirectory("preprocessor-bench-");
+        BenchData.recipes(dir.resolve("recipes.csv"), rows);
+        BenchData.reviews(dir.resolve("reviews.csv"), rows);
+        BenchData.users(dir.resolve("user.csv"), rows / 10);
+        stdout = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        System.setOut(stdout);
+        try (Stream<Path> s = Files.walk(dir)) {
+            s.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    public Path recipes() throws IOException {
+        return RecipePreprocessor.process(dir.resolve("recipes.csv"), false, false);
+    }
+
+    @Benchmark
+    public Path reviews() throws IOException {
+        return ReviewPreprocessor.process(dir.resolve("reviews.csv"), false, false);
+    }
+
+    @Benchmark
+    public Path users() {
+        return UserPreprocessor.process(dir.resolve("user.csv"));
+    }
+}
@@ -0,0 +1,43 @@
+package com.example.datapreprocessor.coerce;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/** 数值列转整数：原来的 Double.parseDouble + Math.round 与 DecimalScanner */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class DecimalScanBenchmark {
+
+    @Param({"1000", "100000"})
+    int size;
+
+    String[] values;
+
+    @Setup
+    public void setup() {
+        Random r = new Random(42);
+        values = new String[size];
+        for (int i = 0; i < size; i++) {
+            // 真实数据里 RecipeId、ReviewCount 多为 "123.0"，少量已经是整数
+            int v = r.nextInt(500_000);
+            values[i] = r.nextInt(4) == 0 ? Integer.toString(v) : v + ".0";
+        }
+    }
+
+    @Benchmark
+    public void parseDoubleRound(Blackhole bh) {
+        for (String s : values) bh.consume(Math.round(Double.parseDouble(s.trim())));
+    }
+
+    @Benchmark
+    public void decimalScanner(Blackhole bh) {
+        for (String s : values) bh.consume(DecimalScanner.parse(s));
+    }
+}
@@ -0,0 +1,81 @@
+package com.example.datapreprocessor.columnar;
+
+import com.example.datapreprocessor.io.CsvInput;
+import com.example.datapreprocessor.io.CsvRow;
+import com.example.datapreprocessor.io.RowReader;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/** 同一列整数求和：重新解析 CSV 与读列存文件 */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class ColumnarReadBenchmark {
+
+    @Param({"100000", "1000000"})
+    int rows;
+
+    Path dir;
+    Path csv;
+    Path col;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        dir = Files.createTempDirectory("columnar-bench-");
+        csv = dir.resolve("reviews.csv");
+        col = ColumnarWriter.pathFor(csv);
+        Random r = new Random(42);
+        try (BufferedWriter w = Files.newBufferedWriter(csv)) {
+            w.write("ReviewId,RecipeId,AuthorId,Rating,Review\n");
+            for (int i = 1; i <= rows; i++) {
+                w.write(i + "," + (1 + r.nextInt(500_000)) + "," + (1 + r.nextInt(100_000)) + ","
+                        + r.nextInt(6) + ",\"Tasty, would make again\"\n");
+            }
+        }
+        ColumnarWriter.convert(csv, col, Map.of("ReviewId", ColumnType.INT, "RecipeId", ColumnType.INT,
+                "AuthorId", ColumnType.INT, "Rating", ColumnType.INT));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        try (Stream<Path> s = Files.walk(dir)) {
+            s.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    public long csvSum() throws IOException {
+        long sum = 0;
+        try (RowReader reader = CsvInput.open(csv)) {
+            int c = Arrays.asList(reader.readNext()).indexOf("RecipeId");
+            CsvRow row;
+            while ((row = reader.next()) != null) sum += Long.parseLong(row.get(c));
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public long columnarSum() throws IOException {
+        long sum = 0;
+        try (ColumnarReader reader = ColumnarReader.open(col)) {
+            int c = reader.columnIndex("RecipeId");
+            for (int b = 0; b < reader.blockCount(); b++) {
+                for (long v : reader.block(b).longs(c)) sum += v;
+            }
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.datapreprocessor.dedup;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.nio.file.Paths;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/** 重复 ID 检查：共享去重引擎、两级过滤模式与原来的 HashSet 写法对比 */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Fork(value = 1, jvmArgs = {"-Xmx4g"})
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class DuplicateCheckBenchmark {
+
+    @Param({"10000", "1000000", "10000000"})
+    int size;
+
+    String[] ids;
+
+    @Setup
+    public void setup() {
+        Random r = new Random(42);
+        ids = new String[size];
+        for (int i = 0; i < size; i++) {
+            // 约 1% 重复
+            ids[i] = Integer.toString(r.nextInt(100) == 0 ? r.nextInt(i + 1) : i);
+        }
+    }
+
+    @Benchmark
+    public void detector(Blackhole bh) {
+        DuplicateDetector d = DuplicateDetector.inMemory();
+        for (String id : ids) d.add(id);
+        bh.consume(d.duplicates());
+    }
+
+    @Benchmark
+    public void filtered(Blackhole bh) {
+        DuplicateDetector d = DuplicateDetector.filtered(Paths.get(System.getProperty("java.io.tmpdir")), size, 0.01);
+        for (String id : ids) d.add(id);
+        bh.consume(d.duplicates());
+    }
+
+    @Benchmark
+    public void hashSetBaseline(Blackhole bh) {
+        Set<String> seen = new HashSet<>();
+        Set<String> dup = new LinkedHashSet<>();
+        for (String id : ids) {
+            if (!seen.add(id)) dup.add(id);
+        }
+        bh.consume(dup);
+    }
+}
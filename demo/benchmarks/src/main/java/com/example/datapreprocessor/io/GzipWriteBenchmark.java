@@ -0,0 +1,71 @@
+package com.example.datapreprocessor.io;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+/** 写出压缩 CSV：单线程 GZIPOutputStream 与分块并行的 ParallelGzipOutputStream */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class GzipWriteBenchmark {
+
+    @Param({"16"})
+    int megabytes;
+
+    byte[] data;
+
+    @Setup
+    public void setup() {
+        Random r = new Random(42);
+        StringBuilder sb = new StringBuilder();
+        for (long id = 1; sb.length() < megabytes << 20; id++) {
+            sb.append(id).append(',').append(r.nextInt(500_000)).append(".0,").append(r.nextInt(50_000))
+                    .append(",Reviewer,").append(r.nextInt(6))
+                    .append(",\"Really good, made it twice\",2010-05-").append(10 + r.nextInt(18))
+                    .append("T12:00:00Z,2010-06-01T08:30:00.123Z,").append(r.nextInt(50)).append('\n');
+        }
+        data = sb.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public long gzipOutputStream() throws IOException {
+        Counter c = new Counter();
+        try (OutputStream out = new GZIPOutputStream(c, 1 << 16)) {
+            out.write(data);
+        }
+        return c.n;
+    }
+
+    @Benchmark
+    public long parallelGzip() throws IOException {
+        Counter c = new Counter();
+        try (OutputStream out = new ParallelGzipOutputStream(c)) {
+            out.write(data);
+        }
+        return c.n;
+    }
+
+    /** 只数字节的输出，排除磁盘的影响 */
+    static final class Counter extends OutputStream {
+        long n;
+
+        @Override
+        public void write(int b) {
+            n++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            n += len;
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.example.datapreprocessor.recipe;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/** CheckTime 的 ISO-8601 时长解析与格式化 */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class DurationBenchmark {
+
+    private static final String[] COMMON = {"PT5M", "PT10M", "PT15M", "PT20M", "PT30M", "PT45M",
+            "PT1H", "PT1H30M", "PT2H", "PT3H15M", "PT24H", "P1DT2H", "PT0S", ""};
+
+    @Param({"1000", "100000"})
+    int size;
+
+    String[] durations;
+    long[] seconds;
+    long[] minutes;   // 整分钟，走格式化缓存
+
+    @Setup
+    public void setup() {
+        Random r = new Random(42);
+        durations = new String[size];
+        seconds = new long[size];
+        minutes = new long[size];
+        for (int i = 0; i < size; i++) {
+            durations[i] = COMMON[r.nextInt(COMMON.length)];
+            seconds[i] = r.nextInt(48 * 3600);
+            minutes[i] = r.nextInt(48 * 60) * 60L;
+        }
+    }
+
+    @Benchmark
+    public void parseTimeToSeconds(Blackhole bh) {
+        for (String d : durations) bh.consume(CheckTime.parseTimeToSeconds(d));
+    }
+
+    @Benchmark
+    public void formatSeconds(Blackhole bh) {
+        for (long s : seconds) bh.consume(CheckTime.formatSeconds(s));
+    }
+
+    @Benchmark
+    public void formatMinutes(Blackhole bh) {
+        for (long s : minutes) bh.consume(CheckTime.formatSeconds(s));
+    }
+}
@@ -0,0 +1,45 @@
+package com.example.datapreprocessor.review;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.time.Instant;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/** CheckDate 中每行两次的时间戳解析 */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class DateParseBenchmark {
+
+    @Param({"1000", "100000"})
+    int size;
+
+    String[] timestamps;
+
+    @Setup
+    public void setup() {
+        Random r = new Random(42);
+        timestamps = new String[size];
+        long base = Instant.parse("2000-01-01T00:00:00Z").toEpochMilli();
+        for (int i = 0; i < size; i++) {
+            Instant t = Instant.ofEpochMilli(base + (long) (r.nextDouble() * 20L * 365 * 86_400_000L));
+            // 真实数据里约一半带毫秒
+            timestamps[i] = r.nextBoolean() ? t.toString() : Instant.ofEpochSecond(t.getEpochSecond()).toString();
+        }
+    }
+
+    @Benchmark
+    public void instantParse(Blackhole bh) {
+        for (String s : timestamps) bh.consume(Instant.parse(s));
+    }
+
+    @Benchmark
+    public void fixedLayoutParse(Blackhole bh) {
+        for (String s : timestamps) bh.consume(TimestampParser.parse(s));
+    }
+}
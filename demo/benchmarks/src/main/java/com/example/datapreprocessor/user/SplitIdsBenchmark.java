@@ -0,0 +1,84 @@
+package com.example.datapreprocessor.user;
+
+import com.example.datapreprocessor.io.ListCell;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/** c("id1,id2,...") 单元格的计数和拆分：原来的 substring + replace + 正则与 {@link ListCell} */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class SplitIdsBenchmark {
+
+    private static final int CELLS = 1000;
+    private static final Pattern SPLIT = Pattern.compile(",");
+
+    /** 每个单元格里的 ID 个数 */
+    @Param({"0", "10", "1000"})
+    int listLength;
+
+    String[] cells;
+
+    @Setup
+    public void setup() {
+        Random r = new Random(42);
+        cells = new String[CELLS];
+        for (int c = 0; c < CELLS; c++) {
+            if (listLength == 0) {
+                cells[c] = "";
+                continue;
+            }
+            StringBuilder sb = new StringBuilder("c(\"");
+            for (int i = 0; i < listLength; i++) {
+                if (i > 0) sb.append(',');
+                sb.append(1 + r.nextInt(3_000_000));
+            }
+            cells[c] = sb.append("\")").toString();
+        }
+    }
+
+    @Benchmark
+    public void regexCount(Blackhole bh) {
+        for (String c : cells) bh.consume(regexSplit(c).size());
+    }
+
+    @Benchmark
+    public void listCellCount(Blackhole bh) {
+        for (String c : cells) bh.consume(ListCell.count(c));
+    }
+
+    @Benchmark
+    public void regexSplit(Blackhole bh) {
+        for (String c : cells) bh.consume(regexSplit(c));
+    }
+
+    @Benchmark
+    public void listCellCursor(Blackhole bh) {
+        ListCell.Cursor cursor = new ListCell.Cursor();
+        for (String c : cells) {
+            cursor.reset(c);
+            while (cursor.next()) bh.consume(cursor.end() - cursor.start());
+        }
+    }
+
+    /** 改用 ListCell 之前 UserFollowFixer.splitIds 的实现 */
+    private static List<String> regexSplit(String cell) {
+        if (cell.isEmpty()) return List.of();
+        if (cell.startsWith("c(\"") && cell.endsWith("\")")) {
+            cell = cell.substring(3, cell.length() - 2);
+        }
+        cell = cell.replace("\"", "");
+        return Arrays.stream(SPLIT.split(cell))
+                     .filter(s -> !s.trim().isEmpty())
+                     .toList();
+    }
+}
@@ -0,0 +1,76 @@
+package com.example.datapreprocessor.coerce;
+
+/**
+ * 把十进制文本四舍五入成整数，代替 {@code Math.round(Double.parseDouble(s))}。
+ *
+ * <p>只接受 {@code [+-]digits[.digits]}（两边允许空白），直接在字符上累加，不经过 double，
+ * 也就没有精度损失；指数、NaN、Infinity 之类一律视为失败。
+ * 舍入与 {@link Math#round(double)} 相同：恰好 .5 时向正无穷方向进位。</p>
+ */
+public final class DecimalScanner {
+
+    /** 无法转换（格式不对或超出 long 范围） */
+    public static final long FAIL = Long.MIN_VALUE;
+
+    public static long parse(CharSequence s) {
+        int from = 0;
+        int to = s.length();
+        while (from < to && s.charAt(from) <= ' ') from++;
+        while (to > from && s.charAt(to - 1) <= ' ') to--;
+        if (from == to) return FAIL;
+
+        boolean negative = false;
+        char c = s.charAt(from);
+        if (c == '-' || c == '+') {
+            negative = c == '-';
+            from++;
+        }
+
+        long v = 0;
+        int intDigits = 0;
+        int i = from;
+        for (; i < to; i++) {
+            int d = s.charAt(i) - '0';
+            if (d < 0 || d > 9) break;
+            if (v > (Long.MAX_VALUE - d) / 10) return FAIL;
+            v = v * 10 + d;
+            intDigits++;
+        }
+
+        // 小数部分只看第一位和后面是否还有非零位
+        int first = 0;
+        boolean rest = false;
+        int fracDigits = 0;
+        if (i < to && s.charAt(i) == '.') {
+            for (i++; i < to; i++) {
+                int d = s.charAt(i) - '0';
+                if (d < 0 || d > 9) break;
+                if (fracDigits++ == 0) first = d;
+                else if (d != 0) rest = true;
+            }
+        }
+        if (i != to || intDigits + fracDigits == 0) return FAIL;
+
+        boolean up = negative ? first > 5 || (first == 5 && rest) : first >= 5;
+        if (up) {
+            if (v == Long.MAX_VALUE) return FAIL;
+            v++;
+        }
+        return negative ? -v : v;
+    }
+
+    /** s 是否已经是 Long.toString 的写法，是则转换后无需改写 */
+    public static boolean isCanonical(CharSequence s) {
+        int n = s.length();
+        int i = n > 0 && s.charAt(0) == '-' ? 1 : 0;
+        if (i == n) return false;
+        if (s.charAt(i) == '0') return n == 1;   // 排除前导零和 -0
+        for (; i < n; i++) {
+            char c = s.charAt(i);
+            if (c < '0' || c > '9') return false;
+        }
+        return true;
+    }
+
+    private DecimalScanner() {}
+}
@@ -0,0 +1,123 @@
+package com.example.datapreprocessor.coerce;
+
+import com.example.datapreprocessor.diag.Diagnostics;
+import com.example.datapreprocessor.diag.Rule;
+import com.example.datapreprocessor.io.CsvRow;
+import com.example.datapreprocessor.pipeline.StatefulStage;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 按列名把若干列一次性转成整数，例如 {@code Map.of("ReviewCount", NumericType.INT)}。
+ *
+ * <p>列下标在读到表头时解析，表头里没有的列跳过。空单元格不处理；
+ * 转换失败的值保持原样，按列计入 {@code coerce.<列名>} 规则，结束时汇总。</p>
+ */
+public final class NumericCoercionStage implements StatefulStage {
+
+    private final String debugFileName;
+    private final Map<String, NumericType> schema;
+
+    // 按表头顺序排列的目标列
+    private int[] index;
+    private NumericType[] types;
+    private String[] names;
+    private Rule[] rules;
+    private long[] converted;
+    private long[] failed;
+    private long row = 1;   // 表头后第一行
+
+    public NumericCoercionStage(String debugFileName, Map<String, NumericType> schema) {
+        this.debugFileName = debugFileName;
+        this.schema = schema;
+    }
+
+    @Override
+    public String debugFileName() {
+        return debugFileName;
+    }
+
+    @Override
+    public void begin(String[] header) {
+        List<String> headers = Arrays.asList(header);
+        List<String> present = new ArrayList<>();
+        for (String h : header) {
+            if (schema.containsKey(h)) present.add(h);
+        }
+        for (String name : schema.keySet()) {
+            if (!headers.contains(name)) System.out.println("CSV 缺少 " + name + " 列，跳过转换");
+        }
+
+        int n = present.size();
+        index = new int[n];
+        types = new NumericType[n];
+        names = present.toArray(new String[0]);
+        rules = new Rule[n];
+        converted = new long[n];
+        failed = new long[n];
+        for (int k = 0; k < n; k++) {
+            index[k] = headers.indexOf(names[k]);
+            types[k] = schema.get(names[k]);
+            rules[k] = Diagnostics.rule("coerce." + names[k]);
+        }
+    }
+
+    @Override
+    public boolean process(CsvRow line) {
+        row++;
+        for (int k = 0; k < index.length; k++) {
+            int i = index[k];
+            if (line.size() <= i) continue;   // 列数不足的行原样写回
+
+            String raw = line.get(i);
+            if (raw.isBlank()) continue;
+            long v = DecimalScanner.parse(raw);
+            if (v == DecimalScanner.FAIL || !types[k].accepts(v)) {
+                failed[k]++;
+                rules[k].report(row, line.offset(), "Row %d %s 无法转换为 %s: %s", row, names[k], types[k], raw);
+                continue;
+            }
+            converted[k]++;
+            if (!DecimalScanner.isCanonical(raw)) line.set(i, Long.toString(v));
+        }
+        return true;
+    }
+
+    @Override
+    public void end() {
+        for (int k = 0; k < index.length; k++) {
+            System.out.printf("%s 已转换为 %s: %d 个值，%d 个无法转换%n", names[k], types[k], converted[k], failed[k]);
+        }
+    }
+
+    @Override
+    public void saveState(DataOutput out) throws IOException {
+        out.writeLong(row);
+        out.writeInt(names.length);
+        for (int k = 0; k < names.length; k++) {
+            out.writeUTF(names[k]);
+            out.writeLong(converted[k]);
+            out.writeLong(failed[k]);
+        }
+    }
+
+    @Override
+    public void restoreState(DataInput in) throws IOException {
+        row = in.readLong();
+        List<String> present = Arrays.asList(names);
+        for (int n = in.readInt(); n > 0; n--) {
+            int k = present.indexOf(in.readUTF());
+            long c = in.readLong();
+            long f = in.readLong();
+            if (k < 0) continue;
+            converted[k] = c;
+            failed[k] = f;
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package com.example.datapreprocessor.coerce;
+
+/** 数值列的目标类型，决定取值范围 */
+public enum NumericType {
+    INT(Integer.MIN_VALUE, Integer.MAX_VALUE),
+    LONG(Long.MIN_VALUE + 1, Long.MAX_VALUE);   // MIN_VALUE 留作 DecimalScanner.FAIL
+
+    final long min;
+    final long max;
+
+    NumericType(long min, long max) {
+        this.min = min;
+        this.max = max;
+    }
+
+    boolean accepts(long v) {
+        return v >= min && v <= max;
+    }
+}
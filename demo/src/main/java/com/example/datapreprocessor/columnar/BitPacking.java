@@ -0,0 +1,49 @@
+package com.example.datapreprocessor.columnar;
+
+import java.nio.ByteBuffer;
+
+/** 定宽位压缩：每个值占 width 位，按小端顺序排在 long 数组里 */
+final class BitPacking {
+
+    /** 表示 [0, range] 需要的位数 */
+    static int width(long range) {
+        return 64 - Long.numberOfLeadingZeros(range);
+    }
+
+    static int words(int n, int width) {
+        return (int) (((long) n * width + 63) >>> 6);
+    }
+
+    static long[] pack(long[] values, int n, long base, int width) {
+        long[] words = new long[words(n, width)];
+        if (width == 0) return words;
+        for (int i = 0; i < n; i++) {
+            long v = values[i] - base;
+            long bit = (long) i * width;
+            int w = (int) (bit >>> 6);
+            int off = (int) (bit & 63);
+            words[w] |= v << off;
+            if (off + width > 64) words[w + 1] |= v >>> (64 - off);
+        }
+        return words;
+    }
+
+    /** 从 buf 的 pos 处读出 n 个值，加上 base 写入 out */
+    static void unpack(ByteBuffer buf, int pos, int n, long base, int width, long[] out) {
+        if (width == 0) {
+            for (int i = 0; i < n; i++) out[i] = base;
+            return;
+        }
+        long mask = width == 64 ? -1L : (1L << width) - 1;
+        for (int i = 0; i < n; i++) {
+            long bit = (long) i * width;
+            int w = (int) (bit >>> 6);
+            int off = (int) (bit & 63);
+            long v = buf.getLong(pos + 8 * w) >>> off;
+            if (off + width > 64) v |= buf.getLong(pos + 8 * (w + 1)) << (64 - off);
+            out[i] = base + (v & mask);
+        }
+    }
+
+    private BitPacking() {}
+}
@@ -0,0 +1,13 @@
+package com.example.datapreprocessor.columnar;
+
+/** 列的声明类型，决定写出时优先尝试的编码 */
+public enum ColumnType {
+    /** 整数，按块做 frame-of-reference 位压缩，空串记为 null */
+    INT,
+    /** 低基数字符串，按块建字典，值存为位压缩的编号 */
+    DICT,
+    /** 任意字符串，偏移表 + UTF-8 字节 */
+    STRING,
+    /** c("1,2,3") 形式的 ID 列表，存为变长整数的差值序列 */
+    ID_LIST
+}
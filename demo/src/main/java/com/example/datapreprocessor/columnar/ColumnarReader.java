@@ -0,0 +1,295 @@
+package com.example.datapreprocessor.columnar;
+
+import com.example.datapreprocessor.io.ListCell;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * 读取 {@link ColumnarWriter} 写出的列存文件。
+ * 打开时只读文件尾的目录；块内各列在第一次访问时才映射和解码，
+ * 配合 {@link #mayContain} 可以按整数范围跳过整块。
+ */
+public final class ColumnarReader implements Closeable {
+
+    private final FileChannel channel;
+    private final ByteBuffer whole;   // 文件不超过 2GB 时整体映射，否则按块映射
+    private final String[] names;
+    private final ColumnType[] types;
+    private final int[] blockRows;
+    private final long[] chunkOffset;
+    private final int[] chunkLength;
+    private final byte[] encoding;
+    private final int[] nulls;
+    private final long[] min;
+    private final long[] max;
+    private final long rowCount;
+
+    private ColumnarReader(Path path) throws IOException {
+        channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            long size = channel.size();
+            if (size < 20) throw new IOException("不是列存文件: " + path);
+            whole = size <= Integer.MAX_VALUE
+                    ? channel.map(FileChannel.MapMode.READ_ONLY, 0, size).order(ByteOrder.LITTLE_ENDIAN)
+                    : null;
+
+            ByteBuffer head = map(0, 8);
+            ByteBuffer tail = map(size - 12, 12);
+            if (head.getInt(0) != ColumnarWriter.MAGIC || tail.getInt(8) != ColumnarWriter.MAGIC) {
+                throw new IOException("不是列存文件: " + path);
+            }
+            int version = head.getInt(4);
+            if (version < 1 || version > ColumnarWriter.VERSION) throw new IOException("不支持的列存版本 " + version);
+            long footer = tail.getLong(0);
+            ByteBuffer f = map(footer, (int) (size - 12 - footer));
+
+            int columns = f.getInt();
+            names = new String[columns];
+            types = new ColumnType[columns];
+            for (int c = 0; c < columns; c++) {
+                byte[] e = new byte[f.getInt()];
+                f.get(e);
+                names[c] = new String(e, StandardCharsets.UTF_8);
+                types[c] = ColumnType.values()[f.get()];
+            }
+            int blocks = f.getInt();
+            blockRows = new int[blocks];
+            chunkOffset = new long[blocks * columns];
+            chunkLength = new int[blocks * columns];
+            encoding = new byte[blocks * columns];
+            nulls = new int[blocks * columns];
+            min = new long[blocks * columns];
+            max = new long[blocks * columns];
+            long total = 0;
+            for (int b = 0; b < blocks; b++) {
+                blockRows[b] = f.getInt();
+                total += blockRows[b];
+                for (int c = 0; c < columns; c++) {
+                    int k = b * columns + c;
+                    chunkOffset[k] = f.getLong();
+                    chunkLength[k] = f.getInt();
+                    encoding[k] = f.get();
+                    nulls[k] = f.getInt();
+                    min[k] = f.getLong();
+                    max[k] = f.getLong();
+                }
+            }
+            rowCount = total;
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    public static ColumnarReader open(Path path) throws IOException {
+        return new ColumnarReader(path);
+    }
+
+    public String[] columns() {
+        return names.clone();
+    }
+
+    public ColumnType type(int column) {
+        return types[column];
+    }
+
+    /** 按列名找下标，不存在时为 -1 */
+    public int columnIndex(String name) {
+        return Arrays.asList(names).indexOf(name);
+    }
+
+    public long rowCount() {
+        return rowCount;
+    }
+
+    public int blockCount() {
+        return blockRows.length;
+    }
+
+    /**
+     * 该块该列是否可能含有 [lo, hi] 内的整数。
+     * 只有整数编码的块带统计，其它块总是返回 true。
+     */
+    public boolean mayContain(int block, int column, long lo, long hi) {
+        int k = block * names.length + column;
+        if (encoding[k] != ColumnarWriter.ENC_INT) return true;
+        if (nulls[k] == blockRows[block]) return false;
+        return max[k] >= lo && min[k] <= hi;
+    }
+
+    public Block block(int block) throws IOException {
+        return new Block(block);
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private ByteBuffer map(long offset, int length) throws IOException {
+        if (whole != null) return whole.slice((int) offset, length).order(ByteOrder.LITTLE_ENDIAN);
+        return channel.map(FileChannel.MapMode.READ_ONLY, offset, length).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /** 一块数据，各列按需解码后缓存 */
+    public final class Block {
+        private final int block;
+        private final int rows;
+        private final ByteBuffer[] chunks = new ByteBuffer[names.length];
+        private final long[][] longs = new long[names.length][];
+        private final String[][] dicts = new String[names.length][];
+        private final String[][] strings = new String[names.length][];
+
+        private Block(int block) {
+            this.block = block;
+            this.rows = blockRows[block];
+        }
+
+        public int rows() {
+            return rows;
+        }
+
+        /** 该列在本块是否按整数编码；非规范整数出现时整块会退回字符串 */
+        public boolean isInt(int column) {
+            return encoding[block * names.length + column] == ColumnarWriter.ENC_INT;
+        }
+
+        public long min(int column) {
+            return min[block * names.length + column];
+        }
+
+        public long max(int column) {
+            return max[block * names.length + column];
+        }
+
+        /** 整数列的全部值，null 处的值未定义，需配合 {@link #isNull} 使用 */
+        public long[] longs(int column) throws IOException {
+            if (!isInt(column)) throw new IllegalStateException("列 " + names[column] + " 在第 " + block + " 块不是整数编码");
+            long[] v = longs[column];
+            if (v == null) {
+                ByteBuffer b = chunk(column);
+                int width = b.get(1) & 0xFF;
+                int bitmapBytes = b.getInt(4);
+                v = new long[rows];
+                BitPacking.unpack(b, 24 + bitmapBytes, rows, b.getLong(8), width, v);
+                longs[column] = v;
+            }
+            return v;
+        }
+
+        public boolean isNull(int column, int row) throws IOException {
+            if (!isInt(column) || nulls[block * names.length + column] == 0) return false;
+            return (chunk(column).get(24 + (row >>> 3)) & (1 << (row & 7))) != 0;
+        }
+
+        /** 任意编码的列都能按字符串读取，整数列的 null 读作空串 */
+        public String get(int column, int row) throws IOException {
+            byte enc = encoding[block * names.length + column];
+            if (enc == ColumnarWriter.ENC_INT) {
+                return isNull(column, row) ? "" : Long.toString(longs(column)[row]);
+            }
+            if (enc == ColumnarWriter.ENC_DICT) {
+                return dictionary(column)[code(column, row)];
+            }
+            if (enc == ColumnarWriter.ENC_LIST) {
+                return ListCell.format(list(column, row));
+            }
+            String[] s = strings[column];
+            if (s == null) strings[column] = s = new String[rows];
+            String v = s[row];
+            if (v == null) {
+                ByteBuffer b = chunk(column);
+                int from = b.getInt(8 + 4 * row);
+                int to = b.getInt(8 + 4 * (row + 1));
+                v = utf8(b, 8 + 4 * (rows + 1) + from, to - from);
+                s[row] = v;
+            }
+            return v;
+        }
+
+        /** 字典编码列本块的字典 */
+        public String[] dictionary(int column) throws IOException {
+            String[] d = dicts[column];
+            if (d == null) {
+                ByteBuffer b = chunk(column);
+                int size = b.getInt(4);
+                int base = 8 + 4 * (size + 1);
+                d = new String[size];
+                for (int i = 0; i < size; i++) {
+                    int from = b.getInt(8 + 4 * i);
+                    d[i] = utf8(b, base + from, b.getInt(8 + 4 * (i + 1)) - from);
+                }
+                dicts[column] = d;
+            }
+            return d;
+        }
+
+        /** 字典编码列第 row 行的编号 */
+        public int code(int column, int row) throws IOException {
+            if (encoding[block * names.length + column] != ColumnarWriter.ENC_DICT) {
+                throw new IllegalStateException("列 " + names[column] + " 在第 " + block + " 块不是字典编码");
+            }
+            long[] v = longs[column];
+            if (v == null) {
+                ByteBuffer b = chunk(column);
+                int size = b.getInt(4);
+                int dictBytes = b.getInt(8 + 4 * size);
+                int words = (8 + 4 * (size + 1) + dictBytes + 7) & ~7;
+                v = new long[rows];
+                BitPacking.unpack(b, words, rows, 0, b.get(1) & 0xFF, v);
+                longs[column] = v;
+            }
+            return (int) v[row];
+        }
+
+        /** ID 列表列第 row 行的全部 ID，不经过字符串 */
+        public long[] ids(int column, int row) throws IOException {
+            if (encoding[block * names.length + column] != ColumnarWriter.ENC_LIST) {
+                throw new IllegalStateException("列 " + names[column] + " 在第 " + block + " 块不是列表编码");
+            }
+            ByteBuffer b = list(column, row);
+            long[] out = new long[ListCell.decode(b.duplicate(), null)];
+            ListCell.decode(b, out);
+            return out;
+        }
+
+        private ByteBuffer list(int column, int row) throws IOException {
+            ByteBuffer b = chunk(column);
+            int from = b.getInt(8 + 4 * row);
+            int to = b.getInt(8 + 4 * (row + 1));
+            int base = 8 + 4 * (rows + 1);
+            return b.slice(base + from, to - from);
+        }
+
+        /** 解码一整行 */
+        public String[] row(int row) throws IOException {
+            String[] out = new String[names.length];
+            for (int c = 0; c < names.length; c++) out[c] = get(c, row);
+            return out;
+        }
+
+        private ByteBuffer chunk(int column) throws IOException {
+            ByteBuffer b = chunks[column];
+            if (b == null) {
+                int k = block * names.length + column;
+                b = map(chunkOffset[k], chunkLength[k]);
+                chunks[column] = b;
+            }
+            return b;
+        }
+    }
+
+    private static String utf8(ByteBuffer b, int pos, int len) {
+        byte[] bytes = new byte[len];
+        b.get(pos, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
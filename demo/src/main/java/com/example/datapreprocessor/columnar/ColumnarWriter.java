@@ -0,0 +1,367 @@
+package com.example.datapreprocessor.columnar;
+
+import com.example.datapreprocessor.io.Compression;
+import com.example.datapreprocessor.io.CsvRow;
+import com.example.datapreprocessor.io.ListCell;
+import com.example.datapreprocessor.pipeline.RowPipeline;
+import com.example.datapreprocessor.pipeline.RowStage;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 把 CSV 行写成按列存储的二进制文件，读回时不再需要文本解析，见 {@link ColumnarReader}。
+ *
+ * <p>文件由若干块组成，每块最多 {@link #BLOCK_ROWS} 行，块内每列单独编码：</p>
+ * <ul>
+ *   <li>INT 列按 frame-of-reference 位压缩（块内最小值 + 定宽差值），附带 null 位图和 min/max 统计，
+ *       读取端可据此跳过整块；块内出现非规范整数时该块退回字符串编码，保证无损</li>
+ *   <li>DICT 列每块建一个字典，值存为位压缩的编号，字典过大时退回字符串编码</li>
+ *   <li>STRING 列为 int 偏移表加 UTF-8 字节</li>
+ *   <li>ID_LIST 列为 int 偏移表加每行一段 {@link ListCell#encode} 编码；块内有不规范的列表时退回字符串编码</li>
+ * </ul>
+ * <p>文件末尾是列名、声明类型和每块每列的位置与统计。所有数值为小端序。
+ * 比表头短的行补空串，多出的字段丢弃。写在临时文件里，{@link #close} 写完文件尾后才改名为目标文件。</p>
+ */
+public final class ColumnarWriter implements Closeable {
+
+    static final int MAGIC = 0x424C4F43;   // "COLB"
+    static final int VERSION = 2;   // 2 新增 ID_LIST
+    static final int BLOCK_ROWS = 65_536;
+    static final int MAX_DICT = 1024;
+
+    static final byte ENC_INT = 0;
+    static final byte ENC_DICT = 1;
+    static final byte ENC_STRING = 2;
+    static final byte ENC_LIST = 3;
+
+    private final Path target;
+    private final FileChannel channel;
+    private final String[] names;
+    private final ColumnType[] types;
+    private final String[][] pending;
+    private int rows;
+    private final List<long[]> blockMeta = new ArrayList<>();   // 每块：行数 + 每列 (offset, length, encoding, nulls, min, max)
+    private long position;
+
+    private ColumnarWriter(Path target, String[] header, Map<String, ColumnType> schema) throws IOException {
+        this.target = target;
+        this.channel = FileChannel.open(Compression.partial(target), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        this.names = header.clone();
+        this.types = new ColumnType[header.length];
+        for (int i = 0; i < header.length; i++) types[i] = schema.getOrDefault(header[i], ColumnType.STRING);
+        this.pending = new String[header.length][BLOCK_ROWS];
+
+        ByteBuffer head = ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN);
+        head.putInt(MAGIC).putInt(VERSION).flip();
+        writeFully(head);
+    }
+
+    /** schema 中没有列出的列按 STRING 处理 */
+    public static ColumnarWriter open(Path target, String[] header, Map<String, ColumnType> schema) throws IOException {
+        return new ColumnarWriter(target, header, schema);
+    }
+
+    /** CSV 输出对应的列存文件：把 .csv 后缀换成 .col */
+    public static Path pathFor(Path csvPath) {
+        String name = Compression.baseName(csvPath);
+        if (name.endsWith(".csv")) name = name.substring(0, name.length() - 4);
+        return csvPath.resolveSibling(name + ".col");
+    }
+
+    /** 把一个 CSV 文件整体转成列存文件 */
+    public static void convert(Path csvPath, Path target, Map<String, ColumnType> schema) throws IOException {
+        new RowPipeline().add(stage(target, schema)).run(csvPath, null);
+    }
+
+    /**
+     * 放在流水线末尾，把通过前面各阶段的行同时写入列存文件。
+     * 列存文件不支持追加，带这个阶段的流水线不写运行清单，每次都全量重算。
+     */
+    public static RowStage stage(Path target, Map<String, ColumnType> schema) {
+        return new Stage(target, schema);
+    }
+
+    public void write(CsvRow row) throws IOException {
+        int n = Math.min(row.size(), names.length);
+        for (int c = 0; c < n; c++) pending[c][rows] = row.get(c);
+        for (int c = n; c < names.length; c++) pending[c][rows] = "";
+        if (++rows == BLOCK_ROWS) flushBlock();
+    }
+
+    public void write(String[] values) throws IOException {
+        write(CsvRow.of(values));
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            if (rows > 0) flushBlock();
+            writeFooter();
+        } finally {
+            channel.close();
+        }
+        Compression.commit(target);
+    }
+
+    private void flushBlock() throws IOException {
+        long[] meta = new long[1 + 6 * names.length];
+        meta[0] = rows;
+        for (int c = 0; c < names.length; c++) {
+            ByteBuffer chunk = null;
+            long[] stats = new long[3];   // nulls, min, max
+            if (types[c] == ColumnType.INT) chunk = encodeInt(pending[c], rows, stats);
+            else if (types[c] == ColumnType.DICT) chunk = encodeDict(pending[c], rows);
+            else if (types[c] == ColumnType.ID_LIST) chunk = encodeList(pending[c], rows);
+            if (chunk == null) chunk = encodeString(pending[c], rows);
+
+            int m = 1 + 6 * c;
+            meta[m] = position;
+            meta[m + 1] = chunk.remaining();
+            meta[m + 2] = chunk.get(chunk.position());   // 编码写在每个块的第一个字节
+            meta[m + 3] = stats[0];
+            meta[m + 4] = stats[1];
+            meta[m + 5] = stats[2];
+            writeFully(chunk);
+            Arrays.fill(pending[c], 0, rows, null);
+        }
+        blockMeta.add(meta);
+        rows = 0;
+    }
+
+    /** 块内有非规范整数时返回 null，由调用方退回字符串编码 */
+    private static ByteBuffer encodeInt(String[] values, int n, long[] stats) {
+        long[] v = new long[n];
+        byte[] bitmap = null;
+        int nulls = 0;
+        long min = Long.MAX_VALUE;
+        long max = Long.MIN_VALUE;
+        for (int i = 0; i < n; i++) {
+            String s = values[i];
+            if (s.isEmpty()) {
+                if (bitmap == null) bitmap = new byte[(n + 7) >>> 3];
+                bitmap[i >>> 3] |= (byte) (1 << (i & 7));
+                nulls++;
+                continue;
+            }
+            if (!parseCanonical(s, v, i)) return null;
+            min = Math.min(min, v[i]);
+            max = Math.max(max, v[i]);
+        }
+        if (nulls == n) min = max = 0;
+        for (int i = 0; bitmap != null && i < n; i++) {
+            if ((bitmap[i >>> 3] & (1 << (i & 7))) != 0) v[i] = min;
+        }
+        int width = BitPacking.width(max - min);
+        long[] words = BitPacking.pack(v, n, min, width);
+
+        int bitmapBytes = bitmap == null ? 0 : pad8(bitmap.length);
+        ByteBuffer b = ByteBuffer.allocate(24 + bitmapBytes + 8 * words.length).order(ByteOrder.LITTLE_ENDIAN);
+        b.put(ENC_INT).put((byte) width).putShort((short) 0).putInt(bitmapBytes).putLong(min).putLong(max);
+        if (bitmap != null) b.put(bitmap).position(24 + bitmapBytes);
+        for (long w : words) b.putLong(w);
+        stats[0] = nulls;
+        stats[1] = min;
+        stats[2] = max;
+        return b.flip();
+    }
+
+    /** 字典超过 {@link #MAX_DICT} 项时返回 null */
+    private static ByteBuffer encodeDict(String[] values, int n) {
+        Map<String, Integer> dict = new HashMap<>();
+        List<byte[]> entries = new ArrayList<>();
+        long[] codes = new long[n];
+        int bytes = 0;
+        for (int i = 0; i < n; i++) {
+            Integer code = dict.get(values[i]);
+            if (code == null) {
+                if (dict.size() == MAX_DICT) return null;
+                code = dict.size();
+                dict.put(values[i], code);
+                byte[] e = values[i].getBytes(StandardCharsets.UTF_8);
+                entries.add(e);
+                bytes += e.length;
+            }
+            codes[i] = code;
+        }
+        int width = BitPacking.width(Math.max(0, dict.size() - 1));
+        long[] words = BitPacking.pack(codes, n, 0, width);
+
+        int head = pad8(8 + 4 * (entries.size() + 1) + bytes);
+        ByteBuffer b = ByteBuffer.allocate(head + 8 * words.length).order(ByteOrder.LITTLE_ENDIAN);
+        b.put(ENC_DICT).put((byte) width).putShort((short) 0).putInt(entries.size());
+        int off = 0;
+        for (byte[] e : entries) {
+            b.putInt(off);
+            off += e.length;
+        }
+        b.putInt(off);
+        for (byte[] e : entries) b.put(e);
+        b.position(head);
+        for (long w : words) b.putLong(w);
+        return b.flip();
+    }
+
+    /** 块内有不规范的列表时返回 null */
+    private static ByteBuffer encodeList(String[] values, int n) {
+        long bytes = 0;
+        for (int i = 0; i < n; i++) {
+            int k = ListCell.parseCanonical(values[i], null);
+            if (k < 0) return null;
+            bytes += ListCell.maxEncodedSize(k);
+        }
+        long size = 8 + 4L * (n + 1) + bytes;
+        if (size > Integer.MAX_VALUE) return null;
+        ByteBuffer b = ByteBuffer.allocate((int) size).order(ByteOrder.LITTLE_ENDIAN);
+        b.put(ENC_LIST).put((byte) 0).putShort((short) 0).putInt(n);
+        int base = 8 + 4 * (n + 1);
+        b.position(base);
+        long[] ids = new long[16];
+        for (int i = 0; i < n; i++) {
+            b.putInt(8 + 4 * i, b.position() - base);
+            int need = values[i].length() / 2 + 1;
+            if (ids.length < need) ids = new long[need];
+            ListCell.encode(ids, ListCell.parseCanonical(values[i], ids), b);
+        }
+        b.putInt(8 + 4 * n, b.position() - base);
+        return b.flip();
+    }
+
+    private static ByteBuffer encodeString(String[] values, int n) {
+        byte[][] utf8 = new byte[n][];
+        long bytes = 0;
+        for (int i = 0; i < n; i++) {
+            utf8[i] = values[i].getBytes(StandardCharsets.UTF_8);
+            bytes += utf8[i].length;
+        }
+        long size = 8 + 4L * (n + 1) + bytes;
+        if (size > Integer.MAX_VALUE) throw new UncheckedIOException(new IOException("单列单块超过 2GB"));
+        ByteBuffer b = ByteBuffer.allocate((int) size).order(ByteOrder.LITTLE_ENDIAN);
+        b.put(ENC_STRING).put((byte) 0).putShort((short) 0).putInt(n);
+        int off = 0;
+        for (byte[] u : utf8) {
+            b.putInt(off);
+            off += u.length;
+        }
+        b.putInt(off);
+        for (byte[] u : utf8) b.put(u);
+        return b.flip();
+    }
+
+    private void writeFooter() throws IOException {
+        List<byte[]> encodedNames = new ArrayList<>();
+        int size = 4;
+        for (String n : names) {
+            byte[] e = n.getBytes(StandardCharsets.UTF_8);
+            encodedNames.add(e);
+            size += 4 + e.length + 1;
+        }
+        size += 4 + blockMeta.size() * (4 + names.length * (8 + 4 + 1 + 4 + 8 + 8));
+        size += 8 + 4;
+
+        ByteBuffer b = ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+        long footer = position;
+        b.putInt(names.length);
+        for (int c = 0; c < names.length; c++) {
+            b.putInt(encodedNames.get(c).length).put(encodedNames.get(c)).put((byte) types[c].ordinal());
+        }
+        b.putInt(blockMeta.size());
+        for (long[] meta : blockMeta) {
+            b.putInt((int) meta[0]);
+            for (int c = 0; c < names.length; c++) {
+                int m = 1 + 6 * c;
+                b.putLong(meta[m]).putInt((int) meta[m + 1]).put((byte) meta[m + 2])
+                        .putInt((int) meta[m + 3]).putLong(meta[m + 4]).putLong(meta[m + 5]);
+            }
+        }
+        b.putLong(footer).putInt(MAGIC);
+        writeFully(b.flip());
+    }
+
+    private void writeFully(ByteBuffer b) throws IOException {
+        while (b.hasRemaining()) position += channel.write(b);
+    }
+
+    private static int pad8(int n) {
+        return (n + 7) & ~7;
+    }
+
+    /** 只接受规范十进制整数（无前导 0、无正号、无 "-0"），保证读回的字符串与原文一致 */
+    static boolean parseCanonical(String s, long[] out, int i) {
+        int n = s.length();
+        if (n == 0 || n > 20) return false;
+        int k = 0;
+        boolean neg = s.charAt(0) == '-';
+        if (neg && n == 1) return false;
+        if (neg) k = 1;
+        if (s.charAt(k) == '0' && (n > k + 1 || neg)) return false;
+        long v = 0;
+        for (; k < n; k++) {
+            int d = s.charAt(k) - '0';
+            if (d < 0 || d > 9) return false;
+            if (v < (Long.MIN_VALUE + d) / 10) return false;
+            v = v * 10 - d;   // 按负数累加，能表示 Long.MIN_VALUE
+        }
+        if (!neg && v == Long.MIN_VALUE) return false;
+        out[i] = neg ? v : -v;
+        return true;
+    }
+
+    private static final class Stage implements RowStage {
+        private final Path target;
+        private final Map<String, ColumnType> schema;
+        private ColumnarWriter writer;
+
+        Stage(Path target, Map<String, ColumnType> schema) {
+            this.target = target;
+            this.schema = schema;
+        }
+
+        @Override
+        public void begin(String[] header) {
+            try {
+                writer = open(target, header, schema);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        public boolean process(CsvRow row) {
+            try {
+                writer.write(row);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return true;
+        }
+
+        @Override
+        public void end() {
+            try {
+                writer.close();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        /** 列存文件整块写出，不支持增量追加 */
+        @Override
+        public boolean resumable() {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,177 @@
+package com.example.datapreprocessor.db;
+
+import com.example.datapreprocessor.db.TableSpec.OnMissing;
+import com.example.datapreprocessor.db.TableSpec.SqlType;
+import com.example.datapreprocessor.diag.Diagnostics;
+import com.example.datapreprocessor.io.Compression;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * 把三个预处理器的输出导入嵌入式 H2 数据库。
+ *
+ * <p>表按外键依赖分三批导入：users → (recipes, user_follows 并行) → reviews，
+ * 每张表一个连接，预编译语句按 {@value TableLoader#BATCH} 行一批提交。
+ * 建表时不带任何约束和索引，全部导入后再补建主键和外键（外键会顺带建索引），
+ * 避免每插一行都维护一次索引。主键重复和外键缺失在导入时已经处理掉，
+ * 所以 H2 上补建外键时用 NOCHECK 跳过对已有数据的重复校验。</p>
+ */
+public final class DatabaseLoader {
+
+    public static void main(String[] args) {
+        Path dir = Paths.get("Project-1-for-midterm");
+        // --url=jdbc:... 指定其它数据库，默认在数据目录下建 foodcom.mv.db
+        String url = null;
+        for (String a : args) {
+            if (a.startsWith("--url=")) url = a.substring("--url=".length());
+        }
+        if (url == null) url = defaultUrl(dir);
+
+        try {
+            load(dir, url);
+        } catch (IOException | SQLException e) {
+            System.err.println("导入数据库时出错: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+
+    /** dir 下的 H2 文件库 foodcom.mv.db */
+    public static String defaultUrl(Path dir) {
+        return "jdbc:h2:file:" + dir.toAbsolutePath().resolve("foodcom");
+    }
+
+    /** 从 dir 下的清洗结果重建全部表 */
+    public static void load(Path dir, String url) throws IOException, SQLException {
+        TableSpec users = new TableSpec("users", Compression.input(dir.resolve("user_fixed.csv")))
+                .primaryKey("AuthorId")
+                .column("AuthorName", SqlType.TEXT)
+                .column("Gender", SqlType.TEXT)
+                .column("Age", SqlType.INT)
+                .column("Followers", SqlType.INT)
+                .column("Following", SqlType.INT);
+
+        TableSpec follows = new TableSpec("user_follows", users.csv)
+                .foreignKey("FollowerId", users, OnMissing.SKIP_ROW)
+                .foreignKey("FolloweeId", users, OnMissing.SKIP_ROW);
+        follows.primaryKey = "follower_id, followee_id";
+
+        TableSpec recipes = new TableSpec("recipes", Compression.input(dir.resolve("recipes_checktime.csv")))
+                .primaryKey("RecipeId")
+                .column("Name", SqlType.TEXT)
+                .foreignKey("AuthorId", users, OnMissing.SET_NULL)
+                .column("CookTime", SqlType.TEXT)
+                .column("PrepTime", SqlType.TEXT)
+                .column("TotalTime", SqlType.TEXT)
+                .column("DatePublished", SqlType.TIMESTAMP)
+                .column("Description", SqlType.TEXT)
+                .column("RecipeCategory", SqlType.TEXT)
+                .column("Keywords", SqlType.TEXT)
+                .column("RecipeIngredientParts", SqlType.TEXT)
+                .column("AggregatedRating", SqlType.DOUBLE)
+                .column("ReviewCount", SqlType.INT)
+                .column("Calories", SqlType.DOUBLE)
+                .column("FatContent", SqlType.DOUBLE)
+                .column("SaturatedFatContent", SqlType.DOUBLE)
+                .column("CholesterolContent", SqlType.DOUBLE)
+                .column("SodiumContent", SqlType.DOUBLE)
+                .column("CarbohydrateContent", SqlType.DOUBLE)
+                .column("FiberContent", SqlType.DOUBLE)
+                .column("SugarContent", SqlType.DOUBLE)
+                .column("ProteinContent", SqlType.DOUBLE)
+                .column("RecipeServings", SqlType.INT)
+                .column("RecipeYield", SqlType.TEXT)
+                .column("RecipeInstructions", SqlType.TEXT);
+
+        TableSpec reviews = new TableSpec("reviews", Compression.input(dir.resolve("reviews_recipeid2int.csv")))
+                .primaryKey("ReviewId")
+                .foreignKey("RecipeId", recipes, OnMissing.SKIP_ROW)
+                .foreignKey("AuthorId", users, OnMissing.SET_NULL)
+                .column("Rating", SqlType.INT)
+                .column("Review", SqlType.TEXT)
+                .column("DateSubmitted", SqlType.TIMESTAMP)
+                .column("DateModified", SqlType.TIMESTAMP)
+                .column("Likes", SqlType.INT);
+
+        List<TableSpec> all = List.of(users, recipes, follows, reviews);
+        long start = System.nanoTime();
+        // 这个连接一直开到最后：嵌入式 H2 在最后一个连接关闭时会关库，各批之间不必反复打开
+        try (Connection c = DriverManager.getConnection(url); Statement st = c.createStatement()) {
+            for (int i = all.size() - 1; i >= 0; i--) st.execute("DROP TABLE IF EXISTS " + all.get(i).name + " CASCADE");
+            for (TableSpec t : all) st.execute(t.createSql());
+            if (isH2(url)) st.execute("SET CACHE_SIZE 262144");   // 单位 KB
+
+            loadAll(url, users, recipes, follows, reviews);
+
+            long t0 = System.nanoTime();
+            for (TableSpec t : all) {
+                st.execute("ALTER TABLE " + t.name + " ADD CONSTRAINT pk_" + t.name + " PRIMARY KEY (" + t.primaryKey + ")");
+            }
+            for (TableSpec t : all) {
+                for (TableSpec.ForeignKey fk : t.foreignKeys) {
+                    st.execute("ALTER TABLE " + t.name + " ADD CONSTRAINT fk_" + t.name + "_" + fk.column()
+                            + " FOREIGN KEY (" + fk.column() + ") REFERENCES " + fk.parent().name
+                            + " (" + fk.parent().primaryKey + ")" + (isH2(url) ? " NOCHECK" : ""));
+                }
+            }
+            Diagnostics.flush();
+            System.out.printf("约束和索引建立用时 %.1f 秒%n", (System.nanoTime() - t0) / 1e9);
+        }
+        System.out.printf("导入完成，总用时 %.1f 秒 → %s%n", (System.nanoTime() - start) / 1e9, url);
+    }
+
+    private static void loadAll(String url, TableSpec users, TableSpec recipes, TableSpec follows, TableSpec reviews)
+            throws IOException, SQLException {
+        report(TableLoader.load(users, url));
+
+        // recipes 和 user_follows 都只依赖 users，并行导入
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        try {
+            Future<TableLoader.Result> r = pool.submit(() -> TableLoader.load(recipes, url));
+            Future<TableLoader.Result> f = pool.submit(() -> TableLoader.loadFollows(follows, users, url));
+            report(join(r));
+            report(join(f));
+        } finally {
+            pool.shutdown();
+        }
+
+        report(TableLoader.load(reviews, url));
+    }
+
+    private static boolean isH2(String url) {
+        return url.startsWith("jdbc:h2:");
+    }
+
+    private static TableLoader.Result join(Future<TableLoader.Result> f) throws IOException, SQLException {
+        try {
+            return f.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("导入被中断", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException io) throw io;
+            if (cause instanceof SQLException sql) throw sql;
+            if (cause instanceof RuntimeException re) throw re;
+            throw new IOException(cause);
+        }
+    }
+
+    private static void report(TableLoader.Result r) {
+        double sec = r.nanos() / 1e9;
+        System.out.printf("%s: 导入 %d 行，跳过 %d 行，用时 %.1f 秒（%.0f 行/秒）%n",
+                r.table(), r.loaded(), r.skipped(), sec, r.loaded() / Math.max(sec, 1e-9));
+    }
+
+    private DatabaseLoader() {}
+}
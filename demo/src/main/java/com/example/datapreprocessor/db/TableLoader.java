@@ -0,0 +1,229 @@
+package com.example.datapreprocessor.db;
+
+import com.example.datapreprocessor.dedup.LongHashSet;
+import com.example.datapreprocessor.diag.Diagnostics;
+import com.example.datapreprocessor.diag.Rule;
+import com.example.datapreprocessor.io.CsvInput;
+import com.example.datapreprocessor.io.CsvRow;
+import com.example.datapreprocessor.io.ListCell;
+import com.example.datapreprocessor.io.RowReader;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 把一个 CSV 流式写入一张表：一个连接、一条预编译语句、大批量提交。
+ * 主键重复和外键缺失在导入时就按 {@link TableSpec} 的规则处理掉，
+ * 因此导入后再补建的约束一定能成功。
+ */
+final class TableLoader {
+
+    static final int BATCH = 5_000;
+    static final int COMMIT_EVERY = 50_000;
+
+    private static final Rule DUPLICATE_KEY  = Diagnostics.rule("load.duplicate-key");
+    private static final Rule MISSING_PARENT = Diagnostics.rule("load.missing-parent");
+    private static final Rule BAD_VALUE      = Diagnostics.rule("load.bad-value");
+
+    record Result(String table, long loaded, long skipped, long nanos) {}
+
+    static Result load(TableSpec t, String url) throws IOException, SQLException {
+        long start = System.nanoTime();
+        try (Connection c = DriverManager.getConnection(url);
+             RowReader reader = CsvInput.open(t.csv)) {
+            c.setAutoCommit(false);
+            String[] header = reader.readNext();
+            if (header == null) return new Result(t.name, 0, 0, System.nanoTime() - start);
+
+            List<TableSpec.Column> cols = t.columns;
+            int[] idx = new int[cols.size()];
+            for (int i = 0; i < idx.length; i++) {
+                idx[i] = Arrays.asList(header).indexOf(cols.get(i).header());
+                if (idx[i] < 0) throw new IllegalArgumentException(t.csv.getFileName() + " 缺少列 " + cols.get(i).header());
+            }
+            int keyCol = -1;
+            int[] fkCol = new int[t.foreignKeys.size()];
+            for (int i = 0; i < cols.size(); i++) {
+                if (cols.get(i).name().equals(t.primaryKey)) keyCol = i;
+                for (int f = 0; f < fkCol.length; f++) {
+                    if (cols.get(i).name().equals(t.foreignKeys.get(f).column())) fkCol[f] = i;
+                }
+            }
+
+            long loaded = 0;
+            long skipped = 0;
+            String[] values = new String[cols.size()];
+            try (PreparedStatement ps = c.prepareStatement(t.insertSql())) {
+                CsvRow row;
+                long rowNo = 1;
+                int pending = 0;
+                rows:
+                while ((row = reader.next()) != null) {
+                    rowNo++;
+                    for (int i = 0; i < values.length; i++) values[i] = idx[i] < row.size() ? row.get(idx[i]) : "";
+
+                    // 先查外键再占用主键，被跳过的行不会占住主键
+                    for (int f = 0; f < fkCol.length; f++) {
+                        TableSpec.ForeignKey fk = t.foreignKeys.get(f);
+                        String v = values[fkCol[f]].trim();
+                        if (v.isEmpty()) continue;
+                        Long parent = parseLong(v);
+                        if (parent != null && fk.parent().keys.contains(parent)) continue;
+                        MISSING_PARENT.report(rowNo, row.offset(), "%s 第 %d 行 %s=%s 在 %s 中不存在%s",
+                                t.name, rowNo, fk.column(), v, fk.parent().name,
+                                fk.onMissing() == TableSpec.OnMissing.SKIP_ROW ? "，跳过本行" : "，置为 NULL");
+                        if (fk.onMissing() == TableSpec.OnMissing.SKIP_ROW) {
+                            skipped++;
+                            continue rows;
+                        }
+                        values[fkCol[f]] = "";
+                    }
+                    if (keyCol >= 0) {
+                        String v = values[keyCol].trim();
+                        Long key = parseLong(v);
+                        if (key == null) {
+                            BAD_VALUE.report(rowNo, row.offset(), "%s 第 %d 行主键 %s 不是整数，跳过本行", t.name, rowNo, v);
+                            skipped++;
+                            continue;
+                        }
+                        if (!t.keys.add(key)) {
+                            DUPLICATE_KEY.report(rowNo, row.offset(), "%s 第 %d 行主键 %s 重复，保留第一次出现的行", t.name, rowNo, v);
+                            skipped++;
+                            continue;
+                        }
+                    }
+
+                    for (int i = 0; i < values.length; i++) {
+                        bind(ps, i + 1, cols.get(i), values[i], t.name, rowNo, row.offset());
+                    }
+                    ps.addBatch();
+                    loaded++;
+                    if (++pending == BATCH) {
+                        ps.executeBatch();
+                        pending = 0;
+                        if (loaded % COMMIT_EVERY == 0) c.commit();
+                    }
+                }
+                if (pending > 0) ps.executeBatch();
+            }
+            c.commit();
+            return new Result(t.name, loaded, skipped, System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * 从用户表的 FollowingUsers 列展开关注关系。同一用户出现多次时只取第一行，
+     * 与用户表的去重规则一致；列表内的重复和不存在的用户被丢弃。
+     */
+    static Result loadFollows(TableSpec follows, TableSpec users, String url) throws IOException, SQLException {
+        long start = System.nanoTime();
+        try (Connection c = DriverManager.getConnection(url);
+             RowReader reader = CsvInput.open(users.csv)) {
+            c.setAutoCommit(false);
+            String[] header = reader.readNext();
+            if (header == null) return new Result(follows.name, 0, 0, System.nanoTime() - start);
+            int idIdx = Arrays.asList(header).indexOf("AuthorId");
+            int followingIdx = Arrays.asList(header).indexOf("FollowingUsers");
+            if (idIdx < 0 || followingIdx < 0) throw new IllegalArgumentException(users.csv.getFileName() + " 缺少 AuthorId 或 FollowingUsers 列");
+
+            LongHashSet done = new LongHashSet();
+            long loaded = 0;
+            long skipped = 0;
+            long[] targets = new long[64];
+            ListCell.Cursor list = new ListCell.Cursor();
+            try (PreparedStatement ps = c.prepareStatement(follows.insertSql())) {
+                CsvRow row;
+                long rowNo = 1;
+                int pending = 0;
+                while ((row = reader.next()) != null) {
+                    rowNo++;
+                    if (row.size() <= Math.max(idIdx, followingIdx)) continue;
+                    Long u = parseLong(row.get(idIdx).trim());
+                    if (u == null || !users.keys.contains(u) || !done.add(u)) continue;
+
+                    int n = 0;
+                    list.reset(row.get(followingIdx).trim());
+                    while (list.next()) {
+                        String s = list.element();
+                        Long f = parseLong(s.trim());
+                        if (f == null || !users.keys.contains(f)) {
+                            MISSING_PARENT.report(rowNo, row.offset(), "%s 第 %d 行关注的用户 %s 不存在，跳过这条关系",
+                                    follows.name, rowNo, s.trim());
+                            skipped++;
+                            continue;
+                        }
+                        if (n == targets.length) targets = Arrays.copyOf(targets, n * 2);
+                        targets[n++] = f;
+                    }
+                    Arrays.sort(targets, 0, n);
+                    for (int i = 0; i < n; i++) {
+                        if (i > 0 && targets[i] == targets[i - 1]) continue;
+                        ps.setLong(1, u);
+                        ps.setLong(2, targets[i]);
+                        ps.addBatch();
+                        loaded++;
+                        if (++pending == BATCH) {
+                            ps.executeBatch();
+                            pending = 0;
+                            if (loaded % COMMIT_EVERY == 0) c.commit();
+                        }
+                    }
+                }
+                if (pending > 0) ps.executeBatch();
+            }
+            c.commit();
+            return new Result(follows.name, loaded, skipped, System.nanoTime() - start);
+        }
+    }
+
+    /** 值无法转换成列类型时写 NULL 并上报 */
+    private static void bind(PreparedStatement ps, int p, TableSpec.Column col, String value,
+                             String table, long rowNo, long offset) throws SQLException {
+        String v = col.type() == TableSpec.SqlType.TEXT ? value : value.trim();
+        if (v.isEmpty()) {
+            ps.setNull(p, sqlType(col.type()));
+            return;
+        }
+        try {
+            switch (col.type()) {
+                case BIGINT -> ps.setLong(p, Long.parseLong(v));
+                case INT -> ps.setInt(p, Integer.parseInt(v));
+                case DOUBLE -> ps.setDouble(p, Double.parseDouble(v));
+                case TIMESTAMP -> ps.setObject(p, OffsetDateTime.parse(v));
+                case TEXT -> ps.setString(p, v);
+            }
+        } catch (NumberFormatException | DateTimeParseException e) {
+            BAD_VALUE.report(rowNo, offset, "%s 第 %d 行 %s=%s 无法转换为 %s，写入 NULL",
+                    table, rowNo, col.name(), v, col.type());
+            ps.setNull(p, sqlType(col.type()));
+        }
+    }
+
+    private static int sqlType(TableSpec.SqlType type) {
+        return switch (type) {
+            case BIGINT -> Types.BIGINT;
+            case INT -> Types.INTEGER;
+            case DOUBLE -> Types.DOUBLE;
+            case TIMESTAMP -> Types.TIMESTAMP_WITH_TIMEZONE;
+            case TEXT -> Types.VARCHAR;
+        };
+    }
+
+    private static Long parseLong(String s) {
+        try {
+            return Long.parseLong(s);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private TableLoader() {}
+}
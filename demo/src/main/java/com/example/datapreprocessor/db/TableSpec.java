@@ -0,0 +1,103 @@
+package com.example.datapreprocessor.db;
+
+import com.example.datapreprocessor.dedup.LongHashSet;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/** 一张目标表：来源 CSV、要导入的列、主键和外键 */
+final class TableSpec {
+
+    enum SqlType {
+        BIGINT("BIGINT"), INT("INTEGER"), DOUBLE("DOUBLE PRECISION"),
+        TIMESTAMP("TIMESTAMP WITH TIME ZONE"), TEXT("CHARACTER VARYING");
+
+        final String ddl;
+
+        SqlType(String ddl) {
+            this.ddl = ddl;
+        }
+    }
+
+    /** 父表中找不到外键值时的处理方式 */
+    enum OnMissing { SET_NULL, SKIP_ROW }
+
+    record Column(String header, String name, SqlType type) {}
+
+    record ForeignKey(String column, TableSpec parent, OnMissing onMissing) {}
+
+    final String name;
+    final Path csv;
+    final List<Column> columns = new ArrayList<>();
+    final List<ForeignKey> foreignKeys = new ArrayList<>();
+    String primaryKey;
+
+    /** 已导入的主键，子表据此检查外键；导入完成后只读 */
+    final LongHashSet keys = new LongHashSet();
+
+    TableSpec(String name, Path csv) {
+        this.name = name;
+        this.csv = csv;
+    }
+
+    /** 列名取 CSV 表头的 snake_case 形式 */
+    TableSpec column(String header, SqlType type) {
+        columns.add(new Column(header, snakeCase(header), type));
+        return this;
+    }
+
+    TableSpec primaryKey(String header) {
+        column(header, SqlType.BIGINT);
+        primaryKey = snakeCase(header);
+        return this;
+    }
+
+    TableSpec foreignKey(String header, TableSpec parent, OnMissing onMissing) {
+        column(header, SqlType.BIGINT);
+        foreignKeys.add(new ForeignKey(snakeCase(header), parent, onMissing));
+        return this;
+    }
+
+    String createSql() {
+        StringBuilder sb = new StringBuilder("CREATE TABLE ").append(name).append(" (");
+        for (int i = 0; i < columns.size(); i++) {
+            if (i > 0) sb.append(", ");
+            sb.append(columns.get(i).name()).append(' ').append(columns.get(i).type().ddl);
+            if (primaryKey != null && Arrays.asList(primaryKey.split(",\\s*")).contains(columns.get(i).name())) {
+                sb.append(" NOT NULL");   // 主键约束在导入后才加，但要求列先声明为非空
+            }
+        }
+        return sb.append(')').toString();
+    }
+
+    String insertSql() {
+        StringBuilder sb = new StringBuilder("INSERT INTO ").append(name).append(" (");
+        StringBuilder values = new StringBuilder();
+        for (int i = 0; i < columns.size(); i++) {
+            if (i > 0) {
+                sb.append(", ");
+                values.append(", ");
+            }
+            sb.append(columns.get(i).name());
+            values.append('?');
+        }
+        return sb.append(") VALUES (").append(values).append(')').toString();
+    }
+
+    /** RecipeId -> recipe_id */
+    static String snakeCase(String header) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < header.length(); i++) {
+            char c = header.charAt(i);
+            if (Character.isUpperCase(c)) {
+                if (i > 0 && !Character.isUpperCase(header.charAt(i - 1))) sb.append('_');
+                sb.append(Character.toLowerCase(c));
+            } else {
+                sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,18 @@
+package com.example.datapreprocessor.dedup;
+
+/**
+ * 能按批撤销的去重引擎：{@link #beginBatch} 之后加入的 ID 在 {@link #commitBatch} 之前都能用
+ * {@link #rollbackBatch} 整批撤销。一批处理到一半失败、整批重试时，已读进来的 ID 不会被当成重复。
+ * 内存和字典实现支持，常驻进程只用这两种。
+ */
+public interface BatchDuplicateDetector extends DuplicateDetector {
+
+    /** 开始一批输入 */
+    void beginBatch();
+
+    /** 保留这一批加入的 ID */
+    void commitBatch();
+
+    /** 撤销这一批加入的 ID 和由它们发现的重复，回到 {@link #beginBatch} 时的状态 */
+    void rollbackBatch();
+}
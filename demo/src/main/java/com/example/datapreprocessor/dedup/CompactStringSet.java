@@ -0,0 +1,136 @@
+package com.example.datapreprocessor.dedup;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * 非数字 ID 的紧凑集合：字符串以 UTF-8 连续存放在分页字节区里，
+ * 哈希表只保存 (页号, 页内偏移) 和 32 位哈希，没有 String 和 Entry 对象。
+ */
+public final class CompactStringSet {
+
+    private static final int PAGE = 1 << 20;
+    private static final float LOAD_FACTOR = 0.6f;
+
+    private final List<byte[]> pages = new ArrayList<>();
+    private int pagePos = PAGE;
+
+    private long[] refs;     // (页号 << 32 | 偏移) + 1，0 表示空槽
+    private int[] hashes;
+    private int mask;
+    private int size;
+    private int threshold;
+    private long arenaBytes;
+
+    public CompactStringSet() {
+        allocate(1 << 10);
+    }
+
+    /** @return true 表示新加入，false 表示已存在 */
+    public boolean add(String id) {
+        byte[] b = id.getBytes(StandardCharsets.UTF_8);
+        int h = hash(b);
+        int i = h & mask;
+        while (refs[i] != 0) {
+            if (hashes[i] == h && equalsAt(refs[i] - 1, b)) return false;
+            i = (i + 1) & mask;
+        }
+        refs[i] = store(b) + 1;
+        hashes[i] = h;
+        if (++size >= threshold) grow();
+        return true;
+    }
+
+    public boolean contains(String id) {
+        byte[] b = id.getBytes(StandardCharsets.UTF_8);
+        int h = hash(b);
+        int i = h & mask;
+        while (refs[i] != 0) {
+            if (hashes[i] == h && equalsAt(refs[i] - 1, b)) return true;
+            i = (i + 1) & mask;
+        }
+        return false;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /** 当前占用的堆内存（字节，近似） */
+    public long memoryBytes() {
+        return (long) refs.length * (Long.BYTES + Integer.BYTES) + arenaBytes;
+    }
+
+    /** 按任意顺序遍历全部元素 */
+    public void forEach(Consumer<String> action) {
+        for (long r : refs) {
+            if (r != 0) action.accept(read(r - 1));
+        }
+    }
+
+    static int hash(byte[] b) {
+        int h = 0x811c9dc5;
+        for (byte x : b) {
+            h ^= x;
+            h *= 0x01000193;
+        }
+        return h ^ (h >>> 16);
+    }
+
+    /** 写入 [长度(2 字节)][内容]，返回引用 */
+    private long store(byte[] b) {
+        int need = b.length + 2;
+        if (need > 0xFFFF + 2) throw new IllegalArgumentException("ID 过长: " + b.length + " 字节");
+        if (pagePos + need > PAGE) {
+            pages.add(new byte[PAGE]);
+            arenaBytes += PAGE;
+            pagePos = 0;
+        }
+        int page = pages.size() - 1;
+        byte[] p = pages.get(page);
+        int pos = pagePos;
+        p[pos] = (byte) (b.length >>> 8);
+        p[pos + 1] = (byte) b.length;
+        System.arraycopy(b, 0, p, pos + 2, b.length);
+        pagePos += need;
+        return (long) page << 32 | pos;
+    }
+
+    private boolean equalsAt(long ref, byte[] b) {
+        byte[] p = pages.get((int) (ref >>> 32));
+        int pos = (int) ref;
+        int len = (p[pos] & 0xFF) << 8 | (p[pos + 1] & 0xFF);
+        return len == b.length && Arrays.equals(p, pos + 2, pos + 2 + len, b, 0, len);
+    }
+
+    private String read(long ref) {
+        byte[] p = pages.get((int) (ref >>> 32));
+        int pos = (int) ref;
+        int len = (p[pos] & 0xFF) << 8 | (p[pos + 1] & 0xFF);
+        return new String(p, pos + 2, len, StandardCharsets.UTF_8);
+    }
+
+    private void allocate(int cap) {
+        refs = new long[cap];
+        hashes = new int[cap];
+        mask = cap - 1;
+        threshold = (int) (cap * LOAD_FACTOR);
+    }
+
+    private void grow() {
+        if (refs.length >= 1 << 30) throw new IllegalStateException("CompactStringSet 已达到容量上限");
+        long[] oldRefs = refs;
+        int[] oldHashes = hashes;
+        allocate(oldRefs.length << 1);
+        for (int j = 0; j < oldRefs.length; j++) {
+            if (oldRefs[j] == 0) continue;
+            int i = oldHashes[j] & mask;
+            while (refs[i] != 0) i = (i + 1) & mask;
+            refs[i] = oldRefs[j];
+            hashes[i] = oldHashes[j];
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.example.datapreprocessor.dedup;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 借助持久化的 {@link IdDictionaryFile} 去重：ID 先换成编号，已见和已报告各是一张按编号的位图，
+ * 每个 ID 只占 2 bit。增量运行靠 {@link DuplicateIdStage} 的日志重放恢复，
+ * 字典文件被删掉重建也不影响。批次进行中新置上的位记在撤销日志里，撤销时逐个清掉。
+ */
+final class DictionaryDuplicateDetector implements BatchDuplicateDetector {
+
+    private final IdDictionaryFile dictionary;
+    private long[] seen = new long[1024];
+    private long[] reported = new long[1024];
+    private final List<String> duplicates = new ArrayList<>();
+
+    // 批次中新置上的位，元素为 编号 << 1 | (是否已报告位图)；undo 为 null 表示不在批次中
+    private long[] undo;
+    private int undoSize;
+    private int batchStart;
+
+    DictionaryDuplicateDetector(IdDictionaryFile dictionary) {
+        this.dictionary = dictionary;
+    }
+
+    @Override
+    public void add(String id) {
+        int code;
+        try {
+            code = dictionary.idOf(id);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        if (set(code, false) && !set(code, true)) {
+            duplicates.add(id);
+        }
+    }
+
+    @Override
+    public List<String> duplicates() {
+        return duplicates;
+    }
+
+    @Override
+    public void beginBatch() {
+        undo = new long[1024];
+        undoSize = 0;
+        batchStart = duplicates.size();
+    }
+
+    @Override
+    public void commitBatch() {
+        undo = null;
+    }
+
+    @Override
+    public void rollbackBatch() {
+        for (int k = 0; k < undoSize; k++) {
+            int code = (int) (undo[k] >>> 1);
+            long[] bits = (undo[k] & 1) != 0 ? reported : seen;
+            bits[code >>> 6] &= ~(1L << code);
+        }
+        duplicates.subList(batchStart, duplicates.size()).clear();
+        undo = null;
+    }
+
+    /** 置位并返回该位原来是否已经置上；reportedBits 为 false 时操作已见位图 */
+    private boolean set(int code, boolean reportedBits) {
+        int w = code >>> 6;
+        if (w >= seen.length) {
+            int n = Math.max(w + 1, seen.length * 2);
+            seen = Arrays.copyOf(seen, n);
+            reported = Arrays.copyOf(reported, n);
+        }
+        long[] bits = reportedBits ? reported : seen;
+        long mask = 1L << code;
+        boolean was = (bits[w] & mask) != 0;
+        bits[w] |= mask;
+        if (!was && undo != null) {
+            if (undoSize == undo.length) undo = Arrays.copyOf(undo, undoSize * 2);
+            undo[undoSize++] = (long) code << 1 | (reportedBits ? 1 : 0);
+        }
+        return was;
+    }
+}
@@ -0,0 +1,88 @@
+package com.example.datapreprocessor.dedup;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+
+/**
+ * 三个 ID 重复检查共用的去重引擎。
+ * 依次喂入 ID，结束后按“第一次发现重复”的顺序给出重复的 ID，每个只出现一次。
+ *
+ * <p>内存和字典实现可以在取过结果之后继续加入 ID、再取一次；溢写和两级过滤实现只能用一次，
+ * {@link #duplicates} 之后再 {@link #add} 会抛出 IllegalStateException。
+ * 内存和字典实现还能按批撤销，见 {@link BatchDuplicateDetector}。</p>
+ */
+public interface DuplicateDetector {
+
+    void add(String id);
+
+    List<String> duplicates();
+
+    /** 全部 ID 放在内存里的紧凑集合中 */
+    static BatchDuplicateDetector inMemory() {
+        return new InMemoryDuplicateDetector();
+    }
+
+    /** 内存占用超过 memoryBudget 字节后溢写到 spillDir 下的分区文件 */
+    static DuplicateDetector spilling(Path spillDir, long memoryBudget) {
+        return new SpillingDuplicateDetector(spillDir, memoryBudget);
+    }
+
+    /**
+     * 先用按 expected 个 ID、误判率 fpp 定大小的布隆过滤器筛一遍，只有命中的才精确检查；
+     * 没命中的 ID 顺序写到 logDir 下的临时日志，结束时读一遍区分误判
+     */
+    static DuplicateDetector filtered(Path logDir, long expected, double fpp) {
+        return new FilteredDuplicateDetector(logDir, expected, fpp);
+    }
+
+    /** ID 换成 dictionary 里的编号后用位图去重 */
+    static BatchDuplicateDetector dictionary(IdDictionaryFile dictionary) {
+        return new DictionaryDuplicateDetector(dictionary);
+    }
+
+    /**
+     * 按系统属性选择实现：设置了 -Ddatapreprocessor.dedup.memory（如 512m、2g）时使用溢写模式；
+     * 设置了 -Ddatapreprocessor.dedup.filter=预计 ID 个数（如 200m）时使用两级过滤模式，
+     * 误判率由 -Ddatapreprocessor.dedup.fpp 指定，默认 0.01；两者的临时文件都写在
+     * -Ddatapreprocessor.dedup.spillDir 下，默认为系统临时目录。
+     * 否则设置了 -Ddatapreprocessor.ids 时用 column 列共用的 ID 字典。
+     */
+    static DuplicateDetector create(String column) {
+        String budget = System.getProperty("datapreprocessor.dedup.memory");
+        if (budget != null && !budget.isBlank()) {
+            return spilling(spillDir(), parseSize(budget));
+        }
+        String expected = System.getProperty("datapreprocessor.dedup.filter");
+        if (expected != null && !expected.isBlank()) {
+            double fpp = Double.parseDouble(System.getProperty("datapreprocessor.dedup.fpp", "0.01"));
+            return filtered(spillDir(), parseSize(expected), fpp);
+        }
+        if (IdDictionaryFile.enabled()) {
+            try {
+                return dictionary(IdDictionaryFile.shared(column));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return inMemory();
+    }
+
+    private static Path spillDir() {
+        return Paths.get(System.getProperty("datapreprocessor.dedup.spillDir", System.getProperty("java.io.tmpdir")));
+    }
+
+    /** 解析 512k / 64m / 2g 这样的大小 */
+    static long parseSize(String s) {
+        s = s.trim().toLowerCase();
+        long unit = 1;
+        char last = s.charAt(s.length() - 1);
+        if (last == 'k') unit = 1L << 10;
+        else if (last == 'm') unit = 1L << 20;
+        else if (last == 'g') unit = 1L << 30;
+        if (unit != 1) s = s.substring(0, s.length() - 1);
+        return Long.parseLong(s.trim()) * unit;
+    }
+}
@@ -0,0 +1,114 @@
+package com.example.datapreprocessor.dedup;
+
+import com.example.datapreprocessor.io.CsvRow;
+import com.example.datapreprocessor.pipeline.JournaledStage;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+
+/**
+ * 检查第一列 ID 是否重复，只记录不修改也不丢弃任何行。
+ * 同一个实例可以接连用在多次运行上，去重状态跨运行保留，每次结束时只报告新发现的重复。
+ *
+ * <p>需要保存状态时，喂给去重引擎的每个 ID 按顺序追加到流水线给的日志里，
+ * 恢复时按原顺序重放一遍，已见集合和重复的发现顺序都与原来一致，任何去重引擎都适用。</p>
+ */
+public final class DuplicateIdStage implements JournaledStage {
+
+    private final String idName;
+    private final DuplicateDetector detector;
+    private int reported;   // 之前各次运行已经报告过的重复个数
+    private DataOutput log;
+
+    public DuplicateIdStage(String idName) {
+        this(idName, idName);
+    }
+
+    /** column 为 ID 列的列名，用来选择共用的 ID 字典 */
+    public DuplicateIdStage(String idName, String column) {
+        this(idName, DuplicateDetector.create(column));
+    }
+
+    public DuplicateIdStage(String idName, DuplicateDetector detector) {
+        this.idName = idName;
+        this.detector = detector;
+    }
+
+    @Override
+    public boolean process(CsvRow row) {
+        if (row.size() == 0) return true;
+        String id = row.get(0).trim();
+        detector.add(id);
+        if (log != null) {
+            try {
+                log.writeUTF(id);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return true;
+    }
+
+    /** 之前各次运行已经报告过的重复个数 */
+    public int reported() {
+        return reported;
+    }
+
+    /**
+     * 把已报告的个数退回到 reported，下次结束时从那里重新报告。
+     * 去重引擎撤销了一批 ID（见 {@link BatchDuplicateDetector#rollbackBatch}）之后用它同步。
+     */
+    public void rewind(int reported) {
+        this.reported = reported;
+    }
+
+    /** 状态全在日志里 */
+    @Override
+    public void saveState(DataOutput out) {
+    }
+
+    @Override
+    public void restoreState(DataInput in) {
+    }
+
+    @Override
+    public void journal(DataOutput log) {
+        this.log = log;
+    }
+
+    @Override
+    public void replay(DataInput in) throws IOException {
+        while (true) {
+            String id;
+            try {
+                id = in.readUTF();
+            } catch (EOFException eof) {
+                return;
+            }
+            detector.add(id);
+        }
+    }
+
+    @Override
+    public void end() {
+        List<String> duplicateIds = detector.duplicates();
+        List<String> fresh = duplicateIds.subList(reported, duplicateIds.size());
+        if (duplicateIds.isEmpty()) {
+            System.out.println("所有 " + idName + " 唯一，无重复。");
+        } else if (reported == 0) {
+            System.out.println("发现重复的 " + idName + " 共 " + duplicateIds.size() + " 个：");
+            duplicateIds.forEach(System.out::println);
+        } else if (fresh.isEmpty()) {
+            System.out.println("没有新的重复 " + idName + "，累计 " + duplicateIds.size() + " 个。");
+        } else {
+            System.out.println("新发现重复的 " + idName + " 共 " + fresh.size() + " 个（累计 "
+                    + duplicateIds.size() + " 个）：");
+            fresh.forEach(System.out::println);
+        }
+        reported = duplicateIds.size();
+    }
+}
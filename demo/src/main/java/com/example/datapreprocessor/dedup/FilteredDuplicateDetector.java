@@ -0,0 +1,182 @@
+package com.example.datapreprocessor.dedup;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * 两级去重：每个 ID 先过 {@link SplitBlockBloomFilter}。绝大多数 ID 只出现一次，过滤器说没见过，
+ * 只置几位并把 ID 顺序追加到磁盘上的日志；只有命中过滤器的才进内存里的精确候选集合。
+ *
+ * <p>第一次命中可能是真重复，也可能是误判，结束时顺序读一遍日志来区分：候选 ID 在日志里，
+ * 说明它此前没命中时出现过，第一次命中就是第二次出现；不在日志里则第一次命中是误判，第二次命中才算重复。
+ * 报告与 {@link InMemoryDuplicateDetector} 完全一致，内存约为每个 ID 1.2 字节（误判率 1% 时）加上候选集合。</p>
+ *
+ * <p>过滤器按预计的 ID 个数定大小，实际超出时再加一层两倍大的，误判率不会失控。
+ * 非规范十进制的 ID 很少见，直接放进精确集合。</p>
+ */
+final class FilteredDuplicateDetector implements DuplicateDetector {
+
+    private final Path logDir;
+    private final double fpp;
+    private final List<SplitBlockBloomFilter> layers = new ArrayList<>();
+    private long layerCapacity;
+    private long layerSize;
+
+    private final LongHashSet candidates = new LongHashSet();   // 命中过过滤器的 ID
+    private final LongHashSet repeated = new LongHashSet();     // 命中过两次及以上的 ID
+    private final Pairs firstHits = new Pairs();
+    private final Pairs secondHits = new Pairs();
+
+    private final IdSet others = new IdSet(16);
+    private final IdSet othersReported = new IdSet(16);
+    private final List<Hit> otherHits = new ArrayList<>();
+
+    private long seq;
+    private Path log;
+    private FileChannel logChannel;
+    private final ByteBuffer logBuffer = ByteBuffer.allocateDirect(1 << 16);
+    private List<String> result;
+
+    FilteredDuplicateDetector(Path logDir, long expected, double fpp) {
+        this.logDir = logDir;
+        this.fpp = fpp;
+        layerCapacity = Math.max(1 << 10, expected);
+        layers.add(new SplitBlockBloomFilter(layerCapacity, fpp));
+    }
+
+    @Override
+    public void add(String id) {
+        if (result != null) throw new IllegalStateException("已经给出去重结果，不能再加入 ID");
+        long s = seq++;
+        long v = IdSet.parseCanonical(id);
+        if (v == IdSet.NOT_NUMERIC) {
+            if (!others.add(id) && othersReported.add(id)) otherHits.add(new Hit(s, id));
+            return;
+        }
+        if (!seenBefore(LongHashSet.mix(v))) {
+            log(v);
+        } else if (candidates.add(v)) {
+            firstHits.add(s, v);
+        } else if (repeated.add(v)) {
+            secondHits.add(s, v);
+        }
+    }
+
+    @Override
+    public List<String> duplicates() {
+        if (result != null) return result;
+        LongHashSet confirmed = new LongHashSet();
+        try {
+            if (logChannel == null) {
+                logBuffer.flip();   // 日志还不满一个缓冲区，都在内存里
+                confirm(confirmed);
+            } else {
+                try (FileChannel ch = logChannel) {
+                    flushLog();
+                    if (firstHits.size() > 0) {
+                        ch.position(0);
+                        while (ch.read(logBuffer) >= 0) {
+                            logBuffer.flip();
+                            confirm(confirmed);
+                            logBuffer.compact();
+                        }
+                    }
+                }
+                Files.deleteIfExists(log);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        List<Hit> hits = new ArrayList<>(otherHits);
+        for (int i = 0; i < firstHits.size(); i++) {
+            if (confirmed.contains(firstHits.id(i))) hits.add(new Hit(firstHits.seq(i), Long.toString(firstHits.id(i))));
+        }
+        for (int i = 0; i < secondHits.size(); i++) {
+            if (!confirmed.contains(secondHits.id(i))) hits.add(new Hit(secondHits.seq(i), Long.toString(secondHits.id(i))));
+        }
+        hits.sort(Comparator.comparingLong(Hit::seq));
+        result = new ArrayList<>(hits.size());
+        for (Hit h : hits) result.add(h.id);
+        return result;
+    }
+
+    /** 缓冲区里的日志中属于候选的 ID 加进 confirmed */
+    private void confirm(LongHashSet confirmed) {
+        while (logBuffer.remaining() >= Long.BYTES) {
+            long v = logBuffer.getLong();
+            if (candidates.contains(v)) confirmed.add(v);
+        }
+    }
+
+    /** 各层都没有时加进最新一层并返回 false；最新一层装满后再加一层两倍大的 */
+    private boolean seenBefore(long hash) {
+        int last = layers.size() - 1;
+        for (int i = 0; i < last; i++) {
+            if (layers.get(i).mightContain(hash)) return true;
+        }
+        if (layers.get(last).testAndSet(hash)) return true;
+        if (++layerSize >= layerCapacity) {
+            layerCapacity <<= 1;
+            layerSize = 0;
+            layers.add(new SplitBlockBloomFilter(layerCapacity, fpp));
+        }
+        return false;
+    }
+
+    private void log(long v) {
+        if (logBuffer.remaining() < Long.BYTES) {
+            try {
+                if (logChannel == null) {
+                    log = Files.createTempFile(logDir, "dedup-", ".ids");
+                    logChannel = FileChannel.open(log, StandardOpenOption.READ, StandardOpenOption.WRITE);
+                }
+                flushLog();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        logBuffer.putLong(v);
+    }
+
+    private void flushLog() throws IOException {
+        logBuffer.flip();
+        while (logBuffer.hasRemaining()) logChannel.write(logBuffer);
+        logBuffer.clear();
+    }
+
+    /** 按加入顺序存放的（序号, ID）对 */
+    private static final class Pairs {
+        private long[] a = new long[64];
+        private int n;
+
+        void add(long seq, long id) {
+            if (n + 2 > a.length) a = Arrays.copyOf(a, a.length << 1);
+            a[n++] = seq;
+            a[n++] = id;
+        }
+
+        int size() {
+            return n >> 1;
+        }
+
+        long seq(int i) {
+            return a[i << 1];
+        }
+
+        long id(int i) {
+            return a[(i << 1) + 1];
+        }
+    }
+
+    private record Hit(long seq, String id) {}
+}
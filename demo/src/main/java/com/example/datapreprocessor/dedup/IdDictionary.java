@@ -0,0 +1,121 @@
+package com.example.datapreprocessor.dedup;
+
+import com.example.datapreprocessor.io.ListCell;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 外部 ID 到连续 int 的字典，编号按首次出现顺序从 0 开始。
+ * 规范的十进制 ID 走开放寻址的 long→int 表；极少见的非数字 ID 退回 HashMap。
+ */
+public final class IdDictionary {
+
+    private static final float LOAD_FACTOR = 0.6f;
+
+    private long[] keys;
+    private int[] slots;          // 编号 + 1，0 表示空槽
+    private int mask;
+    private int threshold;
+    private int numericCount;
+
+    private final Map<String, Integer> others = new HashMap<>();
+
+    private long[] values = new long[1024];     // 编号 → 数字 ID
+    private String[] names = new String[0];     // 编号 → 非数字 ID（稀疏）
+    private int size;
+
+    public IdDictionary() {
+        allocate(1 << 10);
+    }
+
+    /** 返回 ID 的编号，不存在则分配新编号 */
+    public int idOf(String id) {
+        long v = IdSet.parseCanonical(id);
+        if (v == IdSet.NOT_NUMERIC && !id.equals("-9223372036854775808")) {
+            Integer n = others.get(id);
+            if (n != null) return n;
+            int code = next(0);
+            if (names.length <= code) names = Arrays.copyOf(names, Math.max(16, values.length));
+            names[code] = id;
+            others.put(id, code);
+            return code;
+        }
+        return idOf(v);
+    }
+
+    /** 列表单元格的当前元素，规范十进制 ID 不创建字符串 */
+    public int idOf(ListCell.Cursor c) {
+        long v = IdSet.parseCanonical(c.cell(), c.start(), c.end());
+        return v == IdSet.NOT_NUMERIC ? idOf(c.element()) : idOf(v);
+    }
+
+    private int idOf(long v) {
+        int i = slot(v);
+        while (slots[i] != 0) {
+            if (keys[i] == v) return slots[i] - 1;
+            i = (i + 1) & mask;
+        }
+        int code = next(v);
+        keys[i] = v;
+        slots[i] = code + 1;
+        if (++numericCount >= threshold) grow();
+        return code;
+    }
+
+    /** 只查不加，不存在返回 -1 */
+    public int lookup(String id) {
+        long v = IdSet.parseCanonical(id);
+        if (v == IdSet.NOT_NUMERIC && !id.equals("-9223372036854775808")) {
+            Integer n = others.get(id);
+            return n == null ? -1 : n;
+        }
+        int i = slot(v);
+        while (slots[i] != 0) {
+            if (keys[i] == v) return slots[i] - 1;
+            i = (i + 1) & mask;
+        }
+        return -1;
+    }
+
+    /** 编号 → 原始 ID */
+    public String nameOf(int code) {
+        if (code < names.length && names[code] != null) return names[code];
+        return Long.toString(values[code]);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private int next(long value) {
+        if (size == values.length) values = Arrays.copyOf(values, values.length * 2);
+        values[size] = value;
+        return size++;
+    }
+
+    private int slot(long v) {
+        return (int) LongHashSet.mix(v) & mask;
+    }
+
+    private void allocate(int cap) {
+        keys = new long[cap];
+        slots = new int[cap];
+        mask = cap - 1;
+        threshold = (int) (cap * LOAD_FACTOR);
+    }
+
+    private void grow() {
+        long[] oldKeys = keys;
+        int[] oldSlots = slots;
+        allocate(oldKeys.length << 1);
+        for (int j = 0; j < oldKeys.length; j++) {
+            if (oldSlots[j] == 0) continue;
+            int i = slot(oldKeys[j]);
+            while (slots[i] != 0) i = (i + 1) & mask;
+            keys[i] = oldKeys[j];
+            slots[i] = oldSlots[j];
+        }
+    }
+}
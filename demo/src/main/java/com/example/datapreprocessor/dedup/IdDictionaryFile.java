@@ -0,0 +1,374 @@
+package com.example.datapreprocessor.dedup;
+
+import com.example.datapreprocessor.io.ListCell;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 持久化的 ID 字典：外部 ID 到连续 int 的映射存在内存映射文件里，打开时不重建，
+ * 新 ID 按出现顺序追加编号，跨运行保持不变。
+ *
+ * <p>文件为 64 字节文件头 + 开放寻址表（long 键、int 编号 + 1）+ 编号到键的数组，小端序。
+ * 装载超过 0.6 时在 .tmp 文件里按两倍容量重建，再原子替换。单个映射区不能超过 2GB，
+ * 所以文件按 1GB 分段映射，各字段按自身大小对齐，不会跨段；表最多 2^30 个槽，约 6.4 亿个 ID。
+ * 非数字 ID 极少见，追加写在同名的 .others 文件里，打开时读进内存。同一个文件同时只能打开一次。</p>
+ *
+ * <p>设置 -Ddatapreprocessor.ids=目录 后，各预处理器通过 {@link #shared} 按 ID 列名共用同一份字典，
+ * 文件为 目录/列名.ids。</p>
+ */
+public final class IdDictionaryFile implements Closeable {
+
+    private static final int MAGIC = 0x46444449;   // "IDDF"
+    private static final int VERSION = 1;
+    private static final int HEADER = 64;
+    private static final float LOAD_FACTOR = 0.6f;
+    private static final int MIN_CAPACITY = 1 << 12;
+    private static final int MAX_CAPACITY = 1 << 30;   // 编号和槽号都是 int
+    private static final int SEGMENT_BITS = 30;
+
+    private static final String DIR = System.getProperty("datapreprocessor.ids");
+    private static final Map<String, IdDictionaryFile> SHARED = new HashMap<>();
+
+    private final Path file;
+    private final FileChannel lockChannel;
+    private final FileLock lock;
+    private Mapping map;
+    private int capacity;
+    private int mask;
+    private int threshold;
+    private int size;
+
+    private final Map<String, Integer> others = new HashMap<>();
+    private final Map<Integer, String> otherNames = new HashMap<>();
+    private DataOutputStream othersOut;
+
+    private IdDictionaryFile(Path file) throws IOException {
+        this.file = file;
+        Path dir = file.toAbsolutePath().getParent();
+        if (dir != null) Files.createDirectories(dir);
+        lockChannel = FileChannel.open(sibling(".lock"), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        try {
+            lock = tryLock(lockChannel);
+            if (lock == null) throw new IOException("ID 字典正被其它进程使用: " + file);
+            if (Files.exists(file)) load();
+            else create();
+        } catch (IOException | RuntimeException e) {
+            lockChannel.close();
+            throw e;
+        }
+    }
+
+    public static IdDictionaryFile open(Path file) throws IOException {
+        return new IdDictionaryFile(file);
+    }
+
+    /** 是否设置了 -Ddatapreprocessor.ids */
+    public static boolean enabled() {
+        return DIR != null;
+    }
+
+    /** 按 ID 列名取共用的字典，第一次调用时打开，进程退出时关闭 */
+    public static IdDictionaryFile shared(String column) throws IOException {
+        if (DIR == null) throw new IllegalStateException("未设置 -Ddatapreprocessor.ids");
+        synchronized (SHARED) {
+            IdDictionaryFile d = SHARED.get(column);
+            if (d == null) {
+                if (SHARED.isEmpty()) {
+                    Runtime.getRuntime().addShutdownHook(new Thread(IdDictionaryFile::closeShared, "id-dictionary-close"));
+                }
+                d = open(Paths.get(DIR).resolve(column + ".ids"));
+                SHARED.put(column, d);
+            }
+            return d;
+        }
+    }
+
+    /** 返回 ID 的编号，不存在则分配新编号并写入文件 */
+    public synchronized int idOf(String id) throws IOException {
+        long v = IdSet.parseCanonical(id);
+        if (v == IdSet.NOT_NUMERIC && !id.equals("-9223372036854775808")) {
+            Integer n = others.get(id);
+            if (n != null) return n;
+            if (size + 1 >= threshold) grow();
+            int code = size;
+            othersOut.writeInt(code);
+            othersOut.writeUTF(id);
+            othersOut.flush();   // 先落盘名字，再发布编号
+            others.put(id, code);
+            otherNames.put(code, id);
+            publish(code, 0);
+            return code;
+        }
+        return idOf(v);
+    }
+
+    /** 列表单元格的当前元素，规范十进制 ID 不创建字符串 */
+    public synchronized int idOf(ListCell.Cursor c) throws IOException {
+        long v = IdSet.parseCanonical(c.cell(), c.start(), c.end());
+        return v == IdSet.NOT_NUMERIC ? idOf(c.element()) : idOf(v);
+    }
+
+    private int idOf(long v) throws IOException {
+        int i = find(v);
+        if (slot(i) != 0) return slot(i) - 1;
+        if (size + 1 >= threshold) {
+            grow();
+            i = find(v);
+        }
+        int code = size;
+        map.putLong(keyAt(i), v);
+        map.putInt(slotAt(i), code + 1);
+        publish(code, v);
+        return code;
+    }
+
+    /** 只查不加，不存在返回 -1 */
+    public synchronized int lookup(String id) {
+        long v = IdSet.parseCanonical(id);
+        if (v == IdSet.NOT_NUMERIC && !id.equals("-9223372036854775808")) {
+            Integer n = others.get(id);
+            return n == null ? -1 : n;
+        }
+        return slot(find(v)) - 1;
+    }
+
+    /** 编号 → 原始 ID */
+    public synchronized String nameOf(int code) {
+        if (code < 0 || code >= size) throw new IndexOutOfBoundsException("编号越界: " + code);
+        String name = otherNames.get(code);
+        return name != null ? name : Long.toString(map.getLong(valueAt(code)));
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (map == null) return;
+        try {
+            map.force();
+            othersOut.close();
+        } finally {
+            map = null;
+            lock.release();
+            lockChannel.close();
+        }
+    }
+
+    /** 同一进程里重复打开时 tryLock 抛 OverlappingFileLockException，与别的进程占用一样按拿不到锁处理 */
+    private static FileLock tryLock(FileChannel ch) throws IOException {
+        try {
+            return ch.tryLock();
+        } catch (OverlappingFileLockException e) {
+            return null;
+        }
+    }
+
+    private static void closeShared() {
+        synchronized (SHARED) {
+            for (IdDictionaryFile d : SHARED.values()) {
+                try {
+                    d.close();
+                } catch (IOException e) {
+                    System.err.println("关闭 ID 字典失败: " + e.getMessage());
+                }
+            }
+            SHARED.clear();
+        }
+    }
+
+    private void load() throws IOException {
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            if (ch.size() < HEADER) throw new IOException("不是 ID 字典文件: " + file);
+            map = map(ch, ch.size());
+        }
+        if (map.getInt(0) != MAGIC) throw new IOException("不是 ID 字典文件: " + file);
+        if (map.getInt(4) != VERSION) throw new IOException("不支持的 ID 字典版本 " + map.getInt(4));
+        size = map.getInt(8);
+        setCapacity(map.getInt(12));
+        if (map.size() != fileSize(capacity)) throw new IOException("ID 字典文件不完整: " + file);
+
+        // .others 里编号不小于 size 的是写名字之后、发布编号之前中断留下的，丢弃
+        Path side = sibling(".others");
+        if (Files.exists(side)) {
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(side)))) {
+                while (true) {
+                    int code;
+                    String id;
+                    try {
+                        code = in.readInt();
+                        id = in.readUTF();
+                    } catch (EOFException eof) {
+                        break;
+                    }
+                    if (code >= size) continue;
+                    others.put(id, code);
+                    otherNames.put(code, id);
+                }
+            }
+        }
+        openOthers();
+    }
+
+    private void create() throws IOException {
+        Path tmp = sibling(".tmp");
+        map = allocate(tmp, MIN_CAPACITY);
+        map.force();
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        setCapacity(MIN_CAPACITY);
+        Files.deleteIfExists(sibling(".others"));
+        openOthers();
+    }
+
+    /** 按两倍容量在临时文件里重建，编号不变，完成后原子替换 */
+    private void grow() throws IOException {
+        int cap = capacity << 1;
+        if (cap <= 0 || cap > MAX_CAPACITY) {
+            throw new IOException("ID 字典超过 " + (long) (MAX_CAPACITY * (double) LOAD_FACTOR) + " 个 ID: " + file
+                    + "，请去掉 -Ddatapreprocessor.ids，改用 -Ddatapreprocessor.dedup.memory 溢写去重");
+        }
+        Path tmp = sibling(".tmp");
+        Mapping m = allocate(tmp, cap);
+        int newMask = cap - 1;
+        for (int code = 0; code < size; code++) {
+            if (otherNames.containsKey(code)) continue;
+            long v = map.getLong(valueAt(code));
+            int i = (int) LongHashSet.mix(v) & newMask;
+            while (m.getInt(HEADER + 8L * cap + 4L * i) != 0) i = (i + 1) & newMask;
+            m.putLong(HEADER + 8L * i, v);
+            m.putInt(HEADER + 8L * cap + 4L * i, code + 1);
+            m.putLong(HEADER + 12L * cap + 8L * code, v);
+        }
+        m.putInt(8, size);
+        m.force();
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        map = m;
+        setCapacity(cap);
+    }
+
+    /** 写入编号对应的键，最后才更新文件头里的个数 */
+    private void publish(int code, long value) {
+        map.putLong(valueAt(code), value);
+        size = code + 1;
+        map.putInt(8, size);
+    }
+
+    private int find(long v) {
+        int i = (int) LongHashSet.mix(v) & mask;
+        while (slot(i) != 0 && map.getLong(keyAt(i)) != v) i = (i + 1) & mask;
+        return i;
+    }
+
+    private int slot(int i) {
+        return map.getInt(slotAt(i));
+    }
+
+    private long keyAt(int i) {
+        return HEADER + 8L * i;
+    }
+
+    private long slotAt(int i) {
+        return HEADER + 8L * capacity + 4L * i;
+    }
+
+    private long valueAt(int code) {
+        return HEADER + 12L * capacity + 8L * code;
+    }
+
+    private void setCapacity(int cap) {
+        capacity = cap;
+        mask = cap - 1;
+        threshold = (int) (cap * LOAD_FACTOR);
+    }
+
+    private void openOthers() throws IOException {
+        othersOut = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(sibling(".others"),
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND)));
+    }
+
+    private Path sibling(String suffix) {
+        return file.resolveSibling(file.getFileName() + suffix);
+    }
+
+    private static long fileSize(int cap) {
+        return HEADER + 20L * cap;
+    }
+
+    private static Mapping allocate(Path p, int cap) throws IOException {
+        try (FileChannel ch = FileChannel.open(p, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            Mapping m = map(ch, fileSize(cap));
+            m.putInt(0, MAGIC);
+            m.putInt(4, VERSION);
+            m.putInt(8, 0);
+            m.putInt(12, cap);
+            return m;
+        }
+    }
+
+    private static Mapping map(FileChannel ch, long size) throws IOException {
+        MappedByteBuffer[] parts = new MappedByteBuffer[(int) ((size + (1L << SEGMENT_BITS) - 1) >>> SEGMENT_BITS)];
+        for (int k = 0; k < parts.length; k++) {
+            long from = (long) k << SEGMENT_BITS;
+            parts[k] = ch.map(FileChannel.MapMode.READ_WRITE, from, Math.min(1L << SEGMENT_BITS, size - from));
+            parts[k].order(ByteOrder.LITTLE_ENDIAN);
+        }
+        return new Mapping(parts, size);
+    }
+
+    /** 按 1GB 分段映射的整个文件，用 long 偏移访问；调用方保证读写不跨段 */
+    private static final class Mapping {
+        private static final int OFFSET_MASK = (1 << SEGMENT_BITS) - 1;
+
+        private final MappedByteBuffer[] parts;
+        private final long size;
+
+        Mapping(MappedByteBuffer[] parts, long size) {
+            this.parts = parts;
+            this.size = size;
+        }
+
+        long size() {
+            return size;
+        }
+
+        int getInt(long pos) {
+            return parts[(int) (pos >>> SEGMENT_BITS)].getInt((int) pos & OFFSET_MASK);
+        }
+
+        void putInt(long pos, int v) {
+            parts[(int) (pos >>> SEGMENT_BITS)].putInt((int) pos & OFFSET_MASK, v);
+        }
+
+        long getLong(long pos) {
+            return parts[(int) (pos >>> SEGMENT_BITS)].getLong((int) pos & OFFSET_MASK);
+        }
+
+        void putLong(long pos, long v) {
+            parts[(int) (pos >>> SEGMENT_BITS)].putLong((int) pos & OFFSET_MASK, v);
+        }
+
+        void force() {
+            for (MappedByteBuffer p : parts) p.force();
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.example.datapreprocessor.dedup;
+
+import java.util.function.Consumer;
+
+/**
+ * ID 集合：规范的十进制整数 ID 存进 {@link LongHashSet}，其余退回 {@link CompactStringSet}。
+ * "007"、"+7" 这类写法与 "7" 是不同的字符串，所以只有与 Long.toString 结果一致的才按数字存。
+ */
+public final class IdSet {
+
+    private final LongHashSet numeric;
+    private CompactStringSet other;
+
+    public IdSet() {
+        this(1 << 10);
+    }
+
+    public IdSet(int expected) {
+        numeric = new LongHashSet(expected);
+    }
+
+    /** @return true 表示新加入，false 表示已存在 */
+    public boolean add(String id) {
+        long v = parseCanonical(id);
+        if (v != NOT_NUMERIC || isMinValue(id)) return numeric.add(v);
+        if (other == null) other = new CompactStringSet();
+        return other.add(id);
+    }
+
+    public boolean contains(String id) {
+        long v = parseCanonical(id);
+        if (v != NOT_NUMERIC || isMinValue(id)) return numeric.contains(v);
+        return other != null && other.contains(id);
+    }
+
+    public long size() {
+        return numeric.size() + (other == null ? 0 : other.size());
+    }
+
+    public long memoryBytes() {
+        return numeric.memoryBytes() + (other == null ? 0 : other.memoryBytes());
+    }
+
+    /** 按任意顺序遍历全部 ID */
+    public void forEach(Consumer<String> action) {
+        numeric.forEach(v -> action.accept(Long.toString(v)));
+        if (other != null) other.forEach(action);
+    }
+
+    public static final long NOT_NUMERIC = Long.MIN_VALUE;
+
+    /** 规范十进制整数返回其值，否则返回 {@link #NOT_NUMERIC} */
+    public static long parseCanonical(String s) {
+        return parseCanonical(s, 0, s.length());
+    }
+
+    /** 同上，只看 s 的 [from, to) 区间，不创建字符串 */
+    public static long parseCanonical(CharSequence s, int from, int to) {
+        int n = to - from;
+        if (n == 0 || n > 20) return NOT_NUMERIC;
+        int i = from;
+        boolean neg = s.charAt(i) == '-';
+        if (neg) {
+            if (n == 1) return NOT_NUMERIC;
+            i++;
+        }
+        if (s.charAt(i) == '0' && to > i + 1) return NOT_NUMERIC;   // 前导 0
+        if (neg && s.charAt(i) == '0') return NOT_NUMERIC;           // "-0"
+        long v = 0;
+        for (; i < to; i++) {
+            int d = s.charAt(i) - '0';
+            if (d < 0 || d > 9) return NOT_NUMERIC;
+            if (v < (Long.MIN_VALUE + d) / 10) return NOT_NUMERIC;   // 溢出
+            v = v * 10 - d;   // 按负数累加，能表示 Long.MIN_VALUE
+        }
+        if (neg) return v;
+        return v == Long.MIN_VALUE ? NOT_NUMERIC : -v;
+    }
+
+    private static boolean isMinValue(String s) {
+        return s.equals("-9223372036854775808");
+    }
+}
@@ -0,0 +1,61 @@
+package com.example.datapreprocessor.dedup;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 全部 ID 放在内存里的紧凑集合中。
+ * 批次进行中新见到的 ID 先放在批次自己的集合里，提交时才并入，撤销时直接丢掉。
+ */
+final class InMemoryDuplicateDetector implements BatchDuplicateDetector {
+
+    private final IdSet seen = new IdSet();
+    private final IdSet reported = new IdSet();
+    private final List<String> duplicates = new ArrayList<>();
+
+    // 进行中的批次，batchSeen 为 null 表示不在批次中
+    private IdSet batchSeen;
+    private IdSet batchReported;
+    private int batchStart;
+
+    @Override
+    public void add(String id) {
+        if (batchSeen == null) {
+            if (!seen.add(id) && reported.add(id)) {
+                duplicates.add(id);
+            }
+            return;
+        }
+        boolean fresh = !seen.contains(id) && batchSeen.add(id);
+        if (!fresh && !reported.contains(id) && batchReported.add(id)) {
+            duplicates.add(id);
+        }
+    }
+
+    @Override
+    public List<String> duplicates() {
+        return duplicates;
+    }
+
+    @Override
+    public void beginBatch() {
+        batchSeen = new IdSet();
+        batchReported = new IdSet();
+        batchStart = duplicates.size();
+    }
+
+    @Override
+    public void commitBatch() {
+        batchSeen.forEach(seen::add);
+        batchReported.forEach(reported::add);
+        batchSeen = null;
+        batchReported = null;
+    }
+
+    @Override
+    public void rollbackBatch() {
+        duplicates.subList(batchStart, duplicates.size()).clear();
+        batchSeen = null;
+        batchReported = null;
+    }
+}
@@ -0,0 +1,109 @@
+package com.example.datapreprocessor.dedup;
+
+import java.util.Arrays;
+
+/**
+ * 开放寻址、线性探测的 long 集合，每个元素只占 8~16 字节，没有装箱和节点对象。
+ * 0 用单独的标志位表示，表中的 0 代表空槽。
+ */
+public final class LongHashSet {
+
+    private static final float LOAD_FACTOR = 0.6f;
+
+    private long[] keys;
+    private int mask;
+    private int size;
+    private int threshold;
+    private boolean hasZero;
+
+    public LongHashSet() {
+        this(1 << 10);
+    }
+
+    public LongHashSet(int expected) {
+        int cap = Integer.highestOneBit(Math.max(16, (int) Math.min(1 << 30, expected / LOAD_FACTOR)) - 1) << 1;
+        allocate(cap);
+    }
+
+    /** @return true 表示新加入，false 表示已存在 */
+    public boolean add(long key) {
+        if (key == 0) {
+            if (hasZero) return false;
+            hasZero = true;
+            size++;
+            return true;
+        }
+        int i = slot(key);
+        while (keys[i] != 0) {
+            if (keys[i] == key) return false;
+            i = (i + 1) & mask;
+        }
+        keys[i] = key;
+        if (++size >= threshold) grow();
+        return true;
+    }
+
+    public boolean contains(long key) {
+        if (key == 0) return hasZero;
+        int i = slot(key);
+        while (keys[i] != 0) {
+            if (keys[i] == key) return true;
+            i = (i + 1) & mask;
+        }
+        return false;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /** 当前占用的堆内存（字节，近似） */
+    public long memoryBytes() {
+        return (long) keys.length * Long.BYTES;
+    }
+
+    public void clear() {
+        Arrays.fill(keys, 0);
+        size = 0;
+        hasZero = false;
+    }
+
+    /** 按任意顺序遍历全部元素 */
+    public void forEach(java.util.function.LongConsumer action) {
+        if (hasZero) action.accept(0);
+        for (long k : keys) {
+            if (k != 0) action.accept(k);
+        }
+    }
+
+    private int slot(long key) {
+        return (int) mix(key) & mask;
+    }
+
+    /** 64 位打散（MurmurHash3 的 fmix64），相邻的键落到相距很远的位置 */
+    public static long mix(long x) {
+        x ^= x >>> 33;
+        x *= 0xff51afd7ed558ccdL;
+        x ^= x >>> 33;
+        x *= 0xc4ceb9fe1a85ec53L;
+        return x ^ (x >>> 33);
+    }
+
+    private void allocate(int cap) {
+        keys = new long[cap];
+        mask = cap - 1;
+        threshold = (int) (cap * LOAD_FACTOR);
+    }
+
+    private void grow() {
+        if (keys.length >= 1 << 30) throw new IllegalStateException("LongHashSet 已达到容量上限");
+        long[] old = keys;
+        allocate(old.length << 1);
+        for (long k : old) {
+            if (k == 0) continue;
+            int i = slot(k);
+            while (keys[i] != 0) i = (i + 1) & mask;
+            keys[i] = k;
+        }
+    }
+}
@@ -0,0 +1,179 @@
+package com.example.datapreprocessor.dedup;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * 内存受限的去重：先在内存里去重，占用超过预算后把已有状态和之后的 ID
+ * 按哈希分到若干溢写文件，结束时逐个分区独立检查。
+ *
+ * <p>每个 ID 带着它的行序号写盘，分区结果最后按“第二次出现”的序号合并，
+ * 所以报告与 {@link InMemoryDuplicateDetector} 完全一致。</p>
+ */
+final class SpillingDuplicateDetector implements DuplicateDetector {
+
+    static final int PARTITIONS = 64;
+    private static final int MAX_DEPTH = 4;
+
+    private static final long BEFORE_SPILL = -1;           // 溢写前已出现过
+    private static final long BEFORE_SPILL_REPORTED = -2;  // 溢写前已出现过且已报告为重复
+
+    private final Path spillRoot;
+    private final long memoryBudget;
+
+    private IdSet seen = new IdSet();
+    private IdSet reported = new IdSet();
+    private final List<Hit> hits = new ArrayList<>();
+    private long seq;
+
+    private Path dir;
+    private DataOutputStream[] outs;
+    private List<String> result;
+
+    SpillingDuplicateDetector(Path spillRoot, long memoryBudget) {
+        this.spillRoot = spillRoot;
+        this.memoryBudget = memoryBudget;
+    }
+
+    @Override
+    public void add(String id) {
+        if (result != null) throw new IllegalStateException("已经给出去重结果，不能再加入 ID");
+        long s = seq++;
+        try {
+            if (outs != null) {
+                write(outs, id, s, 0);
+                return;
+            }
+            if (!seen.add(id) && reported.add(id)) {
+                hits.add(new Hit(s, id));
+            }
+            if (seen.memoryBytes() + reported.memoryBytes() > memoryBudget) {
+                spill();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public List<String> duplicates() {
+        if (result != null) return result;
+        try {
+            if (outs != null) {
+                for (DataOutputStream o : outs) o.close();
+                for (int p = 0; p < PARTITIONS; p++) {
+                    checkPartition(dir.resolve("p" + p), 1);
+                }
+                Files.deleteIfExists(dir);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        hits.sort(Comparator.comparingLong(h -> h.seq));
+        result = new ArrayList<>(hits.size());
+        for (Hit h : hits) result.add(h.id);
+        return result;
+    }
+
+    /** 是否已经切换到溢写模式 */
+    boolean spilled() {
+        return outs != null;
+    }
+
+    private void spill() throws IOException {
+        dir = Files.createTempDirectory(spillRoot, "dedup-");
+        outs = open(dir, "p");
+        IdSet r = reported;
+        IOException[] failure = new IOException[1];
+        seen.forEach(id -> {
+            if (failure[0] != null) return;
+            try {
+                write(outs, id, r.contains(id) ? BEFORE_SPILL_REPORTED : BEFORE_SPILL, 0);
+            } catch (IOException e) {
+                failure[0] = e;
+            }
+        });
+        if (failure[0] != null) throw failure[0];
+        seen = null;
+        reported = null;
+    }
+
+    /** 检查一个分区；分区过大（哈希倾斜）时换一个种子再分一次 */
+    private void checkPartition(Path file, int depth) throws IOException {
+        if (Files.size(file) > memoryBudget / 4 && depth < MAX_DEPTH) {
+            Path sub = Files.createTempDirectory(dir, "d" + depth + "-");
+            DataOutputStream[] subOuts = open(sub, "p");
+            try (DataInputStream in = input(file)) {
+                while (true) {
+                    long s;
+                    try {
+                        s = in.readLong();
+                    } catch (EOFException eof) {
+                        break;
+                    }
+                    write(subOuts, in.readUTF(), s, depth);
+                }
+            }
+            for (DataOutputStream o : subOuts) o.close();
+            Files.delete(file);
+            for (int p = 0; p < PARTITIONS; p++) {
+                checkPartition(sub.resolve("p" + p), depth + 1);
+            }
+            Files.delete(sub);
+            return;
+        }
+
+        IdSet pSeen = new IdSet();
+        IdSet pReported = new IdSet();
+        try (DataInputStream in = input(file)) {
+            while (true) {
+                long s;
+                try {
+                    s = in.readLong();
+                } catch (EOFException eof) {
+                    break;
+                }
+                String id = in.readUTF();
+                if (s == BEFORE_SPILL) {
+                    pSeen.add(id);
+                } else if (s == BEFORE_SPILL_REPORTED) {
+                    pSeen.add(id);
+                    pReported.add(id);
+                } else if (!pSeen.add(id) && pReported.add(id)) {
+                    hits.add(new Hit(s, id));
+                }
+            }
+        }
+        Files.delete(file);
+    }
+
+    private static void write(DataOutputStream[] outs, String id, long s, int seed) throws IOException {
+        int p = (int) ((LongHashSet.mix(id.hashCode() + seed * 0x9E3779B97F4A7C15L) >>> 1) % PARTITIONS);
+        outs[p].writeLong(s);
+        outs[p].writeUTF(id);
+    }
+
+    private static DataOutputStream[] open(Path dir, String prefix) throws IOException {
+        DataOutputStream[] o = new DataOutputStream[PARTITIONS];
+        for (int p = 0; p < PARTITIONS; p++) {
+            o[p] = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(dir.resolve(prefix + p)), 1 << 14));
+        }
+        return o;
+    }
+
+    private static DataInputStream input(Path file) throws IOException {
+        return new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 1 << 16));
+    }
+
+    private record Hit(long seq, String id) {}
+}
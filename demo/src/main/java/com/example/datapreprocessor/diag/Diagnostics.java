@@ -0,0 +1,253 @@
+package com.example.datapreprocessor.diag;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Map;
+import java.util.Queue;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 行级诊断信息的统一出口。
+ *
+ * <p>校验阶段通过 {@link Rule#report} 把消息放进无锁队列，由一个后台线程批量格式化、
+ * 打印并写入拒绝文件，校验线程只做一次计数和一次入队。队列满时丢弃消息但照常计数。</p>
+ *
+ * <p>系统属性：</p>
+ * <ul>
+ *   <li>-Ddatapreprocessor.diag.sample=N 每条规则只在控制台打印前 N 条，默认 20，-1 表示全部打印</li>
+ *   <li>-Ddatapreprocessor.diag.rejects=文件 把所有消息写成拒绝文件，.csv 结尾写 CSV，否则写 JSONL，
+ *       每条包含规则、行号、字节偏移和消息</li>
+ *   <li>-Ddatapreprocessor.diag.queue=N 队列容量，默认 262144</li>
+ * </ul>
+ */
+public final class Diagnostics {
+
+    private static final long SAMPLE = Long.getLong("datapreprocessor.diag.sample", 20);
+    private static final int CAPACITY = Integer.getInteger("datapreprocessor.diag.queue", 1 << 18);
+    private static final String REJECTS = System.getProperty("datapreprocessor.diag.rejects");
+
+    private static final Map<String, Rule> RULES = new ConcurrentHashMap<>();
+    private static final Queue<Object> QUEUE = new ConcurrentLinkedQueue<>();
+    private static final AtomicInteger PENDING = new AtomicInteger();
+    private static final AtomicLong DROPPED = new AtomicLong();
+    private static long droppedReported;
+
+    private static volatile Thread writer;
+    private static volatile boolean sleeping;
+
+    /** 一条待输出的消息 */
+    private record Event(Rule rule, long seq, long row, long offset, String format, Object[] args) {}
+
+    /** flush 标记，写线程处理到这里时把之前的输出全部落盘 */
+    private record Barrier(CountDownLatch done) {}
+
+    /** 按 ID 取得规则，同一 ID 全局共享一个计数器 */
+    public static Rule rule(String id) {
+        return RULES.computeIfAbsent(id, Rule::new);
+    }
+
+    /** 各规则到目前为止的命中次数，按规则 ID 排序 */
+    public static Map<String, Long> counts() {
+        Map<String, Long> m = new TreeMap<>();
+        for (Rule r : RULES.values()) m.put(r.id, r.count());
+        return m;
+    }
+
+    static void submit(Rule rule, long seq, long row, long offset, String format, Object[] args) {
+        // 既不打印也不写拒绝文件的消息不入队
+        if (REJECTS == null && SAMPLE >= 0 && seq > SAMPLE) return;
+        if (PENDING.incrementAndGet() > CAPACITY) {
+            PENDING.decrementAndGet();
+            DROPPED.incrementAndGet();
+            return;
+        }
+        QUEUE.offer(new Event(rule, seq, row, offset, format, args));
+        wake();
+    }
+
+    /**
+     * 等待已上报的消息全部输出，并为超出采样上限的规则打印一行汇总。
+     * 在打印阶段结论之前调用，保证控制台上行级消息排在结论前面。
+     */
+    public static void flush() {
+        if (writer != null) {
+            CountDownLatch done = new CountDownLatch(1);
+            QUEUE.offer(new Barrier(done));
+            wake();
+            try {
+                done.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+        for (Rule r : RULES.values()) {
+            long total = r.count();
+            if (SAMPLE >= 0 && total > SAMPLE && total != r.summarized) {
+                System.out.printf("[%s] 共 %d 条，控制台只打印前 %d 条%n", r.id, total, SAMPLE);
+            }
+            r.summarized = total;
+        }
+        long dropped = DROPPED.get();
+        if (dropped != droppedReported) {
+            System.out.printf("诊断队列已满，丢弃了 %d 条消息（计数不受影响）%n", dropped - droppedReported);
+            droppedReported = dropped;
+        }
+    }
+
+    private static void wake() {
+        Thread t = writer;
+        if (t == null) {
+            t = start();
+        }
+        if (sleeping) LockSupport.unpark(t);
+    }
+
+    private static synchronized Thread start() {
+        if (writer == null) {
+            Thread t = new Thread(Diagnostics::drain, "diagnostics-writer");
+            t.setDaemon(true);
+            t.start();
+            writer = t;
+        }
+        return writer;
+    }
+
+    /** 后台线程：批量取出消息，攒够一批或队列空了再输出 */
+    private static void drain() {
+        StringBuilder console = new StringBuilder(1 << 16);
+        BufferedWriter rejects = null;
+        boolean csv = REJECTS != null && REJECTS.toLowerCase().endsWith(".csv");
+        boolean rejectsFailed = false;
+
+        while (true) {
+            Object o = QUEUE.poll();
+            if (o == null) {
+                flushConsole(console);
+                rejects = flushRejects(rejects);
+                sleeping = true;
+                if (QUEUE.isEmpty()) LockSupport.parkNanos(10_000_000L);
+                sleeping = false;
+                continue;
+            }
+
+            if (o instanceof Barrier b) {
+                flushConsole(console);
+                rejects = flushRejects(rejects);
+                b.done().countDown();
+                continue;
+            }
+
+            PENDING.decrementAndGet();
+            Event e = (Event) o;
+            String message;
+            try {
+                message = String.format(e.format(), e.args());
+            } catch (RuntimeException ex) {
+                message = e.format();
+            }
+
+            if (SAMPLE < 0 || e.seq() <= SAMPLE) {
+                console.append(message).append(System.lineSeparator());
+                if (console.length() >= 1 << 16) flushConsole(console);
+            }
+
+            if (REJECTS != null && !rejectsFailed) {
+                try {
+                    if (rejects == null) rejects = openRejects(csv);
+                    if (csv) writeCsv(rejects, e, message);
+                    else writeJson(rejects, e, message);
+                } catch (IOException ex) {
+                    System.err.println("拒绝文件写入失败，后续只打印到控制台: " + ex.getMessage());
+                    rejectsFailed = true;
+                }
+            }
+        }
+    }
+
+    private static void flushConsole(StringBuilder console) {
+        if (console.length() == 0) return;
+        System.out.print(console);
+        System.out.flush();
+        console.setLength(0);
+    }
+
+    private static BufferedWriter flushRejects(BufferedWriter rejects) {
+        if (rejects == null) return null;
+        try {
+            rejects.flush();
+            return rejects;
+        } catch (IOException e) {
+            System.err.println("拒绝文件写入失败: " + e.getMessage());
+            return rejects;
+        }
+    }
+
+    private static BufferedWriter openRejects(boolean csv) throws IOException {
+        Path p = Paths.get(REJECTS);
+        if (p.toAbsolutePath().getParent() != null) Files.createDirectories(p.toAbsolutePath().getParent());
+        BufferedWriter w = Files.newBufferedWriter(p, StandardCharsets.UTF_8);
+        if (csv) w.write("rule,row,offset,message\n");
+        return w;
+    }
+
+    private static void writeCsv(BufferedWriter w, Event e, String message) throws IOException {
+        w.write(csvField(e.rule().id));
+        w.write(',');
+        w.write(Long.toString(e.row()));
+        w.write(',');
+        w.write(Long.toString(e.offset()));
+        w.write(',');
+        w.write(csvField(message));
+        w.write('\n');
+    }
+
+    private static void writeJson(BufferedWriter w, Event e, String message) throws IOException {
+        w.write("{\"rule\":");
+        w.write(jsonString(e.rule().id));
+        w.write(",\"row\":");
+        w.write(Long.toString(e.row()));
+        w.write(",\"offset\":");
+        w.write(Long.toString(e.offset()));
+        w.write(",\"message\":");
+        w.write(jsonString(message));
+        w.write("}\n");
+    }
+
+    private static String csvField(String s) {
+        if (s.indexOf(',') < 0 && s.indexOf('"') < 0 && s.indexOf('\n') < 0 && s.indexOf('\r') < 0) return s;
+        return '"' + s.replace("\"", "\"\"") + '"';
+    }
+
+    /** 转成带引号的 JSON 字符串 */
+    public static String jsonString(String s) {
+        StringBuilder sb = new StringBuilder(s.length() + 2).append('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '"' -> sb.append("\\\"");
+                case '\\' -> sb.append("\\\\");
+                case '\n' -> sb.append("\\n");
+                case '\r' -> sb.append("\\r");
+                case '\t' -> sb.append("\\t");
+                default -> {
+                    if (c < 0x20) sb.append(String.format("\\u%04x", (int) c));
+                    else sb.append(c);
+                }
+            }
+        }
+        return sb.append('"').toString();
+    }
+
+    private Diagnostics() {}
+}
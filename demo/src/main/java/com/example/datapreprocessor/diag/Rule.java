@@ -0,0 +1,36 @@
+package com.example.datapreprocessor.diag;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 一条校验规则的计数器和上报入口，由 {@link Diagnostics#rule(String)} 取得。
+ * 上报只做计数和入队，格式化与输出都在后台线程完成，校验代码不会因输出而阻塞。
+ */
+public final class Rule {
+
+    final String id;
+    final AtomicLong count = new AtomicLong();
+    long summarized;   // 上次 flush 汇总时的计数
+
+    Rule(String id) {
+        this.id = id;
+    }
+
+    public String id() {
+        return id;
+    }
+
+    /** 到目前为止命中的次数（包括没有打印的） */
+    public long count() {
+        return count.get();
+    }
+
+    /**
+     * 上报一次违规。row 是数据行号（表头为第 1 行），offset 是记录的起始字节，二者未知时都传 -1；
+     * message 按 {@link String#format} 在后台线程格式化，args 应当是不可变对象。
+     */
+    public void report(long row, long offset, String format, Object... args) {
+        long seq = count.incrementAndGet();
+        Diagnostics.submit(this, seq, row, offset, format, args);
+    }
+}
@@ -0,0 +1,179 @@
+package com.example.datapreprocessor.generator;
+
+import com.example.datapreprocessor.io.Compression;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * 生成与真实导出列结构一致的 recipes.csv、reviews.csv 和 user.csv，用于基准和压测。
+ *
+ * <p>文件按固定行数分块，各块在线程池上并行生成（每块用自己的随机种子，结果可复现），
+ * 再按块顺序写出，所以输出与线程数无关。可调参数见 {@link GeneratorConfig}。</p>
+ */
+public final class DatasetGenerator {
+
+    static final int BLOCK_ROWS = 20_000;
+
+    static final String RECIPE_HEADER = "RecipeId,Name,AuthorId,AuthorName,CookTime,PrepTime,TotalTime,DatePublished,"
+            + "Description,RecipeCategory,Keywords,RecipeIngredientParts,AggregatedRating,ReviewCount,Calories,"
+            + "FatContent,SaturatedFatContent,CholesterolContent,SodiumContent,CarbohydrateContent,FiberContent,"
+            + "SugarContent,ProteinContent,RecipeServings,RecipeYield,RecipeInstructions,FavoriteUsers\n";
+    static final String REVIEW_HEADER =
+            "ReviewId,RecipeId,AuthorId,AuthorName,Rating,Review,DateSubmitted,DateModified,Likes\n";
+
+    private static final int[] MINUTES = {0, 5, 10, 15, 20, 25, 30, 35, 40, 45, 60, 75, 90, 120, 180, 240, 480, 1440};
+    private static final String[] CATEGORIES = {"Dessert", "Lunch/Snacks", "Beverages", "Breakfast", "Chicken", "Vegetable"};
+    private static final String[] INGREDIENTS = {"flour", "sugar", "butter", "eggs", "milk", "salt", "garlic", "onion"};
+    private static final long EPOCH_2000 = 946_684_800L;
+    private static final long TWENTY_YEARS = 20L * 365 * 86_400;
+
+    /** 生成一块数据：行号从 1 开始 */
+    interface RowSource {
+        void row(long rowNo, SplittableRandom r, StringBuilder out);
+    }
+
+    public static void main(String[] args) throws IOException {
+        GeneratorConfig c = GeneratorConfig.parse(args);
+        Files.createDirectories(c.out);
+
+        long t0 = System.nanoTime();
+        // 开启 -Ddatapreprocessor.compress 时直接生成 .csv.gz
+        generateRecipes(Compression.output(c.out.resolve("recipes.csv")), c);
+        generateReviews(Compression.output(c.out.resolve("reviews.csv")), c);
+        UserGenerator.generate(Compression.output(c.out.resolve("user.csv")), c);
+        System.out.printf("生成完成，用时 %.1f 秒 → %s%n", (System.nanoTime() - t0) / 1e9, c.out.toAbsolutePath());
+    }
+
+    public static void generateRecipes(Path file, GeneratorConfig c) throws IOException {
+        writeBlocks(file, RECIPE_HEADER, c.recipes, c, (id, r, sb) -> recipe(id, r, sb, c));
+    }
+
+    public static void generateReviews(Path file, GeneratorConfig c) throws IOException {
+        writeBlocks(file, REVIEW_HEADER, c.reviews, c, (id, r, sb) -> review(id, r, sb, c));
+    }
+
+    /** 并行生成各块，按顺序写出；同时在途的块数有上限，内存占用与文件大小无关 */
+    static void writeBlocks(Path file, String header, long rows, GeneratorConfig c, RowSource src) throws IOException {
+        long blocks = (rows + BLOCK_ROWS - 1) / BLOCK_ROWS;
+        int threads = Math.max(1, c.threads);
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try (OutputStream out = new BufferedOutputStream(Compression.newOutputStream(file), 1 << 20)) {
+            out.write(header.getBytes(StandardCharsets.UTF_8));
+            Deque<Future<byte[]>> window = new ArrayDeque<>();
+            long next = 0;
+            while (next < blocks || !window.isEmpty()) {
+                while (window.size() < threads * 2 && next < blocks) {
+                    long b = next++;
+                    window.add(pool.submit(() -> block(b, rows, c.seed, src)));
+                }
+                out.write(window.poll().get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("生成被中断", e);
+        } catch (ExecutionException e) {
+            throw new IOException("生成失败: " + file, e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+        System.out.printf("%s: %d 行, %d 字节%n", file.getFileName(), rows, Files.size(file));
+    }
+
+    private static byte[] block(long b, long rows, long seed, RowSource src) {
+        SplittableRandom r = new SplittableRandom(seed + b * 0x9E3779B97F4A7C15L);
+        StringBuilder sb = new StringBuilder(BLOCK_ROWS * 128);
+        long from = b * BLOCK_ROWS;
+        long to = Math.min(rows, from + BLOCK_ROWS);
+        for (long i = from; i < to; i++) src.row(i + 1, r, sb);
+        return sb.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static void recipe(long id, SplittableRandom r, StringBuilder sb, GeneratorConfig c) {
+        int cook = MINUTES[r.nextInt(MINUTES.length)];
+        int prep = MINUTES[r.nextInt(MINUTES.length)];
+        int total = cook + prep;
+        if (r.nextDouble() < c.wrongTotalRate) total += 5 * (1 + r.nextInt(12));
+
+        sb.append(primaryKey(id, r, c.dupRate)).append(',');
+        sb.append("Recipe #").append(id).append(',');
+        sb.append(1 + r.nextInt(Math.max(1, c.users))).append(",Author,");
+        sb.append(duration(cook, r, c)).append(',');
+        sb.append(duration(prep, r, c)).append(',');
+        sb.append(r.nextInt(20) == 0 ? "" : duration(total, r, c)).append(',');
+        sb.append(Instant.ofEpochSecond(EPOCH_2000 + r.nextLong(TWENTY_YEARS))).append(',');
+        sb.append("\"A \"\"classic\"\" recipe, serves ").append(1 + r.nextInt(12)).append("\",");
+        sb.append(CATEGORIES[r.nextInt(CATEGORIES.length)]).append(',');
+        sb.append("\"c(\"\"Easy\"\", \"\"< 60 Mins\"\")\",");
+        sb.append("\"c(");
+        for (int k = 0, n = 1 + r.nextInt(6); k < n; k++) {
+            if (k > 0) sb.append(", ");
+            sb.append("\"\"").append(INGREDIENTS[r.nextInt(INGREDIENTS.length)]).append("\"\"");
+        }
+        sb.append(")\",");
+        sb.append(r.nextInt(5) == 0 ? "" : (1 + r.nextInt(4)) + "." + r.nextInt(10)).append(',');
+        sb.append(r.nextInt(200)).append(".0,");
+        for (int k = 0; k < 9; k++) {   // Calories … ProteinContent
+            sb.append(r.nextInt(1000)).append('.').append(r.nextInt(10)).append(',');
+        }
+        sb.append(r.nextInt(10) == 0 ? "" : (1 + r.nextInt(12)) + ".0").append(',');
+        sb.append(r.nextBoolean() ? "" : "1 9-inch pie").append(',');
+        sb.append("\"c(\"\"Preheat oven.\"\",\n\"\"Mix, then bake ").append(cook).append(" minutes.\"\")\",");
+        sb.append("\"c(\"\"").append(1 + r.nextInt(Math.max(1, c.users))).append("\"\")\"\n");
+    }
+
+    private static void review(long id, SplittableRandom r, StringBuilder sb, GeneratorConfig c) {
+        long submitted = EPOCH_2000 + r.nextLong(TWENTY_YEARS);
+        long modified = submitted + (r.nextInt(3) == 0 ? 0 : r.nextLong(90L * 86_400));
+        if (r.nextDouble() < c.invertedDateRate) {
+            long t = submitted;
+            submitted = modified + 86_400;
+            modified = t;
+        }
+
+        sb.append(primaryKey(id, r, c.dupRate)).append(',');
+        long recipeId = 1 + r.nextLong(Math.max(1, c.recipes));
+        sb.append(recipeId).append(r.nextBoolean() ? ".0," : ",");
+        sb.append(1 + r.nextInt(Math.max(1, c.users))).append(",Reviewer,");
+        sb.append(r.nextInt(6)).append(',');
+        sb.append("\"Really \"\"good\"\", made it twice.\nWould cook again\",");
+        // 两个时间共用同一毫秒部分，避免相等时间被毫秒意外打乱顺序
+        int millis = r.nextBoolean() ? 0 : 1 + r.nextInt(999);
+        sb.append(timestamp(submitted, millis)).append(',');
+        sb.append(timestamp(modified, millis)).append(',');
+        sb.append(r.nextInt(4) == 0 ? "" : Integer.toString(r.nextInt(50))).append('\n');
+    }
+
+    /** 按 dupRate 的概率复用一个更早的 ID */
+    static long primaryKey(long id, SplittableRandom r, double dupRate) {
+        return id > 1 && r.nextDouble() < dupRate ? 1 + r.nextLong(id - 1) : id;
+    }
+
+    private static String duration(int minutes, SplittableRandom r, GeneratorConfig c) {
+        if (r.nextDouble() < c.badDurationRate) {
+            return r.nextBoolean() ? "PT" + minutes + "Q" : minutes + "M";   // 非法单位 / 缺少 PT 前缀
+        }
+        if (minutes == 0) return "PT0S";
+        StringBuilder sb = new StringBuilder("PT");
+        if (minutes >= 60) sb.append(minutes / 60).append('H');
+        if (minutes % 60 != 0) sb.append(minutes % 60).append('M');
+        return sb.toString();
+    }
+
+    private static String timestamp(long epochSecond, int millis) {
+        return Instant.ofEpochMilli(epochSecond * 1000 + millis).toString();
+    }
+
+    private DatasetGenerator() {}
+}
@@ -0,0 +1,54 @@
+package com.example.datapreprocessor.generator;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * 数据生成参数，命令行写法为 --key=value，例如
+ * <pre>--out=data --recipes=1000000 --reviews=10000000 --users=200000 --dup-rate=0.001</pre>
+ */
+public final class GeneratorConfig {
+
+    Path out = Paths.get("generated");   // 不覆盖 Project-1-for-midterm 下的真实数据
+    long recipes = 100_000;
+    long reviews = 1_000_000;
+    int users = 50_000;
+
+    double dupRate = 0.001;             // 主键重复的比例
+    double badDurationRate = 0.01;      // 非法 ISO-8601 时长的比例
+    double wrongTotalRate = 0.05;       // TotalTime ≠ CookTime + PrepTime 的比例
+    double invertedDateRate = 0.01;     // DateSubmitted 晚于 DateModified 的比例
+    double followMismatchRate = 0.02;   // Followers/Following 计数与列表不符的比例
+    double followSkew = 2.0;            // 幂律指数，越大关注越集中在少数热门用户上
+    double meanFollowing = 8;           // 每个用户平均关注数
+
+    long seed = 42;
+    int threads = Runtime.getRuntime().availableProcessors();
+
+    public static GeneratorConfig parse(String[] args) {
+        GeneratorConfig c = new GeneratorConfig();
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            if (!arg.startsWith("--") || eq < 0) throw new IllegalArgumentException("参数格式应为 --key=value: " + arg);
+            String key = arg.substring(2, eq);
+            String v = arg.substring(eq + 1);
+            switch (key) {
+                case "out" -> c.out = Paths.get(v);
+                case "recipes" -> c.recipes = Long.parseLong(v);
+                case "reviews" -> c.reviews = Long.parseLong(v);
+                case "users" -> c.users = Integer.parseInt(v);
+                case "dup-rate" -> c.dupRate = Double.parseDouble(v);
+                case "bad-duration-rate" -> c.badDurationRate = Double.parseDouble(v);
+                case "wrong-total-rate" -> c.wrongTotalRate = Double.parseDouble(v);
+                case "inverted-date-rate" -> c.invertedDateRate = Double.parseDouble(v);
+                case "follow-mismatch-rate" -> c.followMismatchRate = Double.parseDouble(v);
+                case "follow-skew" -> c.followSkew = Double.parseDouble(v);
+                case "mean-following" -> c.meanFollowing = Double.parseDouble(v);
+                case "seed" -> c.seed = Long.parseLong(v);
+                case "threads" -> c.threads = Math.max(1, Integer.parseInt(v));
+                default -> throw new IllegalArgumentException("未知参数: " + key);
+            }
+        }
+        return c;
+    }
+}
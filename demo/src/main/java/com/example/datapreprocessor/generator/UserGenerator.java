@@ -0,0 +1,152 @@
+package com.example.datapreprocessor.generator;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.stream.IntStream;
+
+/**
+ * 生成 user.csv。关注数服从 Lomax（Pareto II）分布，被关注者按幂律偏向编号小的“热门”用户，
+ * FollowerUsers 由全体用户的 FollowingUsers 反向得到，两边在写出前是一致的，
+ * 之后再按 followMismatchRate 故意改错部分计数。
+ *
+ * <p>反向索引需要把全部关注边放进内存（每条约 16 字节），用户表比评论表小得多，这通常不是问题。</p>
+ */
+final class UserGenerator {
+
+    private static final int MAX_FOLLOWING = 5_000;
+
+    static void generate(Path file, GeneratorConfig c) throws IOException {
+        int n = c.users;
+        int blocks = (n + DatasetGenerator.BLOCK_ROWS - 1) / DatasetGenerator.BLOCK_ROWS;
+        ForkJoinPool pool = new ForkJoinPool(Math.max(1, c.threads));
+        try {
+            // 1. 并行生成每个用户的关注列表
+            List<ForkJoinTask<Following>> tasks = new ArrayList<>(blocks);
+            for (int b = 0; b < blocks; b++) {
+                int block = b;
+                tasks.add(pool.submit(() -> following(block, n, c)));
+            }
+            Following[] out = new Following[blocks];
+            long edges = 0;
+            for (int b = 0; b < blocks; b++) {
+                out[b] = tasks.get(b).join();
+                edges += out[b].targets.length;
+            }
+            if (edges > Integer.MAX_VALUE - 8) throw new IOException("关注边过多: " + edges);
+
+            // 2. 反向：(被关注者 << 32 | 关注者) 并行排序后切成 CSR
+            long[] rev = new long[(int) edges];
+            int[] base = new int[blocks];
+            for (int b = 1; b < blocks; b++) base[b] = base[b - 1] + out[b - 1].targets.length;
+            pool.submit(() -> IntStream.range(0, blocks).parallel().forEach(b -> {
+                Following f = out[b];
+                int k = base[b];
+                for (int i = 0; i + 1 < f.offsets.length; i++) {
+                    long u = f.firstUser + i;
+                    for (int j = f.offsets[i]; j < f.offsets[i + 1]; j++) rev[k++] = (long) f.targets[j] << 32 | u;
+                }
+            })).join();
+            pool.submit(() -> Arrays.parallelSort(rev)).join();
+            int[] inOffsets = new int[n + 2];
+            for (long e : rev) inOffsets[(int) (e >>> 32) + 1]++;
+            for (int v = 1; v < inOffsets.length; v++) inOffsets[v] += inOffsets[v - 1];
+
+            // 3. 分块写出
+            DatasetGenerator.writeBlocks(file,
+                    "AuthorId,AuthorName,Gender,Age,Followers,Following,FollowerUsers,FollowingUsers\n",
+                    n, c, (u, r, sb) -> row((int) u, r, sb, c, out, rev, inOffsets));
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private static Following following(int block, int n, GeneratorConfig c) {
+        SplittableRandom r = new SplittableRandom(c.seed ^ 0x5DEECE66DL ^ block * 0x9E3779B97F4A7C15L);
+        int first = block * DatasetGenerator.BLOCK_ROWS + 1;
+        int last = Math.min(n, first + DatasetGenerator.BLOCK_ROWS - 1);
+        double shape = Math.max(1.1, c.followSkew);
+        double scale = c.meanFollowing * (shape - 1);
+
+        Following f = new Following();
+        f.firstUser = first;
+        f.offsets = new int[last - first + 2];
+        int[] targets = new int[(last - first + 1) * 4];
+        int count = 0;
+        for (int u = first; u <= last; u++) {
+            f.offsets[u - first] = count;
+            int k = (int) Math.min(Math.min(MAX_FOLLOWING, n - 1), scale * (Math.pow(1 - r.nextDouble(), -1 / shape) - 1));
+            if (count + k > targets.length) targets = Arrays.copyOf(targets, Math.max(targets.length * 2, count + k));
+            int start = count;
+            for (int j = 0; j < k; j++) {
+                int v = 1 + (int) (n * Math.pow(r.nextDouble(), c.followSkew));
+                if (v > n) v = n;
+                if (v != u) targets[count++] = v;
+            }
+            // 同一用户的关注列表去重
+            Arrays.sort(targets, start, count);
+            int w = start;
+            for (int j = start; j < count; j++) {
+                if (j == start || targets[j] != targets[j - 1]) targets[w++] = targets[j];
+            }
+            count = w;
+        }
+        f.offsets[last - first + 1] = count;
+        f.targets = Arrays.copyOf(targets, count);
+        return f;
+    }
+
+    private static void row(int u, SplittableRandom r, StringBuilder sb, GeneratorConfig c,
+                            Following[] following, long[] rev, int[] inOffsets) {
+        Following f = following[(u - 1) / DatasetGenerator.BLOCK_ROWS];
+        int i = u - f.firstUser;
+        int outFrom = f.offsets[i];
+        int outTo = f.offsets[i + 1];
+        int inFrom = inOffsets[u];
+        int inTo = inOffsets[u + 1];
+
+        int followers = inTo - inFrom;
+        int followingCount = outTo - outFrom;
+        if (r.nextDouble() < c.followMismatchRate) {
+            if (r.nextBoolean()) followers += 1 + r.nextInt(3);
+            else followingCount += 1 + r.nextInt(3);
+        }
+
+        sb.append(DatasetGenerator.primaryKey(u, r, c.dupRate)).append(",User").append(u).append(',');
+        sb.append(r.nextBoolean() ? "Male" : "Female").append(',');
+        sb.append(18 + r.nextInt(62)).append(',');
+        sb.append(followers).append(',').append(followingCount).append(',');
+        if (inTo > inFrom) {
+            sb.append("\"c(\"\"");
+            for (int k = inFrom; k < inTo; k++) {
+                if (k > inFrom) sb.append(',');
+                sb.append((int) rev[k]);
+            }
+            sb.append("\"\")\"");
+        }
+        sb.append(',');
+        if (outTo > outFrom) {
+            sb.append("\"c(\"\"");
+            for (int k = outFrom; k < outTo; k++) {
+                if (k > outFrom) sb.append(',');
+                sb.append(f.targets[k]);
+            }
+            sb.append("\"\")\"");
+        }
+        sb.append('\n');
+    }
+
+    /** 一块用户的关注列表，CSR 形式 */
+    private static final class Following {
+        int firstUser;
+        int[] offsets;
+        int[] targets;
+    }
+
+    private UserGenerator() {}
+}
@@ -0,0 +1,137 @@
+package com.example.datapreprocessor.integrity;
+
+import com.example.datapreprocessor.dedup.IdSet;
+
+import java.util.Arrays;
+
+/**
+ * 只读的 ID 索引。数值 ID 排序去重后按密度二选一：
+ * 取值范围不超过个数的 64 倍时用位图（每个可能的 ID 1 bit），否则用有序数组二分查找（每个 ID 8 字节）。
+ * 非数值 ID 很少见，放进 {@link IdSet}。
+ *
+ * <p>"123" 和 "123.0" 视为同一个 ID，与评论预处理中 RecipeId 的转换一致。</p>
+ */
+final class IdIndex {
+
+    static final long NOT_NUMERIC = Long.MIN_VALUE;
+
+    private final long min;
+    private final long[] bitmap;   // 位图模式：bit (id - min)
+    private final long[] sorted;   // 有序数组模式
+    private final IdSet others;
+    private final long size;
+
+    private IdIndex(long min, long[] bitmap, long[] sorted, IdSet others, long size) {
+        this.min = min;
+        this.bitmap = bitmap;
+        this.sorted = sorted;
+        this.others = others;
+        this.size = size;
+    }
+
+    boolean contains(String id) {
+        long v = parseId(id);
+        if (v != NOT_NUMERIC) return contains(v);
+        return others != null && others.contains(id.trim());
+    }
+
+    boolean contains(long v) {
+        if (bitmap != null) {
+            long d = v - min;
+            if (d < 0 || d >= (long) bitmap.length << 6) return false;
+            return (bitmap[(int) (d >>> 6)] & (1L << d)) != 0;
+        }
+        return Arrays.binarySearch(sorted, v) >= 0;
+    }
+
+    /** 不同 ID 的个数 */
+    long size() {
+        return size;
+    }
+
+    long memoryBytes() {
+        long b = bitmap != null ? 8L * bitmap.length : 8L * sorted.length;
+        return b + (others == null ? 0 : others.memoryBytes());
+    }
+
+    String kind() {
+        return bitmap != null ? "位图" : "有序数组";
+    }
+
+    /** 纯数字或整数值的小数返回对应 long，其它返回 {@link #NOT_NUMERIC} */
+    static long parseId(String s) {
+        int n = s.length();
+        int from = 0;
+        int to = n;
+        while (from < to && s.charAt(from) <= ' ') from++;
+        while (to > from && s.charAt(to - 1) <= ' ') to--;
+        if (from == to) return NOT_NUMERIC;
+
+        // 快速路径：最多 18 位的非负整数
+        if (to - from <= 18) {
+            long v = 0;
+            int i = from;
+            for (; i < to; i++) {
+                int d = s.charAt(i) - '0';
+                if (d < 0 || d > 9) break;
+                v = v * 10 + d;
+            }
+            if (i == to) return v;
+        }
+        for (int i = from; i < to; i++) {
+            char c = s.charAt(i);
+            if ((c < '0' || c > '9') && c != '.' && c != '-') return NOT_NUMERIC;
+        }
+        try {
+            double d = Double.parseDouble(s.substring(from, to));
+            if (d == Math.rint(d) && Math.abs(d) < 1e18) return (long) d;
+        } catch (NumberFormatException e) {
+            // 落到下面
+        }
+        return NOT_NUMERIC;
+    }
+
+    /** 单线程流式收集 ID，最后一次性排序建索引 */
+    static final class Builder {
+        private long[] values = new long[1 << 12];
+        private int count;
+        private IdSet others;
+
+        void add(String id) {
+            long v = parseId(id);
+            if (v == NOT_NUMERIC) {
+                String t = id.trim();
+                if (t.isEmpty()) return;
+                if (others == null) others = new IdSet();
+                others.add(t);
+                return;
+            }
+            if (count == values.length) values = Arrays.copyOf(values, values.length * 2);
+            values[count++] = v;
+        }
+
+        IdIndex build() {
+            long[] v = Arrays.copyOf(values, count);
+            values = null;
+            Arrays.parallelSort(v);
+            int n = 0;
+            for (int i = 0; i < v.length; i++) {
+                if (i == 0 || v[i] != v[i - 1]) v[n++] = v[i];
+            }
+            long otherCount = others == null ? 0 : others.size();
+            if (n == 0) return new IdIndex(0, null, new long[0], others, otherCount);
+
+            long lo = v[0];
+            long range = v[n - 1] - lo;   // 可能溢出为负数，此时不用位图
+            if (range >= 0 && range < 64L * n && range < (1L << 37)) {
+                long[] bits = new long[(int) ((range >>> 6) + 1)];
+                for (int i = 0; i < n; i++) {
+                    long d = v[i] - lo;
+                    bits[(int) (d >>> 6)] |= 1L << d;
+                }
+                return new IdIndex(lo, bits, null, others, n + otherCount);
+            }
+            return new IdIndex(lo, null, Arrays.copyOf(v, n), others, n + otherCount);
+        }
+    }
+}
@@ -0,0 +1,202 @@
+package com.example.datapreprocessor.integrity;
+
+import com.example.datapreprocessor.dedup.IdSet;
+import com.example.datapreprocessor.diag.Diagnostics;
+import com.example.datapreprocessor.diag.Rule;
+import com.example.datapreprocessor.io.Compression;
+import com.example.datapreprocessor.io.CsvInput;
+import com.example.datapreprocessor.io.CsvRow;
+import com.example.datapreprocessor.io.ListCell;
+import com.example.datapreprocessor.io.RowReader;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * 跨文件的引用完整性检查：
+ * 评论的 RecipeId / AuthorId、菜谱的 AuthorId / FavoriteUsers、用户的关注列表都必须指向存在的记录。
+ *
+ * <p>第一步并行扫描菜谱和用户文件，只读 ID 列建 {@link IdIndex}；
+ * 第二步并行扫描三个文件的外键列去索引里查。每个文件只解码用到的列，不保留整行。
+ * 悬空引用逐条交给 {@link Diagnostics}（控制台抽样、可写拒绝文件），最后按外键汇总计数。</p>
+ */
+public final class ReferentialIntegrityChecker {
+
+    /** 一个外键列；list 为 true 时单元格是 c("1,2,3") 形式的 ID 列表 */
+    private record Reference(String file, String column, boolean list, String parent) {}
+
+    /** 一个外键的检查结果 */
+    private static final class Tally {
+        final Reference ref;
+        final Rule rule;
+        long checked;
+        long dangling;
+        final IdSet distinct = new IdSet();
+
+        Tally(Reference ref) {
+            this.ref = ref;
+            this.rule = Diagnostics.rule("integrity." + ref.file() + "." + ref.column());
+        }
+    }
+
+    public static void main(String[] args) {
+        Path dir = Paths.get("Project-1-for-midterm");
+        // 评论默认用 RecipeId 转为整数之后的输出，不存在时退回原始文件
+        Path reviews = Compression.input(dir.resolve("reviews_recipeid2int.csv"));
+        if (!Files.exists(reviews)) reviews = Compression.input(dir.resolve("reviews.csv"));
+        Path recipes = Compression.input(dir.resolve("recipes.csv"));
+        Path users = Compression.input(dir.resolve("user.csv"));
+        for (String a : args) {
+            if (a.startsWith("--recipes=")) recipes = Paths.get(a.substring("--recipes=".length()));
+            else if (a.startsWith("--reviews=")) reviews = Paths.get(a.substring("--reviews=".length()));
+            else if (a.startsWith("--users=")) users = Paths.get(a.substring("--users=".length()));
+        }
+
+        try {
+            check(recipes, reviews, users);
+        } catch (IOException e) {
+            System.err.println("检查引用完整性时出错: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+
+    /** @return 悬空引用的总数 */
+    public static long check(Path recipes, Path reviews, Path users) throws IOException {
+        long start = System.nanoTime();
+        ExecutorService pool = Executors.newFixedThreadPool(3);
+        try {
+            // 1. 建索引
+            CompletableFuture<IdIndex> recipeIds = CompletableFuture.supplyAsync(() -> index(recipes, "RecipeId"), pool);
+            CompletableFuture<IdIndex> userIds = CompletableFuture.supplyAsync(() -> index(users, "AuthorId"), pool);
+            IdIndex recipeIndex = join(recipeIds);
+            IdIndex userIndex = join(userIds);
+            System.out.printf("索引: RecipeId %d 个（%s，%.1f MB），AuthorId %d 个（%s，%.1f MB）%n",
+                    recipeIndex.size(), recipeIndex.kind(), recipeIndex.memoryBytes() / 1048576.0,
+                    userIndex.size(), userIndex.kind(), userIndex.memoryBytes() / 1048576.0);
+
+            // 2. 并行检查各文件的外键
+            List<Tally> reviewRefs = List.of(
+                    new Tally(new Reference("reviews", "RecipeId", false, "recipes")),
+                    new Tally(new Reference("reviews", "AuthorId", false, "users")));
+            List<Tally> recipeRefs = List.of(
+                    new Tally(new Reference("recipes", "AuthorId", false, "users")),
+                    new Tally(new Reference("recipes", "FavoriteUsers", true, "users")));
+            List<Tally> userRefs = List.of(
+                    new Tally(new Reference("users", "FollowerUsers", true, "users")),
+                    new Tally(new Reference("users", "FollowingUsers", true, "users")));
+
+            List<CompletableFuture<Void>> probes = new ArrayList<>();
+            probes.add(CompletableFuture.runAsync(() -> probe(reviews, reviewRefs, recipeIndex, userIndex), pool));
+            probes.add(CompletableFuture.runAsync(() -> probe(recipes, recipeRefs, recipeIndex, userIndex), pool));
+            probes.add(CompletableFuture.runAsync(() -> probe(users, userRefs, recipeIndex, userIndex), pool));
+            for (CompletableFuture<Void> p : probes) join(p);
+
+            // 3. 汇总
+            Diagnostics.flush();
+            long total = 0;
+            List<Tally> all = new ArrayList<>(reviewRefs);
+            all.addAll(recipeRefs);
+            all.addAll(userRefs);
+            for (Tally t : all) {
+                total += t.dangling;
+                System.out.printf("%s.%s → %s: 检查 %d 个引用，悬空 %d 个（涉及 %d 个不同 ID）%n",
+                        t.ref.file(), t.ref.column(), t.ref.parent(), t.checked, t.dangling, t.distinct.size());
+            }
+            if (total == 0) {
+                System.out.println("所有跨文件引用均存在");
+            } else {
+                System.out.printf("共 %d 个悬空引用%n", total);
+            }
+            System.out.printf("用时 %.1f 秒%n", (System.nanoTime() - start) / 1e9);
+            return total;
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /** 只读一列，建 ID 索引 */
+    private static IdIndex index(Path file, String column) {
+        IdIndex.Builder b = new IdIndex.Builder();
+        try (RowReader reader = CsvInput.open(file)) {
+            String[] header = reader.readNext();
+            int c = header == null ? -1 : Arrays.asList(header).indexOf(column);
+            if (c < 0) throw new IllegalArgumentException(file.getFileName() + " 缺少 " + column + " 列");
+            CsvRow row;
+            while ((row = reader.next()) != null) {
+                if (c < row.size()) b.add(row.get(c));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return b.build();
+    }
+
+    private static void probe(Path file, List<Tally> refs, IdIndex recipes, IdIndex users) {
+        try (RowReader reader = CsvInput.open(file)) {
+            String[] header = reader.readNext();
+            if (header == null) return;
+            int[] cols = new int[refs.size()];
+            IdIndex[] parents = new IdIndex[refs.size()];
+            for (int i = 0; i < cols.length; i++) {
+                Reference r = refs.get(i).ref;
+                cols[i] = Arrays.asList(header).indexOf(r.column());
+                if (cols[i] < 0) throw new IllegalArgumentException(file.getFileName() + " 缺少 " + r.column() + " 列");
+                parents[i] = r.parent().equals("recipes") ? recipes : users;
+            }
+
+            ListCell.Cursor list = new ListCell.Cursor();
+            CsvRow row;
+            long rowNo = 1;
+            while ((row = reader.next()) != null) {
+                rowNo++;
+                for (int i = 0; i < cols.length; i++) {
+                    if (cols[i] >= row.size()) continue;
+                    Tally t = refs.get(i);
+                    String cell = row.get(cols[i]);
+                    if (!t.ref.list()) {
+                        probeOne(t, parents[i], cell, rowNo, row);
+                    } else {
+                        list.reset(cell.trim());
+                        while (list.next()) probeOne(t, parents[i], list.element(), rowNo, row);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void probeOne(Tally t, IdIndex parent, String id, long rowNo, CsvRow row) {
+        String v = id.trim();
+        if (v.isEmpty()) return;
+        t.checked++;
+        if (parent.contains(v)) return;
+        t.dangling++;
+        t.distinct.add(v);
+        t.rule.report(rowNo, row.offset(), "%s 第 %d 行 %s=%s 在 %s 中不存在",
+                t.ref.file(), rowNo, t.ref.column(), v, t.ref.parent());
+    }
+
+    private static <T> T join(CompletableFuture<T> f) throws IOException {
+        try {
+            return f.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof UncheckedIOException io) throw io.getCause();
+            if (cause instanceof RuntimeException re) throw re;
+            throw new IOException(cause);
+        }
+    }
+
+    private ReferentialIntegrityChecker() {}
+}
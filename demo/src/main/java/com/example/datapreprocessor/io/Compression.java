@@ -0,0 +1,133 @@
+package com.example.datapreprocessor.io;
+
+import com.example.datapreprocessor.metrics.Metrics;
+
+import java.io.BufferedInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.OpenOption;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * 按扩展名透明读写 gzip：以 .gz 结尾的文件读取时解压，写出时用 {@link ParallelGzipOutputStream} 压缩。
+ *
+ * <p>预处理各步的输入输出文件名是固定的，这里负责在它们和 .gz 版本之间挑选：
+ * 读取时 {@link #input} 在 x 和 x.gz 中取存在且较新的那个；写出时 {@link #output} 在开启
+ * -Ddatapreprocessor.compress=true 后给文件名加上 .gz。</p>
+ */
+public final class Compression {
+
+    static final String SUFFIX = ".gz";
+    private static final String PARTIAL = ".partial";
+
+    private static final boolean COMPRESS = Boolean.getBoolean("datapreprocessor.compress");
+
+    public static boolean isCompressed(Path p) {
+        return p.getFileName().toString().endsWith(SUFFIX);
+    }
+
+    /** 要读取的文件：x 与 x.gz 都存在时取修改时间较新的，都不存在时返回 p */
+    public static Path input(Path p) {
+        if (isCompressed(p)) return p;
+        Path gz = p.resolveSibling(p.getFileName() + SUFFIX);
+        if (!Files.exists(gz)) return p;
+        if (!Files.exists(p)) return gz;
+        try {
+            return Files.getLastModifiedTime(gz).compareTo(Files.getLastModifiedTime(p)) > 0 ? gz : p;
+        } catch (IOException e) {
+            return p;
+        }
+    }
+
+    /** 要写出的文件：开启压缩时为 x.gz，否则原样返回 */
+    public static Path output(Path p) {
+        return COMPRESS && !isCompressed(p) ? p.resolveSibling(p.getFileName() + SUFFIX) : p;
+    }
+
+    /** 去掉 .gz 后的文件名，用于推导同名的其它格式文件 */
+    public static String baseName(Path p) {
+        String name = p.getFileName().toString();
+        return isCompressed(p) ? name.substring(0, name.length() - SUFFIX.length()) : name;
+    }
+
+    /**
+     * 输出先写到同目录的 x.partial（压缩时为 x.partial.gz），写完再由 {@link #commit} 原子改名为 x，
+     * 中途失败时最终路径上要么是旧文件，要么没有文件，不会是写了一半的文件。
+     */
+    public static Path partial(Path p) {
+        String name = baseName(p) + PARTIAL;
+        return p.resolveSibling(isCompressed(p) ? name + SUFFIX : name);
+    }
+
+    /** 把 {@link #partial} 写完的内容原子替换到 p */
+    public static void commit(Path p) throws IOException {
+        Files.move(partial(p), p, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    public static InputStream newInputStream(Path p) throws IOException {
+        InputStream in = Files.newInputStream(p);
+        if (!isCompressed(p)) return in;
+        try {
+            return new GZIPInputStream(new BufferedInputStream(in, 1 << 16), 1 << 16);
+        } catch (IOException e) {
+            in.close();
+            throw new IOException("不是有效的 gzip 文件: " + p, e);
+        }
+    }
+
+    public static OutputStream newOutputStream(Path p, OpenOption... options) throws IOException {
+        OutputStream out = Files.newOutputStream(p, options);
+        if (Metrics.enabled()) out = measured(out, committed(p));
+        if (!isCompressed(p)) return out;
+        try {
+            return new ParallelGzipOutputStream(out);
+        } catch (IOException e) {
+            out.close();
+            throw e;
+        }
+    }
+
+    /** 临时文件对应的最终文件，指标里按最终文件名登记；其它路径原样返回 */
+    private static Path committed(Path p) {
+        String name = baseName(p);
+        if (!name.endsWith(PARTIAL)) return p;
+        name = name.substring(0, name.length() - PARTIAL.length());
+        return p.resolveSibling(isCompressed(p) ? name + SUFFIX : name);
+    }
+
+    /** 统计写到磁盘上的字节数，关闭时登记到 {@link Metrics} */
+    private static OutputStream measured(OutputStream out, Path p) {
+        long start = System.nanoTime();
+        return new FilterOutputStream(out) {
+            private long bytes;
+            private boolean closed;
+
+            @Override
+            public void write(int b) throws IOException {
+                out.write(b);
+                bytes++;
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                out.write(b, off, len);
+                bytes += len;
+            }
+
+            @Override
+            public void close() throws IOException {
+                super.close();
+                if (closed) return;
+                closed = true;
+                Metrics.write(p, bytes, System.nanoTime() - start);
+            }
+        };
+    }
+
+    private Compression() {}
+}
@@ -0,0 +1,56 @@
+package com.example.datapreprocessor.io;
+
+import java.nio.ByteBuffer;
+
+/**
+ * 字段的只读字符视图，由 {@link CsvRow#field} 指向某一列，阶段自己持有并逐行复用。
+ *
+ * <p>没加引号、全是 ASCII 的字段直接按原始字节读字符，不生成 String；
+ * 其它字段（带引号、含多字节字符、已解码或已修改）退回到字段的字符串值。
+ * 视图只在指向的记录处理期间有效，需要留下来的值用 {@link #toString} 取出。</p>
+ */
+public final class CsvField implements CharSequence {
+
+    private ByteBuffer buf;   // null 表示视图指向 value
+    private int from;
+    private int to;
+    private String value;
+
+    void point(ByteBuffer buf, int from, int to) {
+        this.buf = buf;
+        this.from = from;
+        this.to = to;
+        this.value = null;
+    }
+
+    void point(String value) {
+        this.buf = null;
+        this.value = value;
+    }
+
+    @Override
+    public int length() {
+        return buf != null ? to - from : value.length();
+    }
+
+    @Override
+    public char charAt(int index) {
+        if (buf == null) return value.charAt(index);
+        if (index < 0 || index >= to - from) throw new IndexOutOfBoundsException(index);
+        return (char) buf.get(from + index);
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        return toString().subSequence(start, end);
+    }
+
+    public boolean isEmpty() {
+        return length() == 0;
+    }
+
+    @Override
+    public String toString() {
+        return buf != null ? CsvTokenizer.utf8(buf, from, to) : value;
+    }
+}
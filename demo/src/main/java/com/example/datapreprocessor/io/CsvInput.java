@@ -0,0 +1,76 @@
+package com.example.datapreprocessor.io;
+
+import com.example.datapreprocessor.metrics.Metrics;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * 所有预处理步骤统一从这里打开输入，一律由 {@link ParallelCsvReader} 分词。
+ * 不按文件大小在两种解析器之间切换：同一份输入无论多大都得到同样的记录（见 {@link CsvTokenizer}
+ * 与 opencsv 的差别），没改动的字段也都按原始字节写回，输出与文件大小无关。
+ * 小文件只切出一个区间，相当于单线程读取。
+ * .gz 文件边解压边读（见 {@link GzipCsvReader}），用的是同一个分词器，只能从头读到尾。
+ */
+public final class CsvInput {
+
+    public static RowReader open(Path csvPath) throws IOException {
+        return open(csvPath, 0, -1);
+    }
+
+    /**
+     * 只读取 [from, to) 字节区间，from 必须是记录起点；to 为 -1 表示读到文件末尾。
+     * from 不为 0 时读到的第一条就是数据行，不再有表头。压缩文件只支持 from 为 0，忽略 to。
+     */
+    public static RowReader open(Path csvPath, long from, long to) throws IOException {
+        RowReader reader = openReader(csvPath, from, to);
+        if (!Metrics.enabled()) return reader;
+        long bytes = Compression.isCompressed(csvPath) ? Files.size(csvPath)
+                : (to < 0 ? Files.size(csvPath) : to) - from;
+        return measured(reader, csvPath, from == 0, bytes);
+    }
+
+    private static RowReader openReader(Path csvPath, long from, long to) throws IOException {
+        if (Compression.isCompressed(csvPath)) {
+            if (from != 0) throw new IllegalArgumentException("压缩文件只能从头读取: " + csvPath);
+            return new GzipCsvReader(csvPath, ForkJoinPool.commonPool());
+        }
+        long end = to < 0 ? Files.size(csvPath) : to;
+        return new ParallelCsvReader(csvPath, ForkJoinPool.commonPool(), ParallelCsvReader.DEFAULT_CHUNK, from, end);
+    }
+
+    /** 关闭时把读到的行数、字节数和用时登记到 {@link Metrics} */
+    private static RowReader measured(RowReader reader, Path csvPath, boolean header, long bytes) {
+        long start = System.nanoTime();
+        return new RowReader() {
+            private long records;
+            private boolean closed;
+
+            @Override
+            public String[] readNext() throws IOException {
+                String[] line = reader.readNext();
+                if (line != null) records++;
+                return line;
+            }
+
+            @Override
+            public CsvRow next() throws IOException {
+                CsvRow row = reader.next();
+                if (row != null) records++;
+                return row;
+            }
+
+            @Override
+            public void close() throws IOException {
+                reader.close();
+                if (closed) return;
+                closed = true;
+                Metrics.read(csvPath, Math.max(0, header ? records - 1 : records), bytes, System.nanoTime() - start);
+            }
+        };
+    }
+
+    private CsvInput() {}
+}
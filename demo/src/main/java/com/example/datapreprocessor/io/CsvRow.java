@@ -0,0 +1,130 @@
+package com.example.datapreprocessor.io;
+
+import java.nio.ByteBuffer;
+
+/**
+ * 一条 CSV 记录。
+ *
+ * <p>从映射文件分词得到的记录只保存字段的原始 UTF-8 区间，某一列第一次被
+ * {@link #get} 时才解码；没被读取或修改的列由 {@link CsvRowWriter} 原样拷贝字节写回，
+ * 宽表里阶段用不到的列因此不会产生任何 String。</p>
+ */
+public final class CsvRow {
+
+    private final ByteBuffer buf;   // null 表示所有值都已在 values 中
+    private final int[] bounds;     // 字段 i 的原始区间为 [bounds[base + 2i], bounds[base + 2i + 1])
+    private final int base;
+    private final int size;
+    private final long origin;      // buf 下标 0 对应的文件字节偏移
+    private String[] values;        // 已解码或已修改的值
+    private boolean[] modified;
+
+    CsvRow(ByteBuffer buf, int[] bounds, int base, int size, long origin) {
+        this.buf = buf;
+        this.bounds = bounds;
+        this.base = base;
+        this.size = size;
+        this.origin = origin;
+    }
+
+    private CsvRow(String[] values) {
+        this(null, null, 0, values.length, -1);
+        this.values = values;
+    }
+
+    /** 包装已经解码好的一行 */
+    public static CsvRow of(String[] values) {
+        return new CsvRow(values);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /** 记录在源文件中的起始字节偏移，未知时为 -1 */
+    public long offset() {
+        return buf == null || size == 0 ? -1 : origin + bounds[base];
+    }
+
+    public String get(int i) {
+        if (i < 0 || i >= size) throw new ArrayIndexOutOfBoundsException(i);
+        if (values == null) values = new String[size];
+        String v = values[i];
+        if (v == null) {
+            v = CsvTokenizer.decode(buf, bounds[base + 2 * i], bounds[base + 2 * i + 1]);
+            values[i] = v;
+        }
+        return v;
+    }
+
+    /**
+     * 让 view 指向字段 i，读取时不解码也不缓存：没加引号的 ASCII 字段直接读原始字节，
+     * 其它字段才解码成 String。只读一眼、多数行都不需要字符串的校验阶段用它。
+     */
+    public CsvField field(int i, CsvField view) {
+        if (i < 0 || i >= size) throw new ArrayIndexOutOfBoundsException(i);
+        String v = values == null ? null : values[i];
+        if (v != null) {
+            view.point(v);
+            return view;
+        }
+        int s = bounds[base + 2 * i];
+        int e = bounds[base + 2 * i + 1];
+        if (e > s && buf.get(s) == '"') {
+            view.point(CsvTokenizer.decode(buf, s, e));
+            return view;
+        }
+        for (int k = s; k < e; k++) {
+            if (buf.get(k) < 0) {   // 多字节 UTF-8
+                view.point(CsvTokenizer.utf8(buf, s, e));
+                return view;
+            }
+        }
+        view.point(buf, s, e);
+        return view;
+    }
+
+    /**
+     * 同 {@link #get}，但解码结果不缓存在记录里：只看一眼的阶段（如剖析）用它，
+     * 字符串用完即成垃圾，不会跟着记录一直活到写出。
+     */
+    public String peek(int i) {
+        if (i < 0 || i >= size) throw new ArrayIndexOutOfBoundsException(i);
+        String v = values == null ? null : values[i];
+        return v != null ? v : CsvTokenizer.decode(buf, bounds[base + 2 * i], bounds[base + 2 * i + 1]);
+    }
+
+    public void set(int i, String value) {
+        if (i < 0 || i >= size) throw new ArrayIndexOutOfBoundsException(i);
+        if (values == null) values = new String[size];
+        values[i] = value;
+        if (buf != null) {
+            if (modified == null) modified = new boolean[size];
+            modified[i] = true;
+        }
+    }
+
+    /** 解码全部字段 */
+    public String[] toArray() {
+        String[] out = new String[size];
+        for (int i = 0; i < size; i++) out[i] = get(i);
+        return out;
+    }
+
+    /** 该字段能否直接拷贝原始字节写出 */
+    boolean isRaw(int i) {
+        return buf != null && (modified == null || !modified[i]);
+    }
+
+    ByteBuffer buffer() {
+        return buf;
+    }
+
+    int rawStart(int i) {
+        return bounds[base + 2 * i];
+    }
+
+    int rawEnd(int i) {
+        return bounds[base + 2 * i + 1];
+    }
+}
@@ -0,0 +1,126 @@
+package com.example.datapreprocessor.io;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * 输出格式与 opencsv 的 CSVWriter.writeNext(line, false) 一致：
+ * 只有含逗号、引号或换行的字段才加引号，行尾为 \n。
+ * 未改动的映射字段直接拷贝原始字节。目标以 .gz 结尾时压缩写出。
+ *
+ * <p>{@link #open} 打开的写出器先写到 {@link Compression#partial} 临时文件，
+ * 只有 {@link #commit} 才把它原子改名为目标文件；没提交就关闭时临时文件留在原地，供断点续跑。</p>
+ */
+public final class CsvRowWriter implements Closeable {
+
+    private final OutputStream out;
+    private final Path target;   // 提交时改名到这里，null 表示直接写给定的流
+    private byte[] scratch = new byte[4096];
+    private boolean closed;
+
+    public CsvRowWriter(OutputStream out) {
+        this(out, null);
+    }
+
+    private CsvRowWriter(OutputStream out, Path target) {
+        this.out = out instanceof BufferedOutputStream ? out : new BufferedOutputStream(out, 1 << 16);
+        this.target = target;
+    }
+
+    public static CsvRowWriter open(Path target) throws IOException {
+        return new CsvRowWriter(Compression.newOutputStream(Compression.partial(target),
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE), target);
+    }
+
+    /**
+     * 接着上次没提交的临时文件写：先截到 length 字节，丢掉检查点之后写出的内容。
+     * 压缩文件无法截断续写，不支持。
+     */
+    public static CsvRowWriter append(Path target, long length) throws IOException {
+        if (Compression.isCompressed(target)) throw new IllegalArgumentException("压缩文件不能续写: " + target);
+        Path partial = Compression.partial(target);
+        try (FileChannel ch = FileChannel.open(partial, StandardOpenOption.WRITE)) {
+            if (ch.size() < length) throw new IOException("临时输出比检查点记录的短: " + partial);
+            ch.truncate(length);
+        }
+        return new CsvRowWriter(Compression.newOutputStream(partial, StandardOpenOption.WRITE, StandardOpenOption.APPEND),
+                target);
+    }
+
+    public void write(CsvRow row) throws IOException {
+        for (int i = 0; i < row.size(); i++) {
+            if (i > 0) out.write(',');
+            if (row.isRaw(i)) {
+                writeRaw(row.buffer(), row.rawStart(i), row.rawEnd(i));
+            } else {
+                writeField(row.get(i));
+            }
+        }
+        out.write('\n');
+    }
+
+    public void write(String[] values) throws IOException {
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) out.write(',');
+            writeField(values[i]);
+        }
+        out.write('\n');
+    }
+
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    /** 把已写的内容刷到磁盘，返回临时文件当前的字节数；只用于不压缩的输出 */
+    public long sync() throws IOException {
+        out.flush();
+        Path partial = Compression.partial(target);
+        try (FileChannel ch = FileChannel.open(partial, StandardOpenOption.WRITE)) {
+            ch.force(false);
+            return ch.size();
+        }
+    }
+
+    /** 写完关闭，并把临时文件原子改名为目标文件 */
+    public void commit() throws IOException {
+        close();
+        if (target != null) Compression.commit(target);
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) return;
+        closed = true;
+        out.close();
+    }
+
+    private void writeRaw(ByteBuffer buf, int s, int e) throws IOException {
+        int len = e - s;
+        if (len > scratch.length) scratch = new byte[Math.max(len, scratch.length * 2)];
+        buf.get(s, scratch, 0, len);
+        out.write(scratch, 0, len);
+    }
+
+    private void writeField(String v) throws IOException {
+        if (v == null) return;
+        boolean quote = false;
+        for (int i = 0; i < v.length() && !quote; i++) {
+            char c = v.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quote) {
+            out.write(v.getBytes(StandardCharsets.UTF_8));
+            return;
+        }
+        out.write('"');
+        out.write(v.replace("\"", "\"\"").getBytes(StandardCharsets.UTF_8));
+        out.write('"');
+    }
+}
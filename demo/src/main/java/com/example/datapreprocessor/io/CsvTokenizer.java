@@ -0,0 +1,153 @@
+package com.example.datapreprocessor.io;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 字节级 RFC 4180 分词器，行为与 opencsv 的 RFC4180Parser 保持一致：
+ * 只有字段开头的引号才开启引用，引用内的 CRLF 和单独的 CR 都归一为 LF，空行返回只含一个空串的记录。
+ * 唯一的差别是引用外单独的 CR：opencsv 按行读取时把它当作换行，这里只认 LF 为记录结束，CR 留在字段里。
+ *
+ * <p>分词只记录每个字段的原始字节区间，不做解码；真正取值时再由 {@link #decode} 转成 String。</p>
+ */
+final class CsvTokenizer {
+
+    static final int FIELD_START = 0;
+    static final int UNQUOTED = 1;
+    static final int QUOTED = 2;
+    static final int QUOTE_SEEN = 3;   // 引用字段里刚读到一个引号，可能是结束也可能是转义
+    static final int STATES = 4;
+
+    /** 状态转移 */
+    @SuppressWarnings("fallthrough")
+    static int step(int state, byte b) {
+        switch (state) {
+            case QUOTED:
+                return b == '"' ? QUOTE_SEEN : QUOTED;
+            case QUOTE_SEEN:
+                if (b == '"') return QUOTED;
+                // fall through：引用已结束，后面按普通字符处理
+            case UNQUOTED:
+                return b == ',' || b == '\n' ? FIELD_START : UNQUOTED;
+            default:
+                if (b == '"') return QUOTED;
+                return b == ',' || b == '\n' ? FIELD_START : UNQUOTED;
+        }
+    }
+
+    /** 在 state 状态下读到 b 是否结束一条记录 */
+    static boolean endsRecord(int state, byte b) {
+        return b == '\n' && state != QUOTED;
+    }
+
+    /**
+     * 切分 [from, to) 内的完整记录，调用方保证 from 是记录起点。
+     * 同一区间的所有记录共用一个字段边界数组；origin 是 buf 下标 0 在文件中的偏移。
+     */
+    static void tokenize(ByteBuffer buf, int from, int to, long origin, List<CsvRow> out) throws IOException {
+        int[] bounds = new int[256];
+        int[] rows = new int[64];   // 每条记录的 (起始下标, 字段数)
+        int nb = 0;
+        int nr = 0;
+
+        int i = from;
+        while (i < to) {
+            int recStart = i;
+            int base = nb;
+            while (true) {
+                int s = i;
+                if (buf.get(i) == '"') {
+                    int j = i + 1;
+                    while (true) {
+                        if (j >= to) throw new IOException("引号未闭合，记录起始字节 " + (origin + recStart));
+                        if (buf.get(j) == '"') {
+                            if (j + 1 < to && buf.get(j + 1) == '"') {
+                                j += 2;
+                                continue;
+                            }
+                            break;
+                        }
+                        j++;
+                    }
+                    i = j + 1;
+                }
+                i = scanUnquoted(buf, i, to);
+
+                if (nb + 4 > bounds.length) bounds = Arrays.copyOf(bounds, bounds.length * 2);
+                bounds[nb++] = s;
+                bounds[nb++] = trimCr(buf, s, i, to);
+
+                if (i >= to) break;
+                if (buf.get(i++) == '\n') break;
+                if (i >= to) {   // 以逗号结尾：补一个空字段
+                    bounds[nb++] = i;
+                    bounds[nb++] = i;
+                    break;
+                }
+            }
+            if (nr + 2 > rows.length) rows = Arrays.copyOf(rows, rows.length * 2);
+            rows[nr++] = base;
+            rows[nr++] = (nb - base) / 2;
+        }
+
+        for (int r = 0; r < nr; r += 2) {
+            out.add(new CsvRow(buf, bounds, rows[r], rows[r + 1], origin));
+        }
+    }
+
+    /** 把字段的原始字节区间解码成值 */
+    static String decode(ByteBuffer buf, int s, int e) {
+        if (e <= s) return "";
+        if (buf.get(s) != '"') return utf8(buf, s, e);
+
+        // 去引号后不会比原始区间长，直接写进数组
+        byte[] out = new byte[e - s];
+        int n = 0;
+        int i = s + 1;
+        for (; i < e; i++) {
+            byte b = buf.get(i);
+            if (b == '"') {
+                if (i + 1 < e && buf.get(i + 1) == '"') {
+                    i++;                  // "" -> "
+                } else {
+                    i++;
+                    break;                // 引用结束
+                }
+            } else if (b == '\r') {
+                if (i + 1 < e && buf.get(i + 1) == '\n') continue;   // CRLF -> LF
+                b = '\n';                                           // 单独的 CR 也是换行
+            }
+            out[n++] = b;
+        }
+        // 闭合引号后还有内容（不规范写法），按原样拼接
+        for (; i < e; i++) out[n++] = buf.get(i);
+        return new String(out, 0, n, StandardCharsets.UTF_8);
+    }
+
+    static String utf8(ByteBuffer buf, int s, int e) {
+        byte[] b = new byte[e - s];
+        buf.get(s, b);
+        return new String(b, StandardCharsets.UTF_8);
+    }
+
+    /** 返回非引用内容的结束位置（逗号、换行或 to） */
+    private static int scanUnquoted(ByteBuffer buf, int i, int to) {
+        while (i < to) {
+            byte b = buf.get(i);
+            if (b == ',' || b == '\n') break;
+            i++;
+        }
+        return i;
+    }
+
+    /** 行尾的 \r 不属于字段内容，返回去掉后的结束位置 */
+    private static int trimCr(ByteBuffer buf, int s, int e, int to) {
+        boolean lineEnd = e >= to || buf.get(e) == '\n';
+        return lineEnd && e > s && buf.get(e - 1) == '\r' ? e - 1 : e;
+    }
+
+    private CsvTokenizer() {}
+}
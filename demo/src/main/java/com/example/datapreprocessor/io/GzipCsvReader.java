@@ -0,0 +1,162 @@
+package com.example.datapreprocessor.io;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * gzip 压缩的 CSV 没法映射后随机切分，改成流水线：后台线程顺序解压成大块，
+ * 用分词状态机找到块内最后一个记录边界后切开（余下的半条记录并入下一块），
+ * 每块的分词交给线程池并行，按原始顺序返回惰性解码的 {@link CsvRow}。
+ * 记录的字节偏移是解压后数据中的位置。
+ */
+final class GzipCsvReader implements RowReader {
+
+    static final int BLOCK = 4 << 20;
+
+    /** 单块上限，单条记录不能超过它 */
+    static final int MAX_BLOCK = 1 << 30;
+
+    private static final ForkJoinTask<List<CsvRow>> END = ForkJoinTask.adapt((Callable<List<CsvRow>>) List::of);
+
+    private final ForkJoinPool pool;
+    private final int block;
+    private final BlockingQueue<ForkJoinTask<List<CsvRow>>> ready;
+    private final Thread inflater;
+    private volatile Throwable failure;
+    private boolean done;
+
+    private List<CsvRow> current = List.of();
+    private int cursor;
+
+    GzipCsvReader(Path gzPath, ForkJoinPool pool) throws IOException {
+        this(gzPath, pool, BLOCK);
+    }
+
+    /** block 为每次切分的解压字节数，测试里用很小的块覆盖跨块的记录 */
+    GzipCsvReader(Path gzPath, ForkJoinPool pool, int block) throws IOException {
+        this.pool = pool;
+        this.block = Math.max(1, block);
+        this.ready = new ArrayBlockingQueue<>(Math.max(2, pool.getParallelism() * 2));
+        InputStream in = Compression.newInputStream(gzPath);
+        this.inflater = new Thread(() -> inflate(in), "gzip-csv-reader");
+        inflater.setDaemon(true);
+        inflater.start();
+    }
+
+    @Override
+    public String[] readNext() throws IOException {
+        CsvRow row = next();
+        return row == null ? null : row.toArray();
+    }
+
+    @Override
+    public CsvRow next() throws IOException {
+        while (cursor >= current.size()) {
+            if (done) return null;
+            ForkJoinTask<List<CsvRow>> task;
+            try {
+                task = ready.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("读取被中断", e);
+            }
+            if (task == END) {
+                done = true;
+                Throwable f = failure;
+                if (f instanceof IOException e) throw e;
+                if (f != null) throw new IOException("解压 gzip 输入失败", f);
+                return null;
+            }
+            try {
+                current = task.join();
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            cursor = 0;
+        }
+        return current.get(cursor++);
+    }
+
+    @Override
+    public void close() {
+        done = true;
+        inflater.interrupt();
+        for (ForkJoinTask<?> t : ready) t.cancel(true);
+        ready.clear();
+    }
+
+    /**
+     * 解压线程：读满一块后在最后一个完整记录处切开，提交分词。
+     * 不论正常结束还是出错，最后都放入 END，读取端不会一直等下去；出错原因记在 failure 里。
+     */
+    private void inflate(InputStream in) {
+        try (in) {
+            byte[] buf = new byte[block];
+            int len = 0;
+            int scanned = 0;
+            int state = CsvTokenizer.FIELD_START;
+            long origin = 0;
+            int n;
+            while ((n = in.read(buf, len, buf.length - len)) >= 0) {
+                len += n;
+                if (len < buf.length) continue;
+
+                int cut = -1;
+                for (int i = scanned; i < len; i++) {
+                    byte b = buf[i];
+                    if (CsvTokenizer.endsRecord(state, b)) cut = i + 1;
+                    state = CsvTokenizer.step(state, b);
+                }
+                scanned = len;
+                if (cut < 0) {   // 一条记录比整块还大，扩容继续读
+                    if (buf.length > MAX_BLOCK / 2) throw new IOException("单条记录超过 " + MAX_BLOCK + " 字节");
+                    buf = Arrays.copyOf(buf, buf.length * 2);
+                    continue;
+                }
+
+                submit(buf, cut, origin);
+                byte[] next = new byte[Math.max(block, (len - cut) * 2)];
+                System.arraycopy(buf, cut, next, 0, len - cut);
+                origin += cut;
+                len -= cut;
+                scanned -= cut;
+                buf = next;
+            }
+            if (len > 0) submit(buf, len, origin);
+        } catch (InterruptedException e) {
+            // close() 时停止，仍然放入 END
+        } catch (Throwable e) {
+            failure = e;
+        } finally {
+            try {
+                ready.put(END);
+            } catch (InterruptedException ignored) {
+                // 已关闭，没有人再读
+            }
+        }
+    }
+
+    private void submit(byte[] data, int len, long origin) throws InterruptedException {
+        ByteBuffer buf = ByteBuffer.wrap(data);
+        ready.put(pool.submit(() -> {
+            List<CsvRow> out = new ArrayList<>();
+            try {
+                CsvTokenizer.tokenize(buf, 0, len, origin, out);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return out;
+        }));
+    }
+}
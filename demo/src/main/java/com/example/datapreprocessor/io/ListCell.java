@@ -0,0 +1,237 @@
+package com.example.datapreprocessor.io;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * R 风格 c("a,b,c") 列表单元格的编解码。
+ *
+ * <p>拆分规则与原先的 splitIds 相同：去掉 c(" 和 ") 外壳，忽略所有双引号，按逗号切开，
+ * 去掉首尾空白后为空的元素不算。{@link Cursor} 一遍扫描、不复制单元格，
+ * 元素以原单元格中的区间给出；需要字符串时再用 {@link Cursor#element()} 取。</p>
+ *
+ * <p>另提供纯数字 ID 列表的二进制编码：元素个数和相邻差值（zigzag）都写成变长整数，
+ * 保留原有顺序，供中间文件使用。</p>
+ */
+public final class ListCell {
+
+    private static final String OPEN = "c(\"";
+    private static final String CLOSE = "\")";
+
+    /** 逐个元素的游标，可以反复 {@link #reset} 复用 */
+    public static final class Cursor {
+        private CharSequence cell = "";
+        private int end;
+        private int pos;
+        private int from;
+        private int to;
+
+        public Cursor reset(CharSequence cell) {
+            this.cell = cell;
+            int n = cell.length();
+            if (isWrapped(cell)) {
+                pos = OPEN.length();
+                end = Math.max(pos, n - CLOSE.length());
+            } else {
+                pos = 0;
+                end = n;
+            }
+            from = to = pos;
+            return this;
+        }
+
+        /** 移到下一个非空元素，没有了返回 false */
+        public boolean next() {
+            while (pos <= end) {
+                int s = pos;
+                int e = s;
+                while (e < end && cell.charAt(e) != ',') e++;
+                pos = e + 1;
+                if (hasContent(cell, s, e)) {
+                    from = s;
+                    to = e;
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        public CharSequence cell() {
+            return cell;
+        }
+
+        /** 当前元素在单元格中的起点（含） */
+        public int start() {
+            return from;
+        }
+
+        /** 当前元素在单元格中的终点（不含） */
+        public int end() {
+            return to;
+        }
+
+        /** 当前元素，去掉其中的双引号，首尾空白保留 */
+        public String element() {
+            StringBuilder sb = null;
+            for (int i = from; i < to; i++) {
+                if (cell.charAt(i) == '"') {
+                    if (sb == null) sb = new StringBuilder(to - from).append(cell, from, i);
+                } else if (sb != null) {
+                    sb.append(cell.charAt(i));
+                }
+            }
+            return sb == null ? cell.subSequence(from, to).toString() : sb.toString();
+        }
+    }
+
+    /** 元素个数，不分配内存 */
+    public static int count(CharSequence cell) {
+        int n = 0;
+        int len = cell.length();
+        int s = 0;
+        int end = len;
+        if (isWrapped(cell)) {
+            s = OPEN.length();
+            end = Math.max(s, len - CLOSE.length());
+        }
+        boolean content = false;
+        for (int i = s; i < end; i++) {
+            char ch = cell.charAt(i);
+            if (ch == ',') {
+                if (content) n++;
+                content = false;
+            } else if (ch > ' ' && ch != '"') {
+                content = true;
+            }
+        }
+        return content ? n + 1 : n;
+    }
+
+    /** 拆成字符串列表，元素形式同 {@link Cursor#element()} */
+    public static List<String> split(CharSequence cell) {
+        List<String> out = new ArrayList<>();
+        Cursor c = new Cursor().reset(cell);
+        while (c.next()) out.add(c.element());
+        return out;
+    }
+
+    /** 往 sb 追加一个元素，sb 为空时先写开头的 c(" */
+    public static StringBuilder append(StringBuilder sb, CharSequence element) {
+        return (sb.length() == 0 ? sb.append(OPEN) : sb.append(',')).append(element);
+    }
+
+    public static StringBuilder append(StringBuilder sb, long element) {
+        return (sb.length() == 0 ? sb.append(OPEN) : sb.append(',')).append(element);
+    }
+
+    /** 补上结尾的 ")；没有元素时为空串 */
+    public static String finish(StringBuilder sb) {
+        return sb.length() == 0 ? "" : sb.append(CLOSE).toString();
+    }
+
+    /**
+     * 单元格是否恰好是 ids 的规范写法（空列表为空串），
+     * 是的话按 {@link #encode} 存成二进制后可以原样还原。
+     * 结果写入 ids（长度至少为单元格长度的一半加一），ids 为 null 时只判断；
+     * 返回元素个数，不规范时返回 -1。
+     */
+    public static int parseCanonical(CharSequence cell, long[] ids) {
+        int len = cell.length();
+        if (len == 0) return 0;
+        if (!isWrapped(cell) || len == OPEN.length() + CLOSE.length() - 1) return -1;
+        int end = len - CLOSE.length();
+        int n = 0;
+        int i = OPEN.length();
+        while (true) {
+            int s = i;
+            long v = 0;
+            for (; i < end && cell.charAt(i) != ','; i++) {
+                int d = cell.charAt(i) - '0';
+                if (d < 0 || d > 9 || v > (Long.MAX_VALUE - d) / 10) return -1;
+                v = v * 10 + d;
+            }
+            if (i == s || (cell.charAt(s) == '0' && i - s > 1)) return -1;   // 空元素或前导 0
+            if (ids != null) ids[n] = v;
+            n++;
+            if (i == end) return n;
+            i++;
+        }
+    }
+
+    /** 按 {@link #encode} 的格式写 n 个 ID 需要的最大字节数 */
+    public static int maxEncodedSize(int n) {
+        return 5 + 10 * n;
+    }
+
+    /** 写出元素个数和各元素与前一个的差值，都用变长整数 */
+    public static void encode(long[] ids, int n, ByteBuffer out) {
+        putVarLong(out, n);
+        long prev = 0;
+        for (int i = 0; i < n; i++) {
+            long d = ids[i] - prev;
+            putVarLong(out, d << 1 ^ d >> 63);
+            prev = ids[i];
+        }
+    }
+
+    /** 读回 {@link #encode} 写出的列表，返回元素个数；ids 不够长时只统计个数 */
+    public static int decode(ByteBuffer in, long[] ids) {
+        int n = (int) getVarLong(in);
+        long prev = 0;
+        for (int i = 0; i < n; i++) {
+            long z = getVarLong(in);
+            prev += z >>> 1 ^ -(z & 1);
+            if (ids != null && i < ids.length) ids[i] = prev;
+        }
+        return n;
+    }
+
+    /** 把二进制列表还原成 c("...") 写法 */
+    public static String format(ByteBuffer in) {
+        int n = (int) getVarLong(in);
+        if (n == 0) return "";
+        StringBuilder sb = new StringBuilder(n * 8);
+        long prev = 0;
+        for (int i = 0; i < n; i++) {
+            long z = getVarLong(in);
+            prev += z >>> 1 ^ -(z & 1);
+            append(sb, prev);
+        }
+        return finish(sb);
+    }
+
+    private static void putVarLong(ByteBuffer out, long v) {
+        while ((v & ~0x7FL) != 0) {
+            out.put((byte) (v & 0x7F | 0x80));
+            v >>>= 7;
+        }
+        out.put((byte) v);
+    }
+
+    private static long getVarLong(ByteBuffer in) {
+        long v = 0;
+        for (int shift = 0; ; shift += 7) {
+            byte b = in.get();
+            v |= (long) (b & 0x7F) << shift;
+            if (b >= 0) return v;
+        }
+    }
+
+    private static boolean isWrapped(CharSequence cell) {
+        int n = cell.length();
+        return n >= OPEN.length() + CLOSE.length() - 1
+                && cell.charAt(0) == 'c' && cell.charAt(1) == '(' && cell.charAt(2) == '"'
+                && cell.charAt(n - 2) == '"' && cell.charAt(n - 1) == ')';
+    }
+
+    private static boolean hasContent(CharSequence cell, int from, int to) {
+        for (int i = from; i < to; i++) {
+            char ch = cell.charAt(i);
+            if (ch > ' ' && ch != '"') return true;
+        }
+        return false;
+    }
+
+    private ListCell() {}
+}
@@ -0,0 +1,203 @@
+package com.example.datapreprocessor.io;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * 把文件切成字节区间，在内存映射上并行分词，按原始顺序返回惰性解码的 {@link CsvRow}。
+ *
+ * <p>切分分两步：先并行扫描每个原始块，对块入口处每一种可能的解析状态
+ * 各推演一遍，记下第一个记录边界和块出口状态（各状态很快会收敛成同一条路径）；
+ * 再从文件头的已知状态顺序串起各块，挑出真正的记录边界。这样即使字段里有
+ * 跨行的引用内容（比如菜谱步骤）也能对齐。</p>
+ */
+public final class ParallelCsvReader implements RowReader {
+
+    static final int DEFAULT_CHUNK = 8 << 20;
+
+    private final FileChannel channel;
+    private final ForkJoinPool pool;
+    private final long[] starts;   // 对齐后的区间起点，最后一个元素是文件长度
+    private final int window;
+    private final Deque<ForkJoinTask<List<CsvRow>>> inFlight = new ArrayDeque<>();
+
+    private int nextRange;
+    private List<CsvRow> current = List.of();
+    private int cursor;
+
+    public ParallelCsvReader(Path csvPath) throws IOException {
+        this(csvPath, ForkJoinPool.commonPool(), DEFAULT_CHUNK);
+    }
+
+    public ParallelCsvReader(Path csvPath, ForkJoinPool pool, int chunkBytes) throws IOException {
+        this(csvPath, pool, chunkBytes, 0, -1);
+    }
+
+    /**
+     * 只读取 [from, to) 字节区间，from 必须是记录起点；to 为 -1 表示读到文件末尾。
+     */
+    public ParallelCsvReader(Path csvPath, ForkJoinPool pool, int chunkBytes, long from, long to) throws IOException {
+        this.channel = FileChannel.open(csvPath, StandardOpenOption.READ);
+        this.pool = pool;
+        this.window = Math.max(2, pool.getParallelism() * 2);
+        try {
+            this.starts = align(chunkBytes, from, to < 0 ? channel.size() : to);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /** 对齐后的区间数 */
+    public int ranges() {
+        return starts.length - 1;
+    }
+
+    @Override
+    public String[] readNext() throws IOException {
+        CsvRow row = next();
+        return row == null ? null : row.toArray();
+    }
+
+    @Override
+    public CsvRow next() throws IOException {
+        while (cursor >= current.size()) {
+            while (inFlight.size() < window && nextRange < ranges()) {
+                long from = starts[nextRange];
+                long to = starts[nextRange + 1];
+                nextRange++;
+                inFlight.add(pool.submit(() -> tokenizeRange(from, to)));
+            }
+            if (inFlight.isEmpty()) return null;
+            current = join(inFlight.poll());
+            cursor = 0;
+        }
+        return current.get(cursor++);
+    }
+
+    @Override
+    public void close() throws IOException {
+        for (ForkJoinTask<?> t : inFlight) t.cancel(true);
+        inFlight.clear();
+        channel.close();
+    }
+
+    private long[] align(int chunkBytes, long start, long end) throws IOException {
+        int n = (int) Math.max(1, (end - start + chunkBytes - 1) / chunkBytes);
+
+        List<ForkJoinTask<Scan>> scans = new ArrayList<>(n);
+        for (int k = 0; k < n; k++) {
+            long from = start + (long) k * chunkBytes;
+            long to = Math.min(end, from + chunkBytes);
+            scans.add(pool.submit(() -> scan(from, to)));
+        }
+
+        long[] result = new long[n + 1];
+        int count = 0;
+        result[count++] = start;
+        int state = CsvTokenizer.FIELD_START;
+        for (int k = 0; k < n; k++) {
+            Scan s = join(scans.get(k));
+            if (k > 0) {
+                long boundary = s.first[state];
+                if (boundary > result[count - 1] && boundary < end) result[count++] = boundary;
+            }
+            state = s.exit[state];
+        }
+        result[count++] = end;
+        return Arrays.copyOf(result, count);
+    }
+
+    /** 对每种入口状态推演一个原始块 */
+    private Scan scan(long from, long to) {
+        MappedByteBuffer buf = map(from, to);
+        Scan s = new Scan();
+        int[] st = new int[CsvTokenizer.STATES];
+        for (int h = 0; h < st.length; h++) {
+            st[h] = h;
+            s.first[h] = -1;
+        }
+
+        int i = 0;
+        // 各假设并行推进，直到状态全部一致
+        for (; i < buf.limit() && !converged(st); i++) {
+            byte b = buf.get(i);
+            for (int h = 0; h < st.length; h++) {
+                if (s.first[h] < 0 && CsvTokenizer.endsRecord(st[h], b)) s.first[h] = from + i + 1;
+                st[h] = CsvTokenizer.step(st[h], b);
+            }
+        }
+        // 收敛后只需推进一条路径
+        int state = st[0];
+        boolean pending = false;
+        for (long f : s.first) pending |= f < 0;
+        for (; i < buf.limit(); i++) {
+            byte b = buf.get(i);
+            if (pending && CsvTokenizer.endsRecord(state, b)) {
+                for (int h = 0; h < st.length; h++) {
+                    if (s.first[h] < 0) s.first[h] = from + i + 1;
+                }
+                pending = false;
+            }
+            state = CsvTokenizer.step(state, b);
+        }
+        for (int h = 0; h < st.length; h++) {
+            s.exit[h] = converged(st) ? state : st[h];
+        }
+        return s;
+    }
+
+    private static boolean converged(int[] st) {
+        for (int h = 1; h < st.length; h++) {
+            if (st[h] != st[0]) return false;
+        }
+        return true;
+    }
+
+    private List<CsvRow> tokenizeRange(long from, long to) {
+        MappedByteBuffer buf = map(from, to);
+        List<CsvRow> out = new ArrayList<>();
+        try {
+            CsvTokenizer.tokenize(buf, 0, buf.limit(), from, out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out;
+    }
+
+    private MappedByteBuffer map(long from, long to) {
+        long len = to - from;
+        if (len > Integer.MAX_VALUE) {
+            throw new UncheckedIOException(new IOException("单条记录超过 2GB，起始字节 " + from));
+        }
+        try {
+            return channel.map(FileChannel.MapMode.READ_ONLY, from, len);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static <T> T join(ForkJoinTask<T> task) throws IOException {
+        try {
+            return task.join();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private static final class Scan {
+        final long[] first = new long[CsvTokenizer.STATES];   // 各入口状态下第一个记录起点
+        final int[] exit = new int[CsvTokenizer.STATES];      // 各入口状态下块末尾的状态
+    }
+}
@@ -0,0 +1,150 @@
+package com.example.datapreprocessor.io;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * 多线程 gzip 压缩，做法与 pigz 相同：输入按固定大小分块，各块在线程池上独立压缩，
+ * 以前一块末尾 32KB 作为预置字典保证压缩率，块尾做 SYNC_FLUSH 对齐到字节边界，
+ * 按顺序拼成一个标准的 gzip 流，任何 gzip 工具都能解压。CRC 在写入线程上顺序计算。
+ *
+ * <p>系统属性：</p>
+ * <ul>
+ *   <li>-Ddatapreprocessor.gzip.level=N 压缩级别 1-9，默认 6</li>
+ *   <li>-Ddatapreprocessor.gzip.threads=N 压缩线程数，默认为可用处理器数</li>
+ *   <li>-Ddatapreprocessor.gzip.block=N 块大小（字节），默认 128KB</li>
+ * </ul>
+ */
+public final class ParallelGzipOutputStream extends OutputStream {
+
+    private static final int LEVEL = Integer.getInteger("datapreprocessor.gzip.level", 6);
+    private static final int THREADS = Math.max(1, Integer.getInteger("datapreprocessor.gzip.threads",
+            Runtime.getRuntime().availableProcessors()));
+    private static final int BLOCK = Math.max(64 << 10, Integer.getInteger("datapreprocessor.gzip.block", 128 << 10));
+    private static final int DICT = 32 << 10;
+
+    private static final byte[] HEADER = {0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, (byte) 0xff};
+
+    private static final ExecutorService POOL = Executors.newFixedThreadPool(THREADS, r -> {
+        Thread t = new Thread(r, "gzip-deflate");
+        t.setDaemon(true);
+        return t;
+    });
+
+    // 每个压缩线程复用一个 Deflater，避免反复申请本地内存
+    private static final ThreadLocal<Deflater> DEFLATER = ThreadLocal.withInitial(() -> new Deflater(LEVEL, true));
+
+    private final OutputStream out;
+    private final CRC32 crc = new CRC32();
+    private final Deque<Future<byte[]>> inFlight = new ArrayDeque<>();
+    private byte[] block = new byte[BLOCK];
+    private int len;
+    private byte[] previous;   // 上一块，末尾 32KB 作为下一块的字典
+    private long total;
+    private boolean closed;
+
+    public ParallelGzipOutputStream(OutputStream out) throws IOException {
+        this.out = out;
+        out.write(HEADER);
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        if (len == block.length) submit(false);
+        block[len++] = (byte) b;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int n) throws IOException {
+        while (n > 0) {
+            if (len == block.length) submit(false);
+            int k = Math.min(n, block.length - len);
+            System.arraycopy(b, off, block, len, k);
+            len += k;
+            off += k;
+            n -= k;
+        }
+    }
+
+    /** 只写出已经压缩完的块；未满的当前块要等写满或 close 时才压缩 */
+    @Override
+    public void flush() throws IOException {
+        while (!inFlight.isEmpty() && inFlight.peek().isDone()) writeHead();
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) return;
+        closed = true;
+        try {
+            submit(true);
+            while (!inFlight.isEmpty()) writeHead();
+            long c = crc.getValue();
+            out.write(new byte[]{(byte) c, (byte) (c >>> 8), (byte) (c >>> 16), (byte) (c >>> 24),
+                    (byte) total, (byte) (total >>> 8), (byte) (total >>> 16), (byte) (total >>> 24)});
+        } finally {
+            for (Future<byte[]> f : inFlight) f.cancel(true);
+            out.close();
+        }
+    }
+
+    private void submit(boolean last) throws IOException {
+        byte[] data = block;
+        int n = len;
+        byte[] dict = previous;
+        crc.update(data, 0, n);
+        total += n;
+        inFlight.add(POOL.submit(() -> deflate(data, n, dict, last)));
+
+        previous = data;
+        if (!last) block = new byte[BLOCK];
+        len = 0;
+        while (inFlight.size() > THREADS * 2) writeHead();
+    }
+
+    private void writeHead() throws IOException {
+        try {
+            out.write(inFlight.poll().get());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("压缩被中断", e);
+        } catch (ExecutionException e) {
+            throw new IOException("压缩失败", e.getCause());
+        }
+    }
+
+    private static byte[] deflate(byte[] data, int n, byte[] dict, boolean last) {
+        Deflater d = DEFLATER.get();
+        d.reset();
+        if (dict != null) d.setDictionary(dict, dict.length - DICT, DICT);
+        d.setInput(data, 0, n);
+
+        byte[] buf = new byte[n + (n >> 3) + 64];
+        int k = 0;
+        if (last) {
+            d.finish();
+            while (!d.finished()) {
+                if (k == buf.length) buf = Arrays.copyOf(buf, buf.length * 2);
+                k += d.deflate(buf, k, buf.length - k);
+            }
+        } else {
+            // 返回值等于剩余空间时说明还没刷完，需要更大的缓冲继续
+            while (true) {
+                k += d.deflate(buf, k, buf.length - k, Deflater.SYNC_FLUSH);
+                if (k < buf.length) break;
+                buf = Arrays.copyOf(buf, buf.length * 2);
+            }
+        }
+        return Arrays.copyOf(buf, k);
+    }
+}
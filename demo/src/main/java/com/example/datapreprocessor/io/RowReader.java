@@ -0,0 +1,17 @@
+package com.example.datapreprocessor.io;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/** 按顺序逐条返回 CSV 记录，第一条为表头 */
+public interface RowReader extends Closeable {
+
+    /** 读取下一条记录，读完返回 null */
+    String[] readNext() throws IOException;
+
+    /** 同 {@link #readNext()}，但支持按需解码的实现可以返回惰性记录 */
+    default CsvRow next() throws IOException {
+        String[] line = readNext();
+        return line == null ? null : CsvRow.of(line);
+    }
+}
@@ -0,0 +1,72 @@
+package com.example.datapreprocessor.metrics;
+
+import com.example.datapreprocessor.diag.Diagnostics;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/** 只够写汇总文件用的 JSON 拼接，自动处理逗号和缩进 */
+public final class Json {
+    private final StringBuilder sb = new StringBuilder();
+    private final List<Boolean> first = new ArrayList<>();
+    private boolean afterKey;
+
+    public Json field(String name) {
+        separate();
+        sb.append(Diagnostics.jsonString(name)).append(": ");
+        afterKey = true;
+        return this;
+    }
+
+    public Json open(char c) {
+        separate();
+        sb.append(c);
+        first.add(true);
+        return this;
+    }
+
+    public void close(char c) {
+        boolean empty = first.remove(first.size() - 1);
+        if (!empty) newline();
+        sb.append(c);
+    }
+
+    public void string(String s) {
+        separate();
+        sb.append(s == null ? "null" : Diagnostics.jsonString(s));
+    }
+
+    public void number(long v) {
+        separate();
+        sb.append(v);
+    }
+
+    public void number(double v) {
+        separate();
+        sb.append(Double.isFinite(v) ? String.format(Locale.ROOT, "%.3f", v) : "0");
+    }
+
+    /** 值前面的逗号和换行；键后面紧跟的值不需要 */
+    private void separate() {
+        if (afterKey) {
+            afterKey = false;
+            return;
+        }
+        if (first.isEmpty()) return;
+        int last = first.size() - 1;
+        if (!first.get(last)) sb.append(',');
+        first.set(last, false);
+        newline();
+    }
+
+    private void newline() {
+        sb.append('\n');
+        sb.append("  ".repeat(first.size()));
+    }
+
+    @Override
+    public String toString() {
+        return sb.append('\n').toString();
+    }
+}
@@ -0,0 +1,73 @@
+package com.example.datapreprocessor.metrics;
+
+/**
+ * 纳秒耗时的对数直方图：每个 2 的幂区间再均分 4 档，分位数按所在档的上界估计，相对误差不超过 25%。
+ * 不是线程安全的，每条流水线各用一份，结束后再 {@link #merge}。
+ */
+public final class LatencyHistogram {
+
+    private static final int SUB_BITS = 2;
+    private static final int SUB = 1 << SUB_BITS;
+
+    private final long[] counts = new long[64 << SUB_BITS];
+    private long count;
+    private long total;
+    private long max;
+
+    public void record(long nanos) {
+        if (nanos < 0) nanos = 0;
+        counts[index(nanos)]++;
+        count++;
+        total += nanos;
+        if (nanos > max) max = nanos;
+    }
+
+    public void merge(LatencyHistogram other) {
+        for (int i = 0; i < counts.length; i++) counts[i] += other.counts[i];
+        count += other.count;
+        total += other.total;
+        max = Math.max(max, other.max);
+    }
+
+    public long count() {
+        return count;
+    }
+
+    public long total() {
+        return total;
+    }
+
+    public long max() {
+        return max;
+    }
+
+    public double mean() {
+        return count == 0 ? 0 : (double) total / count;
+    }
+
+    /** p 取 0-1，返回不小于该分位的耗时上界 */
+    public long percentile(double p) {
+        if (count == 0) return 0;
+        long rank = Math.max(1, (long) Math.ceil(p * count));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) return Math.min(upper(i), max);
+        }
+        return max;
+    }
+
+    static int index(long v) {
+        if (v < SUB) return (int) v;   // 很小的值单独成档
+        int log = 63 - Long.numberOfLeadingZeros(v);
+        int sub = (int) (v >>> (log - SUB_BITS)) & (SUB - 1);
+        return (log << SUB_BITS) + sub;
+    }
+
+    static long upper(int index) {
+        if (index < SUB) return index;
+        int log = index >> SUB_BITS;
+        int sub = index & (SUB - 1);
+        return ((long) (SUB + sub + 1) << (log - SUB_BITS)) - 1;
+    }
+}
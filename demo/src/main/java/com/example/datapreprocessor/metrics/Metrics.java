@@ -0,0 +1,226 @@
+package com.example.datapreprocessor.metrics;
+
+import com.example.datapreprocessor.diag.Diagnostics;
+
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 运行指标的统一登记处，开启 -Ddatapreprocessor.metrics=文件 后生效。
+ *
+ * <p>流水线登记每次运行的读写量和各阶段的单行耗时分布、分配字节，{@code CsvInput} 和
+ * {@code Compression} 登记每个文件的读写量和吞吐，调度图登记各节点用时，规则计数取自
+ * {@link Diagnostics}。进程退出时把这些汇总成一个 JSON 文件，便于在每晚的任务之间对比。
+ * JFR 事件（{@link PipelineEvent}、{@link StageEvent}、{@link TaskEvent}）不受这个开关影响，
+ * 只要开着 Flight Recorder 就会记录。</p>
+ */
+public final class Metrics {
+
+    private static final String TARGET = System.getProperty("datapreprocessor.metrics");
+    private static final Instant STARTED = Instant.now();
+    private static final long STARTED_NANOS = System.nanoTime();
+
+    private static final com.sun.management.ThreadMXBean THREADS = threadBean();
+
+    private record Pipeline(String source, String target, long rowsRead, long rowsWritten, long bytesRead,
+                            long bytesWritten, long nanos, long allocated, List<StageMetrics> stages) {}
+
+    private record Transfer(Path file, long rows, long bytes, long nanos) {}
+
+    private record Task(String name, String status, long nanos) {}
+
+    private static final List<Pipeline> PIPELINES = new ArrayList<>();
+    private static final List<Transfer> READS = new ArrayList<>();
+    private static final List<Transfer> WRITES = new ArrayList<>();
+    private static final List<Task> TASKS = new ArrayList<>();
+
+    static {
+        if (TARGET != null) {
+            Runtime.getRuntime().addShutdownHook(new Thread(Metrics::writeSummary, "metrics-summary"));
+        }
+    }
+
+    public static boolean enabled() {
+        return TARGET != null;
+    }
+
+    /** 当前线程累计分配的字节数，JVM 不支持时返回 0 */
+    public static long allocatedBytes() {
+        return THREADS == null ? 0 : THREADS.getCurrentThreadAllocatedBytes();
+    }
+
+    public static synchronized void pipeline(String source, String target, long rowsRead, long rowsWritten,
+                                             long bytesRead, long bytesWritten, long nanos, long allocated,
+                                             List<StageMetrics> stages) {
+        PIPELINES.add(new Pipeline(source, target, rowsRead, rowsWritten, bytesRead, bytesWritten, nanos, allocated,
+                List.copyOf(stages)));
+    }
+
+    /** bytes 是磁盘上的字节数，压缩文件按压缩后计 */
+    public static synchronized void read(Path file, long rows, long bytes, long nanos) {
+        READS.add(new Transfer(file, rows, bytes, nanos));
+    }
+
+    public static synchronized void write(Path file, long bytes, long nanos) {
+        WRITES.add(new Transfer(file, -1, bytes, nanos));
+    }
+
+    public static synchronized void task(String name, String status, long nanos) {
+        TASKS.add(new Task(name, status, nanos));
+    }
+
+    private static synchronized void writeSummary() {
+        Diagnostics.flush();
+        Path out = Paths.get(TARGET);
+        try {
+            Path dir = out.toAbsolutePath().getParent();
+            if (dir != null) Files.createDirectories(dir);
+            Path tmp = out.resolveSibling(out.getFileName() + ".tmp");
+            Files.writeString(tmp, summary(), StandardCharsets.UTF_8);
+            Files.move(tmp, out, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            System.out.println("运行指标已写入: " + out.toAbsolutePath());
+        } catch (IOException e) {
+            System.err.println("写入运行指标失败: " + e.getMessage());
+        }
+    }
+
+    static String summary() {
+        Json j = new Json();
+        j.open('{');
+        j.field("startedAt").string(STARTED.toString());
+        j.field("wallSeconds").number(seconds(System.nanoTime() - STARTED_NANOS));
+        j.field("javaVersion").string(System.getProperty("java.version"));
+        j.field("processors").number(Runtime.getRuntime().availableProcessors());
+
+        j.field("properties").open('{');
+        for (Map.Entry<String, String> e : datapreprocessorProperties().entrySet()) {
+            j.field(e.getKey()).string(e.getValue());
+        }
+        j.close('}');
+
+        long gcCount = 0;
+        long gcMillis = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            gcCount += Math.max(0, gc.getCollectionCount());
+            gcMillis += Math.max(0, gc.getCollectionTime());
+        }
+        j.field("gc").open('{');
+        j.field("collections").number(gcCount);
+        j.field("millis").number(gcMillis);
+        j.close('}');
+
+        j.field("pipelines").open('[');
+        for (Pipeline p : PIPELINES) {
+            double s = seconds(p.nanos);
+            j.open('{');
+            j.field("source").string(p.source);
+            j.field("target").string(p.target);
+            j.field("seconds").number(s);
+            j.field("rowsRead").number(p.rowsRead);
+            j.field("rowsWritten").number(p.rowsWritten);
+            j.field("bytesRead").number(p.bytesRead);
+            j.field("bytesWritten").number(p.bytesWritten);
+            j.field("rowsPerSecond").number(rate(p.rowsRead, s));
+            j.field("readBytesPerSecond").number(rate(p.bytesRead, s));
+            j.field("writeBytesPerSecond").number(rate(p.bytesWritten, s));
+            j.field("allocatedBytes").number(p.allocated);
+            j.field("stages").open('[');
+            for (StageMetrics m : p.stages) {
+                LatencyHistogram h = m.latency();
+                j.open('{');
+                j.field("name").string(m.name());
+                j.field("rows").number(m.rows());
+                j.field("dropped").number(m.dropped());
+                j.field("seconds").number(seconds(h.total()));
+                j.field("allocatedBytes").number(m.allocated());
+                j.field("latencyNanos").open('{');
+                j.field("mean").number(Math.round(h.mean()));
+                j.field("p50").number(h.percentile(0.50));
+                j.field("p90").number(h.percentile(0.90));
+                j.field("p99").number(h.percentile(0.99));
+                j.field("p999").number(h.percentile(0.999));
+                j.field("max").number(h.max());
+                j.close('}');
+                j.close('}');
+            }
+            j.close(']');
+            j.close('}');
+        }
+        j.close(']');
+
+        j.field("reads").open('[');
+        for (Transfer t : READS) transfer(j, t);
+        j.close(']');
+        j.field("writes").open('[');
+        for (Transfer t : WRITES) transfer(j, t);
+        j.close(']');
+
+        j.field("tasks").open('[');
+        for (Task t : TASKS) {
+            j.open('{');
+            j.field("name").string(t.name);
+            j.field("status").string(t.status);
+            j.field("seconds").number(seconds(t.nanos));
+            j.close('}');
+        }
+        j.close(']');
+
+        j.field("rules").open('{');
+        for (Map.Entry<String, Long> e : Diagnostics.counts().entrySet()) {
+            j.field(e.getKey()).number(e.getValue());
+        }
+        j.close('}');
+        j.close('}');
+        return j.toString();
+    }
+
+    private static void transfer(Json j, Transfer t) {
+        double s = seconds(t.nanos);
+        j.open('{');
+        j.field("file").string(t.file.toString());
+        if (t.rows >= 0) j.field("rows").number(t.rows);
+        j.field("bytes").number(t.bytes);
+        j.field("seconds").number(s);
+        if (t.rows >= 0) j.field("rowsPerSecond").number(rate(t.rows, s));
+        j.field("bytesPerSecond").number(rate(t.bytes, s));
+        j.close('}');
+    }
+
+    private static Map<String, String> datapreprocessorProperties() {
+        Map<String, String> m = new TreeMap<>();
+        for (String k : System.getProperties().stringPropertyNames()) {
+            if (k.startsWith("datapreprocessor.")) m.put(k, System.getProperty(k));
+        }
+        return m;
+    }
+
+    private static double seconds(long nanos) {
+        return nanos / 1e9;
+    }
+
+    private static double rate(long amount, double seconds) {
+        return seconds <= 0 ? 0 : amount / seconds;
+    }
+
+    private static com.sun.management.ThreadMXBean threadBean() {
+        if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean t
+                && t.isThreadAllocatedMemorySupported()) {
+            if (!t.isThreadAllocatedMemoryEnabled()) t.setThreadAllocatedMemoryEnabled(true);
+            return t;
+        }
+        return null;
+    }
+
+    private Metrics() {}
+}
@@ -0,0 +1,38 @@
+package com.example.datapreprocessor.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/** 一次 RowPipeline 运行，持续时间即整次读写 */
+@Name("com.example.datapreprocessor.Pipeline")
+@Label("Pipeline Run")
+@Category("Data Preprocessor")
+@Description("一次流水线运行的读写量")
+public final class PipelineEvent extends jdk.jfr.Event {
+
+    @Label("Source")
+    public String source;
+
+    @Label("Target")
+    public String target;
+
+    @Label("Rows Read")
+    public long rowsRead;
+
+    @Label("Rows Written")
+    public long rowsWritten;
+
+    @Label("Bytes Read")
+    @DataAmount
+    public long bytesRead;
+
+    @Label("Bytes Written")
+    @DataAmount
+    public long bytesWritten;
+
+    @Label("Incremental")
+    public boolean incremental;
+}
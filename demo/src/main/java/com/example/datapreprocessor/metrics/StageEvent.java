@@ -0,0 +1,40 @@
+package com.example.datapreprocessor.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/** 流水线结束时每个阶段各一条，汇总该阶段在本次运行中的处理情况 */
+@Name("com.example.datapreprocessor.Stage")
+@Label("Pipeline Stage")
+@Category("Data Preprocessor")
+@Description("阶段处理行数、丢弃行数、耗时和分配量")
+public final class StageEvent extends jdk.jfr.Event {
+
+    @Label("Pipeline")
+    public String pipeline;
+
+    @Label("Stage")
+    public String stage;
+
+    @Label("Rows")
+    public long rows;
+
+    @Label("Dropped")
+    public long dropped;
+
+    @Label("Processing Time")
+    @Timespan
+    public long processNanos;
+
+    @Label("p99 Row Latency")
+    @Timespan
+    public long p99Nanos;
+
+    @Label("Allocated")
+    @DataAmount
+    public long allocated;
+}
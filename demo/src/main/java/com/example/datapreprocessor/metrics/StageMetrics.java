@@ -0,0 +1,43 @@
+package com.example.datapreprocessor.metrics;
+
+/** 一个流水线阶段的处理行数、丢弃行数、分配字节和单行耗时分布 */
+public final class StageMetrics {
+
+    private final String name;
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private long rows;
+    private long dropped;
+    private long allocated;
+
+    public StageMetrics(String name) {
+        this.name = name;
+    }
+
+    /** 记录处理一行的耗时和分配量，kept 为 false 表示该行被丢弃 */
+    public void record(long nanos, long allocatedBytes, boolean kept) {
+        latency.record(nanos);
+        rows++;
+        if (!kept) dropped++;
+        allocated += allocatedBytes;
+    }
+
+    public String name() {
+        return name;
+    }
+
+    public long rows() {
+        return rows;
+    }
+
+    public long dropped() {
+        return dropped;
+    }
+
+    public long allocated() {
+        return allocated;
+    }
+
+    public LatencyHistogram latency() {
+        return latency;
+    }
+}
@@ -0,0 +1,20 @@
+package com.example.datapreprocessor.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/** TaskGraph 中一个节点的执行 */
+@Name("com.example.datapreprocessor.Task")
+@Label("Task")
+@Category("Data Preprocessor")
+@Description("调度图中一个节点从开始到结束")
+public final class TaskEvent extends jdk.jfr.Event {
+
+    @Label("Task")
+    public String task;
+
+    @Label("Succeeded")
+    public boolean succeeded;
+}
@@ -0,0 +1,23 @@
+package com.example.datapreprocessor.pipeline;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * 状态随处理的行数增长的阶段（如 ID 去重）。这部分状态不整块写进运行清单：
+ * 需要保存状态时流水线给阶段一个只追加的日志，阶段边处理边把恢复所需的内容顺序写进去，
+ * 清单和检查点只记日志的长度和摘要，每次只多落盘上一次以来新增的那一段。
+ * 数量固定的小状态（计数器等）仍由 {@link #saveState} 保存。
+ */
+public interface JournaledStage extends StatefulStage {
+
+    /**
+     * 在 {@link #begin}、状态恢复之后调用，此后把恢复状态所需的内容写进 log；
+     * 运行结束时以 null 再调用一次。本次运行不保存状态时不会调用，阶段也不必记日志。
+     */
+    void journal(DataOutput log);
+
+    /** 在 {@link #restoreState} 之后调用，读回上次 {@link #journal} 写下的内容，读到 in 结束为止 */
+    void replay(DataInput in) throws IOException;
+}
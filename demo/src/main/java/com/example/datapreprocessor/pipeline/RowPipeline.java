@@ -0,0 +1,425 @@
+package com.example.datapreprocessor.pipeline;
+
+import com.example.datapreprocessor.dedup.DuplicateDetector;
+import com.example.datapreprocessor.diag.Diagnostics;
+import com.example.datapreprocessor.io.Compression;
+import com.example.datapreprocessor.io.CsvInput;
+import com.example.datapreprocessor.io.CsvRow;
+import com.example.datapreprocessor.io.CsvRowWriter;
+import com.example.datapreprocessor.io.RowReader;
+import com.example.datapreprocessor.metrics.Metrics;
+import com.example.datapreprocessor.metrics.PipelineEvent;
+import com.example.datapreprocessor.metrics.StageEvent;
+import com.example.datapreprocessor.metrics.StageMetrics;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 把若干 {@link RowStage} 融合成一次流式读取、一次写出。
+ * 开启 debug 后，每个声明了 {@link RowStage#debugFileName()} 的阶段额外输出一份中间文件。
+ * 所有输出都先写临时文件，跑完才原子改名为最终文件（见 {@link Compression#partial}）。
+ *
+ * <p>开启 incremental 后，每次运行结束都在输出旁写一份 {@link RunManifest}；
+ * 下次运行若输入只是在末尾追加了内容，就恢复各阶段状态，只处理新增部分并追加到输出末尾，
+ * 否则全量重算。输入或输出是 .gz 压缩文件时无法按字节续读和追加，总是全量重算。</p>
+ *
+ * <p>开启 resume 时，运行途中每处理 -Ddatapreprocessor.checkpoint（默认 256m）字节的输入，
+ * 就把临时输出刷到磁盘，并在输出旁的 .checkpoint 文件里记下输入位置、输出长度和各阶段状态；
+ * 中途崩溃后开启 resume 再跑，从最后一个检查点接着处理，而不是从头开始。
+ * 不开 resume 时默认不写检查点，显式设置了该属性才写，设为 0 则总是关闭。
+ * 压缩文件、debug 模式和有阶段不可恢复（{@link RowStage#resumable()}）时不写检查点。</p>
+ *
+ * <p>{@link JournaledStage} 的状态写在输出旁的 .journal.阶段序号 日志里，
+ * 清单和检查点只记日志长度，每个检查点只刷新增的部分。</p>
+ */
+public final class RowPipeline {
+
+    private static final long DEFAULT_CHECKPOINT_BYTES = 256L << 20;
+
+    private final List<RowStage> stages = new ArrayList<>();
+    private boolean debug;
+    private boolean incremental;
+    private boolean resume;
+
+    // 本次运行的计数；只有开启指标或 JFR 阶段事件时才逐行计时
+    private long rowsRead;
+    private StageMetrics[] metrics;
+
+    // 本次运行的检查点进度，checkpointEvery 为 0 表示不写
+    private Path source;
+    private Path target;
+    private String[] header;
+    private RunManifest.Prefix prefix;
+    private long checkpointEvery;
+    private long nextCheckpoint;
+    private StageJournal[] journals;
+
+    public RowPipeline add(RowStage stage) {
+        stages.add(stage);
+        return this;
+    }
+
+    public RowPipeline debug(boolean debug) {
+        this.debug = debug;
+        return this;
+    }
+
+    public RowPipeline incremental(boolean incremental) {
+        this.incremental = incremental;
+        return this;
+    }
+
+    /** 有上次中断留下的检查点时从那里继续，否则照常运行 */
+    public RowPipeline resume(boolean resume) {
+        this.resume = resume;
+        return this;
+    }
+
+    /**
+     * 执行流水线，target 为 null 时只读不写。
+     *
+     * @return 本次写出的数据行数
+     */
+    public long run(Path source, Path target) throws IOException {
+        boolean seekable = seekable(source, target);
+        boolean useManifest = incremental && seekable;
+        if (target != null) {
+            Path checkpointPath = RunManifest.checkpointFor(target);
+            if (resume && seekable) {
+                RunManifest cp = RunManifest.read(checkpointPath);
+                RunManifest.Prefix p = cp == null ? null : verify(cp, source, target, Compression.partial(target), false);
+                if (p != null) {
+                    System.out.printf("从检查点继续：跳过已处理的 %d 字节，处理剩余的 %d 字节%n",
+                            cp.inputOffset, Files.size(source) - cp.inputOffset);
+                    return execute(source, target, cp, p, useManifest);
+                }
+                System.out.println("没有可用的检查点，照常运行: " + target);
+            }
+            Files.deleteIfExists(checkpointPath);
+        }
+        if (useManifest) {
+            Path manifestPath = RunManifest.pathFor(target);
+            RunManifest m = RunManifest.read(manifestPath);
+            RunManifest.Prefix p = m == null ? null : verify(m, source, target, target, true);
+            if (p != null) {
+                System.out.printf("增量运行：跳过已处理的 %d 字节，处理新增的 %d 字节%n",
+                        m.inputOffset, Files.size(source) - m.inputOffset);
+                // 追加期间最终路径上不留半截文件；清单本身就是一个检查点，中途失败可以从这里续跑
+                Files.move(target, Compression.partial(target),
+                        StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                if (checkpointBytes() > 0) m.write(RunManifest.checkpointFor(target));
+                return execute(source, target, m, p, true);
+            }
+            Files.deleteIfExists(manifestPath);
+        }
+        if (target != null) deleteJournals(target);
+        return execute(source, target, null, null, useManifest);
+    }
+
+    /**
+     * from 为 null 时从头处理；否则恢复 from 记录的阶段状态，
+     * 从它的输入位置接着读，输出接在临时文件的前 outputBytes 个字节之后。
+     */
+    private long execute(Path source, Path target, RunManifest from, RunManifest.Prefix prefix,
+                         boolean useManifest) throws IOException {
+        long start = from == null ? 0 : from.inputOffset;
+        long end = Files.size(source);
+        long outputBefore = from == null ? 0 : from.outputBytes;
+        PipelineEvent event = new PipelineEvent();
+        event.begin();
+        long t0 = System.nanoTime();
+        long a0 = Metrics.allocatedBytes();
+        startMetrics();
+
+        boolean seekable = seekable(source, target);
+        this.source = source;
+        this.target = target;
+        this.checkpointEvery = seekable ? checkpointBytes() : 0;
+        this.nextCheckpoint = start + checkpointEvery;
+        this.prefix = prefix != null ? prefix
+                : seekable && (useManifest || checkpointEvery > 0) ? new RunManifest.Prefix(source) : null;
+
+        this.journals = new StageJournal[stages.size()];
+        boolean saved = false;
+        try {
+            long written = stream(source, target, from, start, end);
+            if (target != null) Files.deleteIfExists(RunManifest.checkpointFor(target));
+            if (header == null) return 0;
+
+            if (useManifest) {
+                saved = saveManifest(end);
+            }
+            recordMetrics(event, source, target, end - start,
+                    target == null ? 0 : Files.size(target) - outputBefore, written, from != null, t0, a0);
+            Diagnostics.flush();   // 行级消息排在各阶段结论之前
+            for (RowStage stage : stages) {
+                stage.end();
+            }
+            return written;
+        } finally {
+            closeJournals();
+            // 不写清单时日志只为检查点服务，跑完就没用了；出错时留着，供下次续跑
+            if (target != null && !saved && !Files.exists(RunManifest.checkpointFor(target))) deleteJournals(target);
+        }
+    }
+
+    /** 读 [start, end) 并写出，返回写出的数据行数 */
+    private long stream(Path source, Path target, RunManifest from, long start, long end) throws IOException {
+        CsvRowWriter[] debugWriters = new CsvRowWriter[stages.size()];
+        CsvRowWriter writer = null;
+        long written;
+
+        try (RowReader reader = CsvInput.open(source, start, end)) {
+
+            if (target != null) {
+                writer = from == null ? CsvRowWriter.open(target) : CsvRowWriter.append(target, from.outputBytes);
+            }
+            if (debug) {
+                for (int i = 0; i < stages.size(); i++) {
+                    String name = stages.get(i).debugFileName();
+                    if (name == null) continue;
+                    Path p = Compression.output(source.toAbsolutePath().getParent().resolve(name));
+                    if (target != null && p.equals(target.toAbsolutePath())) continue;   // 最终输出已经覆盖
+                    debugWriters[i] = CsvRowWriter.open(p);
+                }
+            }
+
+            if (from != null) {
+                header = from.header;
+                for (int i = 0; i < stages.size(); i++) {
+                    RowStage stage = stages.get(i);
+                    stage.begin(header);
+                    if (stage instanceof StatefulStage s) {
+                        s.restoreState(new DataInputStream(new ByteArrayInputStream(from.stageStates.get(i))));
+                    }
+                }
+            } else {
+                CsvRow headerRow = reader.next();
+                header = headerRow == null ? null : headerRow.toArray();
+                if (header != null) {
+                    for (RowStage stage : stages) {
+                        stage.begin(header);
+                    }
+                    for (CsvRowWriter w : debugWriters) {
+                        if (w != null) w.write(headerRow);
+                    }
+                    if (writer != null) writer.write(headerRow);
+                }
+            }
+
+            if (header != null && prefix != null) openJournals(from);
+            written = header == null ? 0 : process(reader, writer, debugWriters);
+
+            if (writer != null) writer.commit();
+            for (CsvRowWriter w : debugWriters) {
+                if (w != null) w.commit();
+            }
+        } finally {
+            if (writer != null) writer.close();
+            for (CsvRowWriter w : debugWriters) {
+                if (w != null) w.close();
+            }
+        }
+        return written;
+    }
+
+    /** 需要保存状态时给各 {@link JournaledStage} 接上日志；from 不为 null 时先截到它记下的长度并重放 */
+    private void openJournals(RunManifest from) throws IOException {
+        for (int i = 0; i < stages.size(); i++) {
+            if (!(stages.get(i) instanceof JournaledStage s)) continue;
+            Path file = StageJournal.pathFor(target, i);
+            journals[i] = from == null ? StageJournal.create(file)
+                    : StageJournal.resume(file, from.journalLengths.get(i), s);
+            s.journal(journals[i].output());
+        }
+    }
+
+    private void closeJournals() throws IOException {
+        for (int i = 0; i < journals.length; i++) {
+            if (journals[i] == null) continue;
+            ((JournaledStage) stages.get(i)).journal(null);
+            journals[i].close();
+            journals[i] = null;
+        }
+    }
+
+    private void deleteJournals(Path target) throws IOException {
+        for (int i = 0; i < stages.size(); i++) {
+            if (stages.get(i) instanceof JournaledStage) Files.deleteIfExists(StageJournal.pathFor(target, i));
+        }
+    }
+
+    /** 检查点间隔：显式设置了 -Ddatapreprocessor.checkpoint 时照办，否则只在开启 resume 时写 */
+    private long checkpointBytes() {
+        String checkpoint = System.getProperty("datapreprocessor.checkpoint");
+        if (checkpoint != null && !checkpoint.isBlank()) return DuplicateDetector.parseSize(checkpoint);
+        return resume ? DEFAULT_CHECKPOINT_BYTES : 0;
+    }
+
+    private long process(RowReader reader, CsvRowWriter writer, CsvRowWriter[] debugWriters) throws IOException {
+        long written = 0;
+        CsvRow row;
+        rows:
+        while ((row = reader.next()) != null) {
+            if (checkpointEvery > 0 && row.offset() >= nextCheckpoint) {
+                checkpoint(row.offset(), writer);
+            }
+            rowsRead++;
+            for (int i = 0; i < stages.size(); i++) {
+                if (!process(i, row)) continue rows;
+                if (debugWriters[i] != null) debugWriters[i].write(row);
+            }
+            if (writer != null) {
+                writer.write(row);
+                written++;
+            }
+        }
+        return written;
+    }
+
+    private boolean process(int i, CsvRow row) {
+        if (metrics == null) return stages.get(i).process(row);
+        long a = Metrics.allocatedBytes();
+        long t = System.nanoTime();
+        boolean kept = stages.get(i).process(row);
+        long nanos = System.nanoTime() - t;
+        metrics[i].record(nanos, Metrics.allocatedBytes() - a, kept);
+        return kept;
+    }
+
+    private void startMetrics() {
+        rowsRead = 0;
+        metrics = null;
+        if (Metrics.enabled() || new StageEvent().isEnabled()) {
+            metrics = new StageMetrics[stages.size()];
+            for (int i = 0; i < metrics.length; i++) metrics[i] = new StageMetrics(stageName(stages.get(i)));
+        }
+    }
+
+    /** 登记本次运行的读写量和各阶段指标，并提交 JFR 事件 */
+    private void recordMetrics(PipelineEvent event, Path source, Path target, long bytesRead, long bytesWritten,
+                               long written, boolean resumed, long t0, long a0) {
+        long nanos = System.nanoTime() - t0;
+        String src = source.getFileName().toString();
+        if (event.shouldCommit()) {
+            event.source = source.toString();
+            event.target = target == null ? null : target.toString();
+            event.rowsRead = rowsRead;
+            event.rowsWritten = written;
+            event.bytesRead = bytesRead;
+            event.bytesWritten = bytesWritten;
+            event.incremental = resumed;
+            event.commit();
+        }
+        if (metrics == null) return;
+        for (StageMetrics m : metrics) {
+            StageEvent e = new StageEvent();
+            if (!e.shouldCommit()) break;
+            e.pipeline = src;
+            e.stage = m.name();
+            e.rows = m.rows();
+            e.dropped = m.dropped();
+            e.processNanos = m.latency().total();
+            e.p99Nanos = m.latency().percentile(0.99);
+            e.allocated = m.allocated();
+            e.commit();
+        }
+        if (Metrics.enabled()) {
+            Metrics.pipeline(source.toString(), target == null ? null : target.toString(), rowsRead, written,
+                    bytesRead, bytesWritten, nanos, Metrics.allocatedBytes() - a0, Arrays.asList(metrics));
+        }
+    }
+
+    /** 指标里的阶段名：匿名类和内部类取最外层的类名 */
+    private static String stageName(RowStage stage) {
+        Class<?> c = stage.getClass();
+        while (c.getEnclosingClass() != null) c = c.getEnclosingClass();
+        return c.getSimpleName();
+    }
+
+    /** 能否按字节续读输入、截断续写输出，并恢复各阶段的状态 */
+    private boolean seekable(Path source, Path target) {
+        return target != null && !debug && !Compression.isCompressed(source) && !Compression.isCompressed(target)
+                && stages.stream().allMatch(RowStage::resumable);
+    }
+
+    /**
+     * 清单的阶段与本流水线相同、输入前缀未变、输出文件长度对得上时，
+     * 返回推进到清单位置的输入摘要，否则返回 null。exact 为 false 时输出可以更长，续写前会截掉。
+     */
+    private RunManifest.Prefix verify(RunManifest m, Path source, Path target, Path output, boolean exact)
+            throws IOException {
+        if (!Files.exists(output)) return null;
+        long size = Files.size(output);
+        if (exact ? size != m.outputBytes : size < m.outputBytes) return null;
+        if (!m.stageNames.equals(stageNames())) return null;
+        for (int i = 0; i < stages.size(); i++) {
+            Path journal = StageJournal.pathFor(target, i);
+            if (!StageJournal.matches(journal, m.journalLengths.get(i), m.journalDigests.get(i))) return null;
+        }
+        return m.prefix(source);
+    }
+
+    /** 在 offset 处的记录之前落一个检查点：临时输出先刷到磁盘，再原子替换检查点文件 */
+    private void checkpoint(long offset, CsvRowWriter writer) throws IOException {
+        nextCheckpoint = offset + checkpointEvery;
+        snapshot(offset, writer.sync()).write(RunManifest.checkpointFor(target));
+    }
+
+    /** 输入以换行结尾时才能确定最后一条记录是完整的，否则不写清单，下次全量重算；返回是否写了清单 */
+    private boolean saveManifest(long end) throws IOException {
+        Path manifestPath = RunManifest.pathFor(target);
+        RunManifest m = end == 0 || !endsWithNewline(source, end) ? null : snapshot(end, Files.size(target));
+        if (m == null) {
+            Files.deleteIfExists(manifestPath);
+            return false;
+        }
+        m.write(manifestPath);
+        return true;
+    }
+
+    /** 处理到输入 offset、输出 outputBytes 时的清单 */
+    private RunManifest snapshot(long offset, long outputBytes) throws IOException {
+        RunManifest m = new RunManifest();
+        m.header = header;
+        m.outputBytes = outputBytes;
+        m.stageNames.addAll(stageNames());
+        for (int i = 0; i < stages.size(); i++) {
+            ByteArrayOutputStream bo = new ByteArrayOutputStream();
+            if (stages.get(i) instanceof StatefulStage s) s.saveState(new DataOutputStream(bo));
+            m.stageStates.add(bo.toByteArray());
+            // 日志先落盘，清单才能指向它
+            StageJournal j = journals[i];
+            m.journalLengths.add(j == null ? 0L : j.sync());
+            m.journalDigests.add(j == null ? new byte[0] : j.digest());
+        }
+        prefix.advance(offset);
+        m.inputOffset = offset;
+        m.inputDigest = prefix.digest();
+        return m;
+    }
+
+    private List<String> stageNames() {
+        List<String> names = new ArrayList<>();
+        for (RowStage stage : stages) names.add(stage.getClass().getName());
+        return names;
+    }
+
+    private static boolean endsWithNewline(Path file, long end) throws IOException {
+        try (InputStream in = Files.newInputStream(file)) {
+            in.skipNBytes(end - 1);
+            return in.read() == '\n';
+        }
+    }
+}
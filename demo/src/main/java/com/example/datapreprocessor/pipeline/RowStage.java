@@ -0,0 +1,38 @@
+package com.example.datapreprocessor.pipeline;
+
+import com.example.datapreprocessor.io.CsvRow;
+
+/**
+ * 逐行处理阶段。多个阶段串在 {@link RowPipeline} 上，共用同一次读取和同一次写出。
+ */
+public interface RowStage {
+
+    /** 调试模式下该阶段之后的中间结果文件名，返回 null 表示不单独输出 */
+    default String debugFileName() {
+        return null;
+    }
+
+    /** 读到表头时调用一次 */
+    default void begin(String[] header) {
+    }
+
+    /**
+     * 处理一行，可以通过 {@link CsvRow#set} 修改其中的值。
+     * 只有被 {@link CsvRow#get} 读到的列才会解码，阶段应只读取自己需要的列。
+     *
+     * @return false 表示丢弃该行，后续阶段不再处理
+     */
+    boolean process(CsvRow row);
+
+    /**
+     * 能否在增量运行时恢复状态、只处理新增的行。
+     * 有阶段返回 false 时流水线不写运行清单，每次都全量重算。
+     */
+    default boolean resumable() {
+        return true;
+    }
+
+    /** 所有行处理完后调用一次 */
+    default void end() {
+    }
+}
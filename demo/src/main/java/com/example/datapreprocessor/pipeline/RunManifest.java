@@ -0,0 +1,156 @@
+package com.example.datapreprocessor.pipeline;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 增量运行清单：记录上次处理到的输入字节位置、该前缀的 SHA-256、
+ * 输出文件长度、表头以及各阶段的状态。保存在输出文件旁边的 .manifest 文件里。
+ * {@link JournaledStage} 随行数增长的状态在各自的日志文件里，清单只记日志长度和摘要。
+ *
+ * <p>运行途中的检查点用同样的格式，保存在 .checkpoint 文件里，输出长度指的是未完成的临时输出。</p>
+ */
+final class RunManifest {
+
+    private static final int MAGIC = 0x52554e4d;   // "RUNM"
+    private static final int VERSION = 2;
+
+    long inputOffset;
+    byte[] inputDigest;
+    long outputBytes;
+    String[] header;
+    final List<String> stageNames = new ArrayList<>();
+    final List<byte[]> stageStates = new ArrayList<>();
+    final List<Long> journalLengths = new ArrayList<>();
+    final List<byte[]> journalDigests = new ArrayList<>();
+
+    static Path pathFor(Path target) {
+        return target.resolveSibling(target.getFileName() + ".manifest");
+    }
+
+    static Path checkpointFor(Path target) {
+        return target.resolveSibling(target.getFileName() + ".checkpoint");
+    }
+
+    /** 读取清单，不存在或格式不符时返回 null */
+    static RunManifest read(Path file) {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) return null;
+            RunManifest m = new RunManifest();
+            m.inputOffset = in.readLong();
+            m.inputDigest = in.readNBytes(in.readInt());
+            m.outputBytes = in.readLong();
+            m.header = new String[in.readInt()];
+            for (int i = 0; i < m.header.length; i++) m.header[i] = in.readUTF();
+            int stages = in.readInt();
+            for (int i = 0; i < stages; i++) {
+                m.stageNames.add(in.readUTF());
+                m.stageStates.add(in.readNBytes(in.readInt()));
+                m.journalLengths.add(in.readLong());
+                m.journalDigests.add(in.readNBytes(in.readInt()));
+            }
+            return m;
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException e) {
+            System.err.println("运行清单已损坏，将全量重算: " + file);
+            return null;
+        }
+    }
+
+    /** 先写临时文件再原子替换，避免崩溃时留下半个清单 */
+    void write(Path file) throws IOException {
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel ch = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.WRITE);
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(ch)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(inputOffset);
+            out.writeInt(inputDigest.length);
+            out.write(inputDigest);
+            out.writeLong(outputBytes);
+            out.writeInt(header.length);
+            for (String h : header) out.writeUTF(h);
+            out.writeInt(stageNames.size());
+            for (int i = 0; i < stageNames.size(); i++) {
+                out.writeUTF(stageNames.get(i));
+                out.writeInt(stageStates.get(i).length);
+                out.write(stageStates.get(i));
+                out.writeLong(journalLengths.get(i));
+                out.writeInt(journalDigests.get(i).length);
+                out.write(journalDigests.get(i));
+            }
+            out.flush();
+            ch.force(true);   // 先落盘再替换，断电后也不会指向没写完的内容
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * 上次的输入前缀是否原样保留（只在末尾追加了内容）：
+     * 是的话返回推进到 inputOffset 的摘要，接着处理后面的内容时继续往后推进，否则返回 null。
+     */
+    Prefix prefix(Path source) throws IOException {
+        if (Files.size(source) < inputOffset) return null;
+        Prefix p = new Prefix(source);
+        p.advance(inputOffset);
+        return Arrays.equals(inputDigest, p.digest()) ? p : null;
+    }
+
+    /** 输入文件前缀的 SHA-256，随处理进度往后推进，写检查点时不必从头重算 */
+    static final class Prefix {
+        private final Path file;
+        private final MessageDigest md;
+        private long length;
+
+        Prefix(Path file) {
+            this.file = file;
+            try {
+                md = MessageDigest.getInstance("SHA-256");
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        /** 把摘要推进到文件的前 to 个字节 */
+        void advance(long to) throws IOException {
+            if (to <= length) return;
+            ByteBuffer buf = ByteBuffer.allocate((int) Math.min(1 << 20, to - length));
+            try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+                while (length < to) {
+                    buf.clear().limit((int) Math.min(buf.capacity(), to - length));
+                    int n = ch.read(buf, length);
+                    if (n < 0) throw new IOException("文件比清单记录的短: " + file);
+                    md.update(buf.flip());
+                    length += n;
+                }
+            }
+        }
+
+        /** 当前前缀的摘要，之后还能继续推进 */
+        byte[] digest() {
+            try {
+                return ((MessageDigest) md.clone()).digest();
+            } catch (CloneNotSupportedException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+}
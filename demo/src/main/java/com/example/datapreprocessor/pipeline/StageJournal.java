@@ -0,0 +1,114 @@
+package com.example.datapreprocessor.pipeline;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.DigestInputStream;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * 一个 {@link JournaledStage} 的日志，保存在输出文件旁边的 .journal.阶段序号 文件里。
+ * 只在末尾追加，边写边算 SHA-256；清单记下的长度之后的内容属于没跑完的运行，续写前截掉。
+ */
+final class StageJournal implements Closeable {
+
+    private final FileChannel ch;
+    private final MessageDigest md;
+    private final DataOutputStream out;
+
+    private StageJournal(FileChannel ch, MessageDigest md) {
+        this.ch = ch;
+        this.md = md;
+        this.out = new DataOutputStream(new BufferedOutputStream(
+                new DigestOutputStream(Channels.newOutputStream(ch), md), 1 << 16));
+    }
+
+    static Path pathFor(Path target, int stage) {
+        return target.resolveSibling(target.getFileName() + ".journal." + stage);
+    }
+
+    /** 从头开始一份新日志 */
+    static StageJournal create(Path file) throws IOException {
+        FileChannel ch = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.WRITE);
+        return new StageJournal(ch, sha256());
+    }
+
+    /** 截到 length 字节，把这部分交给 stage 重放，之后接着往后写 */
+    static StageJournal resume(Path file, long length, JournaledStage stage) throws IOException {
+        FileChannel ch = FileChannel.open(file, StandardOpenOption.WRITE);
+        try {
+            ch.truncate(length);
+            MessageDigest md = sha256();
+            try (InputStream in = Files.newInputStream(file)) {
+                stage.replay(new DataInputStream(new BufferedInputStream(new DigestInputStream(in, md), 1 << 16)));
+            }
+            ch.position(length);
+            return new StageJournal(ch, md);
+        } catch (IOException | RuntimeException e) {
+            ch.close();
+            throw e;
+        }
+    }
+
+    /**
+     * 日志前 length 个字节的摘要是否为 digest；文件不存在或比 length 短时返回 false。
+     * 没有日志的阶段在清单里记长度 0、空摘要。
+     */
+    static boolean matches(Path file, long length, byte[] digest) throws IOException {
+        if (digest.length == 0) return length == 0;
+        if (!Files.exists(file) || Files.size(file) < length) return false;
+        RunManifest.Prefix p = new RunManifest.Prefix(file);
+        p.advance(length);
+        return MessageDigest.isEqual(digest, p.digest());
+    }
+
+    DataOutput output() {
+        return out;
+    }
+
+    /** 把已写的内容刷到磁盘，返回日志当前的字节数 */
+    long sync() throws IOException {
+        out.flush();
+        ch.force(false);
+        return ch.position();
+    }
+
+    /** 已刷出内容的摘要，之后还能继续写 */
+    byte[] digest() {
+        try {
+            return ((MessageDigest) md.clone()).digest();
+        } catch (CloneNotSupportedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            out.flush();
+        } finally {
+            ch.close();
+        }
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package com.example.datapreprocessor.pipeline;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * 跨行保存状态的阶段（去重集合、计数器等）。增量运行时状态随运行清单一起持久化，
+ * 下次只处理新增的行时先恢复状态。没有实现该接口的阶段视为无状态。
+ */
+public interface StatefulStage extends RowStage {
+
+    /** 保存当前状态 */
+    void saveState(DataOutput out) throws IOException;
+
+    /** 在 {@link #begin} 之后调用，恢复上次保存的状态 */
+    void restoreState(DataInput in) throws IOException;
+}
@@ -0,0 +1,253 @@
+package com.example.datapreprocessor.profile;
+
+import com.example.datapreprocessor.metrics.Json;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * 一列的剖析结果：空值数、不同值个数（HyperLogLog）、常见值（Misra-Gries）、
+ * 数值的分位数（KLL）和文本的字典序最小最大值。全部可以合并。
+ *
+ * <p>有 {@link Measure} 的列按它换算成整数，换算失败的计为无效；其余列能按十进制数解析的计入数值分布，
+ * 否则计为文本。空串和全空白视为空值。</p>
+ */
+final class ColumnProfile {
+
+    static final int TOP = 10;
+    static final int COUNTERS = 64;   // 不同值不超过 2 倍时常见值计数精确
+
+    private static final double[] POW10 = {1, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12, 1e13, 1e14, 1e15};
+
+    final String name;
+    private final Measure measure;
+    private long values;   // 非空值个数
+    private long nulls;
+    private long invalid;
+    private long texts;
+    private String minText;
+    private String maxText;
+    private final HyperLogLog distinct = new HyperLogLog();
+    private final HeavyHitters top = new HeavyHitters(COUNTERS);
+    private final KllSketch numbers = new KllSketch();
+
+    ColumnProfile(String name, Measure measure) {
+        this.name = name;
+        this.measure = measure;
+    }
+
+    void add(String cell) {
+        if (cell == null || cell.isEmpty() || (cell.charAt(0) <= ' ' && cell.isBlank())) {
+            nulls++;
+            return;
+        }
+        values++;
+        distinct.add(HyperLogLog.hash(cell));
+        top.add(cell);
+        if (measure != null) {
+            long v = measure.parse(cell);
+            if (v == Measure.INVALID) invalid++;
+            else numbers.update(v);
+            return;
+        }
+        double d = number(cell);
+        if (!Double.isNaN(d)) {
+            numbers.update(d);
+            return;
+        }
+        texts++;
+        if (minText == null || cell.compareTo(minText) < 0) minText = cell;
+        if (maxText == null || cell.compareTo(maxText) > 0) maxText = cell;
+    }
+
+    void merge(ColumnProfile o) {
+        values += o.values;
+        nulls += o.nulls;
+        invalid += o.invalid;
+        texts += o.texts;
+        if (o.minText != null && (minText == null || o.minText.compareTo(minText) < 0)) minText = o.minText;
+        if (o.maxText != null && (maxText == null || o.maxText.compareTo(maxText) > 0)) maxText = o.maxText;
+        distinct.merge(o.distinct);
+        top.merge(o.top);
+        numbers.merge(o.numbers);
+    }
+
+    void write(DataOutput out) throws IOException {
+        out.writeLong(values);
+        out.writeLong(nulls);
+        out.writeLong(invalid);
+        out.writeLong(texts);
+        writeText(out, minText);
+        writeText(out, maxText);
+        distinct.write(out);
+        top.write(out);
+        numbers.write(out);
+    }
+
+    void read(DataInput in) throws IOException {
+        values = in.readLong();
+        nulls = in.readLong();
+        invalid = in.readLong();
+        texts = in.readLong();
+        minText = readText(in);
+        maxText = readText(in);
+        distinct.read(in);
+        top.read(in);
+        numbers.read(in);
+    }
+
+    /** 控制台上的一行摘要，measure 列另起一行直方图 */
+    String summary() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format(Locale.ROOT, "  %-22s 空值 %6.2f%%  不同值≈%-9d", name, 100.0 * nulls / Math.max(1, values + nulls),
+                distinctCount()));
+        if (numeric()) {
+            sb.append("  范围 ").append(show(numbers.min())).append(" ~ ").append(show(numbers.max()))
+                    .append("  中位数 ").append(show(numbers.quantile(0.5)));
+        } else if (minText != null) {
+            sb.append("  范围 ").append(clip(minText, 16)).append(" ~ ").append(clip(maxText, 16));
+        }
+        if (invalid > 0) sb.append("  无法解析 ").append(invalid);
+        // 只列计数超过误差的值，它们一定真的出现了这么多次
+        sb.append("  常见值");
+        int shown = 0;
+        for (Map.Entry<String, Long> e : top.top(3)) {
+            if (e.getValue() <= top.error()) break;
+            sb.append(' ').append(clip(e.getKey(), 16)).append('(').append(e.getValue()).append(')');
+            shown++;
+        }
+        if (shown == 0) sb.append(" 无明显集中的值");
+        else if (top.error() > 0) sb.append(" 计数可能少算至多 ").append(top.error());
+        if (measure != null && numbers.count() > 0) {
+            sb.append(System.lineSeparator()).append(String.format("  %-22s", "")).append(" 直方图");
+            for (Measure.Bin b : measure.histogram(numbers)) {
+                sb.append(' ').append(b.label()).append(':').append(b.count());
+            }
+        }
+        return sb.toString();
+    }
+
+    void json(Json j) {
+        j.open('{');
+        j.field("name").string(name);
+        j.field("values").number(values);
+        j.field("nulls").number(nulls);
+        j.field("nullRate").number((double) nulls / Math.max(1, values + nulls));
+        j.field("distinct").number(distinctCount());
+        if (measure != null) j.field("invalid").number(invalid);
+        if (numeric()) {
+            j.field("numeric").number(numbers.count());
+            j.field("min").string(show(numbers.min()));
+            j.field("max").string(show(numbers.max()));
+            j.field("quantiles").open('{');
+            for (double q : new double[]{0.01, 0.1, 0.25, 0.5, 0.75, 0.9, 0.99}) {
+                j.field(String.format(Locale.ROOT, "p%02d", Math.round(q * 100))).string(show(numbers.quantile(q)));
+            }
+            j.close('}');
+        }
+        if (texts > 0) {
+            j.field("text").number(texts);
+            j.field("minText").string(clip(minText, 200));
+            j.field("maxText").string(clip(maxText, 200));
+        }
+        j.field("topError").number(top.error());
+        j.field("top").open('[');
+        for (Map.Entry<String, Long> e : top.top(TOP)) {
+            j.open('{');
+            j.field("value").string(clip(e.getKey(), 200));
+            j.field("count").number(e.getValue());
+            j.close('}');
+        }
+        j.close(']');
+        if (measure != null) {
+            List<Measure.Bin> bins = measure.histogram(numbers);
+            j.field("histogram").open('[');
+            for (Measure.Bin b : bins) {
+                j.open('{');
+                j.field("bin").string(b.label());
+                j.field("count").number(b.count());
+                j.close('}');
+            }
+            j.close(']');
+        }
+        j.close('}');
+    }
+
+    /** HyperLogLog 的估计不超过非空值个数 */
+    private long distinctCount() {
+        return Math.min(distinct.estimate(), values);
+    }
+
+    /** 有换算的列，或大部分非空值是数字的列，按数值显示 */
+    private boolean numeric() {
+        return numbers.count() > 0 && (measure != null || numbers.count() >= texts);
+    }
+
+    private String show(double v) {
+        if (measure != null) return measure.format(v);
+        if (v == Math.rint(v) && Math.abs(v) < 1e15) return Long.toString((long) v);
+        return String.format(Locale.ROOT, "%.3f", v);
+    }
+
+    /**
+     * [+-]数字[.数字][e[+-]数字] 形式的十进制数，其它返回 NaN。
+     * 不带指数、有效数字不超过 15 位时直接用整数运算，只差最后一位的舍入，对分布统计没有影响，
+     * 比 Double.parseDouble 快一个数量级；其余交给 parseDouble。
+     */
+    static double number(String s) {
+        int n = s.length();
+        if (n > 32) return Double.NaN;
+        int i = 0;
+        boolean negative = s.charAt(0) == '-';
+        if (negative || s.charAt(0) == '+') i++;
+        int digits = 0;
+        int scale = 0;   // 小数位数
+        long mantissa = 0;
+        for (char c; i < n && (c = s.charAt(i)) >= '0' && c <= '9'; i++, digits++) mantissa = mantissa * 10 + (c - '0');
+        if (i < n && s.charAt(i) == '.') {
+            for (char c; ++i < n && (c = s.charAt(i)) >= '0' && c <= '9'; digits++, scale++) {
+                mantissa = mantissa * 10 + (c - '0');
+            }
+        }
+        if (digits == 0) return Double.NaN;
+        if (i == n && digits <= 15) {
+            double v = scale == 0 ? mantissa : mantissa / POW10[scale];
+            return negative ? -v : v;
+        }
+        if (i < n && (s.charAt(i) == 'e' || s.charAt(i) == 'E')) {
+            i++;
+            if (i < n && (s.charAt(i) == '-' || s.charAt(i) == '+')) i++;
+            int exp = 0;
+            for (; i < n && s.charAt(i) >= '0' && s.charAt(i) <= '9'; i++) exp++;
+            if (exp == 0) return Double.NaN;
+        }
+        return i == n ? Double.parseDouble(s) : Double.NaN;
+    }
+
+    private static String clip(String s, int max) {
+        if (s == null) return null;
+        s = s.replace('\n', ' ').replace('\r', ' ');
+        return s.length() <= max ? s : s.substring(0, max) + "…";
+    }
+
+    private static void writeText(DataOutput out, String s) throws IOException {
+        out.writeBoolean(s != null);
+        if (s != null) {
+            byte[] b = s.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(b.length);
+            out.write(b);
+        }
+    }
+
+    private static String readText(DataInput in) throws IOException {
+        if (!in.readBoolean()) return null;
+        byte[] b = new byte[in.readInt()];
+        in.readFully(b);
+        return new String(b, StandardCharsets.UTF_8);
+    }
+}
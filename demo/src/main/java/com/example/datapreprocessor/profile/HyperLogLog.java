@@ -0,0 +1,84 @@
+package com.example.datapreprocessor.profile;
+
+import com.example.datapreprocessor.dedup.IdSet;
+import com.example.datapreprocessor.dedup.LongHashSet;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * HyperLogLog 不同值个数估计：2^14 个寄存器共 16KB，标准误差约 0.8%。
+ * 两份按寄存器取最大即可合并，结果与把两份数据喂给同一份完全相同。
+ */
+public final class HyperLogLog {
+
+    private static final int P = 14;
+    private static final int M = 1 << P;
+
+    private final byte[] registers = new byte[M];
+
+    public void add(long hash) {
+        int i = (int) (hash >>> (64 - P));
+        // 低位补一个 1，秩最大为 64 - P + 1
+        byte rank = (byte) (Long.numberOfLeadingZeros((hash << P) | (1L << (P - 1))) + 1);
+        if (rank > registers[i]) registers[i] = rank;
+    }
+
+    public void merge(HyperLogLog other) {
+        for (int i = 0; i < M; i++) {
+            if (other.registers[i] > registers[i]) registers[i] = other.registers[i];
+        }
+    }
+
+    public long estimate() {
+        double sum = 0;
+        int zeros = 0;
+        for (byte r : registers) {
+            sum += 1.0 / (1L << r);
+            if (r == 0) zeros++;
+        }
+        double e = 0.7213 / (1 + 1.079 / M) * M * M / sum;
+        // 小基数时线性计数更准
+        if (e <= 2.5 * M && zeros > 0) e = M * Math.log((double) M / zeros);
+        return Math.round(e);
+    }
+
+    void write(DataOutput out) throws IOException {
+        out.write(registers);
+    }
+
+    void read(DataInput in) throws IOException {
+        in.readFully(registers);
+    }
+
+    /**
+     * 字符串的 64 位哈希。规范十进制整数（ID 列的绝大多数值）按数值打散，省掉逐字符计算；
+     * 其余按 UTF-16 字符每 4 个拼成一个 64 位字逐块混合（MurmurHash3 的 64 位轮函数），最后再打散一次。
+     * 不用 String.hashCode：32 位的碰撞在上亿个不同值时已经会让估计系统性偏低。
+     */
+    static long hash(String s) {
+        long v = IdSet.parseCanonical(s);
+        if (v != IdSet.NOT_NUMERIC) return LongHashSet.mix(v);
+        int n = s.length();
+        long h = 0x9E3779B97F4A7C15L ^ n;
+        int i = 0;
+        for (; i + 4 <= n; i += 4) {
+            h ^= block((long) s.charAt(i) | (long) s.charAt(i + 1) << 16
+                    | (long) s.charAt(i + 2) << 32 | (long) s.charAt(i + 3) << 48);
+            h = Long.rotateLeft(h, 27) * 5 + 0x52dce729;
+        }
+        if (i < n) {
+            long k = 0;
+            for (int shift = 0; i < n; i++, shift += 16) k |= (long) s.charAt(i) << shift;
+            h ^= block(k);
+        }
+        return LongHashSet.mix(h);
+    }
+
+    private static long block(long k) {
+        k *= 0x87c37b91114253d5L;
+        k = Long.rotateLeft(k, 31);
+        return k * 0x4cf5ad432745937fL;
+    }
+}
@@ -0,0 +1,212 @@
+package com.example.datapreprocessor.profile;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * KLL 分位数草图：第 h 层的每个元素代表 2^h 个原始值，某层装满时排序后隔一个取一个升到上一层。
+ * K=200 时秩误差一般在 1.5% 以内，占用与数据量无关（几 KB）。两份逐层拼接后再压缩即可合并。
+ *
+ * <p>压缩是惰性的：总个数超过各层容量之和时才压缩最低的一个满层，其余时候最底层可以借用上面的空位，
+ * 压缩次数少得多。只有最底层是乱序追加的，上面各层始终有序，升层时归并进去，不用每次重新排序。</p>
+ */
+public final class KllSketch {
+
+    private static final int K = 200;
+    private static final double DECAY = 2.0 / 3;
+    private static final int MIN_WIDTH = 8;   // 低层的最小容量，太小时压缩过于频繁
+
+    private double[][] items = {new double[K]};
+    private int[] sizes = new int[1];
+    private int[] capacities = {K};   // 各层容量，层数变化时才重算
+    private int capacity = K;         // 各层容量之和
+    private int retained;             // 各层实际个数之和
+    private long count;
+    private double min = Double.POSITIVE_INFINITY;
+    private double max = Double.NEGATIVE_INFINITY;
+    private long random = 0x9E3779B97F4A7C15L;   // 压缩时取奇数位还是偶数位，固定种子保证结果可复现
+
+    public void update(double v) {
+        count++;
+        if (v < min) min = v;
+        if (v > max) max = v;
+        append(0, v);
+        if (++retained >= capacity) compress();
+    }
+
+    public void merge(KllSketch other) {
+        if (other.count == 0) return;
+        count += other.count;
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+        for (int h = 0; h < other.sizes.length; h++) {
+            for (int i = 0; i < other.sizes[h]; i++) append(h, other.items[h][i]);
+        }
+        retained = 0;
+        for (int h = 0; h < sizes.length; h++) {
+            if (h > 0) Arrays.sort(items[h], 0, sizes[h]);
+            retained += sizes[h];
+        }
+        compress();
+    }
+
+    public long count() {
+        return count;
+    }
+
+    public double min() {
+        return min;
+    }
+
+    public double max() {
+        return max;
+    }
+
+    /** q 取 0-1，返回估计的 q 分位数；没有数据时为 NaN */
+    public double quantile(double q) {
+        if (count == 0) return Double.NaN;
+        if (q <= 0) return min;
+        if (q >= 1) return max;
+        long[] sorted = sortedWeights();
+        double target = q * count;
+        long seen = 0;
+        for (int i = 0; i < sorted.length; i += 2) {
+            seen += sorted[i + 1];
+            if (seen >= target) return Double.longBitsToDouble(sorted[i]);
+        }
+        return max;
+    }
+
+    /** 小于 x 的值所占的比例 */
+    public double rank(double x) {
+        if (count == 0) return 0;
+        long below = 0;
+        for (int h = 0; h < sizes.length; h++) {
+            for (int i = 0; i < sizes[h]; i++) {
+                if (items[h][i] < x) below += 1L << h;
+            }
+        }
+        return (double) below / count;
+    }
+
+    void write(DataOutput out) throws IOException {
+        out.writeLong(count);
+        out.writeDouble(min);
+        out.writeDouble(max);
+        out.writeLong(random);
+        out.writeInt(sizes.length);
+        for (int h = 0; h < sizes.length; h++) {
+            out.writeInt(sizes[h]);
+            for (int i = 0; i < sizes[h]; i++) out.writeDouble(items[h][i]);
+        }
+    }
+
+    void read(DataInput in) throws IOException {
+        count = in.readLong();
+        min = in.readDouble();
+        max = in.readDouble();
+        random = in.readLong();
+        retained = 0;
+        int levels = in.readInt();
+        items = new double[levels][];
+        sizes = new int[levels];
+        for (int h = 0; h < levels; h++) {
+            sizes[h] = in.readInt();
+            items[h] = new double[Math.max(sizes[h], 2)];
+            for (int i = 0; i < sizes[h]; i++) items[h][i] = in.readDouble();
+            retained += sizes[h];
+        }
+        resize();
+    }
+
+    /** 按值排序的（值的位模式, 权重）对 */
+    private long[] sortedWeights() {
+        int n = 0;
+        for (int s : sizes) n += s;
+        double[] values = new double[n];
+        long[] weights = new long[n];
+        Integer[] order = new Integer[n];
+        int k = 0;
+        for (int h = 0; h < sizes.length; h++) {
+            for (int i = 0; i < sizes[h]; i++, k++) {
+                values[k] = items[h][i];
+                weights[k] = 1L << h;
+                order[k] = k;
+            }
+        }
+        Arrays.sort(order, (a, b) -> Double.compare(values[a], values[b]));
+        long[] out = new long[2 * n];
+        for (int i = 0; i < n; i++) {
+            out[2 * i] = Double.doubleToLongBits(values[order[i]]);
+            out[2 * i + 1] = weights[order[i]];
+        }
+        return out;
+    }
+
+    /** 第 h 层不存在时新建，连同它下面还没有的各层（合并进一份层数更少的草图时会跳层） */
+    private void level(int h) {
+        if (h < sizes.length) return;
+        int from = sizes.length;
+        items = Arrays.copyOf(items, h + 1);
+        sizes = Arrays.copyOf(sizes, h + 1);
+        for (int k = from; k <= h; k++) items[k] = new double[K];
+        resize();
+    }
+
+    /** 按层数重算各层容量，越往上越大，最高层为 K */
+    private void resize() {
+        capacities = new int[sizes.length];
+        capacity = 0;
+        for (int h = 0; h < sizes.length; h++) {
+            capacities[h] = Math.max(MIN_WIDTH, (int) Math.ceil(K * Math.pow(DECAY, sizes.length - 1 - h)));
+            capacity += capacities[h];
+        }
+    }
+
+    /** 第 h 层 [from, to) 中隔一个取一个，与上一层归并，两边都有序 */
+    private void promote(int h, int from, int to) {
+        level(h + 1);
+        int old = sizes[h + 1];
+        int add = (to - from + 1) / 2;
+        if (old + add > items[h + 1].length) items[h + 1] = Arrays.copyOf(items[h + 1], Math.max(old + add, 2 * old));
+        double[] up = items[h + 1];
+        double[] level = items[h];
+        // 从后往前归并，原地进行
+        int i = old - 1;
+        int j = from + 2 * (add - 1);
+        for (int k = old + add - 1; j >= from; k--) {
+            if (i >= 0 && up[i] > level[j]) up[k] = up[i--];
+            else {
+                up[k] = level[j];
+                j -= 2;
+            }
+        }
+        sizes[h + 1] = old + add;
+    }
+
+    private void append(int h, double v) {
+        level(h);
+        if (sizes[h] == items[h].length) items[h] = Arrays.copyOf(items[h], sizes[h] * 2);
+        items[h][sizes[h]++] = v;
+    }
+
+    /** 总个数不超过容量之和为止，每次压缩最低的一个满层；奇数个时最大的一个留在原层，总权重不变 */
+    private void compress() {
+        while (retained >= capacity) {
+            int h = 0;
+            while (sizes[h] < capacities[h]) h++;
+            double[] level = items[h];
+            int n = sizes[h];
+            if (h == 0) Arrays.sort(level, 0, n);
+            random ^= random << 13;
+            random ^= random >>> 7;
+            random ^= random << 17;
+            promote(h, (int) (random & 1), n & ~1);
+            if ((n & 1) != 0) level[0] = level[n - 1];
+            sizes[h] = n & 1;
+            retained -= n - (n & 1) - (n >> 1);
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package com.example.datapreprocessor.profile;
+
+import com.example.datapreprocessor.review.TimestampParser;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.ToLongFunction;
+
+/**
+ * 把单元格换算成整数再统计分布的列，如时长的秒数、时间戳的 epoch 毫秒。
+ * 这类列在剖析结果里按原单位显示，另外按固定区间出一张直方图。
+ */
+public final class Measure {
+
+    /** 换算函数遇到无法解析的单元格时返回该值 */
+    public static final long INVALID = Long.MIN_VALUE;
+
+    private enum Unit { SECONDS, EPOCH_MILLIS }
+
+    // 时长直方图的区间边界（秒）和名称
+    private static final long[] DURATION_EDGES = {0, 60, 300, 900, 1800, 3600, 7200, 14400, 28800, 86400};
+    private static final String[] DURATION_BINS = {
+            "<1m", "1m-5m", "5m-15m", "15m-30m", "30m-1h", "1h-2h", "2h-4h", "4h-8h", "8h-1d", ">=1d"
+    };
+
+    private final Unit unit;
+    private final ToLongFunction<String> parser;
+
+    private Measure(Unit unit, ToLongFunction<String> parser) {
+        this.unit = unit;
+        this.parser = parser;
+    }
+
+    /** 时长列，parser 把单元格换算成秒 */
+    public static Measure seconds(ToLongFunction<String> parser) {
+        return new Measure(Unit.SECONDS, parser);
+    }
+
+    /** 时间戳列，parser 把单元格换算成 epoch 毫秒 */
+    public static Measure epochMillis(ToLongFunction<String> parser) {
+        return new Measure(Unit.EPOCH_MILLIS, parser);
+    }
+
+    /** ISO-8601 时间戳，固定格式走 {@link TimestampParser}，其余退回 Instant.parse；格式不对返回 {@link #INVALID} */
+    public static long instant(String s) {
+        long v = TimestampParser.parse(s);
+        if (v != TimestampParser.IRREGULAR) return v;
+        try {
+            return Instant.parse(s).toEpochMilli();
+        } catch (DateTimeParseException e) {
+            return INVALID;
+        }
+    }
+
+    long parse(String cell) {
+        return parser.applyAsLong(cell);
+    }
+
+    String format(double v) {
+        if (Double.isNaN(v)) return "";
+        long x = Math.round(v);
+        if (unit == Unit.EPOCH_MILLIS) return Instant.ofEpochMilli(x).toString();
+        if (x < 0) return Long.toString(x) + "s";
+        StringBuilder sb = new StringBuilder();
+        if (x >= 86400) sb.append(x / 86400).append('d');
+        if (x % 86400 >= 3600) sb.append(x % 86400 / 3600).append('h');
+        if (x % 3600 >= 60) sb.append(x % 3600 / 60).append('m');
+        if (x % 60 != 0 || sb.length() == 0) sb.append(x % 60).append('s');
+        return sb.toString();
+    }
+
+    /** 直方图：时长按固定区间，时间戳按年（跨度超过 40 年时按十年） */
+    List<Bin> histogram(KllSketch values) {
+        List<Bin> bins = new ArrayList<>();
+        if (values.count() == 0) return bins;
+        if (unit == Unit.SECONDS) {
+            for (int i = 0; i < DURATION_EDGES.length; i++) {
+                double hi = i + 1 < DURATION_EDGES.length ? DURATION_EDGES[i + 1] : Double.POSITIVE_INFINITY;
+                double lo = i == 0 ? Double.NEGATIVE_INFINITY : DURATION_EDGES[i];
+                bins.add(bin(DURATION_BINS[i], values, lo, hi));
+            }
+            return bins;
+        }
+        int first = year(values.min());
+        int last = year(values.max());
+        int step = last - first >= 40 ? 10 : 1;
+        first -= Math.floorMod(first, step);
+        for (int y = first; y <= last; y += step) {
+            String label = step == 1 ? Integer.toString(y) : y + "-" + (y + step - 1);
+            bins.add(bin(label, values, startOf(y), startOf(y + step)));
+        }
+        return bins;
+    }
+
+    private static Bin bin(String label, KllSketch values, double lo, double hi) {
+        double share = (hi == Double.POSITIVE_INFINITY ? 1 : values.rank(hi))
+                - (lo == Double.NEGATIVE_INFINITY ? 0 : values.rank(lo));
+        return new Bin(label, Math.round(share * values.count()));
+    }
+
+    private static int year(double millis) {
+        return Instant.ofEpochMilli(Math.round(millis)).atZone(ZoneOffset.UTC).getYear();
+    }
+
+    private static double startOf(int year) {
+        return LocalDate.of(year, 1, 1).atStartOfDay(ZoneOffset.UTC).toInstant().toEpochMilli();
+    }
+
+    /** 直方图的一格，count 为估计值 */
+    record Bin(String label, long count) {}
+}
@@ -0,0 +1,133 @@
+package com.example.datapreprocessor.profile;
+
+import com.example.datapreprocessor.io.CsvRow;
+import com.example.datapreprocessor.metrics.Json;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 一个输入文件的剖析结果，由各列的 {@link ColumnProfile} 组成。
+ * 同一个文件的几部分（分片、增量运行的前后两段）各自剖析后可以 {@link #merge} 成整体的结果。
+ */
+public final class Profile {
+
+    private final int[] index;   // 各剖析列在行里的下标
+    private final ColumnProfile[] columns;
+    private long rows;
+
+    private Profile(int[] index, ColumnProfile[] columns) {
+        this.index = index;
+        this.columns = columns;
+    }
+
+    /** only 为空时剖析全部列，否则只剖析其中列出的 */
+    static Profile of(String[] header, Map<String, Measure> measures, Set<String> only) {
+        List<Integer> idx = new ArrayList<>();
+        List<ColumnProfile> cols = new ArrayList<>();
+        for (int i = 0; i < header.length; i++) {
+            String col = header[i].trim();
+            if (!only.isEmpty() && !only.contains(col)) continue;
+            idx.add(i);
+            cols.add(new ColumnProfile(col, measures.get(col)));
+        }
+        return new Profile(idx.stream().mapToInt(Integer::intValue).toArray(),
+                cols.toArray(new ColumnProfile[0]));
+    }
+
+    void add(CsvRow row) {
+        rows++;
+        int size = row.size();
+        for (int j = 0; j < index.length; j++) {
+            int i = index[j];
+            columns[j].add(i < size ? row.peek(i) : null);
+        }
+    }
+
+    /** 合并同一个文件另一部分的结果，两边的列必须相同 */
+    public void merge(Profile other) {
+        if (other.columns.length != columns.length) throw new IllegalArgumentException("剖析的列不一致");
+        rows += other.rows;
+        for (int j = 0; j < columns.length; j++) columns[j].merge(other.columns[j]);
+    }
+
+    public void write(DataOutput out) throws IOException {
+        out.writeLong(rows);
+        out.writeInt(columns.length);
+        for (int j = 0; j < columns.length; j++) {
+            out.writeInt(index[j]);
+            out.writeUTF(columns[j].name);
+            columns[j].write(out);
+        }
+    }
+
+    /** 读回 {@link #write} 的结果，measures 与剖析时相同 */
+    public static Profile read(DataInput in, Map<String, Measure> measures) throws IOException {
+        long rows = in.readLong();
+        int n = in.readInt();
+        int[] index = new int[n];
+        ColumnProfile[] columns = new ColumnProfile[n];
+        for (int j = 0; j < n; j++) {
+            index[j] = in.readInt();
+            String col = in.readUTF();
+            columns[j] = new ColumnProfile(col, measures.get(col));
+            columns[j].read(in);
+        }
+        Profile p = new Profile(index, columns);
+        p.rows = rows;
+        return p;
+    }
+
+    public void save(Path file) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)))) {
+            write(out);
+        }
+    }
+
+    public static Profile load(Path file, Map<String, Measure> measures) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            return read(in, measures);
+        }
+    }
+
+    /** 打印摘要，并把完整结果写成 dir 下的 name.profile.json，name 一般是输入文件去掉压缩后缀的名字 */
+    public void report(Path dir, String name) {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("[profile] %s：%d 行，剖析 %d 列%n", name, rows, columns.length));
+        for (ColumnProfile c : columns) sb.append(c.summary()).append(System.lineSeparator());
+        System.out.print(sb);
+
+        Json j = new Json();
+        j.open('{');
+        j.field("source").string(name);
+        j.field("rows").number(rows);
+        j.field("columns").open('[');
+        for (ColumnProfile c : columns) c.json(j);
+        j.close(']');
+        j.close('}');
+
+        Path out = dir.resolve(name + ".profile.json");
+        try {
+            Files.createDirectories(dir);
+            Path tmp = out.resolveSibling(out.getFileName() + ".tmp");
+            Files.writeString(tmp, j.toString(), StandardCharsets.UTF_8);
+            Files.move(tmp, out, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            System.out.println("剖析结果已写入: " + out.toAbsolutePath());
+        } catch (IOException e) {
+            System.err.println("写入剖析结果失败: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.example.datapreprocessor.profile;
+
+import com.example.datapreprocessor.io.Compression;
+import com.example.datapreprocessor.io.CsvRow;
+import com.example.datapreprocessor.pipeline.StatefulStage;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * 在预处理的同一遍扫描里顺带剖析各列，不修改也不丢弃任何行，排在所有阶段前面时看到的是原始数据。
+ * 状态就是可合并的 {@link Profile}，增量运行时随运行清单保存，结果覆盖全部行。
+ *
+ * <p>系统属性：</p>
+ * <ul>
+ *   <li>-Ddatapreprocessor.profile=目录 开启剖析，每个输入在目录下写一个 文件名.profile.json，未设置时不加这个阶段</li>
+ *   <li>-Ddatapreprocessor.profile.columns=a,b,c 只剖析这些列，用来限制额外开销；默认全部列</li>
+ * </ul>
+ * <p>这个阶段本身的耗时和分配和其它阶段一样记在 -Ddatapreprocessor.metrics 的阶段统计里。</p>
+ */
+public final class ProfileStage implements StatefulStage {
+
+    private static final String DIR = System.getProperty("datapreprocessor.profile");
+    private static final Set<String> ONLY = columns(System.getProperty("datapreprocessor.profile.columns", ""));
+
+    private final Map<String, Measure> measures;
+    private final Consumer<Profile> sink;
+    private Profile profile;
+
+    /** 剖析完把结果交给 sink */
+    public ProfileStage(Map<String, Measure> measures, Consumer<Profile> sink) {
+        this.measures = measures;
+        this.sink = sink;
+    }
+
+    /** 是否设置了 -Ddatapreprocessor.profile */
+    public static boolean enabled() {
+        return DIR != null;
+    }
+
+    /** 剖析 source，结束时打印摘要并写到 -Ddatapreprocessor.profile 目录 */
+    public static ProfileStage report(Path source, Map<String, Measure> measures) {
+        String name = Compression.baseName(source);
+        return new ProfileStage(measures, p -> report(p, name));
+    }
+
+    /** 打印 profile 并写到 -Ddatapreprocessor.profile 目录，供合并了各部分结果的调用方使用 */
+    public static void report(Profile profile, String name) {
+        profile.report(Paths.get(DIR), name);
+    }
+
+    @Override
+    public void begin(String[] header) {
+        profile = Profile.of(header, measures, ONLY);
+    }
+
+    @Override
+    public boolean process(CsvRow row) {
+        profile.add(row);
+        return true;
+    }
+
+    @Override
+    public void saveState(DataOutput out) throws IOException {
+        profile.write(out);
+    }
+
+    @Override
+    public void restoreState(DataInput in) throws IOException {
+        profile = Profile.read(in, measures);
+    }
+
+    @Override
+    public void end() {
+        sink.accept(profile);
+    }
+
+    private static Set<String> columns(String list) {
+        return list.isBlank() ? Set.of() : Set.copyOf(Arrays.asList(list.trim().split("\\s*,\\s*")));
+    }
+}
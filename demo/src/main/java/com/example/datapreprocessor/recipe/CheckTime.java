@@ -1,188 +1,137 @@
 package com.example.datapreprocessor.recipe;
 
-import com.opencsv.CSVReader;
-import com.opencsv.RFC4180Parser;
-import com.opencsv.RFC4180ParserBuilder;
-import com.opencsv.exceptions.CsvValidationException;
-import com.opencsv.CSVReaderBuilder;
-import com.opencsv.CSVWriter;
+import com.example.datapreprocessor.diag.Diagnostics;
+import com.example.datapreprocessor.diag.Rule;
+import com.example.datapreprocessor.io.Compression;
+import com.example.datapreprocessor.io.CsvField;
+import com.example.datapreprocessor.io.CsvRow;
+import com.example.datapreprocessor.pipeline.RowPipeline;
+import com.example.datapreprocessor.pipeline.RowStage;
 
 import java.io.IOException;
-import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.StandardOpenOption;
 
 public final class CheckTime {
 
+    static final String OUTPUT = "recipes_checktime.csv";
+
+    private static final int cookTimeIndex = 4;    // CookTime
+    private static final int prepTimeIndex = 5;    // PrepTime
+    private static final int totalTimeIndex = 6;   // TotalTime
+    private static final int recipeIdIndex = 0;    // RecipeId
+
+    private static final Rule TOTAL_MISMATCH = Diagnostics.rule("recipe.total-mismatch");
+    private static final Rule TOTAL_FIXED    = Diagnostics.rule("recipe.total-fixed");
+    private static final Rule FILLED         = Diagnostics.rule("recipe.filled");
+    private static final Rule BAD_FORMAT     = Diagnostics.rule("recipe.bad-format");
+
     public static void validate(Path csvPath) throws IOException {
-        Path target = csvPath.getParent().resolve("recipes_checktime.csv");
-        
-        RFC4180Parser parser = new RFC4180ParserBuilder().build();
-        int cookTimeIndex = 4;    // CookTime
-        int prepTimeIndex = 5;    // PrepTime
-        int totalTimeIndex = 6;   // TotalTime
-        int recipeIdIndex = 0;    // RecipeId
-
-        try (CSVReader reader = new CSVReaderBuilder(Files.newBufferedReader(csvPath, StandardCharsets.UTF_8))
-                .withCSVParser(parser)
-                .build();
-            CSVWriter writer = new CSVWriter(Files.newBufferedWriter(target, StandardCharsets.UTF_8,
-                     StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING))) {
-
-            String[] header = reader.readNext();
-            System.out.println("CSV 列: " + String.join(" | ", header));
-            writer.writeNext(header, false);
-
-            String[] line;
-
-            while ((line = reader.readNext()) != null) {
-                String recipeId = line[recipeIdIndex];
-                String cookTime = line[cookTimeIndex];
-                String prepTime = line[prepTimeIndex];
-                String totalTime = line[totalTimeIndex];
-
-                try {
-                    long actualTotalTime = parseTimeToSeconds(totalTime);
-                    long expectedTotalTime = parseTimeToSeconds(cookTime) + parseTimeToSeconds(prepTime);
-
-                    if (actualTotalTime != expectedTotalTime) {
-                        System.out.println("RecipeId: " + recipeId + " TotalTime 不等于 CookTime + PrepTime");
-                        System.out.println("   CookTime: " + cookTime + " (" + parseTimeToSeconds(cookTime) + " 秒)");
-                        System.out.println("   PrepTime: " + prepTime + " (" + parseTimeToSeconds(prepTime) + " 秒)");
-                        System.out.println("   实际 TotalTime: " + totalTime + " (" + actualTotalTime + " 秒)");
-                        System.out.println("   预期 TotalTime: " + expectedTotalTime + " 秒");
-                    }
-
-                    // 空或0 都视为缺失
-                    long cookSec = cookTime.isEmpty() || cookTime.equals("PT0S")   ? 0 : parseTimeToSeconds(cookTime);
-                    long prepSec = prepTime.isEmpty() || prepTime.equals("PT0S")   ? 0 : parseTimeToSeconds(prepTime);
-                    long totSec  = totalTime.isEmpty() || totalTime.equals("PT0S") ? 0 : parseTimeToSeconds(totalTime);
-
-                    int miss = 0;
-                    if (cookSec == 0) miss++;
-                    if (prepSec == 0) miss++;
-                    if (totSec  == 0) miss++;
-
-                    // 如果三个值齐全，验证并纠正TotalTime
-                    if (miss == 0) {
-                        long expect = cookSec + prepSec;
-                        if (totSec != expect) {
-                            line[totalTimeIndex] = formatSeconds(expect);   // 改成正确值
-                            totSec = expect;
-                            System.out.printf("RecipeId=%s 修正 TotalTime：%s -> %s%n",
-                                    recipeId, totalTime, line[totalTimeIndex]);
-                        }
-                        if (cookSec == 0) line[cookTimeIndex] = "";
-                        if (prepSec == 0) line[prepTimeIndex] = "";
-                        if (totSec  == 0) line[totalTimeIndex] = "";
-                        writer.writeNext(line, false);
-                        continue;   // 处理完毕，继续下一行
-                    }
-
-                    // 如果恰好缺失1个
-                    if (miss == 1) {
-                        try {
-                            if (cookSec == -1) {          // 缺 CookTime
-                                cookSec = totSec - prepSec;
-                                if (cookSec < 0) throw new IllegalArgumentException("CookTime 为负");
-                                line[cookTimeIndex] = formatSeconds(cookSec);
-                            } else if (prepSec == -1) {   // 缺 PrepTime
-                                prepSec = totSec - cookSec;
-                                if (prepSec < 0) throw new IllegalArgumentException("PrepTime 为负");
-                                line[prepTimeIndex] = formatSeconds(prepSec);
-                            } else {                      // 缺 TotalTime
-                                totSec = cookSec + prepSec;
-                                line[totalTimeIndex] = formatSeconds(totSec);
-                            }
-                            if (cookSec == 0) line[cookTimeIndex] = "";
-                            if (prepSec == 0) line[prepTimeIndex] = "";
-                            if (totSec  == 0) line[totalTimeIndex] = "";
-                            writer.writeNext(line, false);
-                            System.out.printf("RecipeId=%s 补全缺失值：CookTime=%s  PrepTime=%s  TotalTime=%s%n",
-                                    recipeId, line[cookTimeIndex], line[prepTimeIndex], line[totalTimeIndex]);
-                        } catch (IllegalArgumentException e) {
-                            // 出现负数 → 认为数据矛盾，删除该行
-                            System.out.printf("RecipeId=%s 数据矛盾（%s），丢弃本行%n", recipeId, e.getMessage());
-                            continue;   // 不写入结果文件，直接跳过
-                        }
-                    }
-
-                    // 如果缺失≥2个
-                    else if (miss >= 2) {
-                        if (cookSec == 0) line[cookTimeIndex] = "";
-                        if (prepSec == 0) line[prepTimeIndex] = "";
-                        if (totSec  == 0) line[totalTimeIndex] = "";
-                        writer.writeNext(line, false);
-                    }
-
-                } catch (IllegalArgumentException e) {
-                    System.out.println("RecipeId: " + recipeId + " 格式错误");
-                    System.out.println("   CookTime: " + cookTime);
-                    System.out.println("   PrepTime: " + prepTime);
-                    System.out.println("   TotalTime: " + totalTime);
-                }
+        Path target = Compression.output(csvPath.toAbsolutePath().getParent().resolve(OUTPUT));
+
+        new RowPipeline().add(stage()).run(csvPath, target);
+    }
+
+    public static RowStage stage() {
+        return new RowStage() {
+            // 三个时长列的视图逐行复用，正常的行不为它们生成 String
+            private final CsvField cook = new CsvField();
+            private final CsvField prep = new CsvField();
+            private final CsvField total = new CsvField();
+
+            @Override
+            public String debugFileName() {
+                return OUTPUT;
             }
 
-            System.out.println("验证完成");
+            @Override
+            public void begin(String[] header) {
+                System.out.println("CSV 列: " + String.join(" | ", header));
+            }
 
-        } catch (CsvValidationException e) {
-            throw new IOException("CSV 格式错误", e);
-        }
+            @Override
+            public boolean process(CsvRow row) {
+                return check(row, row.field(cookTimeIndex, cook), row.field(prepTimeIndex, prep),
+                        row.field(totalTimeIndex, total));
+            }
+
+            @Override
+            public void end() {
+                System.out.println("验证完成");
+            }
+        };
     }
 
-    private static long parseTimeToSeconds(String time) {
-        if (time == null || time.isEmpty()) {
-            return 0;
+    /**
+     * 校验并修正一行，返回 false 表示丢弃。
+     * 诊断只带记录的字节偏移：阶段看到的行数在增量运行时不是文件里的行号。
+     * RecipeId 和各列的原文只在要上报时才取成 String。
+     */
+    private static boolean check(CsvRow row, CsvField cookTime, CsvField prepTime, CsvField totalTime) {
+        // 每个单元格只解析一次；任一非法即整行按格式错误丢弃
+        long cookSec = DurationCodec.parse(cookTime);
+        long prepSec = DurationCodec.parse(prepTime);
+        long totSec  = DurationCodec.parse(totalTime);
+        if (cookSec == DurationCodec.INVALID || prepSec == DurationCodec.INVALID || totSec == DurationCodec.INVALID) {
+            BAD_FORMAT.report(-1, row.offset(), "RecipeId: %s 格式错误%n   CookTime: %s%n   PrepTime: %s%n   TotalTime: %s",
+                    row.get(recipeIdIndex), cookTime.toString(), prepTime.toString(), totalTime.toString());
+            return false;
+        }
+
+        long expectedTotalTime = cookSec + prepSec;
+        if (totSec != expectedTotalTime) {
+            TOTAL_MISMATCH.report(-1, row.offset(), "RecipeId: %s TotalTime 不等于 CookTime + PrepTime%n"
+                            + "   CookTime: %s (%d 秒)%n"
+                            + "   PrepTime: %s (%d 秒)%n"
+                            + "   实际 TotalTime: %s (%d 秒)%n"
+                            + "   预期 TotalTime: %d 秒",
+                    row.get(recipeIdIndex), cookTime.toString(), cookSec, prepTime.toString(), prepSec,
+                    totalTime.toString(), totSec, expectedTotalTime);
         }
 
-        long totalSeconds = 0;
-        boolean inPeriod = false;
-        boolean inTime = false;
-        int number = 0;
-
-        for (int i = 0; i < time.length(); i++) {
-            char c = time.charAt(i);
-
-            if (Character.isDigit(c)) {
-                number = number * 10 + (c - '0');
-            } else if (c == 'P') {
-                inPeriod = true;
-            } else if (c == 'T') {
-                inTime = true;
-            } else if (inPeriod || inTime) {
-                if (c == 'W') {
-                    totalSeconds += number * 7 * 24 * 60 * 60;
-                } else if (c == 'D') {
-                    totalSeconds += number * 24 * 60 * 60;
-                } else if (c == 'H') {
-                    totalSeconds += number * 60 * 60;
-                } else if (c == 'M') {
-                    totalSeconds += number * 60;
-                } else if (c == 'S') {
-                    totalSeconds += number;
-                } else {
-                    throw new IllegalArgumentException("时间格式错误");
-                }
-                number = 0;
-            } else {
-                throw new IllegalArgumentException("时间格式错误");
+        // 空或 PT0S 解析出来都是 0，视为缺失
+        int miss = 0;
+        if (cookSec == 0) miss++;
+        if (prepSec == 0) miss++;
+        if (totSec  == 0) miss++;
+
+        // 如果三个值齐全，验证并纠正TotalTime
+        if (miss == 0) {
+            long expect = cookSec + prepSec;
+            if (totSec != expect) {
+                String old = totalTime.toString();   // set 之后视图会指向新值
+                row.set(totalTimeIndex, DurationCodec.format(expect));   // 改成正确值
+                TOTAL_FIXED.report(-1, row.offset(), "RecipeId=%s 修正 TotalTime：%s -> %s",
+                        row.get(recipeIdIndex), old, row.get(totalTimeIndex));
             }
+            return true;   // 处理完毕，继续下一行
         }
 
-        return totalSeconds;
+        // 如果恰好缺失1个：按 CookTime + PrepTime 重算 TotalTime
+        if (miss == 1) {
+            totSec = cookSec + prepSec;
+            row.set(totalTimeIndex, DurationCodec.format(totSec));
+        }
+        // 缺失的一律写成空串
+        if (cookSec == 0) row.set(cookTimeIndex, "");
+        if (prepSec == 0) row.set(prepTimeIndex, "");
+        if (totSec  == 0) row.set(totalTimeIndex, "");
+        if (miss == 1) {
+            FILLED.report(-1, row.offset(), "RecipeId=%s 补全缺失值：CookTime=%s  PrepTime=%s  TotalTime=%s",
+                    row.get(recipeIdIndex), row.get(cookTimeIndex), row.get(prepTimeIndex), row.get(totalTimeIndex));
+        }
+        return true;
+    }
+
+    /** 非法格式抛 IllegalArgumentException；行内校验直接用 {@link DurationCodec} */
+    static long parseTimeToSeconds(String time) {
+        if (time == null) return 0;
+        long sec = DurationCodec.parse(time);
+        if (sec == DurationCodec.INVALID) throw new IllegalArgumentException("时间格式错误");
+        return sec;
     }
 
     /** 秒 -> PTxxHxxM 最简形式 */
-    private static String formatSeconds(long sec) {
-        if (sec == 0) return "PT0S";
-        long h = sec / 3600;
-        long m = (sec % 3600) / 60;
-        long s = sec % 60;
-        StringBuilder sb = new StringBuilder("PT");
-        if (h > 0) sb.append(h).append('H');
-        if (m > 0) sb.append(m).append('M');
-        if (s > 0) sb.append(s).append('S');
-        return sb.toString();
+    static String formatSeconds(long sec) {
+        return DurationCodec.format(sec);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,82 @@
+package com.example.datapreprocessor.recipe;
+
+/**
+ * CheckTime 用的 ISO-8601 时长编解码。
+ *
+ * <p>解析规则与原来的 parseTimeToSeconds 完全一致（P/T 之后的 W/D/H/M/S 累加，M 一律按分钟），
+ * 但全程用 long 运算，非法输入返回 {@link #INVALID} 而不是抛异常，不产生任何对象。
+ * 格式化结果按分钟缓存，菜谱里常见的时长（一周以内的整分钟）第一次之后不再分配。</p>
+ */
+final class DurationCodec {
+
+    /** 非法格式 */
+    static final long INVALID = -1;
+
+    private static final int CACHED_MINUTES = 7 * 24 * 60;
+
+    // 多线程下最坏是重复生成同一个字符串，String 不可变，可以安全地不加锁发布
+    private static final String[] CACHE = new String[CACHED_MINUTES + 1];
+
+    /** 空串记为 0 秒 */
+    static long parse(CharSequence s) {
+        return parse(s, 0, s.length());
+    }
+
+    static long parse(CharSequence s, int from, int to) {
+        long total = 0;
+        long number = 0;
+        boolean designator = false;   // 已经读到 P 或 T
+        for (int i = from; i < to; i++) {
+            char c = s.charAt(i);
+            if (c >= '0' && c <= '9') {
+                number = number * 10 + (c - '0');
+                continue;
+            }
+            switch (c) {
+                case 'P', 'T' -> {
+                    designator = true;
+                    continue;
+                }
+                case 'W' -> total += number * 7 * 24 * 60 * 60;
+                case 'D' -> total += number * 24 * 60 * 60;
+                case 'H' -> total += number * 60 * 60;
+                case 'M' -> total += number * 60;
+                case 'S' -> total += number;
+                default -> {
+                    return INVALID;
+                }
+            }
+            if (!designator) return INVALID;
+            number = 0;
+        }
+        return total;
+    }
+
+    /** 秒 -> PTxxHxxM 最简形式；0 为 PT0S */
+    static String format(long sec) {
+        if (sec >= 0 && sec % 60 == 0 && sec / 60 <= CACHED_MINUTES) {
+            int m = (int) (sec / 60);
+            String s = CACHE[m];
+            if (s == null) {
+                s = build(sec);
+                CACHE[m] = s;
+            }
+            return s;
+        }
+        return build(sec);
+    }
+
+    private static String build(long sec) {
+        if (sec == 0) return "PT0S";
+        long h = sec / 3600;
+        long m = (sec % 3600) / 60;
+        long s = sec % 60;
+        StringBuilder sb = new StringBuilder("PT");
+        if (h > 0) sb.append(h).append('H');
+        if (m > 0) sb.append(m).append('M');
+        if (s > 0) sb.append(s).append('S');
+        return sb.toString();
+    }
+
+    private DurationCodec() {}
+}
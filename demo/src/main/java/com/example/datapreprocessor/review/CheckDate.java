@@ -1,70 +1,103 @@
 package com.example.datapreprocessor.review;
 
-import com.opencsv.CSVReader;
-// import com.opencsv.RFC4180Parser;
-import com.opencsv.RFC4180ParserBuilder;
-import com.opencsv.CSVReaderBuilder;
-import com.opencsv.exceptions.CsvValidationException;
+import com.example.datapreprocessor.diag.Diagnostics;
+import com.example.datapreprocessor.diag.Rule;
+import com.example.datapreprocessor.io.CsvRow;
+import com.example.datapreprocessor.pipeline.RowPipeline;
+import com.example.datapreprocessor.pipeline.RowStage;
+import com.example.datapreprocessor.pipeline.StatefulStage;
 
+import java.io.DataInput;
+import java.io.DataOutput;
 import java.io.IOException;
-import java.nio.file.Files;
 import java.nio.file.Path;
 import java.time.Instant;
 import java.time.format.DateTimeParseException;
 import java.util.Arrays;
 
 public final class CheckDate {
+
+    private static final Rule INVERTED   = Diagnostics.rule("review.date-inverted");
+    private static final Rule BAD_FORMAT = Diagnostics.rule("review.date-format");
+
     public static long validate(Path csvPath) throws IOException {
-        long invalidRows = 0;
+        Stage stage = new Stage();
+        new RowPipeline().add(stage).run(csvPath, null);
+        return stage.invalidRows;
+    }
 
-        try (CSVReader reader =
-                 new CSVReaderBuilder(Files.newBufferedReader(csvPath))
-                     .withCSVParser(new RFC4180ParserBuilder().build())
-                     .build()) {
+    /** 只检查不修改，所有行原样通过 */
+    public static RowStage stage() {
+        return new Stage();
+    }
 
-            String[] header = reader.readNext();
-            int submittedIdx = Arrays.asList(header).indexOf("DateSubmitted");
-            int modifiedIdx  = Arrays.asList(header).indexOf("DateModified");
+    private static final class Stage implements StatefulStage {
+        private int submittedIdx;
+        private int modifiedIdx;
+        private long invalidRows = 0;
+        private long row = 1;          // 表头后第一行
+
+        @Override
+        public void begin(String[] header) {
+            submittedIdx = Arrays.asList(header).indexOf("DateSubmitted");
+            modifiedIdx  = Arrays.asList(header).indexOf("DateModified");
             if (submittedIdx < 0 || modifiedIdx < 0) {
                 throw new IllegalArgumentException("CSV 缺少 DateSubmitted 或 DateModified 列");
             }
+        }
 
-            String[] line;
-            long row = 1;          // 表头后第一行
-            while ((line = reader.readNext()) != null) {
-                row++;
-                if (line.length <= Math.max(submittedIdx, modifiedIdx)) continue;
+        @Override
+        public boolean process(CsvRow line) {
+            row++;
+            if (line.size() <= Math.max(submittedIdx, modifiedIdx)) return true;
 
-                String submitted = line[submittedIdx].trim();
-                String modified  = line[modifiedIdx].trim();
+            String submitted = line.get(submittedIdx).trim();
+            String modified  = line.get(modifiedIdx).trim();
 
-                // 缺失不校验
-                if (submitted.isEmpty() || modified.isEmpty()) continue;
+            // 缺失不校验
+            if (submitted.isEmpty() || modified.isEmpty()) return true;
 
+            // 固定格式直接比较 epoch 毫秒，只有不规则写法才创建 Instant
+            long sub = TimestampParser.parse(submitted);
+            long mod = TimestampParser.parse(modified);
+            boolean inverted;
+            if (sub != TimestampParser.IRREGULAR && mod != TimestampParser.IRREGULAR) {
+                inverted = sub > mod;
+            } else {
                 try {
-                    Instant sub = Instant.parse(submitted);
-                    Instant mod = Instant.parse(modified);
-
-                    System.out.printf(submitted + modified + "\n");
-                    if (sub.isAfter(mod)) {
-                        invalidRows++;
-                        System.out.printf("Row %d 逆序: ReviewId=%s  DateSubmitted=%s  DateModified=%s%n",
-                                row, line[0], submitted, modified);
-                    }
+                    inverted = Instant.parse(submitted).isAfter(Instant.parse(modified));
                 } catch (DateTimeParseException e) {
-                    System.out.printf("Row %d 日期格式非法: %s / %s%n", row, submitted, modified);
+                    BAD_FORMAT.report(row, line.offset(), "Row %d 日期格式非法: %s / %s", row, submitted, modified);
+                    return true;
                 }
             }
+            if (inverted) {
+                invalidRows++;
+                INVERTED.report(row, line.offset(), "Row %d 逆序: ReviewId=%s  DateSubmitted=%s  DateModified=%s",
+                        row, line.get(0), submitted, modified);
+            }
+            return true;
+        }
 
+        @Override
+        public void end() {
             if (invalidRows == 0) {
                 System.out.println("所有 DateSubmitted ≤ DateModified");
             } else {
                 System.out.printf("共 %d 行逆序%n", invalidRows);
             }
-            return invalidRows;
+        }
+
+        @Override
+        public void saveState(DataOutput out) throws IOException {
+            out.writeLong(invalidRows);
+            out.writeLong(row);
+        }
 
-        } catch (CsvValidationException e) {
-            throw new IOException("CSV 解析失败", e);
+        @Override
+        public void restoreState(DataInput in) throws IOException {
+            invalidRows = in.readLong();
+            row = in.readLong();
         }
     }
-}
\ No newline at end of file
+}
@@ -1,31 +1,124 @@
 package com.example.datapreprocessor.review;
 
+import com.example.datapreprocessor.coerce.NumericCoercionStage;
+import com.example.datapreprocessor.coerce.NumericType;
+import com.example.datapreprocessor.columnar.ColumnType;
+import com.example.datapreprocessor.columnar.ColumnarWriter;
+import com.example.datapreprocessor.io.Compression;
+import com.example.datapreprocessor.pipeline.RowPipeline;
+import com.example.datapreprocessor.pipeline.RowStage;
+import com.example.datapreprocessor.profile.Measure;
+import com.example.datapreprocessor.profile.ProfileStage;
+import com.example.datapreprocessor.shard.ShardCoordinator;
+import com.example.datapreprocessor.shard.ShardWorker;
+
 import java.io.IOException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
 // import java.io.*;
 
 public class ReviewPreprocessor {
+    static final String OUTPUT = "reviews_recipeid2int.csv";
+
+    /** 需要转成整数的列 */
+    static final Map<String, NumericType> NUMERIC = Map.of("RecipeId", NumericType.LONG);
+
+    /** 列存输出中按整数或字典编码的列，其余按字符串 */
+    static final Map<String, ColumnType> COLUMNS = Map.of(
+            "ReviewId", ColumnType.INT,
+            "RecipeId", ColumnType.INT,
+            "AuthorId", ColumnType.INT,
+            "Rating", ColumnType.INT,
+            "Likes", ColumnType.INT);
+
+    /** 剖析时换算成时间戳统计分布的列，见 {@link ProfileStage} */
+    public static final Map<String, Measure> MEASURES = Map.of(
+            "DateSubmitted", Measure.epochMillis(Measure::instant),
+            "DateModified", Measure.epochMillis(Measure::instant));
+
     public static void main(String[] args) {
-        Path inputPath = Paths.get("Project-1-for-midterm/reviews.csv");
+        Path inputPath = Compression.input(Paths.get("Project-1-for-midterm/reviews.csv"));
 
-        // 检查是否有重复的 ReviewId
-        CheckReviewIdDuplication.check(inputPath);
+        // --debug 时额外输出每一步的中间文件；--full 时忽略上次的运行清单，全量重算；
+        // --columnar 时在 CSV 旁边再写一份同名 .col 列存文件；--resume 时途中写检查点，并从上次中断留下的检查点继续；
+        // --shards=N 时分成 N 片由多个进程处理
+        boolean debug = Arrays.asList(args).contains("--debug");
+        boolean full = Arrays.asList(args).contains("--full");
+        boolean columnar = Arrays.asList(args).contains("--columnar");
+        boolean resume = Arrays.asList(args).contains("--resume");
+        int shards = ShardCoordinator.shards(args);
 
-        // 将 RecipeId 转换为整数类型
         try {
-            RecipeId2Int.convert2int(inputPath);
+            Path target = shards > 1
+                    ? processSharded(inputPath, shards, columnar)
+                    : process(inputPath, debug, !full, columnar, resume);
+            System.out.println("处理完成，已输出到: " + target.toAbsolutePath());
         } catch (IOException e) {
             System.err.println("处理文件时出错: " + e.getMessage());
             e.printStackTrace();
         }
+    }
 
-        // 检查 DateSubmitted ≤ DateModified
-        try {
-            CheckDate.validate(inputPath);
-        } catch (IOException e) {
-            System.err.println("处理文件时出错: " + e.getMessage());
-            e.printStackTrace();
+    /** 对 inputPath 跑完整的评论预处理，返回最终输出文件 */
+    public static Path process(Path inputPath, boolean debug, boolean incremental) throws IOException {
+        return process(inputPath, debug, incremental, false);
+    }
+
+    /** columnar 为 true 时同时写出列存文件，此时不做增量运行 */
+    public static Path process(Path inputPath, boolean debug, boolean incremental, boolean columnar) throws IOException {
+        return process(inputPath, debug, incremental, columnar, false);
+    }
+
+    /** resume 为 true 时途中写检查点，并从上次中断留下的检查点继续，没有检查点则照常运行 */
+    public static Path process(Path inputPath, boolean debug, boolean incremental, boolean columnar, boolean resume)
+            throws IOException {
+        RowPipeline pipeline = new RowPipeline()
+                .debug(debug)
+                .incremental(incremental)
+                .resume(resume);
+        if (ProfileStage.enabled()) {
+            pipeline.add(ProfileStage.report(inputPath, MEASURES));   // 排在最前，剖析的是原始数据
+        }
+        for (RowStage stage : stages()) {
+            pipeline.add(stage);
+        }
+
+        Path target = outputFor(inputPath);
+        if (columnar) {
+            pipeline.add(ColumnarWriter.stage(ColumnarWriter.pathFor(target), COLUMNS));
+        }
+        pipeline.run(inputPath, target);
+        return target;
+    }
+
+    /** 分成 shards 片交给多个进程处理，见 {@link ShardCoordinator}；总是全量重算 */
+    public static Path processSharded(Path inputPath, int shards, boolean columnar) throws IOException {
+        Path target = outputFor(inputPath);
+        ShardCoordinator.runPipeline(ShardWorker.REVIEWS, inputPath, target, shards);
+        if (columnar) {
+            ColumnarWriter.convert(target, ColumnarWriter.pathFor(target), COLUMNS);
         }
+        return target;
+    }
+
+    private static Path outputFor(Path inputPath) {
+        return Compression.output(inputPath.toAbsolutePath().getParent().resolve(OUTPUT));
+    }
+
+    /** 流水线的各阶段，按执行顺序；分片运行的工作进程也用它 */
+    public static List<RowStage> stages() {
+        return stages(CheckReviewIdDuplication.stage());
+    }
+
+    /** dedup 为查重阶段；常驻进程里各批次复用同一个，去重状态跨批次保留 */
+    public static List<RowStage> stages(RowStage dedup) {
+        return List.of(
+                dedup,                                       // 检查是否有重复的 ReviewId
+                new NumericCoercionStage(OUTPUT, NUMERIC),   // 将 RecipeId 转换为整数类型
+                CheckDate.stage()                            // 检查 DateSubmitted ≤ DateModified
+        );
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,74 @@
+package com.example.datapreprocessor.review;
+
+/**
+ * 固定格式 {@code yyyy-MM-ddTHH:mm:ssZ} / {@code yyyy-MM-ddTHH:mm:ss.SSSZ} 的时间戳解析。
+ *
+ * <p>逐字符按位置读取，直接算出 epoch 毫秒，不创建任何对象。
+ * 其他写法（时区偏移、非三位小数、越界字段等）返回 {@link #IRREGULAR}，由调用方退回 {@code Instant.parse}。</p>
+ */
+public final class TimestampParser {
+
+    /** 不是固定格式，需要走通用解析 */
+    public static final long IRREGULAR = Long.MIN_VALUE;
+
+    public static long parse(CharSequence s) {
+        int len = s.length();
+        if (len != 20 && len != 24) return IRREGULAR;
+        if (s.charAt(4) != '-' || s.charAt(7) != '-' || s.charAt(10) != 'T'
+                || s.charAt(13) != ':' || s.charAt(16) != ':' || s.charAt(len - 1) != 'Z') {
+            return IRREGULAR;
+        }
+
+        int year   = digits(s, 0, 4);
+        int month  = digits(s, 5, 2);
+        int day    = digits(s, 8, 2);
+        int hour   = digits(s, 11, 2);
+        int minute = digits(s, 14, 2);
+        int second = digits(s, 17, 2);
+        int millis = 0;
+        if (len == 24) {
+            if (s.charAt(19) != '.') return IRREGULAR;
+            millis = digits(s, 20, 3);
+        }
+        // 任一字段含非数字时 digits 返回负数
+        if ((year | month | day | hour | minute | second | millis) < 0) return IRREGULAR;
+        if (month < 1 || month > 12 || day < 1 || day > daysInMonth(year, month)
+                || hour > 23 || minute > 59 || second > 59) {
+            return IRREGULAR;
+        }
+
+        long epochDay = epochDay(year, month, day);
+        return ((epochDay * 86_400 + hour * 3600 + minute * 60 + second) * 1000) + millis;
+    }
+
+    /** 非数字返回 -1 */
+    private static int digits(CharSequence s, int from, int n) {
+        int v = 0;
+        for (int i = from; i < from + n; i++) {
+            int d = s.charAt(i) - '0';
+            if (d < 0 || d > 9) return -1;
+            v = v * 10 + d;
+        }
+        return v;
+    }
+
+    private static int daysInMonth(int year, int month) {
+        return switch (month) {
+            case 2 -> (year % 4 == 0 && (year % 100 != 0 || year % 400 == 0)) ? 29 : 28;
+            case 4, 6, 9, 11 -> 30;
+            default -> 31;
+        };
+    }
+
+    /** 公历日期 -> 1970-01-01 起的天数（days-from-civil，年份从 3 月起算） */
+    private static long epochDay(int year, int month, int day) {
+        int y = month <= 2 ? year - 1 : year;
+        int era = y / 400;                                   // 年份只有四位，不会为负
+        int yoe = y - era * 400;
+        int doy = (153 * (month + (month > 2 ? -3 : 9)) + 2) / 5 + day - 1;
+        int doe = yoe * 365 + yoe / 4 - yoe / 100 + doy;
+        return (long) era * 146_097 + doe - 719_468;
+    }
+
+    private TimestampParser() {}
+}
@@ -0,0 +1,294 @@
+package com.example.datapreprocessor.schedule;
+
+import com.example.datapreprocessor.metrics.Metrics;
+import com.example.datapreprocessor.metrics.TaskEvent;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * 按依赖关系并发执行的一组步骤。
+ *
+ * <p>每个节点声明自己占用的 CPU 和 I/O 份额，两种预算都有空余时才会启动；
+ * 就绪节点按"到终点的最长预计耗时"排序，优先启动关键路径上的节点，放不下的让给后面小的节点。
+ * 某个节点失败时，依赖它的节点全部跳过，其余节点照常执行。结束后打印各节点用时和实际的关键路径。</p>
+ *
+ * <p>系统属性：</p>
+ * <ul>
+ *   <li>-Ddatapreprocessor.cpu=N CPU 预算，默认为可用处理器数</li>
+ *   <li>-Ddatapreprocessor.io=N I/O 预算，默认 2</li>
+ * </ul>
+ */
+public final class TaskGraph {
+
+    /** 节点要执行的步骤 */
+    @FunctionalInterface
+    public interface Action {
+        void run() throws Exception;
+    }
+
+    private enum Status { PENDING, DONE, FAILED, SKIPPED }
+
+    /** 图中的一个步骤，通过 {@link TaskGraph#add} 创建 */
+    public static final class Node {
+        private final String name;
+        private final Action action;
+        private final List<String> after = new ArrayList<>();
+        private int cpu = 1;
+        private int io = 0;
+        private long cost = 1;
+
+        // 以下只在调度线程上读写
+        private final List<Node> deps = new ArrayList<>();
+        private final List<Node> dependents = new ArrayList<>();
+        private int waiting;
+        private long priority;
+        private int cpuGranted;
+        private int ioGranted;
+        private Status status = Status.PENDING;
+
+        // 由工作线程写入，经完成队列发布给调度线程
+        private long start;
+        private long end;
+        private Throwable error;
+
+        private Node(String name, Action action) {
+            this.name = name;
+            this.action = action;
+        }
+
+        /** 在这些节点成功之后才执行 */
+        public Node after(String... names) {
+            Collections.addAll(after, names);
+            return this;
+        }
+
+        /** 占用的 CPU 份额，默认 1 */
+        public Node cpu(int n) {
+            cpu = Math.max(0, n);
+            return this;
+        }
+
+        /** 占用的 I/O 份额，默认 0 */
+        public Node io(int n) {
+            io = Math.max(0, n);
+            return this;
+        }
+
+        /** 预计耗时（任意单位，只用于排优先级），默认 1 */
+        public Node cost(long c) {
+            cost = Math.max(1, c);
+            return this;
+        }
+
+        /** 以输入文件大小作为预计耗时，文件不存在时记为 1 */
+        public Node cost(Path input) {
+            try {
+                return cost(Files.size(input));
+            } catch (IOException e) {
+                return cost(1);
+            }
+        }
+    }
+
+    private final Map<String, Node> nodes = new LinkedHashMap<>();
+    private final int cpuBudget;
+    private final int ioBudget;
+
+    public TaskGraph() {
+        this(Integer.getInteger("datapreprocessor.cpu", Runtime.getRuntime().availableProcessors()),
+                Integer.getInteger("datapreprocessor.io", 2));
+    }
+
+    public TaskGraph(int cpuBudget, int ioBudget) {
+        this.cpuBudget = Math.max(1, cpuBudget);
+        this.ioBudget = Math.max(1, ioBudget);
+    }
+
+    public Node add(String name, Action action) {
+        if (nodes.containsKey(name)) throw new IllegalArgumentException("重复的节点: " + name);
+        Node n = new Node(name, action);
+        nodes.put(name, n);
+        return n;
+    }
+
+    /** 执行全部节点，全部成功时返回 true */
+    public boolean run() {
+        List<Node> order = resolve();
+        long t0 = System.nanoTime();
+
+        List<Node> ready = new ArrayList<>();
+        for (Node n : order) {
+            if (n.waiting == 0) ready.add(n);
+        }
+        Comparator<Node> byPriority = Comparator.comparingLong((Node n) -> n.priority).reversed();
+
+        BlockingQueue<Node> finished = new LinkedBlockingQueue<>();
+        ExecutorService pool = Executors.newFixedThreadPool(Math.max(1, Math.min(order.size(), cpuBudget + ioBudget)));
+        int cpuFree = cpuBudget;
+        int ioFree = ioBudget;
+        int remaining = order.size();
+        boolean ok = true;
+        try {
+            while (remaining > 0) {
+                // 按优先级派发，预算放不下的先跳过，让后面小的节点补空
+                ready.sort(byPriority);
+                for (int k = 0; k < ready.size(); k++) {
+                    Node n = ready.get(k);
+                    int c = Math.min(n.cpu, cpuBudget);
+                    int i = Math.min(n.io, ioBudget);
+                    if (c > cpuFree || i > ioFree) continue;
+                    cpuFree -= c;
+                    ioFree -= i;
+                    n.cpuGranted = c;
+                    n.ioGranted = i;
+                    ready.remove(k--);
+                    pool.execute(() -> execute(n, finished));
+                }
+
+                Node f = finished.take();
+                remaining--;
+                cpuFree += f.cpuGranted;
+                ioFree += f.ioGranted;
+                Metrics.task(f.name, f.error == null ? "done" : "failed", f.end - f.start);
+                if (f.error == null) {
+                    f.status = Status.DONE;
+                    for (Node d : f.dependents) {
+                        if (--d.waiting == 0 && d.status == Status.PENDING) ready.add(d);
+                    }
+                } else {
+                    ok = false;
+                    f.status = Status.FAILED;
+                    System.err.println("[" + f.name + "] 执行失败: " + f.error.getMessage());
+                    f.error.printStackTrace();
+                    remaining -= skipDependents(f);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } finally {
+            pool.shutdownNow();
+        }
+
+        report(order, t0, System.nanoTime());
+        return ok;
+    }
+
+    private static void execute(Node n, BlockingQueue<Node> finished) {
+        TaskEvent event = new TaskEvent();
+        event.begin();
+        n.start = System.nanoTime();
+        try {
+            n.action.run();
+        } catch (Throwable e) {
+            n.error = e;
+        }
+        n.end = System.nanoTime();
+        if (event.shouldCommit()) {
+            event.task = n.name;
+            event.succeeded = n.error == null;
+            event.commit();
+        }
+        finished.add(n);
+    }
+
+    /** 把失败节点下游的所有节点标为跳过，返回新跳过的个数 */
+    private static int skipDependents(Node failed) {
+        int skipped = 0;
+        Deque<Node> todo = new ArrayDeque<>(failed.dependents);
+        while (!todo.isEmpty()) {
+            Node d = todo.poll();
+            if (d.status != Status.PENDING) continue;
+            d.status = Status.SKIPPED;
+            Metrics.task(d.name, "skipped", 0);
+            skipped++;
+            todo.addAll(d.dependents);
+        }
+        return skipped;
+    }
+
+    /** 连接依赖、检查环，并按拓扑逆序算出每个节点到终点的最长预计耗时 */
+    private List<Node> resolve() {
+        for (Node n : nodes.values()) {
+            for (String name : n.after) {
+                Node d = nodes.get(name);
+                if (d == null) throw new IllegalArgumentException(n.name + " 依赖的节点不存在: " + name);
+                n.deps.add(d);
+                d.dependents.add(n);
+            }
+            n.waiting = n.deps.size();
+        }
+
+        List<Node> order = new ArrayList<>();
+        Map<Node, Integer> indegree = new LinkedHashMap<>();
+        for (Node n : nodes.values()) {
+            indegree.put(n, n.deps.size());
+            if (n.deps.isEmpty()) order.add(n);
+        }
+        for (int k = 0; k < order.size(); k++) {
+            for (Node d : order.get(k).dependents) {
+                if (indegree.merge(d, -1, Integer::sum) == 0) order.add(d);
+            }
+        }
+        if (order.size() != nodes.size()) {
+            List<String> cycle = new ArrayList<>();
+            for (Node n : nodes.values()) {
+                if (!order.contains(n)) cycle.add(n.name);
+            }
+            throw new IllegalArgumentException("节点之间存在循环依赖: " + String.join(", ", cycle));
+        }
+
+        for (int k = order.size() - 1; k >= 0; k--) {
+            Node n = order.get(k);
+            long down = 0;
+            for (Node d : n.dependents) down = Math.max(down, d.priority);
+            n.priority = n.cost + down;
+        }
+        return order;
+    }
+
+    private static void report(List<Node> order, long t0, long t1) {
+        System.out.println("节点                     开始      用时  状态");
+        Node last = null;
+        for (Node n : order) {
+            if (n.status == Status.SKIPPED) {
+                System.out.printf("%-22s %7s %8s  跳过%n", n.name, "-", "-");
+                continue;
+            }
+            System.out.printf("%-22s %6.2fs %7.2fs  %s%n", n.name, (n.start - t0) / 1e9, (n.end - n.start) / 1e9,
+                    n.status == Status.DONE ? "完成" : "失败");
+            if (last == null || n.end > last.end) last = n;
+        }
+        if (last == null) return;
+
+        // 从最后结束的节点往回走，每一步取最晚结束的前驱，即实际卡住它的那个节点
+        List<String> path = new ArrayList<>();
+        long busy = 0;
+        for (Node n = last; n != null; ) {
+            path.add(n.name);
+            busy += n.end - n.start;
+            Node gate = null;
+            for (Node d : n.deps) {
+                if (gate == null || d.end > gate.end) gate = d;
+            }
+            n = gate;
+        }
+        Collections.reverse(path);
+        System.out.printf("关键路径: %s（节点用时合计 %.2f 秒，总用时 %.2f 秒）%n",
+                String.join(" → ", path), busy / 1e9, (t1 - t0) / 1e9);
+    }
+}
@@ -0,0 +1,442 @@
+package com.example.datapreprocessor.shard;
+
+import com.example.datapreprocessor.dedup.IdDictionaryFile;
+import com.example.datapreprocessor.dedup.IdSet;
+import com.example.datapreprocessor.io.Compression;
+import com.example.datapreprocessor.io.CsvInput;
+import com.example.datapreprocessor.io.CsvRow;
+import com.example.datapreprocessor.io.CsvRowWriter;
+import com.example.datapreprocessor.io.ListCell;
+import com.example.datapreprocessor.io.ParallelCsvReader;
+import com.example.datapreprocessor.io.RowReader;
+import com.example.datapreprocessor.profile.Profile;
+import com.example.datapreprocessor.profile.ProfileStage;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+
+/**
+ * 多进程分片运行的协调进程：按主 ID 的哈希把输入行分成 N 片，每片交给一个本机的 {@link ShardWorker} 进程，
+ * 全部完成后按原来的行序合并各片输出，并汇总各片的诊断计数和日志。
+ *
+ * <p>同一个 ID 的所有行落在同一片，各片各自查重的结果合起来就是全局结果；每个进程只持有 1/N 的状态，
+ * 堆小了 GC 停顿也短。协调进程只顺序读写文件：分片时每行记一个字节的片号（路由文件），
+ * 合并时照路由文件依次从各片输出取行，因此输出与单进程运行逐字节一致。</p>
+ *
+ * <p>关注列表修复还需要跨片的数据：协调进程用 {@link IdDictionaryFile}（堆外）按首次出现顺序给 ID 编名次，
+ * 把每条关注边按被关注者洗牌到它所在的片，各片用外部排序拼出列表，见 {@link ShardWorker}。</p>
+ *
+ * <p>分片文件写在输出目录下的临时目录里，成功后删除，失败时保留以便排查。
+ * 分片运行总是全量重算，不支持 debug、增量和断点续跑。系统属性：</p>
+ * <ul>
+ *   <li>-Ddatapreprocessor.shard.heap=2g 每个工作进程的最大堆，默认由 JVM 决定</li>
+ *   <li>其余 -Ddatapreprocessor.* 原样传给工作进程，但共用的 ID 字典和指标文件只在协调进程里生效，
+ *       拒绝文件由各片分别写出后合并</li>
+ * </ul>
+ */
+public final class ShardCoordinator {
+
+    static final int MAX_SHARDS = 256;   // 路由文件每行一个字节
+
+    /** 用 kind 对应的流水线分片处理 input，合并后写到 target */
+    public static void runPipeline(String kind, Path input, Path target, int shards) throws IOException {
+        check(shards);
+        Path dir = workDir(target);
+        long t0 = System.nanoTime();
+        long rows = partitionRows(input, dir, shards);
+        runWorkers(kind, dir, shards);
+        merge(dir, shards, true, target);
+        if (ProfileStage.enabled()) mergeProfiles(kind, input, dir, shards);
+        finish(dir, target, shards, rows, t0);
+    }
+
+    /** 分片修复关注列表，结果与 {@link com.example.datapreprocessor.user.UserFollowFixer#fix} 一致 */
+    public static void fixUsers(Path input, Path target, int shards) throws IOException {
+        check(shards);
+        Path dir = workDir(target);
+        long t0 = System.nanoTime();
+        long rows = partitionUsers(input, dir, shards);
+        runWorkers(ShardWorker.USERS, dir, shards);
+        merge(dir, shards, false, target);
+        finish(dir, target, shards, rows, t0);
+    }
+
+    /** 解析 --shards=N，没有该参数时为 1 */
+    public static int shards(String[] args) {
+        int n = 1;
+        for (String a : args) {
+            if (a.startsWith("--shards=")) n = Integer.parseInt(a.substring("--shards=".length()));
+        }
+        return n;
+    }
+
+    /** ID 所在的片：规范十进制 ID 按数值、其它按字符串取哈希，同一个 ID 总是同一片 */
+    static int shardOf(String id, int shards) {
+        long v = IdSet.parseCanonical(id);
+        return v >= 0 ? shardOf(v, shards) : shardOf((long) id.hashCode() << 32, shards);
+    }
+
+    static int shardOf(long v, int shards) {
+        return (int) (((v * 0x9E3779B97F4A7C15L) >>> 32) % shards);
+    }
+
+    static Path input(Path dir, int k) {
+        return dir.resolve("in-" + k + ".csv");
+    }
+
+    static Path output(Path dir, int k) {
+        return dir.resolve("out-" + k + ".csv");
+    }
+
+    static Path kept(Path dir, int k) {
+        return dir.resolve("kept-" + k);
+    }
+
+    static Path report(Path dir, int k) {
+        return dir.resolve("report-" + k);
+    }
+
+    static Path profile(Path dir, int k) {
+        return dir.resolve("profile-" + k);
+    }
+
+    static Path forward(Path dir, int k) {
+        return dir.resolve("forward-" + k);
+    }
+
+    static Path reverse(Path dir, int k) {
+        return dir.resolve("reverse-" + k);
+    }
+
+    static Path others(Path dir) {
+        return dir.resolve("others");
+    }
+
+    private static Path route(Path dir) {
+        return dir.resolve("route");
+    }
+
+    private static void check(int shards) {
+        if (shards < 1 || shards > MAX_SHARDS) {
+            throw new IllegalArgumentException("分片数应在 1 到 " + MAX_SHARDS + " 之间: " + shards);
+        }
+    }
+
+    private static Path workDir(Path target) throws IOException {
+        Path parent = target.toAbsolutePath().getParent();
+        return Files.createTempDirectory(parent, target.getFileName() + ".shards-");
+    }
+
+    /** 按第一列的 ID 分片，各片保留表头和原有的相对顺序，返回数据行数 */
+    private static long partitionRows(Path input, Path dir, int shards) throws IOException {
+        CsvRowWriter[] out = new CsvRowWriter[shards];
+        long rows = 0;
+        try (RowReader reader = CsvInput.open(input);
+             OutputStream route = new BufferedOutputStream(Files.newOutputStream(route(dir)), 1 << 16)) {
+            for (int k = 0; k < shards; k++) out[k] = new CsvRowWriter(Files.newOutputStream(input(dir, k)));
+            CsvRow header = reader.next();
+            if (header == null) throw new IOException("CSV 为空: " + input);
+            for (CsvRowWriter w : out) w.write(header);
+            CsvRow row;
+            while ((row = reader.next()) != null) {
+                int k = row.size() == 0 ? 0 : shardOf(row.get(0).trim(), shards);
+                route.write(k);
+                out[k].write(row);
+                rows++;
+            }
+        } finally {
+            closeAll(out);
+        }
+        return rows;
+    }
+
+    /**
+     * 用户表按 AuthorId 分片。名次即 ID 在 (AuthorId, FollowingUsers 各项) 序列里首次出现的顺序，
+     * 与单进程修复时字典的编号顺序相同；每条边 a → f 给 a 的片写 (a, f 的名次, f)，
+     * 给 f 的片写 (f, a 的名次, a)。非规范 ID 换成负数键，键表写在 others 里。
+     */
+    private static long partitionUsers(Path input, Path dir, int shards) throws IOException {
+        CsvRowWriter[] out = new CsvRowWriter[shards];
+        DataOutputStream[] forward = new DataOutputStream[shards];
+        DataOutputStream[] reverse = new DataOutputStream[shards];
+        Map<String, Long> otherKeys = new HashMap<>();
+        List<String> otherNames = new ArrayList<>();
+        long rows = 0;
+        try (IdDictionaryFile ranks = IdDictionaryFile.open(dir.resolve("ranks.ids"));
+             RowReader reader = CsvInput.open(input);
+             OutputStream route = new BufferedOutputStream(Files.newOutputStream(route(dir)), 1 << 16)) {
+            for (int k = 0; k < shards; k++) {
+                out[k] = new CsvRowWriter(Files.newOutputStream(input(dir, k)));
+                forward[k] = records(forward(dir, k));
+                reverse[k] = records(reverse(dir, k));
+            }
+            String[] header = reader.readNext();
+            if (header == null) throw new IOException("CSV 为空: " + input);
+            for (CsvRowWriter w : out) w.write(header);
+            int author = index(header, "AuthorId");
+            int followingUsers = index(header, "FollowingUsers");
+            ListCell.Cursor list = new ListCell.Cursor();
+            CsvRow row;
+            while ((row = reader.next()) != null) {
+                if (row.size() < 8) continue;   // 与修复时一样跳过残缺行
+                String a = cell(row, author);
+                long ka = key(a, otherKeys, otherNames);
+                int ra = ranks.idOf(a);
+                int k = ka >= 0 ? shardOf(ka, shards) : shardOf(a, shards);
+                route.write(k);
+                out[k].write(row);
+                rows++;
+                list.reset(cell(row, followingUsers));
+                while (list.next()) {
+                    long v = IdSet.parseCanonical(list.cell(), list.start(), list.end());
+                    String name = v >= 0 ? null : list.element();
+                    long kf = v >= 0 ? v : key(name, otherKeys, otherNames);
+                    int rf = ranks.idOf(list);
+                    write(forward[k], ka, rf, kf);
+                    write(reverse[v >= 0 ? shardOf(v, shards) : shardOf(name, shards)], kf, ra, ka);
+                }
+            }
+        } finally {
+            closeAll(out);
+            closeAll(forward);
+            closeAll(reverse);
+        }
+
+        try (DataOutputStream o = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(others(dir))))) {
+            o.writeInt(otherNames.size());
+            for (String name : otherNames) o.writeUTF(name);
+        }
+        return rows;
+    }
+
+    /** 与修复时一样：规范的非负十进制 ID 就是键，其它按首次出现编负数 */
+    private static long key(String id, Map<String, Long> otherKeys, List<String> otherNames) {
+        long v = IdSet.parseCanonical(id);
+        if (v >= 0) return v;
+        Long k = otherKeys.get(id);
+        if (k != null) return k;
+        otherNames.add(id);
+        k = -(long) otherNames.size();
+        otherKeys.put(id, k);
+        return k;
+    }
+
+    /** 取列的规则与修复时相同：按列名原样查找，缺列读作空串 */
+    private static int index(String[] header, String column) {
+        return Arrays.asList(header).lastIndexOf(column);
+    }
+
+    private static String cell(CsvRow row, int i) {
+        return i < 0 || i >= row.size() ? "" : row.get(i).trim();
+    }
+
+    private static DataOutputStream records(Path p) throws IOException {
+        return new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(p), 1 << 16));
+    }
+
+    private static void write(DataOutputStream out, long a, long b, long c) throws IOException {
+        out.writeLong(a);
+        out.writeLong(b);
+        out.writeLong(c);
+    }
+
+    /** 同时启动各片的工作进程，全部结束后按片号打印日志；有失败的片时抛出 IOException */
+    private static void runWorkers(String kind, Path dir, int shards) throws IOException {
+        List<String> base = new ArrayList<>();
+        base.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+        String heap = System.getProperty("datapreprocessor.shard.heap");
+        if (heap != null && !heap.isBlank()) base.add("-Xmx" + heap.trim());
+        base.add("-Dsun.stdout.encoding=UTF-8");
+        base.add("-Dsun.stderr.encoding=UTF-8");
+        base.add("-Ddatapreprocessor.checkpoint=0");   // 分片文件是临时的，不续跑
+        for (String name : System.getProperties().stringPropertyNames()) {
+            if (!name.startsWith("datapreprocessor.") || name.equals("datapreprocessor.checkpoint")
+                    || name.equals("datapreprocessor.ids") || name.equals("datapreprocessor.metrics")
+                    || name.equals("datapreprocessor.diag.rejects") || name.startsWith("datapreprocessor.shard.")) {
+                continue;
+            }
+            base.add("-D" + name + "=" + System.getProperty(name));
+        }
+        String rejects = System.getProperty("datapreprocessor.diag.rejects");
+
+        Process[] workers = new Process[shards];
+        try {
+            for (int k = 0; k < shards; k++) {
+                List<String> cmd = new ArrayList<>(base);
+                if (rejects != null) cmd.add("-Ddatapreprocessor.diag.rejects=" + rejectsFor(dir, k, rejects));
+                cmd.add("-cp");
+                cmd.add(System.getProperty("java.class.path"));
+                cmd.add(ShardWorker.class.getName());
+                cmd.add(kind);
+                cmd.add(dir.toString());
+                cmd.add(Integer.toString(k));
+                workers[k] = new ProcessBuilder(cmd)
+                        .redirectErrorStream(true)
+                        .redirectOutput(dir.resolve("log-" + k + ".txt").toFile())
+                        .start();
+            }
+            List<Integer> failed = new ArrayList<>();
+            for (int k = 0; k < shards; k++) {
+                if (workers[k].waitFor() != 0) failed.add(k);
+            }
+            for (int k = 0; k < shards; k++) {
+                for (String line : Files.readAllLines(dir.resolve("log-" + k + ".txt"), StandardCharsets.UTF_8)) {
+                    System.out.println("[分片 " + k + "] " + line);
+                }
+            }
+            if (!failed.isEmpty()) throw new IOException("分片 " + failed + " 失败，分片文件保留在 " + dir);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("等待分片进程时被中断", e);
+        } finally {
+            for (Process p : workers) {
+                if (p != null && p.isAlive()) p.destroyForcibly();
+            }
+        }
+    }
+
+    private static Path rejectsFor(Path dir, int k, String rejects) {
+        return dir.resolve("rejects-" + k + (rejects.toLowerCase().endsWith(".csv") ? ".csv" : ".jsonl"));
+    }
+
+    /**
+     * 按路由文件恢复原来的行序：第 i 行来自路由指明的片，依次取该片的下一行输出。
+     * filtered 为 true 时各片可能丢弃了行，只有 kept 文件里列出的本片行号才有输出。
+     * 各片输出用自带分词器读取，字段按原始字节拷贝。
+     */
+    private static void merge(Path dir, int shards, boolean filtered, Path target) throws IOException {
+        RowReader[] outputs = new RowReader[shards];
+        DataInputStream[] kept = new DataInputStream[shards];
+        long[] local = new long[shards];
+        long[] nextKept = new long[shards];
+        try (InputStream route = new BufferedInputStream(Files.newInputStream(route(dir)), 1 << 16);
+             CsvRowWriter writer = CsvRowWriter.open(target)) {
+            for (int k = 0; k < shards; k++) {
+                outputs[k] = new ParallelCsvReader(output(dir, k));
+                CsvRow header = outputs[k].next();
+                if (k == 0 && header != null) writer.write(header);
+                if (filtered) {
+                    kept[k] = new DataInputStream(new BufferedInputStream(Files.newInputStream(kept(dir, k)), 1 << 16));
+                    nextKept[k] = next(kept[k]);
+                }
+            }
+            int k;
+            while ((k = route.read()) >= 0) {
+                long i = local[k]++;
+                if (filtered) {
+                    if (nextKept[k] != i) continue;
+                    nextKept[k] = next(kept[k]);
+                }
+                CsvRow row = outputs[k].next();
+                if (row == null) throw new IOException("分片 " + k + " 的输出比记录的行数少");
+                writer.write(row);
+            }
+            writer.commit();
+        } finally {
+            closeAll(outputs);
+            closeAll(kept);
+        }
+    }
+
+    private static long next(DataInputStream in) throws IOException {
+        try {
+            return in.readLong();
+        } catch (EOFException e) {
+            return -1;
+        }
+    }
+
+    /** 汇总各片的诊断计数、合并拒绝文件，然后删除分片目录 */
+    private static void finish(Path dir, Path target, int shards, long rows, long t0) throws IOException {
+        Map<String, Long> counts = new TreeMap<>();
+        for (int k = 0; k < shards; k++) {
+            Path p = report(dir, k);
+            if (!Files.exists(p)) continue;
+            for (String line : Files.readAllLines(p, StandardCharsets.UTF_8)) {
+                int tab = line.indexOf('\t');
+                if (tab > 0) counts.merge(line.substring(0, tab), Long.parseLong(line.substring(tab + 1)), Long::sum);
+            }
+        }
+        String rejects = System.getProperty("datapreprocessor.diag.rejects");
+        if (rejects != null) mergeRejects(dir, shards, rejects);
+
+        System.out.printf("分片运行：%d 行分成 %d 片，用时 %.1f 秒 → %s%n",
+                rows, shards, (System.nanoTime() - t0) / 1e9, target.toAbsolutePath());
+        for (Map.Entry<String, Long> e : counts.entrySet()) {
+            if (e.getValue() > 0) System.out.printf("  [%s] 各片合计 %d 条%n", e.getKey(), e.getValue());
+        }
+        deleteDir(dir);
+    }
+
+    /** 各片的剖析结果合并成整个输入的，名字取原输入文件 */
+    private static void mergeProfiles(String kind, Path input, Path dir, int shards) throws IOException {
+        Profile merged = null;
+        for (int k = 0; k < shards; k++) {
+            Profile p = Profile.load(profile(dir, k), ShardWorker.measures(kind));
+            if (merged == null) merged = p;
+            else merged.merge(p);
+        }
+        ProfileStage.report(merged, Compression.baseName(input));
+    }
+
+    /** 各片的拒绝文件依次拼接，CSV 只保留第一个表头；行号和偏移指的是分片文件 */
+    private static void mergeRejects(Path dir, int shards, String rejects) throws IOException {
+        Path target = Paths.get(rejects);
+        Path parent = target.toAbsolutePath().getParent();
+        if (parent != null) Files.createDirectories(parent);
+        boolean csv = rejects.toLowerCase().endsWith(".csv");
+        try (BufferedWriter w = Files.newBufferedWriter(target, StandardCharsets.UTF_8)) {
+            if (csv) w.write("rule,row,offset,message\n");
+            for (int k = 0; k < shards; k++) {
+                Path p = rejectsFor(dir, k, rejects);
+                if (!Files.exists(p)) continue;
+                try (Stream<String> lines = Files.lines(p, StandardCharsets.UTF_8)) {
+                    for (String line : (Iterable<String>) lines.skip(csv ? 1 : 0)::iterator) {
+                        w.write(line);
+                        w.write('\n');
+                    }
+                }
+            }
+        }
+    }
+
+    private static void deleteDir(Path dir) throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            for (Path p : (Iterable<Path>) files::iterator) Files.delete(p);
+        }
+        Files.delete(dir);
+    }
+
+    private static void closeAll(AutoCloseable[] resources) throws IOException {
+        IOException failure = null;
+        for (AutoCloseable c : resources) {
+            if (c == null) continue;
+            try {
+                c.close();
+            } catch (Exception e) {
+                if (failure == null) failure = e instanceof IOException io ? io : new IOException(e);
+            }
+        }
+        if (failure != null) throw failure;
+    }
+
+    private ShardCoordinator() {}
+}
@@ -0,0 +1,111 @@
+package com.example.datapreprocessor.shard;
+
+import com.example.datapreprocessor.diag.Diagnostics;
+import com.example.datapreprocessor.pipeline.RowPipeline;
+import com.example.datapreprocessor.pipeline.RowStage;
+import com.example.datapreprocessor.profile.Measure;
+import com.example.datapreprocessor.profile.ProfileStage;
+import com.example.datapreprocessor.recipe.RecipePreprocessor;
+import com.example.datapreprocessor.review.ReviewPreprocessor;
+import com.example.datapreprocessor.user.UserFollowFixer;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 分片运行的工作进程，由 {@link ShardCoordinator} 启动：参数为 任务 分片目录 片号。
+ *
+ * <p>菜谱和评论在本片的行上跑与单进程相同的各阶段，另外把留下的行在本片中的行号写进 kept 文件，
+ * 协调进程据此把输出放回原来的位置。用户修复读协调进程洗牌好的边，见 {@link UserFollowFixer#fixShard}。
+ * 结束时把各诊断规则的计数写进 report 文件，开启剖析时把本片的剖析结果写进 profile 文件，失败时以非零状态退出。</p>
+ */
+public final class ShardWorker {
+
+    public static final String RECIPES = "recipes";
+    public static final String REVIEWS = "reviews";
+    public static final String USERS = "users";
+
+    public static void main(String[] args) {
+        String kind = args[0];
+        Path dir = Paths.get(args[1]);
+        int k = Integer.parseInt(args[2]);
+        try {
+            if (kind.equals(USERS)) {
+                UserFollowFixer.fixShard(ShardCoordinator.input(dir, k), ShardCoordinator.forward(dir, k),
+                        ShardCoordinator.reverse(dir, k), ShardCoordinator.others(dir), ShardCoordinator.output(dir, k));
+            } else {
+                runPipeline(kind, dir, k);
+            }
+            writeReport(ShardCoordinator.report(dir, k));
+        } catch (IOException | RuntimeException e) {
+            System.err.println("分片 " + k + " 处理失败: " + e.getMessage());
+            e.printStackTrace();
+            System.exit(1);
+        }
+    }
+
+    private static void runPipeline(String kind, Path dir, int k) throws IOException {
+        List<RowStage> stages = switch (kind) {
+            case RECIPES -> RecipePreprocessor.stages();
+            case REVIEWS -> ReviewPreprocessor.stages();
+            default -> throw new IllegalArgumentException("未知的分片任务: " + kind);
+        };
+        try (DataOutputStream kept = new DataOutputStream(new BufferedOutputStream(
+                Files.newOutputStream(ShardCoordinator.kept(dir, k)), 1 << 16))) {
+            long[] row = {-1};
+            RowPipeline pipeline = new RowPipeline().add(r -> {
+                row[0]++;
+                return true;
+            });
+            if (ProfileStage.enabled()) {
+                pipeline.add(new ProfileStage(measures(kind), p -> {
+                    try {
+                        p.save(ShardCoordinator.profile(dir, k));
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }));
+            }
+            for (RowStage stage : stages) {
+                pipeline.add(stage);
+            }
+            pipeline.add(r -> {   // 走到最后的行会写进输出
+                try {
+                    kept.writeLong(row[0]);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                return true;
+            });
+            pipeline.run(ShardCoordinator.input(dir, k), ShardCoordinator.output(dir, k));
+        }
+    }
+
+    /** 剖析时按秒或时间戳统计的列 */
+    static Map<String, Measure> measures(String kind) {
+        return switch (kind) {
+            case RECIPES -> RecipePreprocessor.MEASURES;
+            case REVIEWS -> ReviewPreprocessor.MEASURES;
+            default -> Map.of();
+        };
+    }
+
+    private static void writeReport(Path p) throws IOException {
+        try (BufferedWriter w = Files.newBufferedWriter(p, StandardCharsets.UTF_8)) {
+            for (Map.Entry<String, Long> e : Diagnostics.counts().entrySet()) {
+                w.write(e.getKey() + "\t" + e.getValue() + "\n");
+            }
+        }
+    }
+
+    private ShardWorker() {}
+}
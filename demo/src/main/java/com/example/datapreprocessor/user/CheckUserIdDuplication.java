@@ -1,50 +1,36 @@
 package com.example.datapreprocessor.user;
 
-import com.opencsv.CSVReader;
-import com.opencsv.RFC4180Parser;
-import com.opencsv.RFC4180ParserBuilder;
-import com.opencsv.CSVReaderBuilder;
+import com.example.datapreprocessor.dedup.DuplicateDetector;
+import com.example.datapreprocessor.dedup.DuplicateIdStage;
+import com.example.datapreprocessor.pipeline.RowPipeline;
+import com.example.datapreprocessor.pipeline.RowStage;
+import com.example.datapreprocessor.profile.ProfileStage;
 
 import java.nio.file.*;
-import java.util.*;
+import java.util.Map;
 
 public class CheckUserIdDuplication {
     public static void check(Path csvPath) {
-        String path = "Project-1-for-midterm\\user.csv";
-        Set<String> seenIds = new HashSet<>();
-        Set<String> duplicateIds = new LinkedHashSet<>();
-
-        RFC4180Parser rfc4180Parser = new RFC4180ParserBuilder().build();
-
-        try (CSVReader reader =
-                 new CSVReaderBuilder(Files.newBufferedReader(Paths.get(path)))
-                     .withCSVParser(rfc4180Parser)
-                     .build()) {
-
-            String[] line;
-            reader.readNext(); // 跳过表头
-
-            while ((line = reader.readNext()) != null) {
-                if (line.length == 0) continue;
-                String recipeId = line[0].trim();
-                // System.out.println(recipeId);
-                if (seenIds.contains(recipeId)) {
-                    duplicateIds.add(recipeId);
-                } else {
-                    seenIds.add(recipeId);
-                }
-            }
-
-            if (duplicateIds.isEmpty()) {
-                System.out.println("所有 UserId 唯一，无重复。");
-            } else {
-                System.out.println("发现重复的 UserId 共 " + duplicateIds.size() + " 个：");
-                duplicateIds.forEach(System.out::println);
+        // String path = "Project-1-for-midterm\\user.csv";
+        try {
+            RowPipeline pipeline = new RowPipeline();
+            if (ProfileStage.enabled()) {
+                pipeline.add(ProfileStage.report(csvPath, Map.of()));   // 顺带剖析 user.csv，不再单独扫一遍
             }
-
+            pipeline.add(stage()).run(csvPath, null);
         } catch (Exception e) {
             System.err.println("读取文件失败: " + e.getMessage());
             e.printStackTrace();
         }
     }
+
+    /** 只记录重复，不修改也不丢弃任何行 */
+    public static RowStage stage() {
+        return new DuplicateIdStage("UserId", "AuthorId");
+    }
+
+    /** 用给定的去重引擎，常驻进程里跨批次共用 */
+    public static DuplicateIdStage stage(DuplicateDetector detector) {
+        return new DuplicateIdStage("UserId", detector);
+    }
 }
@@ -0,0 +1,302 @@
+package com.example.datapreprocessor.user;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * 定长 long 记录的外部排序。记录先攒在内存缓冲里，攒满就排好序写成一个有序段；
+ * 读取时对各段做多路归并，段数超过归并路数时先分批归并成更少的段。
+ * 记录按字段依次比较（有符号），相同的记录不去重。
+ *
+ * <p>无论在写入、分段还是归并阶段，占用都不超过构造时给的内存份额：
+ * 缓冲连同排序用的下标数组按份额定容量，归并时每路一个读缓冲，路数按份额计算。
+ * 从未溢写时直接在内存里排序读取，不碰磁盘。</p>
+ */
+final class ExternalSorter implements Closeable {
+
+    private static final int IO_BUFFER = 1 << 16;
+
+    /** 按序读取记录的游标，先 {@link #next()} 再取字段 */
+    interface Cursor extends Closeable {
+        boolean next() throws IOException;
+
+        long get(int field);
+
+        @Override
+        default void close() throws IOException {}
+    }
+
+    private final Path dir;
+    private final String name;
+    private final int width;
+    private final int capacity;   // 缓冲最多容纳的记录数
+    private final int fanIn;
+
+    private long[] buf;
+    private int count;
+    private int[] order;          // 缓冲排好序后的下标
+    private final List<Path> runs = new ArrayList<>();
+    private int runSeq;
+    private long records;
+
+    ExternalSorter(Path dir, String name, int width, long memoryBytes) {
+        this.dir = dir;
+        this.name = name;
+        this.width = width;
+        // 每条记录本身 width 个 long，排序时另需两个 int 下标
+        this.capacity = (int) Math.max(1024, Math.min(Integer.MAX_VALUE / width, memoryBytes / (8L * width + 8)));
+        this.fanIn = (int) Math.max(2, memoryBytes / IO_BUFFER - 1);
+        this.buf = new long[Math.min(capacity, 4096) * width];
+    }
+
+    void add(long a, long b) throws IOException {
+        int p = slot();
+        buf[p] = a;
+        buf[p + 1] = b;
+    }
+
+    void add(long a, long b, long c) throws IOException {
+        int p = slot();
+        buf[p] = a;
+        buf[p + 1] = b;
+        buf[p + 2] = c;
+    }
+
+    void add(long a, long b, long c, long d) throws IOException {
+        int p = slot();
+        buf[p] = a;
+        buf[p + 1] = b;
+        buf[p + 2] = c;
+        buf[p + 3] = d;
+    }
+
+    /** 已写入的记录数 */
+    long size() {
+        return records;
+    }
+
+    /** 写到磁盘上的有序段个数（含归并产生的中间段） */
+    int runsWritten() {
+        return runSeq;
+    }
+
+    /** 结束写入，返回按序读取全部记录的游标；可以多次调用，每次从头读 */
+    Cursor cursor() throws IOException {
+        if (runs.isEmpty()) {
+            if (order == null) order = sortBuffer();
+            return new MemoryCursor();
+        }
+        if (buf != null) {
+            if (count > 0) spill();
+            buf = null;
+        }
+        while (runs.size() > fanIn) {
+            List<Path> batch = new ArrayList<>(runs.subList(0, fanIn));
+            runs.subList(0, fanIn).clear();
+            Path merged = newRun();
+            try (Cursor c = merge(batch); DataOutputStream out = output(merged)) {
+                write(c, out);
+            }
+            for (Path p : batch) Files.delete(p);
+            runs.add(merged);
+        }
+        return runs.size() == 1 ? new RunCursor(runs.get(0)) : merge(runs);
+    }
+
+    /** 删除全部有序段并释放缓冲 */
+    @Override
+    public void close() throws IOException {
+        buf = null;
+        order = null;
+        for (Path p : runs) Files.deleteIfExists(p);
+        runs.clear();
+    }
+
+    private int slot() throws IOException {
+        if (buf == null || order != null) throw new IllegalStateException(name + " 已经开始读取，不能再写入");
+        if (count == capacity) spill();
+        if ((count + 1) * width > buf.length) {
+            buf = Arrays.copyOf(buf, Math.min(capacity, count * 2) * width);
+        }
+        records++;
+        return count++ * width;
+    }
+
+    private void spill() throws IOException {
+        int[] idx = sortBuffer();
+        Path run = newRun();
+        try (DataOutputStream out = output(run)) {
+            for (int i = 0; i < count; i++) {
+                int p = idx[i] * width;
+                for (int f = 0; f < width; f++) out.writeLong(buf[p + f]);
+            }
+        }
+        runs.add(run);
+        count = 0;
+    }
+
+    /** 自底向上的归并排序，只排下标，返回按记录顺序排列的下标 */
+    private int[] sortBuffer() {
+        int[] a = new int[count];
+        for (int i = 0; i < count; i++) a[i] = i;
+        int[] b = new int[count];
+        for (int size = 1; size < count; size <<= 1) {
+            for (int lo = 0; lo < count; lo += size << 1) {
+                int mid = Math.min(lo + size, count);
+                int hi = Math.min(lo + (size << 1), count);
+                int i = lo;
+                int j = mid;
+                int k = lo;
+                while (i < mid && j < hi) b[k++] = compare(a[j], a[i]) < 0 ? a[j++] : a[i++];
+                while (i < mid) b[k++] = a[i++];
+                while (j < hi) b[k++] = a[j++];
+            }
+            int[] t = a;
+            a = b;
+            b = t;
+        }
+        return a;
+    }
+
+    private int compare(int x, int y) {
+        int p = x * width;
+        int q = y * width;
+        for (int f = 0; f < width; f++) {
+            int c = Long.compare(buf[p + f], buf[q + f]);
+            if (c != 0) return c;
+        }
+        return 0;
+    }
+
+    private Path newRun() {
+        return dir.resolve(name + "-" + runSeq++);
+    }
+
+    private void write(Cursor c, DataOutputStream out) throws IOException {
+        while (c.next()) {
+            for (int f = 0; f < width; f++) out.writeLong(c.get(f));
+        }
+    }
+
+    private Cursor merge(List<Path> files) throws IOException {
+        List<RunCursor> inputs = new ArrayList<>(files.size());
+        try {
+            for (Path p : files) inputs.add(new RunCursor(p));
+        } catch (IOException e) {
+            for (RunCursor c : inputs) c.close();
+            throw e;
+        }
+        return new MergeCursor(inputs);
+    }
+
+    private static DataOutputStream output(Path p) throws IOException {
+        return new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(p), IO_BUFFER));
+    }
+
+    private final class MemoryCursor implements Cursor {
+        private int i = -1;
+
+        @Override
+        public boolean next() {
+            return ++i < count;
+        }
+
+        @Override
+        public long get(int field) {
+            return buf[order[i] * width + field];
+        }
+    }
+
+    private final class RunCursor implements Cursor {
+        private final DataInputStream in;
+        private final long[] current = new long[width];
+
+        RunCursor(Path p) throws IOException {
+            in = new DataInputStream(new BufferedInputStream(Files.newInputStream(p), IO_BUFFER));
+        }
+
+        @Override
+        public boolean next() throws IOException {
+            try {
+                current[0] = in.readLong();
+            } catch (EOFException eof) {
+                return false;
+            }
+            for (int f = 1; f < width; f++) current[f] = in.readLong();
+            return true;
+        }
+
+        @Override
+        public long get(int field) {
+            return current[field];
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+
+        private int compareTo(RunCursor o) {
+            for (int f = 0; f < width; f++) {
+                int c = Long.compare(current[f], o.current[f]);
+                if (c != 0) return c;
+            }
+            return 0;
+        }
+    }
+
+    /** 多路归并：堆顶即当前最小记录 */
+    private static final class MergeCursor implements Cursor {
+        private final List<RunCursor> inputs;
+        private final PriorityQueue<RunCursor> heap = new PriorityQueue<>(RunCursor::compareTo);
+        private RunCursor top;
+        private boolean started;
+
+        MergeCursor(List<RunCursor> inputs) {
+            this.inputs = inputs;
+        }
+
+        @Override
+        public boolean next() throws IOException {
+            if (!started) {
+                started = true;
+                for (RunCursor c : inputs) {
+                    if (c.next()) heap.add(c);
+                }
+            } else if (top != null && top.next()) {
+                heap.add(top);
+            }
+            top = heap.poll();
+            return top != null;
+        }
+
+        @Override
+        public long get(int field) {
+            return top.get(field);
+        }
+
+        @Override
+        public void close() throws IOException {
+            IOException failure = null;
+            for (RunCursor c : inputs) {
+                try {
+                    c.close();
+                } catch (IOException e) {
+                    if (failure == null) failure = e;
+                }
+            }
+            if (failure != null) throw failure;
+        }
+    }
+}
@@ -1,28 +1,26 @@
 package com.example.datapreprocessor.user;
 
-import com.opencsv.CSVReader;
-// import com.opencsv.RFC4180Parser;
-import com.opencsv.RFC4180ParserBuilder;
-import com.opencsv.CSVReaderBuilder;
-import com.opencsv.exceptions.CsvValidationException;
+import com.example.datapreprocessor.diag.Diagnostics;
+import com.example.datapreprocessor.diag.Rule;
+import com.example.datapreprocessor.io.CsvInput;
+import com.example.datapreprocessor.io.CsvRow;
+import com.example.datapreprocessor.io.ListCell;
+import com.example.datapreprocessor.io.RowReader;
 
 import java.io.IOException;
-import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.Arrays;
-import java.util.regex.Pattern;
 
 public final class FollowCountValidator {
 
-    private static final Pattern SPLIT = Pattern.compile(",");
+    private static final Rule FOLLOWERS_MISMATCH = Diagnostics.rule("user.followers-mismatch");
+    private static final Rule FOLLOWING_MISMATCH = Diagnostics.rule("user.following-mismatch");
+    private static final Rule BAD_NUMBER         = Diagnostics.rule("user.count-format");
 
     public static long validate(Path csvPath) throws IOException {
         long badLines = 0;
 
-        try (CSVReader reader =
-                 new CSVReaderBuilder(Files.newBufferedReader(csvPath))
-                     .withCSVParser(new RFC4180ParserBuilder().build())
-                     .build()) {
+        try (RowReader reader = CsvInput.open(csvPath)) {
 
             String[] header = reader.readNext();
             int followersIdx   = Arrays.asList(header).indexOf("Followers");
@@ -32,16 +30,16 @@ public final class FollowCountValidator {
             if (followersIdx < 0 || followingIdx < 0 || followerUIdx < 0 || followingUIdx < 0)
                 throw new IllegalArgumentException("CSV 缺少所需列");
 
-            String[] line;
+            CsvRow line;
             long row = 1;
-            while ((line = reader.readNext()) != null) {
+            while ((line = reader.next()) != null) {
                 row++;
-                if (line.length <= Math.max(followingUIdx, followerUIdx)) continue;
+                if (line.size() <= Math.max(followingUIdx, followerUIdx)) continue;
 
-                String followers   = line[followersIdx].trim();
-                String following   = line[followingIdx].trim();
-                String followerU   = line[followerUIdx].trim();
-                String followingU  = line[followingUIdx].trim();
+                String followers   = line.get(followersIdx).trim();
+                String following   = line.get(followingIdx).trim();
+                String followerU   = line.get(followerUIdx).trim();
+                String followingU  = line.get(followingUIdx).trim();
 
                 // if (followers.isEmpty() || followerU.isEmpty() ||
                 //     following.isEmpty() || followingU.isEmpty()) continue;
@@ -50,54 +48,34 @@ public final class FollowCountValidator {
                     int followersN = Integer.parseInt(followers);
                     int followingN = Integer.parseInt(following);
 
-                    int actualFollower = splitIds(followerU);
-                    int actualFollowing = splitIds(followingU);
+                    int actualFollower = ListCell.count(followerU);
+                    int actualFollowing = ListCell.count(followingU);
 
                     if (followersN != actualFollower) {
                         badLines++;
-                        System.out.printf("Row %d  Followers 不匹配: AuthorId=%s  预期=%d  实际=%d%n",
-                                row, line[0], followersN, actualFollower);
+                        FOLLOWERS_MISMATCH.report(row, line.offset(), "Row %d  Followers 不匹配: AuthorId=%s  预期=%d  实际=%d",
+                                row, line.get(0), followersN, actualFollower);
                     }
                     if (followingN != actualFollowing) {
                         badLines++;
-                        System.out.printf("Row %d  Following 不匹配: AuthorId=%s  预期=%d  实际=%d%n",
-                                row, line[0], followingN, actualFollowing);
+                        FOLLOWING_MISMATCH.report(row, line.offset(), "Row %d  Following 不匹配: AuthorId=%s  预期=%d  实际=%d",
+                                row, line.get(0), followingN, actualFollowing);
                     }
 
                 } catch (NumberFormatException e) {
-                    System.out.printf("Row %d 数字格式非法: %s / %s%n", row, followers, following);
+                    BAD_NUMBER.report(row, line.offset(), "Row %d 数字格式非法: %s / %s", row, followers, following);
                 }
             }
 
+            Diagnostics.flush();
             if (badLines == 0) {
                 System.out.println("所有 Followers/Following 计数与列表一致");
             } else {
                 System.out.printf("共 %d 行计数不符%n", badLines);
             }
             return badLines;
-
-        } catch (CsvValidationException e) {
-            throw new IOException("CSV 解析失败", e);
         }
     }
 
-    /** 把 c("id1,id2,...") 或裸列表拆成 ID 个数 */
-    private static int splitIds(String cell) {
-    if (cell.isEmpty()) return 0;
-
-    // 去掉 c(...) 外壳
-    if (cell.startsWith("c(\"") && cell.endsWith("\")")) {
-        cell = cell.substring(3, cell.length() - 2);
-    }
-
-    // 去掉所有引号
-    cell = cell.replace("\"", "");
-
-    // 按逗号拆分，过滤空串
-    return (int) SPLIT.splitAsStream(cell)
-                      .filter(s -> !s.trim().isEmpty())
-                      .count();
-    }
-
     private FollowCountValidator() {}
 }
\ No newline at end of file
@@ -0,0 +1,94 @@
+package com.example.datapreprocessor.user;
+
+import com.example.datapreprocessor.dedup.IdDictionary;
+import com.example.datapreprocessor.io.ListCell;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * 用 CSR（压缩稀疏行）存放的关注图：每个用户的关注列表是 targets 数组里的一段，
+ * 由 offsets[u]..offsets[u+1] 给出。正向（关注谁）和反向（被谁关注）各一份。
+ *
+ * <p>边先压成 (源 << 32 | 目标) 的 long 并行排序，排序后相邻去重即得到集合语义，
+ * 再顺序扫描切出各段；反向索引把高低位对调后同样处理。</p>
+ */
+final class FollowGraph {
+
+    private final IdDictionary ids;
+    private final int[] outOffsets;
+    private final int[] outTargets;
+    private final int[] inOffsets;
+    private final int[] inTargets;
+
+    private FollowGraph(IdDictionary ids, int[] outOffsets, int[] outTargets, int[] inOffsets, int[] inTargets) {
+        this.ids = ids;
+        this.outOffsets = outOffsets;
+        this.outTargets = outTargets;
+        this.inOffsets = inOffsets;
+        this.inTargets = inTargets;
+    }
+
+    /** edges 的前 count 个元素为 (关注者 << 32 | 被关注者)，会被就地改写 */
+    static FollowGraph build(IdDictionary ids, long[] edges, int count) {
+        int n = ids.size();
+
+        Arrays.parallelSort(edges, 0, count);
+        int m = dedupe(edges, count);
+        int[] outOffsets = new int[n + 1];
+        int[] outTargets = new int[m];
+        toCsr(edges, m, outOffsets, outTargets);
+
+        // 高低位对调得到反向边
+        IntStream.range(0, m).parallel().forEach(k -> edges[k] = edges[k] << 32 | edges[k] >>> 32);
+        Arrays.parallelSort(edges, 0, m);
+        int[] inOffsets = new int[n + 1];
+        int[] inTargets = new int[m];
+        toCsr(edges, m, inOffsets, inTargets);
+
+        return new FollowGraph(ids, outOffsets, outTargets, inOffsets, inTargets);
+    }
+
+    int followingCount(int u) {
+        return u < 0 ? 0 : outOffsets[u + 1] - outOffsets[u];
+    }
+
+    int followerCount(int u) {
+        return u < 0 ? 0 : inOffsets[u + 1] - inOffsets[u];
+    }
+
+    /** 列表格式保持原样：c("id1,id2") 或空串 */
+    String followingList(int u) {
+        return format(outOffsets, outTargets, u);
+    }
+
+    String followerList(int u) {
+        return format(inOffsets, inTargets, u);
+    }
+
+    private String format(int[] offsets, int[] targets, int u) {
+        if (u < 0 || offsets[u] == offsets[u + 1]) return "";
+        StringBuilder sb = new StringBuilder();
+        for (int k = offsets[u]; k < offsets[u + 1]; k++) ListCell.append(sb, ids.nameOf(targets[k]));
+        return ListCell.finish(sb);
+    }
+
+    private static int dedupe(long[] sorted, int count) {
+        if (count == 0) return 0;
+        int w = 1;
+        for (int r = 1; r < count; r++) {
+            if (sorted[r] != sorted[w - 1]) sorted[w++] = sorted[r];
+        }
+        return w;
+    }
+
+    private static void toCsr(long[] sorted, int count, int[] offsets, int[] targets) {
+        for (int k = 0; k < count; k++) {
+            offsets[(int) (sorted[k] >>> 32) + 1]++;
+        }
+        for (int u = 1; u < offsets.length; u++) {
+            offsets[u] += offsets[u - 1];
+        }
+        Arrays.parallelSetAll(targets, k -> (int) sorted[k]);
+    }
+}
@@ -0,0 +1,308 @@
+package com.example.datapreprocessor.user;
+
+import com.example.datapreprocessor.dedup.IdSet;
+import com.example.datapreprocessor.io.CsvInput;
+import com.example.datapreprocessor.io.CsvRow;
+import com.example.datapreprocessor.io.ListCell;
+import com.example.datapreprocessor.io.RowReader;
+import com.example.datapreprocessor.user.ExternalSorter.Cursor;
+import com.opencsv.CSVWriter;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 内存受限的关注列表重建：不在内存里建图，而是把关注边写成定长记录交给 {@link ExternalSorter}，
+ * 再用几轮按键有序的归并连接算出每行的四列。
+ *
+ * <ol>
+ *   <li>读一遍 user.csv，写出 (ID, 出现序号)、(作者, 行号)、(关注者, 被关注者)、(被关注者, 关注者)；</li>
+ *   <li>每个 ID 取最小出现序号作为名次，它与内存版字典的编号顺序相同，列表按名次排序，输出才能逐字节一致；</li>
+ *   <li>两份边分别与名次表归并，得到按 (作者, 名次) 排好的关注列表和粉丝列表，相邻去重即集合语义；</li>
+ *   <li>与 (作者, 行号) 归并，把列表项改按行号排序，第二遍读 user.csv 时顺序拼出各行的列表。</li>
+ * </ol>
+ *
+ * <p>同一时刻最多 5 个排序器，各分得预算的 1/6，余下留给读写 CSV。
+ * 规范的非负十进制 ID 直接作为键；其它写法极少见，仍在内存里编号。</p>
+ */
+final class SpillingFollowFixer {
+
+    private static final long FOLLOWERS = 0;
+    private static final long FOLLOWING = 1;
+
+    private final Path dir;
+    private final long share;
+    private final List<ExternalSorter> sorters = new ArrayList<>();
+    private int segments;
+
+    // (作者, 行号)、(作者, 被关注者名次, 被关注者)、(被关注者, 关注者名次, 关注者)
+    private ExternalSorter rows;
+    private ExternalSorter following;
+    private ExternalSorter followers;
+    private long edges;
+
+    // 非规范 ID ↔ 负数键
+    private final Map<String, Long> otherKeys = new HashMap<>();
+    private final List<String> otherNames = new ArrayList<>();
+
+    private SpillingFollowFixer(Path dir, long memoryBudget) {
+        this.dir = dir;
+        this.share = memoryBudget / 6;
+    }
+
+    private interface Job {
+        void run(SpillingFollowFixer f) throws IOException;
+    }
+
+    static void fix(Path in, Path out, Path spillRoot, long memoryBudget) throws IOException {
+        run(spillRoot, memoryBudget, f -> {
+            f.scan(in);
+            f.write(in, out);
+            System.out.printf("外存模式：%d 条关注边，内存预算 %.0f MB，写出 %d 个有序段%n",
+                    f.edges, f.share * 6 / 1048576.0, f.segments);
+        });
+    }
+
+    /**
+     * 分片运行时的一个工作进程。rowsCsv 是分到本片的行；forward、reverse 是协调进程按 ID 洗牌送来的
+     * (作者, 被关注者名次, 被关注者) 和 (被关注者, 关注者名次, 关注者)，每条三个 long，可能重复；
+     * others 是非规范 ID 的 (负数键, 原文) 表。名次由协调进程统一分配，所以各片的列表顺序与单进程一致。
+     */
+    static void fixShard(Path rowsCsv, Path forward, Path reverse, Path others, Path out,
+                         Path spillRoot, long memoryBudget) throws IOException {
+        run(spillRoot, memoryBudget, f -> {
+            f.readOthers(others);
+            f.rows = f.sorter("rows", 2);
+            long r = 0;
+            try (RowReader reader = CsvInput.open(rowsCsv)) {
+                Map<String, Integer> idx = UserFollowFixer.headerMap(reader.readNext());
+                CsvRow row;
+                while ((row = reader.next()) != null) {
+                    if (row.size() < 8) continue;
+                    f.rows.add(f.key(UserFollowFixer.getCell(row, idx, "AuthorId")), r++);
+                }
+            }
+            f.following = f.sorter("following", 3);
+            f.followers = f.sorter("followers", 3);
+            f.edges = load(forward, f.following);
+            load(reverse, f.followers);
+            f.write(rowsCsv, out);
+        });
+    }
+
+    private static void run(Path spillRoot, long memoryBudget, Job job) throws IOException {
+        Files.createDirectories(spillRoot);
+        Path dir = Files.createTempDirectory(spillRoot, "follow-");
+        SpillingFollowFixer f = new SpillingFollowFixer(dir, memoryBudget);
+        try {
+            job.run(f);
+        } finally {
+            for (ExternalSorter s : f.sorters) s.close();
+            Files.deleteIfExists(dir);
+        }
+    }
+
+    /** 第一遍读 user.csv，算出 rows、following 和 followers */
+    private void scan(Path in) throws IOException {
+        // 1. 只解码 AuthorId 和 FollowingUsers
+        ExternalSorter occurrences = sorter("occ", 2);
+        rows = sorter("rows", 2);
+        ExternalSorter byFollower = sorter("edges", 2);
+        ExternalSorter byFollowee = sorter("reverse", 2);
+        long seq = 0;
+        long r = 0;
+        ListCell.Cursor list = new ListCell.Cursor();
+        try (RowReader reader = CsvInput.open(in)) {
+            Map<String, Integer> idx = UserFollowFixer.headerMap(reader.readNext());
+            CsvRow row;
+            while ((row = reader.next()) != null) {
+                if (row.size() < 8) continue;
+                long a = key(UserFollowFixer.getCell(row, idx, "AuthorId"));
+                occurrences.add(a, seq++);
+                rows.add(a, r++);
+                list.reset(UserFollowFixer.getCell(row, idx, "FollowingUsers"));
+                while (list.next()) {
+                    long v = IdSet.parseCanonical(list.cell(), list.start(), list.end());
+                    long f = v >= 0 ? v : key(list.element());
+                    occurrences.add(f, seq++);
+                    byFollower.add(a, f);
+                    byFollowee.add(f, a);
+                }
+            }
+        }
+        edges = byFollower.size();
+
+        // 2. 名次表 (ID, 首次出现序号)，输入已按 ID 有序
+        ExternalSorter ranks = sorter("rank", 2);
+        try (Cursor c = occurrences.cursor()) {
+            boolean first = true;
+            long prev = 0;
+            while (c.next()) {
+                if (first || c.get(0) != prev) ranks.add(c.get(0), c.get(1));
+                first = false;
+                prev = c.get(0);
+            }
+        }
+        release(occurrences);
+
+        // 3. (作者, 被关注者名次, 被关注者) 和 (被关注者, 关注者名次, 关注者)
+        following = sorter("following", 3);
+        joinRanks(byFollowee, ranks, following);
+        release(byFollowee);
+        followers = sorter("followers", 3);
+        joinRanks(byFollower, ranks, followers);
+        release(byFollower);
+        release(ranks);
+    }
+
+    /** 把 rows、following、followers 连接成各行的列表，第二遍读 in 写出 out */
+    private void write(Path in, Path out) throws IOException {
+        // 4. 列表项改按 (行号, 列, 名次) 排序；相同的列表项只保留一份
+        ExternalSorter cells = sorter("cells", 4);
+        try (Cursor rc = rows.cursor(); Cursor oc = following.cursor(); Cursor ic = followers.cursor()) {
+            boolean rLive = rc.next();
+            boolean oLive = oc.next();
+            boolean iLive = ic.next();
+            long[] rowsOf = new long[4];
+            while (rLive) {
+                long a = rc.get(0);
+                int n = 0;
+                while (rLive && rc.get(0) == a) {   // 重复的 AuthorId 每行都要一份
+                    if (n == rowsOf.length) rowsOf = Arrays.copyOf(rowsOf, n * 2);
+                    rowsOf[n++] = rc.get(1);
+                    rLive = rc.next();
+                }
+                while (oLive && oc.get(0) < a) oLive = oc.next();
+                for (long prev = Long.MIN_VALUE; oLive && oc.get(0) == a; oLive = oc.next()) {
+                    if (oc.get(2) == prev) continue;
+                    prev = oc.get(2);
+                    for (int k = 0; k < n; k++) cells.add(rowsOf[k], FOLLOWING, oc.get(1), oc.get(2));
+                }
+                while (iLive && ic.get(0) < a) iLive = ic.next();
+                for (long prev = Long.MIN_VALUE; iLive && ic.get(0) == a; iLive = ic.next()) {
+                    if (ic.get(2) == prev) continue;
+                    prev = ic.get(2);
+                    for (int k = 0; k < n; k++) cells.add(rowsOf[k], FOLLOWERS, ic.get(1), ic.get(2));
+                }
+            }
+        }
+        release(rows);
+        release(following);
+        release(followers);
+
+        // 5. 第二遍：逐行拼出列表并写回 CSV
+        try (RowReader reader = CsvInput.open(in);
+             CSVWriter writer = UserFollowFixer.openWriter(out);
+             Cursor c = cells.cursor()) {
+            Map<String, Integer> idx = UserFollowFixer.headerMap(reader.readNext());
+            writer.writeNext(UserFollowFixer.HEADER);
+            StringBuilder followerList = new StringBuilder();
+            StringBuilder followingList = new StringBuilder();
+            boolean live = c.next();
+            long r = 0;
+            CsvRow row;
+            while ((row = reader.next()) != null) {
+                if (row.size() < 8) continue;
+                followerList.setLength(0);
+                followingList.setLength(0);
+                int followerCount = 0;
+                int followingCount = 0;
+                for (; live && c.get(0) == r; live = c.next()) {
+                    if (c.get(1) == FOLLOWING) {
+                        ListCell.append(followingList, name(c.get(3)));
+                        followingCount++;
+                    } else {
+                        ListCell.append(followerList, name(c.get(3)));
+                        followerCount++;
+                    }
+                }
+                r++;
+                UserFollowFixer.writeRow(writer, row, idx, followerCount, followingCount,
+                        ListCell.finish(followerList), ListCell.finish(followingList));
+            }
+        }
+        segments += cells.runsWritten();
+    }
+
+    /**
+     * edges 为按 (x, y) 排序的边，ranks 为按 ID 排序的名次表；
+     * 对每条不重复的边写出 (y, x 的名次, x)。
+     */
+    private static void joinRanks(ExternalSorter edges, ExternalSorter ranks, ExternalSorter target) throws IOException {
+        try (Cursor e = edges.cursor(); Cursor rk = ranks.cursor()) {
+            boolean rLive = rk.next();
+            boolean first = true;
+            long px = 0;
+            long py = 0;
+            while (e.next()) {
+                long x = e.get(0);
+                long y = e.get(1);
+                if (!first && x == px && y == py) continue;
+                first = false;
+                px = x;
+                py = y;
+                while (rLive && rk.get(0) < x) rLive = rk.next();
+                if (!rLive || rk.get(0) != x) throw new IllegalStateException("名次表中缺少 ID: " + x);
+                target.add(y, rk.get(1), x);
+            }
+        }
+    }
+
+    /** 读入每条三个 long 的记录文件，返回记录数 */
+    private static long load(Path file, ExternalSorter target) throws IOException {
+        long n = 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 1 << 16))) {
+            long records = Files.size(file) / 24;
+            for (; n < records; n++) target.add(in.readLong(), in.readLong(), in.readLong());
+        }
+        return n;
+    }
+
+    /** 沿用协调进程分配的负数键，各片对同一个非规范 ID 用同一个键 */
+    private void readOthers(Path file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            int n = in.readInt();
+            for (int i = 0; i < n; i++) {
+                String id = in.readUTF();
+                otherNames.add(id);
+                otherKeys.put(id, -(long) otherNames.size());
+            }
+        }
+    }
+
+    private ExternalSorter sorter(String name, int width) {
+        ExternalSorter s = new ExternalSorter(dir, name, width, share);
+        sorters.add(s);
+        return s;
+    }
+
+    /** 用完即删，腾出磁盘和份额 */
+    private void release(ExternalSorter s) throws IOException {
+        s.close();
+        sorters.remove(s);
+        segments += s.runsWritten();
+    }
+
+    private long key(String id) {
+        long v = IdSet.parseCanonical(id);
+        if (v >= 0) return v;
+        Long k = otherKeys.get(id);
+        if (k != null) return k;
+        otherNames.add(id);
+        k = -(long) otherNames.size();
+        otherKeys.put(id, k);
+        return k;
+    }
+
+    private String name(long key) {
+        return key >= 0 ? Long.toString(key) : otherNames.get((int) (-key - 1));
+    }
+}
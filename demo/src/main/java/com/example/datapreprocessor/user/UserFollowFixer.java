@@ -1,135 +1,150 @@
 package com.example.datapreprocessor.user;
 
+import com.example.datapreprocessor.dedup.DuplicateDetector;
+import com.example.datapreprocessor.dedup.IdDictionary;
+import com.example.datapreprocessor.io.Compression;
+import com.example.datapreprocessor.io.CsvInput;
+import com.example.datapreprocessor.io.CsvRow;
+import com.example.datapreprocessor.io.ListCell;
+import com.example.datapreprocessor.io.RowReader;
 import com.opencsv.*;
-import com.opencsv.exceptions.CsvValidationException;
 
 import java.io.*;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.*;
 import java.util.*;
-import java.util.regex.Pattern;
 
+/**
+ * 按 FollowingUsers 重建每个用户的四列关注数据：Followers、Following、FollowerUsers、FollowingUsers。
+ *
+ * <p>默认把关注图整个建在内存里（{@link FollowGraph}）。设置 -Ddatapreprocessor.follow.memory（如 512m、2g）
+ * 后改用 {@link SpillingFollowFixer} 外排序重建，内存占用不超过该预算；溢写目录由
+ * -Ddatapreprocessor.follow.spillDir 指定，默认为系统临时目录。两种方式的输出逐字节相同。</p>
+ */
 public final class UserFollowFixer {
 
-    private static final Pattern SPLIT = Pattern.compile(",");
+    /** 单个 Java 数组能申请的最大长度，与 JDK 集合类的上限一致 */
+    static final int MAX_EDGES = Integer.MAX_VALUE - 8;
+
+    static final String[] HEADER = {
+            "AuthorId", "AuthorName", "Gender", "Age",
+            "Followers", "Following", "FollowerUsers", "FollowingUsers"
+    };
+
+    /** 修复结果与输入同目录，名为 user_fixed.csv（开启压缩时加 .gz） */
+    public static Path outputFor(Path in) {
+        return Compression.output(in.toAbsolutePath().getParent().resolve("user_fixed.csv"));
+    }
 
     public static Path fix(Path in) throws IOException {
-        Path out = in.getParent().resolve("user_fixed.csv");
+        return fix(in, outputFor(in));
+    }
+
+    /** 修复结果写到 out */
+    public static Path fix(Path in, Path out) throws IOException {
+        String budget = System.getProperty("datapreprocessor.follow.memory");
+        if (budget != null && !budget.isBlank()) {
+            Path dir = Paths.get(System.getProperty("datapreprocessor.follow.spillDir",
+                    System.getProperty("java.io.tmpdir")));
+            SpillingFollowFixer.fix(in, Compression.partial(out), dir, DuplicateDetector.parseSize(budget));
+        } else {
+            fixInMemory(in, Compression.partial(out));
+        }
+        Compression.commit(out);   // 写完才替换，中途失败不会留下半个 user_fixed.csv
+        System.out.println("修复完成 → " + out.toAbsolutePath());
+        return out;
+    }
 
-        // 建立反向索引
-        Map<String, Set<String>> followersOf = new HashMap<>();
-        Map<String, Set<String>> followingOf = new HashMap<>();
-        List<User> users = loadUsers(in);
+    /**
+     * 分片运行时一个工作进程的那一片，参数见 {@link SpillingFollowFixer#fixShard}。
+     * 内存预算取 -Ddatapreprocessor.follow.memory，未设置时为最大堆的一半；溢写到 out 所在目录。
+     */
+    public static void fixShard(Path rows, Path forward, Path reverse, Path others, Path out) throws IOException {
+        String budget = System.getProperty("datapreprocessor.follow.memory");
+        long memory = budget != null && !budget.isBlank()
+                ? DuplicateDetector.parseSize(budget)
+                : Runtime.getRuntime().maxMemory() / 2;
+        SpillingFollowFixer.fixShard(rows, forward, reverse, others, out, out.toAbsolutePath().getParent(), memory);
+    }
 
-        for (User u : users) {
-            for (String fid : splitIds(u.followingUsers)) {
-                followingOf.computeIfAbsent(u.authorId, k -> new HashSet<>()).add(fid);
-                followersOf.computeIfAbsent(fid, k -> new HashSet<>()).add(u.authorId);
+    private static void fixInMemory(Path in, Path out) throws IOException {
+
+        // 第一遍：只解码 AuthorId 和 FollowingUsers，把关注关系编码成 int 边
+        IdDictionary ids = new IdDictionary();
+        long[] edges = new long[1 << 12];
+        int edgeCount = 0;
+        ListCell.Cursor following = new ListCell.Cursor();
+        try (RowReader reader = CsvInput.open(in)) {
+            Map<String, Integer> idx = headerMap(reader.readNext());
+            CsvRow row;
+            while ((row = reader.next()) != null) {
+                if (row.size() < 8) continue;
+                long u = ids.idOf(getCell(row, idx, "AuthorId"));
+                following.reset(getCell(row, idx, "FollowingUsers"));
+                while (following.next()) {
+                    if (edgeCount == edges.length) edges = grow(edges);
+                    edges[edgeCount++] = u << 32 | ids.idOf(following);
+                }
             }
         }
 
-        // 修正本行
-        for (User u : users) {
-            Set<String> realFollowers = followersOf.getOrDefault(u.authorId, Set.of());
-            Set<String> realFollowing = followingOf.getOrDefault(u.authorId, Set.of());
+        // 建立正向和反向的 CSR 索引
+        FollowGraph graph = FollowGraph.build(ids, edges, edgeCount);
 
-            u.followers      = realFollowers.size();
-            u.following      = realFollowing.size();
-            // 列表格式保持原样：c("id1,id2") 或空串
-            u.followerUsers  = realFollowers.isEmpty() ? "" : "c(\"" + String.join(",", realFollowers) + "\")";
-            u.followingUsers = realFollowing.isEmpty() ? "" : "c(\"" + String.join(",", realFollowing) + "\")";
-        }
+        // 第二遍：逐行修正并写回 CSV
+        try (RowReader reader = CsvInput.open(in); CSVWriter writer = openWriter(out)) {
+            Map<String, Integer> idx = headerMap(reader.readNext());
+            writer.writeNext(HEADER);
 
-        // 写回 CSV
-        try (CSVWriter writer = new CSVWriter(Files.newBufferedWriter(out),
-                CSVWriter.DEFAULT_SEPARATOR, '"', '"', CSVWriter.DEFAULT_LINE_END)) {
-
-            writer.writeNext(new String[]{
-                    "AuthorId","AuthorName","Gender","Age",
-                    "Followers","Following","FollowerUsers","FollowingUsers"
-            });
-
-            for (User u : users) {
-                writer.writeNext(new String[]{
-                        u.authorId,
-                        u.authorName,
-                        u.gender,
-                        String.valueOf(u.age),
-                        String.valueOf(u.followers),
-                        String.valueOf(u.following),
-                        u.followerUsers,   // 字符串
-                        u.followingUsers   // 字符串
-                });
+            CsvRow row;
+            while ((row = reader.next()) != null) {
+                if (row.size() < 8) continue;
+                int u = ids.lookup(getCell(row, idx, "AuthorId"));
+                writeRow(writer, row, idx, graph.followerCount(u), graph.followingCount(u),
+                        graph.followerList(u), graph.followingList(u));
             }
         }
-
-        System.out.println("修复完成 → " + out.toAbsolutePath());
-        return out;
     }
 
-    
-
-    private static List<User> loadUsers(Path in) throws IOException {
-        List<User> list = new ArrayList<>();
-        try (CSVReader reader = new CSVReaderBuilder(Files.newBufferedReader(in))
-                     .withCSVParser(new RFC4180ParserBuilder().build())
-                     .build()) {
-
-            String[] h = reader.readNext();
-            Map<String, Integer> idx = headerMap(h);
-
-            String[] line;
-            // long row = 1;
-            while ((line = reader.readNext()) != null) {
-                // row++;
-                if (line.length < 8) continue;
-                User u = new User();
-                u.authorId       = getCell(line, idx, "AuthorId");
-                u.authorName     = getCell(line, idx, "AuthorName");
-                u.gender         = getCell(line, idx, "Gender");
-                u.age            = Integer.parseInt(getCell(line, idx, "Age"));
-                u.followers      = Integer.parseInt(getCell(line, idx, "Followers"));
-                u.following      = Integer.parseInt(getCell(line, idx, "Following"));
-                u.followerUsers  = getCell(line, idx, "FollowerUsers");
-                u.followingUsers = getCell(line, idx, "FollowingUsers");
-                list.add(u);
-            }
-        } catch (CsvValidationException e) {
-            throw new IOException("CSV 错误", e);
+    /** 边数组翻倍扩容，用 long 计算新长度并封顶，已到上限时明确报错而不是让 int 溢出 */
+    static long[] grow(long[] edges) throws IOException {
+        if (edges.length >= MAX_EDGES) {
+            throw new IOException("关注边超过 " + MAX_EDGES + " 条，单个数组放不下，"
+                    + "请设置 -Ddatapreprocessor.follow.memory 改用外排序");
         }
-        return list;
+        return Arrays.copyOf(edges, (int) Math.min((long) edges.length * 2, MAX_EDGES));
     }
 
-    private static Map<String, Integer> headerMap(String[] h) {
-        Map<String, Integer> m = new HashMap<>();
-        for (int i = 0; i < h.length; i++) m.put(h[i], i);
-        return m;
+    static CSVWriter openWriter(Path out) throws IOException {
+        return new CSVWriter(new BufferedWriter(new OutputStreamWriter(Compression.newOutputStream(out), StandardCharsets.UTF_8)),
+                CSVWriter.DEFAULT_SEPARATOR, '"', '"', CSVWriter.DEFAULT_LINE_END);
     }
 
-    private static String getCell(String[] line, Map<String, Integer> idx, String col) {
-        Integer i = idx.get(col);
-        return i == null || i >= line.length ? "" : line[i].trim();
+    /** 写出修正后的一行；列表格式保持原样：c("id1,id2") 或空串 */
+    static void writeRow(CSVWriter writer, CsvRow row, Map<String, Integer> idx, int followers, int following,
+                         String followerList, String followingList) {
+        writer.writeNext(new String[]{
+                getCell(row, idx, "AuthorId"),
+                getCell(row, idx, "AuthorName"),
+                getCell(row, idx, "Gender"),
+                String.valueOf(Integer.parseInt(getCell(row, idx, "Age"))),
+                String.valueOf(followers),
+                String.valueOf(following),
+                followerList,
+                followingList
+        });
     }
 
-    private static List<String> splitIds(String cell) {
-        if (cell.isEmpty()) return List.of();
-        if (cell.startsWith("c(\"") && cell.endsWith("\")")) {
-            cell = cell.substring(3, cell.length() - 2);
-        }
-        cell = cell.replace("\"", "");
-        return Arrays.stream(SPLIT.split(cell))
-                     .filter(s -> !s.trim().isEmpty())
-                     .toList();
+    static Map<String, Integer> headerMap(String[] h) throws IOException {
+        if (h == null) throw new IOException("CSV 为空");
+        Map<String, Integer> m = new HashMap<>();
+        for (int i = 0; i < h.length; i++) m.put(h[i], i);
+        return m;
     }
 
-    private static final class User {
-        String authorId;
-        String authorName;
-        String gender;
-        int age;
-        int followers;
-        int following;
-        String followerUsers;
-        String followingUsers;
+    static String getCell(CsvRow row, Map<String, Integer> idx, String col) {
+        Integer i = idx.get(col);
+        return i == null || i >= row.size() ? "" : row.get(i).trim();
     }
 
     private UserFollowFixer() {}
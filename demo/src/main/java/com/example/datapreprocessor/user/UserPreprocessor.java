@@ -1,40 +1,77 @@
 package com.example.datapreprocessor.user;
 
+import com.example.datapreprocessor.columnar.ColumnType;
+import com.example.datapreprocessor.columnar.ColumnarWriter;
+import com.example.datapreprocessor.io.Compression;
+import com.example.datapreprocessor.schedule.TaskGraph;
+import com.example.datapreprocessor.shard.ShardCoordinator;
+
 // import java.io.IOException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Map;
 // import java.io.*;
 
 public class UserPreprocessor {
+
+    /** 列存输出中按整数、字典或 ID 列表编码的列，其余按字符串 */
+    static final Map<String, ColumnType> COLUMNS = Map.of(
+            "AuthorId", ColumnType.INT,
+            "Gender", ColumnType.DICT,
+            "Age", ColumnType.INT,
+            "Followers", ColumnType.INT,
+            "Following", ColumnType.INT,
+            "FollowerUsers", ColumnType.ID_LIST,
+            "FollowingUsers", ColumnType.ID_LIST);
+
     public static void main(String[] args) {
-        Path inputPath = Paths.get("Project-1-for-midterm/user.csv");
+        Path inputPath = Compression.input(Paths.get("Project-1-for-midterm/user.csv"));
+        // --columnar 时在 user_fixed.csv 旁边再写一份 user_fixed.col 列存文件；--shards=N 时分片修复关注列表
+        process(inputPath, Arrays.asList(args).contains("--columnar"), ShardCoordinator.shards(args));
+    }
 
-        // 检查是否有重复的 UserId
-        CheckUserIdDuplication.check(inputPath);
+    /** 对 inputPath 跑完整的用户预处理，返回修复后的文件 */
+    public static Path process(Path inputPath) {
+        return process(inputPath, false);
+    }
 
-        try {
-            FollowCountValidator.validate(inputPath);
-        }
-        catch (Exception e) {
-            System.err.println("处理文件时出错: " + e.getMessage());
-            e.printStackTrace();
-        }
+    public static Path process(Path inputPath, boolean columnar) {
+        return process(inputPath, columnar, 1);
+    }
 
-        try {
-            UserFollowFixer.fix(inputPath);
-        }
-        catch (Exception e) {
-            System.err.println("处理文件时出错: " + e.getMessage());
-            e.printStackTrace();
-        }
+    public static Path process(Path inputPath, boolean columnar, int shards) {
+        TaskGraph graph = new TaskGraph();
+        Path out = addTo(graph, inputPath, columnar, shards);
+        graph.run();
+        return out;
+    }
+
+    /**
+     * 把用户预处理的各步加到 graph 上，节点名以 user. 开头，返回修复后的文件。
+     * 查重、校验和修复都只读原始文件，可以同时跑；复查和列存要等修复完成。
+     */
+    public static Path addTo(TaskGraph graph, Path inputPath, boolean columnar) {
+        return addTo(graph, inputPath, columnar, 1);
+    }
+
+    /** shards 大于 1 时关注列表修复分片交给多个进程，见 {@link ShardCoordinator#fixUsers} */
+    public static Path addTo(TaskGraph graph, Path inputPath, boolean columnar, int shards) {
+        Path out = UserFollowFixer.outputFor(inputPath);
 
-        Path out = inputPath.getParent().resolve("user_fixed.csv");
-        try {
-            FollowCountValidator.validate(out);
+        graph.add("user.dedup", () -> CheckUserIdDuplication.check(inputPath)).io(1).cost(inputPath);
+        graph.add("user.validate", () -> FollowCountValidator.validate(inputPath)).io(1).cost(inputPath);
+        if (shards > 1) {
+            graph.add("user.fix", () -> ShardCoordinator.fixUsers(inputPath, out, shards)).io(1).cost(inputPath);
+        } else {
+            graph.add("user.fix", () -> UserFollowFixer.fix(inputPath)).io(1).cost(inputPath);
         }
-        catch (Exception e) {
-            System.err.println("处理文件时出错: " + e.getMessage());
-            e.printStackTrace();
+        graph.add("user.revalidate", () -> FollowCountValidator.validate(out))
+                .after("user.fix").io(1).cost(inputPath);
+        if (columnar) {
+            graph.add("user.columnar", () -> ColumnarWriter.convert(out, ColumnarWriter.pathFor(out), COLUMNS))
+                    .after("user.fix").io(1).cost(inputPath);
         }
+        return out;
     }
-}
\ No newline at end of file
+}
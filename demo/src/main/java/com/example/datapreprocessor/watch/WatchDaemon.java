@@ -0,0 +1,395 @@
+package com.example.datapreprocessor.watch;
+
+import com.example.datapreprocessor.dedup.BatchDuplicateDetector;
+import com.example.datapreprocessor.dedup.DuplicateDetector;
+import com.example.datapreprocessor.dedup.DuplicateIdStage;
+import com.example.datapreprocessor.dedup.IdDictionaryFile;
+import com.example.datapreprocessor.diag.Diagnostics;
+import com.example.datapreprocessor.io.Compression;
+import com.example.datapreprocessor.metrics.LatencyHistogram;
+import com.example.datapreprocessor.metrics.Metrics;
+import com.example.datapreprocessor.pipeline.RowPipeline;
+import com.example.datapreprocessor.pipeline.RowStage;
+import com.example.datapreprocessor.recipe.CheckRecipeIdDuplication;
+import com.example.datapreprocessor.recipe.RecipePreprocessor;
+import com.example.datapreprocessor.review.CheckReviewIdDuplication;
+import com.example.datapreprocessor.review.ReviewPreprocessor;
+import com.example.datapreprocessor.user.CheckUserIdDuplication;
+import com.example.datapreprocessor.user.UserFollowFixer;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * 常驻进程：监视输入目录，新放进来的菜谱、评论、用户批次文件在同一个已经预热的 JVM 里处理，
+ * 省掉每批冷启动的开销。
+ *
+ * <p>文件按名字前缀分给对应的流水线：recipe* 走菜谱，review* 走评论，user* 走用户，扩展名为 .csv 或 .csv.gz。
+ * 以点开头的文件和输出文件名（_checktime、_recipeid2int、_fixed 结尾）忽略。
+ * 上游最好先写临时名再改名放入；直接写入的文件要等大小和修改时间稳定一段时间后才处理。</p>
+ *
+ * <p>每类数据一个处理线程，批次按到达顺序处理。查重阶段在各批次之间复用：一个 ID 在之前任何一批出现过就算重复，
+ * 每批只报告新发现的。用户批次的关注列表只按本批的数据修复。每批结束时打印从发现文件到输出就绪的端到端延迟，
+ * 以及该类数据累计的分位数，退出时再汇总一次。</p>
+ *
+ * <p>结果写到 --out 目录，文件名为批次名加 _checktime、_recipeid2int、_fixed。启动时目录里已有的文件，
+ * 还没有输出的照常处理，已有输出的只把 ID 读进去重状态，重启后查重结果不变。</p>
+ *
+ * <p>参数：--watch=目录 可以给多个，默认 Project-1-for-midterm/incoming；--out=目录 默认 Project-1-for-midterm/cleaned；
+ * --once 处理完启动时已有的文件后退出。系统属性：</p>
+ * <ul>
+ *   <li>-Ddatapreprocessor.watch.settle=毫秒 文件大小和修改时间多久不变才算写完，默认 1000</li>
+ * </ul>
+ * <p>设置了 -Ddatapreprocessor.ids 时去重用共用的 ID 字典，否则在内存里；溢写去重只能在最后一次性给出结果，这里不用。</p>
+ */
+public final class WatchDaemon {
+
+    private static final long SETTLE_NANOS =
+            TimeUnit.MILLISECONDS.toNanos(Long.getLong("datapreprocessor.watch.settle", 1000));
+
+    /** 三类批次文件：名字前缀、查重列和输出后缀 */
+    private enum Kind {
+        RECIPES("recipe", "RecipeId", "_checktime"),
+        REVIEWS("review", "ReviewId", "_recipeid2int"),
+        USERS("user", "AuthorId", "_fixed");
+
+        final String prefix;
+        final String idColumn;
+        final String suffix;
+
+        Kind(String prefix, String idColumn, String suffix) {
+            this.prefix = prefix;
+            this.idColumn = idColumn;
+            this.suffix = suffix;
+        }
+    }
+
+    /** 一个等待写完的文件 */
+    private static final class Pending {
+        final long arrived;
+        long size;
+        long modified;
+        long stableSince;
+
+        Pending(long now, BasicFileAttributes a) {
+            arrived = now;
+            stableSince = now;
+            size = a.size();
+            modified = a.lastModifiedTime().toMillis();
+        }
+    }
+
+    private final List<Path> dirs;
+    private final Path out;
+    private final Map<Kind, Lane> lanes = new EnumMap<>(Kind.class);
+    private final Map<Path, Pending> pending = new LinkedHashMap<>();
+    // 已交给处理线程的文件及当时的大小和修改时间；处理失败时移除，重新放入后会再处理
+    private final Map<Path, String> seen = new ConcurrentHashMap<>();
+
+    private WatchDaemon(List<Path> dirs, Path out) {
+        this.dirs = dirs;
+        this.out = out;
+        for (Kind k : Kind.values()) lanes.put(k, new Lane(k));
+    }
+
+    public static void main(String[] args) {
+        List<Path> dirs = new ArrayList<>();
+        Path out = Paths.get("Project-1-for-midterm/cleaned");
+        boolean once = false;
+        for (String a : args) {
+            if (a.startsWith("--watch=")) dirs.add(Paths.get(a.substring("--watch=".length())));
+            else if (a.startsWith("--out=")) out = Paths.get(a.substring("--out=".length()));
+            else if (a.equals("--once")) once = true;
+        }
+        if (dirs.isEmpty()) dirs.add(Paths.get("Project-1-for-midterm/incoming"));
+
+        WatchDaemon daemon = new WatchDaemon(dirs, out);
+        Runtime.getRuntime().addShutdownHook(new Thread(daemon::summary, "watch-summary"));
+        try {
+            daemon.run(once);
+        } catch (IOException e) {
+            System.err.println("监视目录时出错: " + e.getMessage());
+            e.printStackTrace();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void run(boolean once) throws IOException, InterruptedException {
+        Files.createDirectories(out);
+        try (WatchService watcher = FileSystems.getDefault().newWatchService()) {
+            Map<WatchKey, Path> keys = new HashMap<>();
+            for (Path dir : dirs) {
+                Files.createDirectories(dir);
+                keys.put(dir.register(watcher, StandardWatchEventKinds.ENTRY_CREATE,
+                        StandardWatchEventKinds.ENTRY_MODIFY), dir);
+            }
+            // 先注册再扫描，扫描期间放进来的文件不会漏掉
+            for (Path dir : dirs) scan(dir, true);
+            System.out.println("[watch] 监视 " + dirs + "，输出到 " + out.toAbsolutePath()
+                    + (once ? "，处理完已有文件后退出" : "，Ctrl+C 退出"));
+
+            long pollMillis = Math.max(1, TimeUnit.NANOSECONDS.toMillis(SETTLE_NANOS) / 4);
+            while (!once || !pending.isEmpty()) {
+                WatchKey key = watcher.poll(pollMillis, TimeUnit.MILLISECONDS);
+                while (key != null) {
+                    Path dir = keys.get(key);
+                    for (WatchEvent<?> event : key.pollEvents()) {
+                        if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                            scan(dir, false);   // 事件丢了，重新扫一遍目录
+                        } else {
+                            offer(dir.resolve((Path) event.context()), System.nanoTime());
+                        }
+                    }
+                    key.reset();
+                    key = watcher.poll();
+                }
+                dispatchSettled(System.nanoTime());
+            }
+        }
+        for (Lane lane : lanes.values()) lane.executor.shutdown();
+        for (Lane lane : lanes.values()) lane.executor.awaitTermination(Long.MAX_VALUE, TimeUnit.DAYS);
+    }
+
+    /** 按文件名顺序收下目录里已有的文件；startup 时已有输出的只重放 ID */
+    private void scan(Path dir, boolean startup) throws IOException {
+        List<Path> files;
+        try (Stream<Path> s = Files.list(dir)) {
+            files = s.sorted().toList();
+        }
+        long now = System.nanoTime();
+        for (Path f : files) {
+            Kind kind = kindOf(f);
+            if (kind == null || seen.containsKey(f) || pending.containsKey(f)) continue;
+            if (startup && Files.exists(outputFor(f, kind))) {
+                seen.put(f, stamp(f));
+                lanes.get(kind).replay(f);
+            } else {
+                offer(f, now);
+            }
+        }
+    }
+
+    /** 收到文件的事件：新文件开始等它写完，写完的文件更新稳定计时 */
+    private void offer(Path file, long now) {
+        Kind kind = kindOf(file);
+        if (kind == null) return;
+        BasicFileAttributes a;
+        try {
+            a = Files.readAttributes(file, BasicFileAttributes.class);
+        } catch (NoSuchFileException e) {
+            pending.remove(file);
+            return;
+        } catch (IOException e) {
+            System.err.println("[watch] 读取文件属性失败: " + file + ": " + e.getMessage());
+            return;
+        }
+        if (!a.isRegularFile()) return;
+
+        String before = seen.get(file);
+        if (before != null) {
+            String current = stamp(a);
+            if (!before.equals(current)) {
+                System.err.println("[watch] 已处理过的文件又被修改，忽略；改名后重新放入即可再处理: " + file);
+                seen.put(file, current);
+            }
+            return;
+        }
+        pending.computeIfAbsent(file, f -> new Pending(now, a));
+    }
+
+    /** 大小和修改时间稳定够久的文件交给对应的处理线程 */
+    private void dispatchSettled(long now) {
+        for (Iterator<Map.Entry<Path, Pending>> it = pending.entrySet().iterator(); it.hasNext(); ) {
+            Map.Entry<Path, Pending> e = it.next();
+            Path file = e.getKey();
+            Pending p = e.getValue();
+            BasicFileAttributes a;
+            try {
+                a = Files.readAttributes(file, BasicFileAttributes.class);
+            } catch (IOException ex) {
+                it.remove();   // 文件被移走了
+                continue;
+            }
+            long modified = a.lastModifiedTime().toMillis();
+            if (a.size() != p.size || modified != p.modified) {
+                p.size = a.size();
+                p.modified = modified;
+                p.stableSince = now;
+            } else if (now - p.stableSince >= SETTLE_NANOS) {
+                it.remove();
+                seen.put(file, stamp(a));
+                lanes.get(kindOf(file)).submit(file, p.arrived, now);
+            }
+        }
+    }
+
+    private void summary() {
+        for (Lane lane : lanes.values()) lane.summary();
+    }
+
+    /** 按文件名判断批次类型，不是批次文件时返回 null */
+    private static Kind kindOf(Path file) {
+        String name = file.getFileName().toString().toLowerCase();
+        if (name.startsWith(".")) return null;
+        String base = Compression.isCompressed(file) ? name.substring(0, name.length() - 3) : name;
+        if (!base.endsWith(".csv")) return null;
+        for (Kind k : Kind.values()) {
+            if (base.endsWith(k.suffix + ".csv")) return null;   // 输出文件
+        }
+        for (Kind k : Kind.values()) {
+            if (name.startsWith(k.prefix)) return k;
+        }
+        return null;
+    }
+
+    /** 批次 x.csv 的输出为 out/x_后缀.csv（开启压缩时加 .gz） */
+    private Path outputFor(Path file, Kind kind) {
+        String base = Compression.baseName(file);
+        base = base.substring(0, base.length() - ".csv".length());
+        return Compression.output(out.resolve(base + kind.suffix + ".csv"));
+    }
+
+    private static String stamp(Path file) {
+        try {
+            return stamp(Files.readAttributes(file, BasicFileAttributes.class));
+        } catch (IOException e) {
+            return "";
+        }
+    }
+
+    private static String stamp(BasicFileAttributes a) {
+        return a.size() + "@" + a.lastModifiedTime().toMillis();
+    }
+
+    private static double seconds(long nanos) {
+        return nanos / 1e9;
+    }
+
+    /** 一类数据的处理线程和跨批次的状态，状态只在该线程上读写 */
+    private final class Lane {
+        private final Kind kind;
+        private final ExecutorService executor;
+        private final BatchDuplicateDetector detector;
+        private final DuplicateIdStage dedup;
+        private final LatencyHistogram latency = new LatencyHistogram();
+        private int failed;
+
+        Lane(Kind kind) {
+            this.kind = kind;
+            this.executor = Executors.newSingleThreadExecutor(r -> new Thread(r, "watch-" + kind.prefix));
+            try {
+                this.detector = IdDictionaryFile.enabled()
+                        ? DuplicateDetector.dictionary(IdDictionaryFile.shared(kind.idColumn))
+                        : DuplicateDetector.inMemory();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            this.dedup = switch (kind) {
+                case RECIPES -> CheckRecipeIdDuplication.stage(detector);
+                case REVIEWS -> CheckReviewIdDuplication.stage(detector);
+                case USERS -> CheckUserIdDuplication.stage(detector);
+            };
+        }
+
+        /** 已有输出的批次：只把 ID 读进去重状态 */
+        void replay(Path file) {
+            executor.execute(() -> {
+                System.out.println("[watch] 已有输出，只把 ID 读进去重状态: " + file);
+                try {
+                    new RowPipeline().add(dedup).run(file, null);
+                } catch (IOException | RuntimeException e) {
+                    System.err.println("[watch] 读取 " + file + " 失败: " + e.getMessage());
+                }
+            });
+        }
+
+        void submit(Path file, long arrived, long ready) {
+            executor.execute(() -> process(file, arrived, ready));
+        }
+
+        private void process(Path file, long arrived, long ready) {
+            long started = System.nanoTime();
+            Path target = outputFor(file, kind);
+            System.out.println("[watch] 开始处理 " + file);
+            // 整批成功才把这批的 ID 并入去重状态；失败时撤销，重试时不会把它们当成重复
+            int reported = dedup.reported();
+            detector.beginBatch();
+            try {
+                switch (kind) {
+                    case RECIPES -> run(RecipePreprocessor.stages(dedup), file, target);
+                    case REVIEWS -> run(ReviewPreprocessor.stages(dedup), file, target);
+                    case USERS -> {
+                        new RowPipeline().add(dedup).run(file, null);
+                        UserFollowFixer.fix(file, target);
+                    }
+                }
+                Diagnostics.flush();
+                detector.commitBatch();
+            } catch (Exception e) {
+                detector.rollbackBatch();
+                dedup.rewind(reported);
+                seen.remove(file);
+                Metrics.task("watch " + file.getFileName(), "failed", System.nanoTime() - started);
+                synchronized (this) {
+                    failed++;
+                }
+                System.err.println("[watch] 处理 " + file + " 失败: " + e.getMessage());
+                e.printStackTrace();
+                return;
+            }
+            long done = System.nanoTime();
+            Metrics.task("watch " + file.getFileName(), "done", done - started);
+            long count;
+            long p50;
+            long p99;
+            synchronized (this) {
+                latency.record(done - arrived);
+                count = latency.count();
+                p50 = latency.percentile(0.5);
+                p99 = latency.percentile(0.99);
+            }
+            System.out.printf("[watch] %s → %s  等待写完 %.2fs 排队 %.2fs 处理 %.2fs 端到端 %.2fs"
+                            + "（%s 累计 %d 批，p50 %.2fs p99 %.2fs）%n",
+                    file.getFileName(), target.getFileName(), seconds(ready - arrived), seconds(started - ready),
+                    seconds(done - started), seconds(done - arrived), kind.prefix, count, seconds(p50), seconds(p99));
+        }
+
+        private void run(List<RowStage> stages, Path file, Path target) throws IOException {
+            RowPipeline pipeline = new RowPipeline();
+            for (RowStage stage : stages) {
+                pipeline.add(stage);
+            }
+            pipeline.run(file, target);
+        }
+
+        synchronized void summary() {
+            if (latency.count() == 0 && failed == 0) return;
+            System.out.printf("[watch] %s 共处理 %d 批，失败 %d 批；端到端 平均 %.2fs p50 %.2fs p90 %.2fs p99 %.2fs 最大 %.2fs%n",
+                    kind.prefix, latency.count(), failed, latency.mean() / 1e9, seconds(latency.percentile(0.5)),
+                    seconds(latency.percentile(0.9)), seconds(latency.percentile(0.99)), seconds(latency.max()));
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.example.datapreprocessor.coerce;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+/**
+ * 十进制扫描与原来的 {@code Math.round(Double.parseDouble(s))} 对照：
+ * double 能精确区分的输入结果必须相同，指数、NaN 之类原来能解析的写法现在一律失败。
+ */
+class DecimalScannerTest {
+
+    @Test
+    void matchesMathRoundOnPlainDecimals() {
+        Random r = new Random(1);
+        for (int i = 0; i < 100_000; i++) {
+            String s = decimal(r);
+            long expected;
+            try {
+                expected = Math.round(Double.parseDouble(s));
+            } catch (NumberFormatException e) {
+                expected = DecimalScanner.FAIL;
+            }
+            assertEquals(expected, DecimalScanner.parse(s), "'" + s + "'");
+        }
+    }
+
+    @Test
+    void roundsHalfTowardsPositiveInfinity() {
+        assertEquals(3, DecimalScanner.parse("2.5"));
+        assertEquals(-2, DecimalScanner.parse("-2.5"));
+        assertEquals(-3, DecimalScanner.parse("-2.51"));
+        assertEquals(-2, DecimalScanner.parse("-2.50000"));
+        assertEquals(0, DecimalScanner.parse("-0.4"));
+    }
+
+    @Test
+    void rejectsWhatDoubleWouldHaveBent() {
+        for (String s : new String[] {"", " ", "x", "1e3", "NaN", "Infinity", "1.2.3", "--1", "1 2", "0x10",
+                "99999999999999999999", "9223372036854775807.5"}) {
+            assertEquals(DecimalScanner.FAIL, DecimalScanner.parse(s), s);
+        }
+        assertEquals(Long.MAX_VALUE, DecimalScanner.parse("9223372036854775807.4"));
+    }
+
+    @Test
+    void canonicalFormsAreLeftAlone() {
+        for (String s : new String[] {"0", "7", "-7", "1234567890"}) assertTrue(DecimalScanner.isCanonical(s), s);
+        for (String s : new String[] {"", "-", "-0", "007", "+7", " 7", "7.0"}) {
+            assertFalse(DecimalScanner.isCanonical(s), s);
+        }
+    }
+
+    /** 至多 9 位整数加 5 位小数，double 能精确区分恰好 .5 与其它小数 */
+    private static String decimal(Random r) {
+        StringBuilder sb = new StringBuilder();
+        if (r.nextInt(4) == 0) sb.append(' ');
+        if (r.nextInt(3) == 0) sb.append(r.nextBoolean() ? '-' : '+');
+        for (int n = r.nextInt(10); n > 0; n--) sb.append((char) ('0' + r.nextInt(10)));
+        if (r.nextBoolean()) {
+            sb.append('.');
+            int n = r.nextInt(6);
+            for (int k = 0; k < n; k++) sb.append(k == 0 && r.nextInt(3) == 0 ? '5' : (char) ('0' + r.nextInt(10)));
+        }
+        if (r.nextInt(4) == 0) sb.append('\t');
+        return sb.toString();
+    }
+}
@@ -0,0 +1,51 @@
+package com.example.datapreprocessor.coerce;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import com.example.datapreprocessor.pipeline.RowPipeline;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+
+/**
+ * 按列名转换：只改写不规范的值，无法转换和超出范围的值原样保留，列数不足的行和缺失的列都跳过。
+ */
+class NumericCoercionStageTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void convertsNamedColumnsOnly() throws IOException {
+        Path in = dir.resolve("in.csv");
+        Files.writeString(in, String.join("\n",
+                "Id,Count,Text,Serving",
+                "1,3.0,2.5,\" 7 \"",
+                "2,x,3.0,3000000000",
+                "3,-1.5,,12.49",
+                "4",
+                "5,1e3,a,",
+                ""), StandardCharsets.UTF_8);
+        Path out = dir.resolve("out.csv");
+
+        new RowPipeline()
+                .add(new NumericCoercionStage(null, Map.of(
+                        "Count", NumericType.INT, "Serving", NumericType.INT, "Missing", NumericType.LONG)))
+                .run(in, out);
+
+        assertEquals(String.join("\n",
+                "Id,Count,Text,Serving",
+                "1,3,2.5,7",
+                "2,x,3.0,3000000000",
+                "3,-1,,12",
+                "4",
+                "5,1e3,a,",
+                ""), Files.readString(out, StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,174 @@
+package com.example.datapreprocessor.columnar;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.example.datapreprocessor.io.ListCell;
+import com.example.datapreprocessor.pipeline.RowPipeline;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * 写出再读回要与原值逐个相同，包括退回字符串编码的块；块统计只能排除确实不含目标范围的块。
+ */
+class ColumnarWriterTest {
+
+    private static final String[] HEADER = {"Id", "Count", "Category", "Text"};
+    private static final Map<String, ColumnType> SCHEMA = Map.of(
+            "Id", ColumnType.INT, "Count", ColumnType.INT, "Category", ColumnType.DICT, "Text", ColumnType.STRING);
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void roundTripsEveryValue() throws IOException {
+        int block = ColumnarWriter.BLOCK_ROWS;
+        Random r = new Random(11);
+        List<String[]> rows = new ArrayList<>();
+        for (int i = 0; i < 3 * block + 17; i++) {
+            rows.add(new String[]{
+                    Integer.toString(i),
+                    count(r, i / block),
+                    // 第 2 块字典超过上限，退回字符串编码
+                    i / block == 2 ? "c" + i : "c" + r.nextInt(5),
+                    r.nextInt(10) == 0 ? "a, \"b\"\n中文" : "t" + r.nextInt(1000)});
+        }
+        Path file = write(rows);
+
+        try (ColumnarReader reader = ColumnarReader.open(file)) {
+            assertArrayEquals(HEADER, reader.columns());
+            assertEquals(rows.size(), reader.rowCount());
+            assertEquals(4, reader.blockCount());
+            int i = 0;
+            for (int b = 0; b < reader.blockCount(); b++) {
+                ColumnarReader.Block blk = reader.block(b);
+                for (int k = 0; k < blk.rows(); k++) {
+                    assertArrayEquals(rows.get(i), blk.row(k), "第 " + i + " 行");
+                    i++;
+                }
+            }
+            assertEquals(rows.size(), i);
+
+            // 第 1 块 Count 有非规范写法，整块退回字符串；其它块保持整数编码
+            assertTrue(reader.block(0).isInt(1));
+            assertFalse(reader.block(1).isInt(1));
+            assertTrue(reader.block(2).isInt(1));
+            // 第 2 块 Category 超过字典上限，退回字符串
+            assertEquals(5, reader.block(0).dictionary(2).length);
+            assertThrows(IllegalStateException.class, () -> reader.block(2).code(2, 0));
+        }
+    }
+
+    @Test
+    void mayContainSkipsOnlyBlocksOutsideTheRange() throws IOException {
+        int block = ColumnarWriter.BLOCK_ROWS;
+        List<String[]> rows = new ArrayList<>();
+        for (int i = 0; i < 3 * block; i++) {
+            String count = switch (i / block) {
+                case 0 -> Integer.toString(1000 + i % 1001);   // [1000, 2000]
+                case 1 -> "";                                  // 全空
+                default -> i % 2 == 0 ? "05" : "5";            // 退回字符串，没有统计
+            };
+            rows.add(new String[]{Integer.toString(i), count, "x", ""});
+        }
+        Path file = write(rows);
+
+        try (ColumnarReader reader = ColumnarReader.open(file)) {
+            assertTrue(reader.mayContain(0, 1, 1500, 1600));
+            assertTrue(reader.mayContain(0, 1, 0, 1000));
+            assertTrue(reader.mayContain(0, 1, 2000, 5000));
+            assertFalse(reader.mayContain(0, 1, 0, 999));
+            assertFalse(reader.mayContain(0, 1, 2001, Long.MAX_VALUE));
+            assertFalse(reader.mayContain(1, 1, Long.MIN_VALUE, Long.MAX_VALUE));
+            assertTrue(reader.mayContain(2, 1, 0, 0));
+            assertEquals(1000, reader.block(0).min(1));
+            assertEquals(2000, reader.block(0).max(1));
+            assertTrue(reader.block(1).isNull(1, 0));
+            assertEquals("", reader.block(1).get(1, 0));
+        }
+    }
+
+    @Test
+    void idListsRoundTripAndFallBackPerBlock() throws IOException {
+        int block = ColumnarWriter.BLOCK_ROWS;
+        String[] header = {"Id", "Following"};
+        Random r = new Random(12);
+        List<String[]> rows = new ArrayList<>();
+        for (int i = 0; i < 2 * block; i++) {
+            StringBuilder sb = new StringBuilder();
+            for (int k = r.nextInt(5); k > 0; k--) ListCell.append(sb, r.nextInt(1_000_000));
+            String list = ListCell.finish(sb);
+            if (i == block + 3) list = "c(\"1, 2\")";   // 第 1 块有不规范的写法，整块退回字符串
+            rows.add(new String[]{Integer.toString(i), list});
+        }
+        Path file = dir.resolve("lists.col");
+        try (ColumnarWriter w = ColumnarWriter.open(file, header,
+                Map.of("Id", ColumnType.INT, "Following", ColumnType.ID_LIST))) {
+            for (String[] row : rows) w.write(row);
+        }
+
+        try (ColumnarReader reader = ColumnarReader.open(file)) {
+            for (int b = 0; b < 2; b++) {
+                ColumnarReader.Block blk = reader.block(b);
+                for (int k = 0; k < block; k++) {
+                    assertArrayEquals(rows.get(b * block + k), blk.row(k), "第 " + (b * block + k) + " 行");
+                }
+            }
+            assertEquals(ListCell.split(rows.get(5)[1]).toString(),
+                    Arrays.toString(reader.block(0).ids(1, 5)).replace(" ", ""));
+            assertThrows(IllegalStateException.class, () -> reader.block(1).ids(1, 0));
+        }
+    }
+
+    @Test
+    void pipelineWithColumnarStageIsNotResumable() throws IOException {
+        Path csv = dir.resolve("in.csv");
+        Files.writeString(csv, "Id,Count,Category,Text\n1,2,a,x\n2,,b,y\n", StandardCharsets.UTF_8);
+        Path out = dir.resolve("out.csv");
+        Path col = dir.resolve("out.col");
+
+        RowPipeline pipeline = new RowPipeline().add(ColumnarWriter.stage(col, SCHEMA)).incremental(true);
+        assertEquals(2, pipeline.run(csv, out));
+        assertFalse(Files.exists(dir.resolve("out.csv.manifest")));
+
+        // 追加后仍全量重算，列存文件包含全部行
+        Files.writeString(csv, "Id,Count,Category,Text\n1,2,a,x\n2,,b,y\n3,4,a,z\n", StandardCharsets.UTF_8);
+        assertEquals(3, pipeline.run(csv, out));
+        try (ColumnarReader reader = ColumnarReader.open(col)) {
+            assertEquals(3, reader.rowCount());
+            assertArrayEquals(new String[]{"3", "4", "a", "z"}, reader.block(0).row(2));
+        }
+    }
+
+    private static String count(Random r, int block) {
+        return switch (r.nextInt(12)) {
+            case 0 -> "";
+            case 1 -> Long.toString(Long.MIN_VALUE);
+            case 2 -> Long.toString(Long.MAX_VALUE);
+            case 3 -> block == 1 ? "007" : "7";
+            default -> Integer.toString(r.nextInt(2000) - 1000);
+        };
+    }
+
+    private Path write(List<String[]> rows) throws IOException {
+        Path file = dir.resolve("data.col");
+        try (ColumnarWriter w = ColumnarWriter.open(file, HEADER, SCHEMA)) {
+            for (String[] row : rows) w.write(row);
+        }
+        return file;
+    }
+}
@@ -0,0 +1,110 @@
+package com.example.datapreprocessor.db;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 导入一组小的清洗结果：重复主键保留第一行，缺失的外键按规则跳过或置空，
+ * 无法转换的值写 NULL，导入后补建的主键和外键约束生效。
+ */
+class DatabaseLoaderTest {
+
+    private static final List<String> RECIPE_HEADER = List.of("RecipeId", "Name", "AuthorId", "AuthorName",
+            "CookTime", "PrepTime", "TotalTime", "DatePublished", "Description", "RecipeCategory", "Keywords",
+            "RecipeIngredientParts", "AggregatedRating", "ReviewCount", "Calories", "FatContent",
+            "SaturatedFatContent", "CholesterolContent", "SodiumContent", "CarbohydrateContent", "FiberContent",
+            "SugarContent", "ProteinContent", "RecipeServings", "RecipeYield", "RecipeInstructions", "FavoriteUsers");
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void loadsAndEnforcesKeys() throws IOException, SQLException {
+        Files.writeString(dir.resolve("user_fixed.csv"), """
+                AuthorId,AuthorName,Gender,Age,Followers,Following,FollowerUsers,FollowingUsers
+                1,Ann,F,30,1,2,"c(""2"")","c(""2,3,3,99"")"
+                2,Bob,M,x,1,1,"c(""1"")","c(""1"")"
+                2,Bob again,M,40,0,0,,
+                3,Cid,M,25,1,0,"c(""1"")",
+                u4,Bad,F,20,0,0,,
+                """, StandardCharsets.UTF_8);
+        Files.writeString(dir.resolve("recipes_checktime.csv"), String.join(",", RECIPE_HEADER) + "\n"
+                + recipe("10", "1", "3.5") + recipe("11", "77", "abc") + recipe("10", "2", "1"),
+                StandardCharsets.UTF_8);
+        Files.writeString(dir.resolve("reviews_recipeid2int.csv"), """
+                ReviewId,RecipeId,AuthorId,Rating,Review,DateSubmitted,DateModified,Likes
+                100,10,2,5,"good, really",2020-01-01T00:00:00Z,2020-01-02T00:00:00Z,3
+                101,12,1,4,missing recipe,2020-01-01T00:00:00Z,2020-01-01T00:00:00Z,0
+                102,11,88,five,,not a date,2020-01-01T00:00:00Z,
+                """, StandardCharsets.UTF_8);
+
+        String url = "jdbc:h2:file:" + dir.toAbsolutePath().resolve("test");
+        DatabaseLoader.load(dir, url);
+
+        try (Connection c = DriverManager.getConnection(url); Statement st = c.createStatement()) {
+            assertEquals(List.of("1 Ann 30", "2 Bob null", "3 Cid 25"),
+                    rows(st, "SELECT author_id || ' ' || author_name || ' ' || COALESCE(CAST(age AS VARCHAR), 'null')"
+                            + " FROM users ORDER BY author_id"));
+            assertEquals(List.of("1->2", "1->3", "2->1"),
+                    rows(st, "SELECT follower_id || '->' || followee_id FROM user_follows ORDER BY 1"));
+            assertEquals(List.of("10 1 3.5", "11 null null"),
+                    rows(st, "SELECT recipe_id || ' ' || COALESCE(CAST(author_id AS VARCHAR), 'null') || ' '"
+                            + " || COALESCE(CAST(aggregated_rating AS VARCHAR), 'null') FROM recipes ORDER BY recipe_id"));
+            assertEquals(List.of("100", "102"), rows(st, "SELECT review_id FROM reviews ORDER BY review_id"));
+            try (ResultSet rs = st.executeQuery("SELECT rating, author_id, date_submitted FROM reviews WHERE review_id = 102")) {
+                rs.next();
+                assertNull(rs.getObject(1));
+                assertNull(rs.getObject(2));
+                assertNull(rs.getObject(3));
+            }
+
+            // 导入后补建的约束对新数据生效
+            assertThrows(SQLException.class, () -> st.execute("INSERT INTO users (author_id) VALUES (1)"));
+            assertThrows(SQLException.class,
+                    () -> st.execute("INSERT INTO reviews (review_id, recipe_id) VALUES (200, 999)"));
+        }
+    }
+
+    @Test
+    void snakeCaseKeepsAcronymsTogether() {
+        assertEquals("recipe_id", TableSpec.snakeCase("RecipeId"));
+        assertEquals("saturated_fat_content", TableSpec.snakeCase("SaturatedFatContent"));
+        assertEquals("id", TableSpec.snakeCase("ID"));
+    }
+
+    private static String recipe(String id, String author, String rating) {
+        List<String> f = new ArrayList<>(Collections.nCopies(RECIPE_HEADER.size(), ""));
+        f.set(0, id);
+        f.set(1, "\"Soup, hot\"");
+        f.set(2, author);
+        f.set(4, "PT5M");
+        f.set(7, "2019-05-01T10:00:00Z");
+        f.set(12, rating);
+        return String.join(",", f) + "\n";
+    }
+
+    private static List<String> rows(Statement st, String sql) throws SQLException {
+        List<String> out = new ArrayList<>();
+        try (ResultSet rs = st.executeQuery(sql)) {
+            while (rs.next()) out.add(rs.getString(1));
+        }
+        return out;
+    }
+}
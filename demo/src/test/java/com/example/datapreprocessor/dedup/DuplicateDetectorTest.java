@@ -0,0 +1,211 @@
+package com.example.datapreprocessor.dedup;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.example.datapreprocessor.io.CsvRow;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * 各去重引擎与 HashSet 的结果对照：重复的 ID 和“第一次发现重复”的顺序都要一致。
+ */
+class DuplicateDetectorTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void inMemoryMatchesOracle() {
+        List<String> ids = ids(new Random(1), 20_000, 15_000);
+        assertEquals(oracle(ids), feed(DuplicateDetector.inMemory(), ids));
+    }
+
+    @Test
+    void spillingMatchesOracle() throws IOException {
+        List<String> ids = ids(new Random(2), 20_000, 15_000);
+        // 预算很小，很早就溢写，还会触发分区的再次溢写
+        SpillingDuplicateDetector d = new SpillingDuplicateDetector(dir, 4 << 10);
+        assertEquals(oracle(ids), feed(d, ids));
+        assertTrue(d.spilled());
+        try (var left = Files.list(dir)) {
+            assertEquals(0, left.count(), "溢写文件没有删干净");
+        }
+    }
+
+    @Test
+    void spillingWithinBudgetStaysInMemory() {
+        List<String> ids = ids(new Random(3), 5_000, 4_000);
+        SpillingDuplicateDetector d = new SpillingDuplicateDetector(dir, 64L << 20);
+        assertEquals(oracle(ids), feed(d, ids));
+        assertFalse(d.spilled());
+    }
+
+    @Test
+    void dictionaryMatchesOracle() throws IOException {
+        List<String> ids = ids(new Random(5), 20_000, 15_000);
+        try (IdDictionaryFile dict = IdDictionaryFile.open(dir.resolve("ids").resolve("Id.ids"))) {
+            assertEquals(oracle(ids), feed(DuplicateDetector.dictionary(dict), ids));
+            // 第二次运行沿用字典里已有的编号，结果不变
+            assertEquals(oracle(ids), feed(DuplicateDetector.dictionary(dict), ids));
+        }
+    }
+
+    @Test
+    void filteredMatchesOracle() throws IOException {
+        List<String> ids = ids(new Random(7), 200_000, 150_000);
+        // 预计个数远小于实际，会加好几层；误判率调高，让误判的第一次命中真的出现
+        FilteredDuplicateDetector d = new FilteredDuplicateDetector(dir, 5_000, 0.2);
+        assertEquals(oracle(ids), feed(d, ids));
+        try (var left = Files.list(dir)) {
+            assertEquals(0, left.count(), "日志文件没有删干净");
+        }
+        // 日志还不满一个缓冲区时不落盘
+        List<String> few = ids(new Random(8), 2_000, 1_500);
+        assertEquals(oracle(few), feed(new FilteredDuplicateDetector(dir, 100, 0.3), few));
+    }
+
+    @Test
+    void bloomFilterHasNoFalseNegatives() {
+        SplitBlockBloomFilter f = new SplitBlockBloomFilter(10_000, 0.01);
+        Random r = new Random(9);
+        long[] keys = new long[10_000];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = LongHashSet.mix(r.nextLong());
+            f.testAndSet(keys[i]);
+        }
+        for (long k : keys) assertTrue(f.mightContain(k));
+        int falsePositives = 0;
+        for (int i = 0; i < 100_000; i++) {
+            if (f.mightContain(LongHashSet.mix(r.nextLong()))) falsePositives++;
+        }
+        assertTrue(falsePositives < 3_000, "误判 " + falsePositives + " 次");
+    }
+
+    /** 一批处理到一半失败撤销、再整批重试，结果与这批只处理过一次相同 */
+    @Test
+    void rolledBackBatchLeavesNoTrace() throws IOException {
+        List<String> ids = ids(new Random(6), 30_000, 20_000);
+        assertEquals(oracle(ids), feedInBatches(DuplicateDetector.inMemory(), ids));
+        try (IdDictionaryFile dict = IdDictionaryFile.open(dir.resolve("ids").resolve("Id.ids"))) {
+            assertEquals(oracle(ids), feedInBatches(DuplicateDetector.dictionary(dict), ids));
+        }
+    }
+
+    /** 每 5000 个一批，奇数批先读一半就撤销，再整批重来 */
+    private static List<String> feedInBatches(BatchDuplicateDetector d, List<String> ids) {
+        for (int from = 0, batch = 0; from < ids.size(); from += 5_000, batch++) {
+            List<String> part = ids.subList(from, Math.min(ids.size(), from + 5_000));
+            if (batch % 2 == 1) {
+                List<String> before = List.copyOf(d.duplicates());
+                d.beginBatch();
+                feed(d, part.subList(0, part.size() / 2));
+                d.rollbackBatch();
+                assertEquals(before, d.duplicates());
+            }
+            d.beginBatch();
+            feed(d, part);
+            d.commitBatch();
+        }
+        return d.duplicates();
+    }
+
+    /** 溢写和两级过滤实现只能用一次：取过结果之后不能再加入；内存实现可以接着用 */
+    @Test
+    void spillingIsSingleUse() {
+        DuplicateDetector spilling = DuplicateDetector.spilling(dir, 4 << 10);
+        feed(spilling, ids(new Random(4), 2_000, 1_000));
+        assertThrows(IllegalStateException.class, () -> spilling.add("1"));
+
+        DuplicateDetector filtered = DuplicateDetector.filtered(dir, 1_000, 0.01);
+        feed(filtered, ids(new Random(4), 2_000, 1_000));
+        assertThrows(IllegalStateException.class, () -> filtered.add("1"));
+
+        DuplicateDetector inMemory = DuplicateDetector.inMemory();
+        inMemory.add("1");
+        assertEquals(List.of(), inMemory.duplicates());
+        inMemory.add("1");
+        assertEquals(List.of("1"), inMemory.duplicates());
+    }
+
+    /** 数字和字符串两种存法之间不能串：写法不同的同一个数是两个 ID */
+    @Test
+    void idSetKeepsSpellingsApart() {
+        IdSet set = new IdSet();
+        List<String> spellings = List.of("7", "07", "+7", " 7", "-7", "0", "-0", "00",
+                "9223372036854775807", "9223372036854775808", "-9223372036854775808", "-9223372036854775809", "");
+        for (String s : spellings) assertTrue(set.add(s), s);
+        for (String s : spellings) assertFalse(set.add(s), s);
+        assertEquals(spellings.size(), set.size());
+        assertFalse(set.contains("8"));
+    }
+
+    @Test
+    void idSetGrowsLikeHashSet() {
+        Random r = new Random(2);
+        IdSet set = new IdSet(16);
+        Set<String> oracle = new HashSet<>();
+        for (int i = 0; i < 200_000; i++) {
+            String id = r.nextInt(10) == 0 ? "u" + r.nextInt(50_000) : Integer.toString(r.nextInt(150_000));
+            assertEquals(oracle.add(id), set.add(id), id);
+        }
+        assertEquals(oracle.size(), set.size());
+        for (String id : oracle) assertTrue(set.contains(id), id);
+    }
+
+    @Test
+    void parsesOnlyCanonicalDecimals() {
+        assertEquals(0, IdSet.parseCanonical("0"));
+        assertEquals(-12, IdSet.parseCanonical("-12"));
+        assertEquals(Long.MIN_VALUE + 1, IdSet.parseCanonical("-9223372036854775807"));
+        for (String s : List.of("", "-", "-0", "01", "+1", "1.0", " 1", "1 ", "9223372036854775808", "x")) {
+            assertEquals(IdSet.NOT_NUMERIC, IdSet.parseCanonical(s), s);
+        }
+    }
+
+    static List<String> feed(DuplicateDetector d, List<String> ids) {
+        for (String id : ids) d.add(id);
+        return d.duplicates();
+    }
+
+    static List<String> oracle(List<String> ids) {
+        Set<String> seen = new HashSet<>();
+        Set<String> duplicates = new LinkedHashSet<>();
+        for (String id : ids) {
+            if (!seen.add(id)) duplicates.add(id);
+        }
+        return new ArrayList<>(duplicates);
+    }
+
+    /** 大多是规范十进制，夹杂前导 0、负数和非数字的写法 */
+    static List<String> ids(Random r, int n, int range) {
+        List<String> ids = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            int v = r.nextInt(range);
+            ids.add(switch (r.nextInt(20)) {
+                case 0 -> "0" + v;
+                case 1 -> "-" + v;
+                case 2 -> "u" + v;
+                default -> Integer.toString(v);
+            });
+        }
+        return ids;
+    }
+}
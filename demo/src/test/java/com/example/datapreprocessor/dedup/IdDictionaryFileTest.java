@@ -0,0 +1,62 @@
+package com.example.datapreprocessor.dedup;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * 持久化字典：编号按首次出现顺序分配，多次扩容和关闭重开之后编号与名字都不变。
+ */
+class IdDictionaryFileTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void codesSurviveGrowthAndReopen() throws IOException {
+        Path file = dir.resolve("RecipeId.ids");
+        Map<String, Integer> expected = new LinkedHashMap<>();
+        List<String> ids = DuplicateDetectorTest.ids(new Random(1), 30_000, 25_000);
+        ids.add("-9223372036854775808");
+        ids.add("9223372036854775807");
+        try (IdDictionaryFile d = IdDictionaryFile.open(file)) {
+            for (String id : ids) {
+                int code = d.idOf(id);
+                assertEquals((int) expected.computeIfAbsent(id, x -> expected.size()), code, id);
+            }
+            assertEquals(expected.size(), d.size());
+        }
+
+        try (IdDictionaryFile d = IdDictionaryFile.open(file)) {
+            assertEquals(expected.size(), d.size());
+            for (Map.Entry<String, Integer> e : expected.entrySet()) {
+                assertEquals((int) e.getValue(), d.lookup(e.getKey()), e.getKey());
+                assertEquals(e.getKey(), d.nameOf(e.getValue()));
+            }
+            assertEquals(-1, d.lookup("999999999"));
+            assertEquals(-1, d.lookup("not-there"));
+            assertEquals(expected.size(), d.idOf("999999999"));   // 重开后继续往后编号
+        }
+    }
+
+    @Test
+    void fileCanOnlyBeOpenedOnce() throws IOException {
+        Path file = dir.resolve("ReviewId.ids");
+        try (IdDictionaryFile d = IdDictionaryFile.open(file)) {
+            d.idOf("1");
+            assertThrows(IOException.class, () -> IdDictionaryFile.open(file));
+        }
+        try (IdDictionaryFile d = IdDictionaryFile.open(file)) {
+            assertEquals(0, d.lookup("1"));
+        }
+    }
+}
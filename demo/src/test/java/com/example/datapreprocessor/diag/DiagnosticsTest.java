@@ -0,0 +1,73 @@
+package com.example.datapreprocessor.diag;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 诊断消息在 flush 返回前全部输出且保持上报顺序；超出采样上限的只计数，flush 时补一行汇总。
+ */
+class DiagnosticsTest {
+
+    @Test
+    void flushPrintsSampledMessagesInOrderThenSummary() {
+        Rule rule = Diagnostics.rule("test.sampled");
+        assertSame(rule, Diagnostics.rule("test.sampled"));
+
+        String out = capture(() -> {
+            for (int i = 1; i <= 50; i++) rule.report(i + 1, -1, "第 %d 条", i);
+            Diagnostics.flush();
+        });
+
+        List<String> lines = new ArrayList<>(out.lines().toList());
+        assertEquals("[test.sampled] 共 50 条，控制台只打印前 20 条", lines.remove(lines.size() - 1));
+        List<String> expected = new ArrayList<>();
+        for (int i = 1; i <= 20; i++) expected.add("第 " + i + " 条");
+        assertEquals(expected, lines);
+        assertEquals(50, rule.count());
+    }
+
+    @Test
+    void reportsFromManyThreadsAreAllCounted() throws InterruptedException {
+        Rule rule = Diagnostics.rule("test.threads");
+        Thread[] threads = new Thread[8];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 10_000; i++) rule.report(-1, i, "x");
+            });
+            threads[t].start();
+        }
+        for (Thread t : threads) t.join();
+        String out = capture(Diagnostics::flush);
+
+        assertEquals(80_000, rule.count());
+        assertTrue(out.contains("[test.threads] 共 80000 条"), out);
+        // 汇总只打一次
+        assertEquals("", capture(Diagnostics::flush));
+    }
+
+    @Test
+    void jsonStringEscapesControlCharacters() {
+        assertEquals("\"a\\\"b\\\\c\\nd\\u0001\"", Diagnostics.jsonString("a\"b\\c\nd\u0001"));
+    }
+
+    private static String capture(Runnable r) {
+        PrintStream old = System.out;
+        ByteArrayOutputStream buf = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(buf, true, StandardCharsets.UTF_8));
+        try {
+            r.run();
+        } finally {
+            System.setOut(old);
+        }
+        return buf.toString(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,77 @@
+package com.example.datapreprocessor.generator;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.example.datapreprocessor.io.CsvInput;
+import com.example.datapreprocessor.io.RowReader;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * 生成结果只取决于参数和种子，与线程数无关；行数与参数一致且都能按 CSV 读回。
+ */
+class DatasetGeneratorTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void sameSeedGivesSameBytesForAnyThreadCount() throws IOException {
+        GeneratorConfig one = GeneratorConfig.parse(new String[]{"--threads=1", "--recipes=45000",
+                "--reviews=45000", "--users=3000", "--seed=7"});
+        GeneratorConfig four = GeneratorConfig.parse(new String[]{"--threads=4", "--recipes=45000",
+                "--reviews=45000", "--users=3000", "--seed=7"});
+
+        for (String name : new String[]{"recipes.csv", "reviews.csv", "user.csv"}) {
+            Path a = dir.resolve("one_" + name);
+            Path b = dir.resolve("four_" + name);
+            generate(name, a, one);
+            generate(name, b, four);
+            assertArrayEquals(Files.readAllBytes(a), Files.readAllBytes(b), name);
+        }
+        assertEquals(45_000, dataRows(dir.resolve("one_recipes.csv")));
+        assertEquals(45_000, dataRows(dir.resolve("one_reviews.csv")));
+        assertEquals(3_000, dataRows(dir.resolve("one_user.csv")));
+    }
+
+    @Test
+    void threadsAreClampedToOne() throws IOException {
+        GeneratorConfig c = GeneratorConfig.parse(new String[]{"--threads=0", "--recipes=100"});
+        assertEquals(1, c.threads);
+        assertEquals(1, GeneratorConfig.parse(new String[]{"--threads=-3"}).threads);
+
+        Path file = dir.resolve("recipes.csv");
+        DatasetGenerator.generateRecipes(file, c);
+        assertEquals(100, dataRows(file));
+    }
+
+    @Test
+    void defaultOutputDoesNotTouchProjectData() {
+        assertEquals(Path.of("generated"), GeneratorConfig.parse(new String[0]).out);
+        assertThrows(IllegalArgumentException.class, () -> GeneratorConfig.parse(new String[]{"--nope=1"}));
+    }
+
+    private static void generate(String name, Path file, GeneratorConfig c) throws IOException {
+        switch (name) {
+            case "recipes.csv" -> DatasetGenerator.generateRecipes(file, c);
+            case "reviews.csv" -> DatasetGenerator.generateReviews(file, c);
+            default -> UserGenerator.generate(file, c);
+        }
+    }
+
+    private static long dataRows(Path file) throws IOException {
+        long n = 0;
+        try (RowReader reader = CsvInput.open(file)) {
+            reader.next();
+            while (reader.next() != null) n++;
+        }
+        return n;
+    }
+}
@@ -0,0 +1,95 @@
+package com.example.datapreprocessor.integrity;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * 位图和有序数组两种索引都与 HashSet 对照；整体检查数出的悬空引用与手算一致。
+ */
+class ReferentialIntegrityCheckerTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void denseAndSparseIndexesMatchHashSet() {
+        Random r = new Random(13);
+        // 取值范围决定用位图还是有序数组
+        for (long range : new long[]{5_000, 1L << 40}) {
+            IdIndex.Builder b = new IdIndex.Builder();
+            Set<Long> oracle = new HashSet<>();
+            for (int i = 0; i < 3_000; i++) {
+                long v = Math.floorMod(r.nextLong(), range) - (range > 10_000 ? range / 2 : 0);
+                oracle.add(v);
+                b.add(i % 7 == 0 ? " " + v + " " : Long.toString(v));
+            }
+            b.add("");
+            b.add("u1");
+            IdIndex index = b.build();
+            assertEquals(range < 10_000 ? "位图" : "有序数组", index.kind());
+            assertEquals(oracle.size() + 1, index.size());
+            for (int i = 0; i < 10_000; i++) {
+                long v = Math.floorMod(r.nextLong(), range) - (range > 10_000 ? range / 2 : 0);
+                assertEquals(oracle.contains(v), index.contains(Long.toString(v)), Long.toString(v));
+            }
+            assertTrue(index.contains("u1"));
+            assertFalse(index.contains("u2"));
+            assertFalse(index.contains(""));
+        }
+    }
+
+    @Test
+    void integralDecimalsMatchTheirIntegerId() {
+        assertEquals(123, IdIndex.parseId("123.0"));
+        assertEquals(123, IdIndex.parseId(" 123 "));
+        assertEquals(-5, IdIndex.parseId("-5"));
+        assertEquals(IdIndex.NOT_NUMERIC, IdIndex.parseId("12.5"));
+        assertEquals(IdIndex.NOT_NUMERIC, IdIndex.parseId("1e3"));
+        assertEquals(IdIndex.NOT_NUMERIC, IdIndex.parseId("abc"));
+    }
+
+    @Test
+    void countsDanglingReferencesAcrossFiles() throws IOException {
+        Path recipes = write("recipes.csv", """
+                RecipeId,AuthorId,FavoriteUsers
+                1,10,"c(""10,11"")"
+                2,12,
+                3.0,99,"c(""98,10"")"
+                """);
+        Path reviews = write("reviews.csv", """
+                ReviewId,RecipeId,AuthorId
+                100,1,10
+                101,3,11
+                102,4,10
+                103,2.0,97
+                104,,
+                """);
+        Path users = write("user.csv", """
+                AuthorId,FollowerUsers,FollowingUsers
+                10,"c(""11"")","c(""12,13"")"
+                11,,"c(""10"")"
+                12,"c(""10"")",
+                """);
+
+        // recipes: AuthorId 99, FavoriteUsers 98；reviews: RecipeId 4, AuthorId 97；users: FollowingUsers 13
+        assertEquals(5, ReferentialIntegrityChecker.check(recipes, reviews, users));
+    }
+
+    private Path write(String name, String content) throws IOException {
+        Path p = dir.resolve(name);
+        Files.writeString(p, content, StandardCharsets.UTF_8);
+        return p;
+    }
+}
@@ -0,0 +1,94 @@
+package com.example.datapreprocessor.io;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import com.opencsv.CSVWriter;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * 惰性记录写回：没碰过的字段原样拷贝字节，改过的字段按 opencsv CSVWriter.writeNext(line, false) 的规则加引号。
+ */
+class CsvRowWriterTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void untouchedRowsAreCopiedByteForByte() throws IOException {
+        Random r = new Random(11);
+        for (int n = 0; n < 100; n++) {
+            String csv = randomCsv(r);
+            Path file = write(csv);
+            ByteArrayOutputStream bo = new ByteArrayOutputStream();
+            try (RowReader reader = CsvInput.open(file); CsvRowWriter writer = new CsvRowWriter(bo)) {
+                CsvRow row;
+                while ((row = reader.next()) != null) {
+                    if (row.size() > 1) row.get(1);   // 只读不改，仍按原始字节写回
+                    writer.write(row);
+                }
+            }
+            assertEquals(csv, bo.toString(StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    void modifiedFieldsAreQuotedLikeOpencsv() throws IOException {
+        Random r = new Random(12);
+        for (int n = 0; n < 100; n++) {
+            Path file = write(randomCsv(r));
+            ByteArrayOutputStream actual = new ByteArrayOutputStream();
+            List<String[]> rows = new ArrayList<>();
+            try (RowReader reader = CsvInput.open(file); CsvRowWriter writer = new CsvRowWriter(actual)) {
+                CsvRow row;
+                while ((row = reader.next()) != null) {
+                    for (int i = 0; i < row.size(); i++) row.set(i, row.get(i) + (i % 2 == 0 ? "" : ",\""));
+                    rows.add(row.toArray());
+                    writer.write(row);
+                }
+            }
+            ByteArrayOutputStream expected = new ByteArrayOutputStream();
+            try (CSVWriter w = new CSVWriter(new OutputStreamWriter(expected, StandardCharsets.UTF_8))) {
+                for (String[] line : rows) w.writeNext(line, false);
+            }
+            assertArrayEquals(expected.toByteArray(), actual.toByteArray());
+        }
+    }
+
+    /** LF 结尾的输入；引用的写法不必最简，写回时原样保留 */
+    private static String randomCsv(Random r) {
+        StringBuilder sb = new StringBuilder();
+        for (int k = 1 + r.nextInt(10); k > 0; k--) {
+            int fields = 1 + r.nextInt(5);
+            for (int f = 0; f < fields; f++) {
+                if (f > 0) sb.append(',');
+                switch (r.nextInt(4)) {
+                    case 0 -> sb.append("\"plain\"");
+                    case 1 -> sb.append("\"a,b\"\"c\nd\"");
+                    case 2 -> sb.append("");
+                    default -> sb.append("x").append(r.nextInt(100)).append("é");
+                }
+            }
+            sb.append('\n');
+        }
+        return sb.toString();
+    }
+
+    private Path write(String csv) throws IOException {
+        Path file = Files.createTempFile(dir, "in", ".csv");
+        Files.writeString(file, csv, StandardCharsets.UTF_8);
+        return file;
+    }
+}
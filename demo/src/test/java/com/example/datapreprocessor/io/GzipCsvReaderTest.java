@@ -0,0 +1,94 @@
+package com.example.datapreprocessor.io;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 边解压边分词：任意块大小下都与未压缩文件读出同样的记录和偏移；
+ * 解压线程出错（坏文件、线程池已关闭）时读取端抛出 IOException，而不是一直等下去。
+ */
+class GzipCsvReaderTest {
+
+    private static final ForkJoinPool POOL = new ForkJoinPool(4);
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void matchesUncompressedInput() throws IOException {
+        String csv = randomCsv(new Random(1), 500);
+        Path plain = dir.resolve("in.csv");
+        Files.writeString(plain, csv, StandardCharsets.UTF_8);
+        Path gz = gzip(csv, dir.resolve("in.csv.gz"));
+
+        List<String> expected = readAll(CsvInput.open(plain));
+        assertEquals(expected, readAll(CsvInput.open(gz)));
+        for (int block : new int[] {1, 7, 64, 1000}) {
+            assertEquals(expected, readAll(new GzipCsvReader(gz, POOL, block)), "块大小 " + block);
+        }
+    }
+
+    @Test
+    void truncatedFileFailsInsteadOfHanging() throws IOException {
+        Path gz = gzip(randomCsv(new Random(2), 2_000), dir.resolve("bad.csv.gz"));
+        byte[] bytes = Files.readAllBytes(gz);
+        Files.write(gz, Arrays.copyOf(bytes, bytes.length / 2));
+
+        assertTimeoutPreemptively(Duration.ofSeconds(30),
+                () -> assertThrows(IOException.class, () -> readAll(new GzipCsvReader(gz, POOL, 256))));
+    }
+
+    @Test
+    void unexpectedErrorFailsInsteadOfHanging() throws IOException {
+        Path gz = gzip(randomCsv(new Random(3), 100), dir.resolve("in.csv.gz"));
+        ForkJoinPool closed = new ForkJoinPool(1);
+        closed.shutdown();   // 提交分词时抛出 RejectedExecutionException
+
+        assertTimeoutPreemptively(Duration.ofSeconds(30),
+                () -> assertThrows(IOException.class, () -> readAll(new GzipCsvReader(gz, closed, 256))));
+    }
+
+    /** 每条记录连同字节偏移展开成一行文字，便于整体比较 */
+    private static List<String> readAll(RowReader reader) throws IOException {
+        try (reader) {
+            List<String> rows = new ArrayList<>();
+            CsvRow row;
+            while ((row = reader.next()) != null) rows.add(row.offset() + ":" + Arrays.toString(row.toArray()));
+            return rows;
+        }
+    }
+
+    private static Path gzip(String csv, Path file) throws IOException {
+        try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(file))) {
+            out.write(csv.getBytes(StandardCharsets.UTF_8));
+        }
+        return file;
+    }
+
+    private static String randomCsv(Random r, int rows) {
+        String[] cells = {"", "a", "中文", "\"x,y\"", "\"say \"\"hi\"\"\"", "\"line1\nline2\"", "\"a\r\nb\"", "12.5"};
+        StringBuilder sb = new StringBuilder("id,v,w\n");
+        for (int i = 0; i < rows; i++) {
+            sb.append(i).append(',').append(cells[r.nextInt(cells.length)]).append(',')
+                    .append(cells[r.nextInt(cells.length)]).append(r.nextInt(5) == 0 ? "\r\n" : "\n");
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,85 @@
+package com.example.datapreprocessor.io;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.regex.Pattern;
+
+/**
+ * 列表单元格的拆分与原来的 splitIds 对照，二进制编码要能原样还原规范写法。
+ */
+class ListCellTest {
+
+    private static final Pattern SPLIT = Pattern.compile(",");
+
+    @Test
+    void splitMatchesLegacySplitIds() {
+        Random r = new Random(1);
+        String[] parts = {"1", "23", " 4", "5 ", "", " ", "\"", "\"6\"", "u7", "中", ",", ",,"};
+        for (int i = 0; i < 20_000; i++) {
+            StringBuilder body = new StringBuilder();
+            for (int k = r.nextInt(6); k > 0; k--) body.append(parts[r.nextInt(parts.length)]);
+            String cell = switch (r.nextInt(3)) {
+                case 0 -> "c(\"" + body + "\")";
+                case 1 -> body.toString();
+                default -> "c(" + body;
+            };
+            List<String> expected = splitIds(cell);
+            assertEquals(expected, ListCell.split(cell), cell);
+            assertEquals(expected.size(), ListCell.count(cell), cell);
+        }
+    }
+
+    @Test
+    void cursorGivesSpansInsideTheCell() {
+        String cell = "c(\"10, 2,,x\")";
+        ListCell.Cursor c = new ListCell.Cursor().reset(cell);
+        StringBuilder spans = new StringBuilder();
+        while (c.next()) spans.append('[').append(cell, c.start(), c.end()).append(']');
+        assertEquals("[10][ 2][x]", spans.toString());
+    }
+
+    @Test
+    void canonicalListsRoundTripThroughBinary() {
+        Random r = new Random(2);
+        long[] ids = new long[64];
+        ByteBuffer buf = ByteBuffer.allocate(ListCell.maxEncodedSize(ids.length));
+        for (int i = 0; i < 5_000; i++) {
+            StringBuilder sb = new StringBuilder();
+            int n = r.nextInt(ids.length);
+            for (int k = 0; k < n; k++) {
+                ListCell.append(sb, r.nextBoolean() ? r.nextInt(1000) : r.nextLong() >>> (1 + r.nextInt(63)));
+            }
+            String cell = ListCell.finish(sb);
+
+            assertEquals(n, ListCell.parseCanonical(cell, ids), cell);
+            buf.clear();
+            ListCell.encode(ids, n, buf);
+            buf.flip();
+            assertEquals(cell, ListCell.format(buf.duplicate()));
+            long[] back = new long[n];
+            assertEquals(n, ListCell.decode(buf, back));
+            assertEquals(Arrays.toString(Arrays.copyOf(ids, n)), Arrays.toString(back));
+        }
+        for (String s : List.of("c(\"\")", "c(\"1,\")", "c(\"01\")", "c(\"1, 2\")", "c(\"-1\")", "1,2")) {
+            assertEquals(-1, ListCell.parseCanonical(s, null), s);
+        }
+    }
+
+    /** 原来的实现，作为对照 */
+    private static List<String> splitIds(String cell) {
+        if (cell.isEmpty()) return List.of();
+        if (cell.startsWith("c(\"") && cell.endsWith("\")")) {
+            cell = cell.substring(3, cell.length() - 2);
+        }
+        cell = cell.replace("\"", "");
+        return Arrays.stream(SPLIT.split(cell))
+                     .filter(s -> !s.trim().isEmpty())
+                     .toList();
+    }
+}
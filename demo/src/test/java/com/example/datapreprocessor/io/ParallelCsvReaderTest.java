@@ -0,0 +1,182 @@
+package com.example.datapreprocessor.io;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import com.opencsv.CSVReader;
+import com.opencsv.CSVReaderBuilder;
+import com.opencsv.RFC4180ParserBuilder;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * 并行解析与 opencsv RFC4180Parser 逐字段对照：任意块大小下记录边界都要对齐，
+ * 跨块的引用换行、引用内的 CRLF 和单独的 CR 都按 opencsv 的方式解码。
+ */
+class ParallelCsvReaderTest {
+
+    private static final ForkJoinPool POOL = new ForkJoinPool(4);
+
+    @TempDir
+    Path dir;
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "",
+            "a,b\n1,2\n",
+            "a,b\r\n1,2\r\n",
+            "a,b\n1,2",
+            "a,b\n\n1,2\n",
+            "a,\"x\ny\",c\n",
+            "a,\"x\r\ny\",c\r\n",
+            "a,\"x\ry\",c\n",
+            "a,\"x\r\",c\n",
+            "\"\r\r\n\r\"\n",
+            "a,\"say \"\"hi\"\"\"\n",
+            "a,\"\"\n,\n",
+            "\"\"\"\",\"\n\"\n",
+            "a,b,\n",
+            "é,\"ü\nß\"\n",
+    })
+    void matchesOpencsvOnEdgeCases(String csv) throws IOException {
+        assertMatchesOpencsv(csv);
+    }
+
+    @Test
+    void matchesOpencsvOnRandomInput() throws IOException {
+        Random r = new Random(20240601);
+        for (int n = 0; n < 150; n++) {
+            assertMatchesOpencsv(randomCsv(r));
+        }
+    }
+
+    /** 单独的 CR 只在引用内与 opencsv 一致；引用外它是字段内容，opencsv 则当作换行 */
+    @Test
+    void keepsLoneCrOutsideQuotes() throws IOException {
+        List<String[]> rows = readAll(new ParallelCsvReader(write("a\rb,c\n"), POOL, 4));
+        assertEquals(1, rows.size());
+        assertArrayEquals(new String[]{"a\rb", "c"}, rows.get(0));
+    }
+
+    /** 小文件也走同一个解析器，读出的记录不随文件大小变化 */
+    @Test
+    void smallFilesUseTheSameParser() throws IOException {
+        Path file = write("id,v\na\rb,\"x\ry\"\n");
+        List<String[]> rows = readAll(CsvInput.open(file));
+        assertEquals(2, rows.size());
+        assertArrayEquals(new String[]{"a\rb", "x\ny"}, rows.get(1));
+    }
+
+    /** 字段视图与 get 看到同样的字符，不论字段是原始字节、带引号、含中文还是被改过 */
+    @Test
+    void fieldViewMatchesGet() throws IOException {
+        Path file = write("a,b,c,d\nPT5M,\"x,\"\"y\"\"\",菜谱,\n");
+        try (RowReader reader = CsvInput.open(file)) {
+            reader.next();
+            CsvRow row = reader.next();
+            row.set(3, "PT1H");
+            CsvField view = new CsvField();
+            for (int i = 0; i < row.size(); i++) {
+                row.field(i, view);
+                assertEquals(row.get(i), view.toString());
+                assertEquals(row.get(i).length(), view.length());
+                for (int k = 0; k < view.length(); k++) assertEquals(row.get(i).charAt(k), view.charAt(k));
+            }
+        }
+    }
+
+    private void assertMatchesOpencsv(String csv) throws IOException {
+        List<String[]> expected = opencsv(csv);
+        Path file = write(csv);
+        for (int chunk = 1; chunk <= 64; chunk++) {
+            List<String[]> actual = readAll(new ParallelCsvReader(file, POOL, chunk));
+            assertEquals(expected.size(), actual.size(), () -> "记录数不同: " + escape(csv));
+            for (int i = 0; i < expected.size(); i++) {
+                int row = i;
+                int c = chunk;
+                assertArrayEquals(expected.get(i), actual.get(i),
+                        () -> "块大小 " + c + " 第 " + row + " 条不同: " + escape(csv));
+            }
+        }
+    }
+
+    /** 合法的 RFC 4180 输入：引用外不出现引号和单独的 CR */
+    private static String randomCsv(Random r) {
+        StringBuilder sb = new StringBuilder();
+        int records = 1 + r.nextInt(8);
+        for (int k = 0; k < records; k++) {
+            int fields = 1 + r.nextInt(4);
+            for (int f = 0; f < fields; f++) {
+                if (f > 0) sb.append(',');
+                if (r.nextInt(3) == 0) {
+                    sb.append('"');
+                    for (int n = r.nextInt(8); n > 0; n--) sb.append(pick(r, "ab,\"\"\n\r\r\né"));
+                    sb.append('"');
+                } else {
+                    for (int n = r.nextInt(6); n > 0; n--) sb.append(pick(r, "xyz 1é"));
+                }
+            }
+            if (k < records - 1 || r.nextBoolean()) sb.append(r.nextBoolean() ? "\n" : "\r\n");
+        }
+        return sb.toString();
+    }
+
+    /** 从 chars 里随机取一个字符；"" 和 \r\n 作为一个整体取 */
+    private static String pick(Random r, String chars) {
+        List<String> units = new ArrayList<>();
+        for (int i = 0; i < chars.length(); i++) {
+            if (chars.startsWith("\"\"", i) || chars.startsWith("\r\n", i)) {
+                units.add(chars.substring(i, i + 2));
+                i++;
+            } else {
+                units.add(chars.substring(i, i + 1));
+            }
+        }
+        return units.get(r.nextInt(units.size()));
+    }
+
+    private static List<String[]> opencsv(String csv) throws IOException {
+        try (CSVReader reader = new CSVReaderBuilder(new StringReader(csv))
+                .withCSVParser(new RFC4180ParserBuilder().build())
+                .build()) {
+            List<String[]> rows = new ArrayList<>();
+            String[] line;
+            while ((line = reader.readNext()) != null) rows.add(line);
+            return rows;
+        } catch (com.opencsv.exceptions.CsvValidationException e) {
+            throw new IOException(e);
+        }
+    }
+
+    private static List<String[]> readAll(RowReader reader) throws IOException {
+        try (reader) {
+            List<String[]> rows = new ArrayList<>();
+            String[] line;
+            while ((line = reader.readNext()) != null) rows.add(line);
+            return rows;
+        }
+    }
+
+    private Path write(String csv) throws IOException {
+        Path file = Files.createTempFile(dir, "in", ".csv");
+        Files.writeString(file, csv, StandardCharsets.UTF_8);
+        return file;
+    }
+
+    private static String escape(String s) {
+        return s.replace("\r", "\\r").replace("\n", "\\n");
+    }
+}
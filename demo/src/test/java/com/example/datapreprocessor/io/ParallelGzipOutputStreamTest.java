@@ -0,0 +1,56 @@
+package com.example.datapreprocessor.io;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Random;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * 分块并行压缩的结果必须是一个标准 gzip 成员，{@link GZIPInputStream} 能还原出原始字节。
+ */
+class ParallelGzipOutputStreamTest {
+
+    @Test
+    void roundTripsThroughGzipInputStream() throws IOException {
+        Random r = new Random(1);
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        ByteArrayOutputStream gz = new ByteArrayOutputStream();
+        try (ParallelGzipOutputStream out = new ParallelGzipOutputStream(gz)) {
+            // 远超一块，混合单字节和各种长度的写入，中途 flush
+            for (int i = 0; i < 40_000; i++) {
+                byte[] chunk = ("row" + r.nextInt(1000) + ",text " + r.nextInt() + "\n").getBytes();
+                if (i % 7 == 0) {
+                    for (byte b : chunk) out.write(b);
+                } else {
+                    out.write(chunk, 0, chunk.length);
+                }
+                expected.write(chunk);
+                if (i % 10_000 == 0) out.flush();
+            }
+            byte[] noise = new byte[300_000];   // 不可压缩的数据
+            r.nextBytes(noise);
+            out.write(noise);
+            expected.write(noise);
+        }
+        assertArrayEquals(expected.toByteArray(), gunzip(gz.toByteArray()));
+    }
+
+    @Test
+    void emptyStreamIsValidGzip() throws IOException {
+        ByteArrayOutputStream gz = new ByteArrayOutputStream();
+        new ParallelGzipOutputStream(gz).close();
+        assertArrayEquals(new byte[0], gunzip(gz.toByteArray()));
+    }
+
+    private static byte[] gunzip(byte[] gz) throws IOException {
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(gz))) {
+            return in.readAllBytes();
+        }
+    }
+}
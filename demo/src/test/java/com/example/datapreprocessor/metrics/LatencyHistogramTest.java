@@ -0,0 +1,65 @@
+package com.example.datapreprocessor.metrics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * 直方图分位数与精确排序的结果对照：估计值不小于真实分位，且不超过它的 25%。
+ */
+class LatencyHistogramTest {
+
+    @Test
+    void everyValueFallsInsideItsBucket() {
+        Random r = new Random(1);
+        for (int i = 0; i < 100_000; i++) {
+            long v = i < 1000 ? i : r.nextLong() >>> (2 + r.nextInt(62));   // 纳秒耗时远小于 2^62
+            int k = LatencyHistogram.index(v);
+            assertTrue(v <= LatencyHistogram.upper(k), "v=" + v);
+            if (k > 0) assertTrue(v > LatencyHistogram.upper(k - 1), "v=" + v);
+        }
+    }
+
+    @Test
+    void percentilesStayWithinBucketError() {
+        Random r = new Random(2);
+        long[] values = new long[50_000];
+        LatencyHistogram a = new LatencyHistogram();
+        LatencyHistogram b = new LatencyHistogram();
+        for (int i = 0; i < values.length; i++) {
+            values[i] = (long) Math.exp(r.nextDouble() * 20);   // 1ns 到约 0.5s，跨多个数量级
+            (i % 2 == 0 ? a : b).record(values[i]);
+        }
+        a.merge(b);
+        Arrays.sort(values);
+
+        assertEquals(values.length, a.count());
+        assertEquals(values[values.length - 1], a.max());
+        assertEquals(Arrays.stream(values).sum(), a.total());
+        for (double p : new double[] {0.01, 0.5, 0.9, 0.99, 0.999, 1.0}) {
+            long exact = values[(int) Math.ceil(p * values.length) - 1];
+            long estimate = a.percentile(p);
+            assertTrue(estimate >= exact && estimate <= exact + exact / 4 + 1,
+                    "p=" + p + " 精确 " + exact + " 估计 " + estimate);
+        }
+    }
+
+    @Test
+    void summaryListsRegisteredPipelines() {
+        StageMetrics m = new StageMetrics("CheckTime");
+        m.record(1_000, 64, true);
+        m.record(3_000, 0, false);
+        Metrics.pipeline("in.csv", "out.csv", 2, 1, 100, 50, 1_000_000, 64, List.of(m));
+
+        String json = Metrics.summary();
+        assertTrue(json.startsWith("{\n"), json);
+        assertTrue(json.contains("\"name\": \"CheckTime\""), json);
+        assertTrue(json.contains("\"dropped\": 1"), json);
+        assertTrue(json.contains("\"rowsPerSecond\": 2000.000"), json);
+    }
+}
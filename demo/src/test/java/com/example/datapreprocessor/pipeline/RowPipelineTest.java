@@ -0,0 +1,186 @@
+package com.example.datapreprocessor.pipeline;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.example.datapreprocessor.dedup.DuplicateDetector;
+import com.example.datapreprocessor.dedup.DuplicateIdStage;
+import com.example.datapreprocessor.io.CsvRow;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.function.Supplier;
+
+/**
+ * 增量运行与全量运行对照：输入只在末尾追加时，分几次增量处理的输出要与一次全量处理逐字节一致。
+ * 中途崩溃后从检查点续跑，结果也要与一次跑完一致。
+ */
+class RowPipelineTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void appendOnlyRunsMatchFullRun() throws IOException {
+        appendOnlyRuns(DuplicateDetector::inMemory);
+    }
+
+    /** 只能用一次的去重引擎每次运行都是新的，靠日志重放恢复 */
+    @Test
+    void appendOnlyRunsReplayIntoFilteredDetector() throws IOException {
+        Path logs = Files.createDirectories(dir.resolve("logs"));
+        appendOnlyRuns(() -> DuplicateDetector.filtered(logs, 500, 0.1));
+    }
+
+    private void appendOnlyRuns(Supplier<DuplicateDetector> detectors) throws IOException {
+        List<String> rows = rows(new Random(7), 3_000);
+        Path fullIn = dir.resolve("full.csv");
+        Files.writeString(fullIn, "id,text,seq\n" + String.join("", rows), StandardCharsets.UTF_8);
+        DuplicateDetector fullDetector = detectors.get();
+        pipeline(new Counter(), fullDetector).run(fullIn, dir.resolve("full_out.csv"));
+
+        Path in = dir.resolve("inc.csv");
+        Path out = dir.resolve("inc_out.csv");
+        Files.writeString(in, "id,text,seq\n", StandardCharsets.UTF_8);
+        int[] cuts = {0, 1_000, 1_001, 2_500, 3_000};
+        DuplicateDetector detector = null;
+        for (int k = 1; k < cuts.length; k++) {
+            Files.writeString(in, String.join("", rows.subList(cuts[k - 1], cuts[k])), StandardCharsets.UTF_8,
+                    StandardOpenOption.APPEND);
+            Counter counter = new Counter();
+            detector = detectors.get();
+            long written = pipeline(counter, detector).run(in, out);
+            // 第一次之后只处理新增的行，去重状态从日志重放
+            assertEquals(k == 1 ? cuts[k] : cuts[k] - cuts[k - 1], counter.processed);
+            assertEquals(counter.processed, written);
+        }
+
+        assertArrayEquals(Files.readAllBytes(dir.resolve("full_out.csv")), Files.readAllBytes(out));
+        assertEquals(fullDetector.duplicates(), detector.duplicates());
+        assertEquals(oracle(rows), detector.duplicates());
+        assertTrue(Files.exists(StageJournal.pathFor(out, 0)));
+    }
+
+    @Test
+    void changedPrefixFallsBackToFullRun() throws IOException {
+        List<String> rows = rows(new Random(8), 500);
+        Path in = dir.resolve("in.csv");
+        Path out = dir.resolve("out.csv");
+        Files.writeString(in, "id,text,seq\n" + String.join("", rows.subList(0, 300)), StandardCharsets.UTF_8);
+        pipeline(new Counter(), DuplicateDetector.inMemory()).run(in, out);
+
+        // 改动已处理过的部分：清单对不上，全量重算
+        rows.set(0, "100000,changed,\n");
+        Files.writeString(in, "id,text,seq\n" + String.join("", rows), StandardCharsets.UTF_8);
+        Counter counter = new Counter();
+        DuplicateDetector detector = DuplicateDetector.inMemory();
+        pipeline(counter, detector).run(in, out);
+        assertEquals(500, counter.processed);
+        assertEquals(oracle(rows), detector.duplicates());
+    }
+
+    @Test
+    void crashedRunResumesFromCheckpoint() throws IOException {
+        List<String> rows = rows(new Random(9), 3_000);
+        Path fullIn = dir.resolve("full.csv");
+        Path in = dir.resolve("in.csv");
+        Path out = dir.resolve("out.csv");
+        Files.writeString(fullIn, "id,text,seq\n" + String.join("", rows), StandardCharsets.UTF_8);
+        Files.writeString(in, "id,text,seq\n" + String.join("", rows), StandardCharsets.UTF_8);
+        pipeline(new Counter(), DuplicateDetector.inMemory()).run(fullIn, dir.resolve("full_out.csv"));
+
+        String old = System.setProperty("datapreprocessor.checkpoint", "4k");
+        try {
+            // 处理到第 2000 行时崩溃：最终路径上没有输出，检查点和临时输出留着
+            Counter crashing = new Counter();
+            crashing.failAt = 2_000;
+            assertThrows(IllegalStateException.class,
+                    () -> pipeline(crashing, DuplicateDetector.inMemory()).resume(true).run(in, out));
+            assertFalse(Files.exists(out));
+            assertTrue(Files.exists(RunManifest.checkpointFor(out)));
+
+            Counter counter = new Counter();
+            DuplicateDetector detector = DuplicateDetector.inMemory();
+            pipeline(counter, detector).resume(true).run(in, out);
+            assertTrue(counter.processed < 3_000 - 1_000, "应从检查点继续，实际处理了 " + counter.processed + " 行");
+            assertArrayEquals(Files.readAllBytes(dir.resolve("full_out.csv")), Files.readAllBytes(out));
+            assertEquals(oracle(rows), detector.duplicates());
+            assertFalse(Files.exists(RunManifest.checkpointFor(out)));
+        } finally {
+            if (old == null) System.clearProperty("datapreprocessor.checkpoint");
+            else System.setProperty("datapreprocessor.checkpoint", old);
+        }
+    }
+
+    private static RowPipeline pipeline(Counter counter, DuplicateDetector detector) {
+        return new RowPipeline()
+                .add(new DuplicateIdStage("id", detector))
+                .add(counter)
+                .incremental(true);
+    }
+
+    /** 把累计行号写进 seq 列，行号跨运行保存 */
+    private static final class Counter implements StatefulStage {
+        private long seq;
+        private long processed;
+        private long failAt = -1;
+
+        @Override
+        public boolean process(CsvRow row) {
+            if (processed == failAt) throw new IllegalStateException("模拟崩溃");
+            processed++;
+            row.set(2, Long.toString(++seq));
+            return true;
+        }
+
+        @Override
+        public void saveState(DataOutput out) throws IOException {
+            out.writeLong(seq);
+        }
+
+        @Override
+        public void restoreState(DataInput in) throws IOException {
+            seq = in.readLong();
+        }
+    }
+
+    private static List<String> rows(Random r, int n) {
+        List<String> rows = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            String text = switch (r.nextInt(4)) {
+                case 0 -> "\"a, b\"";
+                case 1 -> "\"line1\nline2\"";
+                default -> "t" + r.nextInt(100);
+            };
+            rows.add(r.nextInt(n) + "," + text + ",\n");
+        }
+        return rows;
+    }
+
+    private static List<String> oracle(List<String> rows) {
+        Set<String> seen = new HashSet<>();
+        Set<String> duplicates = new LinkedHashSet<>();
+        for (String row : rows) {
+            String id = row.substring(0, row.indexOf(','));
+            if (!seen.add(id)) duplicates.add(id);
+        }
+        return new ArrayList<>(duplicates);
+    }
+}
@@ -0,0 +1,59 @@
+package com.example.datapreprocessor.profile;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * 常见值的计数是真实计数的下界，少算的不超过 error()；不同值少时计数精确。
+ */
+class HeavyHittersTest {
+
+    @Test
+    void exactWhenFewDistinct() {
+        HeavyHitters h = new HeavyHitters(10);
+        Map<String, Long> oracle = new HashMap<>();
+        Random r = new Random(1);
+        for (int i = 0; i < 10_000; i++) {
+            String v = "c" + r.nextInt(15);
+            h.add(v);
+            oracle.merge(v, 1L, Long::sum);
+        }
+        assertEquals(0, h.error());
+        for (Map.Entry<String, Long> e : h.top(15)) assertEquals(oracle.get(e.getKey()), e.getValue(), e.getKey());
+    }
+
+    @Test
+    void findsHeavyValuesInLongTail() {
+        Random r = new Random(2);
+        HeavyHitters whole = new HeavyHitters(20);
+        HeavyHitters a = new HeavyHitters(20);
+        HeavyHitters b = new HeavyHitters(20);
+        Map<String, Long> oracle = new HashMap<>();
+        int n = 500_000;
+        for (int i = 0; i < n; i++) {
+            // 三个常见值各占约 10%，其余是长尾
+            int k = r.nextInt(10);
+            String v = k < 3 ? "hot" + k : "tail" + r.nextInt(200_000);
+            oracle.merge(v, 1L, Long::sum);
+            whole.add(v);
+            (i % 2 == 0 ? a : b).add(v);
+        }
+        a.merge(b);
+        for (HeavyHitters h : List.of(whole, a)) {
+            assertTrue(h.error() <= n / 21, "error " + h.error());
+            List<Map.Entry<String, Long>> top = h.top(3);
+            for (Map.Entry<String, Long> e : top) {
+                assertTrue(e.getKey().startsWith("hot"), e.getKey());
+                long truth = oracle.get(e.getKey());
+                assertTrue(e.getValue() <= truth && e.getValue() >= truth - h.error(), e.toString());
+            }
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.example.datapreprocessor.profile;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * 不同值个数的估计误差、合并与直接喂同一份的一致性，以及字符串哈希的质量。
+ */
+class HyperLogLogTest {
+
+    @Test
+    void estimatesWithinFewPercent() {
+        for (int n : new int[]{100, 10_000, 1_000_000}) {
+            HyperLogLog ids = new HyperLogLog();
+            HyperLogLog text = new HyperLogLog();
+            for (int i = 0; i < n; i++) {
+                ids.add(HyperLogLog.hash(Integer.toString(i)));
+                text.add(HyperLogLog.hash("user-" + i + "@example.com"));
+            }
+            assertClose(n, ids.estimate());
+            assertClose(n, text.estimate());
+        }
+    }
+
+    /** hashCode 相同的不同字符串必须分开计数 */
+    @Test
+    void hashSeparatesHashCodeCollisions() {
+        assertEquals("Aa".hashCode(), "BB".hashCode());
+        assertTrue(HyperLogLog.hash("Aa") != HyperLogLog.hash("BB"));
+        HyperLogLog h = new HyperLogLog();
+        // 由 "Aa"/"BB" 拼成的 2^16 个字符串 hashCode 全部相同
+        for (int i = 0; i < 1 << 16; i++) {
+            StringBuilder sb = new StringBuilder();
+            for (int b = 0; b < 16; b++) sb.append((i >>> b & 1) == 0 ? "Aa" : "BB");
+            h.add(HyperLogLog.hash(sb.toString()));
+        }
+        assertClose(1 << 16, h.estimate());
+    }
+
+    /** 同一个值不论是否规范十进制，每次的哈希都相同；不同写法是不同的值 */
+    @Test
+    void hashIsStable() {
+        assertEquals(HyperLogLog.hash("12345"), HyperLogLog.hash(new String("12345")));
+        assertEquals(HyperLogLog.hash("abc de"), HyperLogLog.hash("abc " + "de"));
+        assertTrue(HyperLogLog.hash("7") != HyperLogLog.hash("07"));
+        assertTrue(HyperLogLog.hash("") != HyperLogLog.hash("\0"));
+    }
+
+    @Test
+    void mergeEqualsSingleSketch() throws IOException {
+        Random r = new Random(3);
+        HyperLogLog all = new HyperLogLog();
+        HyperLogLog a = new HyperLogLog();
+        HyperLogLog b = new HyperLogLog();
+        Set<String> distinct = new HashSet<>();
+        for (int i = 0; i < 200_000; i++) {
+            String v = "v" + r.nextInt(150_000);
+            distinct.add(v);
+            long h = HyperLogLog.hash(v);
+            all.add(h);
+            (i % 3 == 0 ? a : b).add(h);
+        }
+        a.merge(b);
+        assertArrayEquals(bytes(all), bytes(a));
+        assertClose(distinct.size(), a.estimate());
+    }
+
+    private static void assertClose(long expected, long actual) {
+        assertTrue(Math.abs(actual - expected) <= Math.max(2, expected * 0.03),
+                "期望约 " + expected + "，估计为 " + actual);
+    }
+
+    private static byte[] bytes(HyperLogLog h) throws IOException {
+        ByteArrayOutputStream bo = new ByteArrayOutputStream();
+        h.write(new DataOutputStream(bo));
+        return bo.toByteArray();
+    }
+}
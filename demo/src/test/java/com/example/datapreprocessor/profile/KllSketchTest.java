@@ -0,0 +1,82 @@
+package com.example.datapreprocessor.profile;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * 分位数与精确排序结果对照：秩误差在几个百分点以内，分开喂再合并也一样。
+ */
+class KllSketchTest {
+
+    @Test
+    void quantilesWithinRankError() {
+        Random r = new Random(1);
+        double[] values = new double[300_000];
+        KllSketch sketch = new KllSketch();
+        for (int i = 0; i < values.length; i++) {
+            values[i] = r.nextInt(4) == 0 ? r.nextGaussian() * 100 : r.nextInt(1000);
+            sketch.update(values[i]);
+        }
+        assertRanks(values, sketch);
+    }
+
+    @Test
+    void mergedMatchesData() {
+        Random r = new Random(2);
+        double[] values = new double[200_000];
+        KllSketch[] parts = {new KllSketch(), new KllSketch(), new KllSketch()};
+        for (int i = 0; i < values.length; i++) {
+            values[i] = Math.exp(r.nextDouble() * 10);
+            parts[i % 3 == 0 ? 0 : r.nextInt(3)].update(values[i]);
+        }
+        KllSketch merged = new KllSketch();
+        for (KllSketch p : parts) merged.merge(p);
+        assertEquals(values.length, merged.count());
+        assertRanks(values, merged);
+    }
+
+    @Test
+    void emptyAndTiny() {
+        KllSketch s = new KllSketch();
+        assertTrue(Double.isNaN(s.quantile(0.5)));
+        s.update(3);
+        s.update(1);
+        s.update(2);
+        assertEquals(1, s.min());
+        assertEquals(3, s.max());
+        assertEquals(2, s.quantile(0.5));
+    }
+
+    /** 估计的分位数在排序后数据里的真实秩与 q 相差不超过 2% */
+    private static void assertRanks(double[] values, KllSketch sketch) {
+        double[] sorted = values.clone();
+        Arrays.sort(sorted);
+        assertEquals(sorted[0], sketch.min());
+        assertEquals(sorted[sorted.length - 1], sketch.max());
+        for (double q = 0.05; q < 1; q += 0.05) {
+            double v = sketch.quantile(q);
+            int lo = lowerBound(sorted, v);
+            int hi = lowerBound(sorted, Math.nextUp(v));
+            double rankLo = (double) lo / sorted.length;
+            double rankHi = (double) hi / sorted.length;
+            assertTrue(q >= rankLo - 0.02 && q <= rankHi + 0.02,
+                    "q=" + q + " 估计值 " + v + " 的秩在 [" + rankLo + ", " + rankHi + "]");
+        }
+    }
+
+    private static int lowerBound(double[] a, double v) {
+        int lo = 0;
+        int hi = a.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (a[mid] < v) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.datapreprocessor.recipe;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+/**
+ * 时长编解码：已知写法的秒数、非法写法、区间解析，以及格式化后再解析回原值。
+ */
+class DurationCodecTest {
+
+    @Test
+    void parsesKnownForms() {
+        assertEquals(0, DurationCodec.parse(""));
+        assertEquals(0, DurationCodec.parse("PT0S"));
+        assertEquals(5 * 60, DurationCodec.parse("PT5M"));
+        assertEquals(90 * 60, DurationCodec.parse("PT1H30M"));
+        assertEquals(90, DurationCodec.parse("PT90S"));
+        assertEquals(24 * 3600, DurationCodec.parse("P1D"));
+        assertEquals(7 * 24 * 3600 + 3600, DurationCodec.parse("P1WT1H"));
+        assertEquals(2 * 3600, DurationCodec.parse("xxPT2Hyy", 2, 6));
+    }
+
+    @Test
+    void rejectsIllegalForms() {
+        for (String s : new String[] {"abc", "PT1X", "5M", "1H", "PT 5M"}) {
+            assertEquals(DurationCodec.INVALID, DurationCodec.parse(s), s);
+        }
+    }
+
+    @Test
+    void formatRoundTrips() {
+        Random r = new Random(1);
+        for (int i = 0; i < 10_000; i++) {
+            long sec = i < 100 ? i * 60L : r.nextInt(30 * 24 * 3600);
+            String s = DurationCodec.format(sec);
+            assertEquals(sec, DurationCodec.parse(s), s);
+        }
+        assertEquals("PT0S", DurationCodec.format(0));
+        assertEquals("PT1H30M", DurationCodec.format(90 * 60));
+        assertEquals("PT25H", DurationCodec.format(25 * 3600));
+        assertEquals("PT1M1S", DurationCodec.format(61));
+        // 一周以内的整分钟走缓存，同一个值得到同一个实例
+        assertSame(DurationCodec.format(15 * 60), DurationCodec.format(15 * 60));
+    }
+
+    @Test
+    void legacyParseThrowsOnIllegalInput() {
+        assertEquals(0, CheckTime.parseTimeToSeconds(null));
+        assertEquals(3600, CheckTime.parseTimeToSeconds("PT1H"));
+        assertThrows(IllegalArgumentException.class,
+                () -> CheckTime.parseTimeToSeconds("abc"));
+    }
+}
@@ -0,0 +1,121 @@
+package com.example.datapreprocessor.recipe;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.example.datapreprocessor.coerce.NumericCoercionStage;
+import com.example.datapreprocessor.pipeline.RowPipeline;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * 融合后的单遍流水线与原来逐步各读写一遍的结果对照，--debug 写出的中间文件也要逐字节一致。
+ */
+class RecipePipelineTest {
+
+    static final String HEADER = "RecipeId,Name,AuthorId,AuthorName,CookTime,PrepTime,TotalTime,DatePublished,"
+            + "Description,RecipeCategory,Keywords,RecipeIngredientParts,AggregatedRating,ReviewCount,Calories,"
+            + "FatContent,SaturatedFatContent,CholesterolContent,SodiumContent,CarbohydrateContent,FiberContent,"
+            + "SugarContent,ProteinContent,RecipeServings,RecipeYield,RecipeInstructions,FavoriteUsers";
+
+    private static final String[] DURATIONS = {"", "PT0S", "PT5M", "PT15M", "PT1H", "PT1H30M", "PT24H", "P1D", "PT90S",
+            "abc", "PT1X"};
+    private static final String[] NUMBERS = {"", "0", "3", "3.0", "2.5", "-1.5", " 7 ", "12.49", "x", "1e3", "NaN"};
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void fusedRunMatchesStepByStep() throws IOException {
+        String csv = recipes(new Random(1), 3_000);
+        Path stepDir = Files.createDirectories(dir.resolve("steps"));
+        Path fusedDir = Files.createDirectories(dir.resolve("fused"));
+        Files.writeString(stepDir.resolve("recipes.csv"), csv, StandardCharsets.UTF_8);
+        Files.writeString(fusedDir.resolve("recipes.csv"), csv, StandardCharsets.UTF_8);
+
+        // 原来的做法：每一步重新读上一步的输出，再写一份完整的副本
+        CheckRecipeIdDuplication.check(stepDir.resolve("recipes.csv"));
+        new RowPipeline()
+                .add(numeric())
+                .run(stepDir.resolve("recipes.csv"), stepDir.resolve(RecipePreprocessor.NUMERIC_OUTPUT));
+        CheckTime.validate(stepDir.resolve(RecipePreprocessor.NUMERIC_OUTPUT));
+
+        new RowPipeline()
+                .add(CheckRecipeIdDuplication.stage())
+                .add(numeric())
+                .add(CheckTime.stage())
+                .debug(true)
+                .run(fusedDir.resolve("recipes.csv"), fusedDir.resolve(CheckTime.OUTPUT));
+
+        for (String name : List.of(RecipePreprocessor.NUMERIC_OUTPUT, CheckTime.OUTPUT)) {
+            assertArrayEquals(Files.readAllBytes(stepDir.resolve(name)), Files.readAllBytes(fusedDir.resolve(name)),
+                    name);
+        }
+    }
+
+    @Test
+    void intermediateFilesOnlyInDebugMode() throws IOException {
+        Path input = dir.resolve("recipes.csv");
+        Files.writeString(input, recipes(new Random(2), 200), StandardCharsets.UTF_8);
+
+        new RowPipeline()
+                .add(numeric())
+                .add(CheckTime.stage())
+                .run(input, dir.resolve(CheckTime.OUTPUT));
+
+        assertTrue(Files.exists(dir.resolve(CheckTime.OUTPUT)));
+        assertFalse(Files.exists(dir.resolve(RecipePreprocessor.NUMERIC_OUTPUT)));
+    }
+
+    private static NumericCoercionStage numeric() {
+        return new NumericCoercionStage(RecipePreprocessor.NUMERIC_OUTPUT, RecipePreprocessor.NUMERIC);
+    }
+
+    /** 随机菜谱：夹杂重复 ID、缺失和非法的时长、各种写法的数字，以及带逗号、引号和换行的文本 */
+    static String recipes(Random r, int rows) {
+        StringBuilder sb = new StringBuilder(HEADER).append('\n');
+        int columns = HEADER.split(",").length;
+        for (int i = 0; i < rows; i++) {
+            String[] f = new String[columns];
+            for (int c = 0; c < columns; c++) f[c] = text(r);
+            f[0] = Integer.toString(r.nextInt(20) == 0 ? r.nextInt(i + 1) : i);
+            f[2] = Integer.toString(r.nextInt(500));
+            f[4] = DURATIONS[r.nextInt(DURATIONS.length)];
+            f[5] = DURATIONS[r.nextInt(DURATIONS.length)];
+            f[6] = DURATIONS[r.nextInt(DURATIONS.length)];
+            f[13] = NUMBERS[r.nextInt(NUMBERS.length)];
+            f[23] = NUMBERS[r.nextInt(NUMBERS.length)];
+            for (int c = 0; c < columns; c++) {
+                if (c > 0) sb.append(',');
+                sb.append(quote(f[c]));
+            }
+            sb.append('\n');
+        }
+        return sb.toString();
+    }
+
+    private static String text(Random r) {
+        return switch (r.nextInt(8)) {
+            case 0 -> "";
+            case 1 -> "a, b";
+            case 2 -> "say \"hi\"";
+            case 3 -> "line1\nline2";
+            case 4 -> "c(\"x\", \"y\")";
+            default -> "t" + r.nextInt(1000);
+        };
+    }
+
+    private static String quote(String v) {
+        if (v.indexOf(',') < 0 && v.indexOf('"') < 0 && v.indexOf('\n') < 0) return v;
+        return '"' + v.replace("\"", "\"\"") + '"';
+    }
+}
@@ -0,0 +1,39 @@
+package com.example.datapreprocessor.review;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.Random;
+
+/**
+ * 固定格式的时间戳必须与 {@link Instant#parse} 得到同样的毫秒数，其它写法一律交回通用解析。
+ */
+class TimestampParserTest {
+
+    @Test
+    void matchesInstantParse() {
+        Random r = new Random(1);
+        long min = Instant.parse("1900-01-01T00:00:00Z").toEpochMilli();
+        long max = Instant.parse("2100-01-01T00:00:00Z").toEpochMilli();
+        for (int i = 0; i < 20_000; i++) {
+            long ms = min + (long) (r.nextDouble() * (max - min));
+            if (i % 2 == 0) ms -= ms % 1000;
+            Instant t = Instant.ofEpochMilli(ms);
+            String s = t.toString();   // 整秒时没有小数部分
+            assertEquals(t.toEpochMilli(), TimestampParser.parse(s), s);
+        }
+        for (String s : new String[] {"2000-02-29T23:59:59Z", "1970-01-01T00:00:00.000Z", "2024-12-31T12:00:00.999Z"}) {
+            assertEquals(Instant.parse(s).toEpochMilli(), TimestampParser.parse(s), s);
+        }
+    }
+
+    @Test
+    void irregularFormsFallBack() {
+        for (String s : new String[] {"", "2020-01-01", "2020-01-01T00:00:00+08:00", "2020-01-01T00:00:00.5Z",
+                "2019-02-29T00:00:00Z", "2020-13-01T00:00:00Z", "2020-01-01T24:00:00Z", "2020-0a-01T00:00:00Z"}) {
+            assertEquals(TimestampParser.IRREGULAR, TimestampParser.parse(s), s);
+        }
+    }
+}
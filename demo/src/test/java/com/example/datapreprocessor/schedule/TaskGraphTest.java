@@ -0,0 +1,90 @@
+package com.example.datapreprocessor.schedule;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 调度：依赖先于下游执行、失败只跳过下游、预算限制并发数、环和悬空依赖在执行前报错。
+ */
+class TaskGraphTest {
+
+    @Test
+    void runsEachNodeAfterItsDependencies() {
+        List<String> done = new CopyOnWriteArrayList<>();
+        TaskGraph g = new TaskGraph(4, 2);
+        g.add("d", () -> done.add("d")).after("b", "c");
+        g.add("a", () -> done.add("a"));
+        g.add("b", () -> done.add("b")).after("a");
+        g.add("c", () -> done.add("c")).after("a").io(1);
+
+        assertTrue(g.run());
+        assertEquals(4, done.size());
+        assertEquals("a", done.get(0));
+        assertEquals("d", done.get(3));
+    }
+
+    @Test
+    void failureSkipsOnlyDownstreamNodes() {
+        List<String> done = new CopyOnWriteArrayList<>();
+        TaskGraph g = new TaskGraph(2, 1);
+        g.add("bad", () -> {
+            throw new IllegalStateException("boom");
+        });
+        g.add("child", () -> done.add("child")).after("bad");
+        g.add("grandchild", () -> done.add("grandchild")).after("child");
+        g.add("other", () -> done.add("other"));
+        g.add("afterOther", () -> done.add("afterOther")).after("other");
+
+        assertFalse(g.run());
+        assertEquals(List.of("other", "afterOther"), done);
+    }
+
+    @Test
+    void cpuBudgetBoundsConcurrency() {
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger peak = new AtomicInteger();
+        TaskGraph g = new TaskGraph(2, 1);
+        for (int i = 0; i < 8; i++) {
+            g.add("n" + i, () -> {
+                peak.accumulateAndGet(running.incrementAndGet(), Math::max);
+                Thread.sleep(20);
+                running.decrementAndGet();
+            });
+        }
+        // 要的份额超过预算时按整份预算执行：不会永远等下去，也不与别的节点同时运行
+        g.add("wide", () -> peak.accumulateAndGet(running.get() + 2, Math::max)).cpu(5);
+
+        assertTrue(g.run());
+        assertTrue(peak.get() <= 2, "并发数 " + peak.get());
+    }
+
+    @Test
+    void rejectsBrokenGraphsBeforeRunning() {
+        AtomicInteger ran = new AtomicInteger();
+        TaskGraph cycle = new TaskGraph(2, 1);
+        cycle.add("a", ran::incrementAndGet).after("c");
+        cycle.add("b", ran::incrementAndGet).after("a");
+        cycle.add("c", ran::incrementAndGet).after("b");
+        cycle.add("free", ran::incrementAndGet);
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, cycle::run);
+        assertTrue(e.getMessage().contains("a, b, c"), e.getMessage());
+
+        TaskGraph dangling = new TaskGraph(2, 1);
+        dangling.add("a", ran::incrementAndGet).after("missing");
+        assertThrows(IllegalArgumentException.class, dangling::run);
+
+        TaskGraph duplicate = new TaskGraph(2, 1);
+        duplicate.add("a", ran::incrementAndGet);
+        assertThrows(IllegalArgumentException.class, () -> duplicate.add("a", ran::incrementAndGet));
+
+        assertEquals(0, ran.get());
+    }
+}
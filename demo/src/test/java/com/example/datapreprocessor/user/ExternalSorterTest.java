@@ -0,0 +1,101 @@
+package com.example.datapreprocessor.user;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+
+/**
+ * 外部排序与内存排序的结果对照：内存排序、溢写一段、多段归并以及段数超过归并路数时的多轮归并。
+ */
+class ExternalSorterTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void sortsInMemoryWithoutTouchingDisk() throws IOException {
+        try (ExternalSorter sorter = new ExternalSorter(dir, "mem", 2, 64L << 20)) {
+            List<long[]> records = fill(sorter, new Random(1), 2, 1_000, 100);
+            assertSorted(records, sorter, 2);
+            assertEquals(0, sorter.runsWritten());
+        }
+    }
+
+    @Test
+    void mergesSpilledRunsInSeveralPasses() throws IOException {
+        // 份额极小：每段 1024 条，归并路数为 2，20000 条要经过多轮归并
+        try (ExternalSorter sorter = new ExternalSorter(dir, "runs", 3, 1)) {
+            List<long[]> records = fill(sorter, new Random(2), 3, 20_000, 50);
+            assertSorted(records, sorter, 3);
+            assertTrue(sorter.runsWritten() > 20);
+        }
+    }
+
+    @Test
+    void cursorCanBeReadAgain() throws IOException {
+        try (ExternalSorter sorter = new ExternalSorter(dir, "again", 4, 1)) {
+            List<long[]> records = fill(sorter, new Random(3), 4, 5_000, 1_000);
+            assertSorted(records, sorter, 4);
+            assertSorted(records, sorter, 4);
+            assertThrows(IllegalStateException.class, () -> sorter.add(1, 2, 3, 4));
+        }
+    }
+
+    @Test
+    void closeDeletesRuns() throws IOException {
+        ExternalSorter sorter = new ExternalSorter(dir, "closed", 2, 1);
+        fill(sorter, new Random(4), 2, 5_000, 1_000);
+        sorter.cursor().close();
+        sorter.close();
+        try (Stream<Path> files = Files.list(dir)) {
+            assertEquals(0, files.count());
+        }
+    }
+
+    /** 写入 n 条随机记录，字段取值范围很小以制造大量相同的前缀，含负数 */
+    private static List<long[]> fill(ExternalSorter sorter, Random r, int width, int n, int range)
+            throws IOException {
+        List<long[]> records = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            long[] rec = new long[width];
+            for (int f = 0; f < width; f++) rec[f] = r.nextInt(range) - range / 2;
+            records.add(rec);
+            switch (width) {
+                case 2 -> sorter.add(rec[0], rec[1]);
+                case 3 -> sorter.add(rec[0], rec[1], rec[2]);
+                default -> sorter.add(rec[0], rec[1], rec[2], rec[3]);
+            }
+        }
+        assertEquals(n, sorter.size());
+        return records;
+    }
+
+    private static void assertSorted(List<long[]> records, ExternalSorter sorter, int width) throws IOException {
+        List<long[]> expected = new ArrayList<>(records);
+        expected.sort(Comparator.comparing(a -> a, Arrays::compare));
+        try (ExternalSorter.Cursor c = sorter.cursor()) {
+            for (long[] rec : expected) {
+                assertTrue(c.next());
+                long[] actual = new long[width];
+                for (int f = 0; f < width; f++) actual[f] = c.get(f);
+                assertArrayEquals(rec, actual);
+            }
+            assertFalse(c.next());
+        }
+    }
+}
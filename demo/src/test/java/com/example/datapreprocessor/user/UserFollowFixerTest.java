@@ -0,0 +1,119 @@
+package com.example.datapreprocessor.user;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import com.opencsv.CSVReader;
+import com.opencsv.exceptions.CsvValidationException;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * CSR 图修正出的关注数和列表与原来基于 HashMap&lt;String, Set&gt; 的做法对照；列表只比较集合，不比较顺序。
+ * 外排序重建的输出要与内存版逐字节相同。
+ */
+class UserFollowFixerTest {
+
+    private static final String HEADER =
+            "AuthorId,AuthorName,Gender,Age,Followers,Following,FollowerUsers,FollowingUsers";
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void fixedCountsAndListsMatchOracle() throws IOException, CsvValidationException {
+        Random r = new Random(6);
+        StringBuilder csv = new StringBuilder(HEADER).append('\n');
+        Map<String, Set<String>> followingOf = new HashMap<>();
+        Map<String, Set<String>> followersOf = new HashMap<>();
+        for (int i = 0; i < 500; i++) {
+            String id = Integer.toString(r.nextInt(400));   // 夹杂重复的作者行
+            List<String> following = new ArrayList<>();
+            for (int k = r.nextInt(6); k > 0; k--) {
+                following.add(Integer.toString(r.nextInt(450)));   // 也会关注不在表里的用户、重复关注
+            }
+            for (String f : following) {
+                followingOf.computeIfAbsent(id, x -> new LinkedHashSet<>()).add(f);
+                followersOf.computeIfAbsent(f, x -> new LinkedHashSet<>()).add(id);
+            }
+            String list = following.isEmpty() ? "" : "\"c(\"\"" + String.join(",", following) + "\"\")\"";
+            csv.append(id).append(",name").append(i).append(",F,").append(20 + i % 50)
+               .append(",0,0,,").append(list).append('\n');
+        }
+        Path in = dir.resolve("user.csv");
+        Files.writeString(in, csv, StandardCharsets.UTF_8);
+
+        Path out = UserFollowFixer.fix(in);
+
+        int rows = 0;
+        try (CSVReader reader = new CSVReader(Files.newBufferedReader(out))) {
+            assertEquals(HEADER, String.join(",", reader.readNext()));
+            String[] line;
+            while ((line = reader.readNext()) != null) {
+                rows++;
+                Set<String> followers = followersOf.getOrDefault(line[0], Set.of());
+                Set<String> following = followingOf.getOrDefault(line[0], Set.of());
+                assertEquals(followers.size(), Integer.parseInt(line[4]), line[0]);
+                assertEquals(following.size(), Integer.parseInt(line[5]), line[0]);
+                assertEquals(new TreeSet<>(followers), ids(line[6]), line[0]);
+                assertEquals(new TreeSet<>(following), ids(line[7]), line[0]);
+            }
+        }
+        assertEquals(500, rows);
+    }
+
+    @Test
+    void spillingFixerMatchesInMemory() throws IOException {
+        Random r = new Random(7);
+        StringBuilder csv = new StringBuilder(HEADER).append('\n');
+        for (int i = 0; i < 3_000; i++) {
+            StringBuilder list = new StringBuilder();
+            for (int k = r.nextInt(8); k > 0; k--) {
+                if (list.length() > 0) list.append(',');
+                list.append(r.nextInt(3_500));
+            }
+            csv.append(r.nextInt(3_000)).append(",\"name, ").append(i).append("\",M,").append(30 + i % 40)
+               .append(",0,0,,").append(list.length() == 0 ? "" : "\"c(\"\"" + list + "\"\")\"").append('\n');
+        }
+        Path in = dir.resolve("user.csv");
+        Files.writeString(in, csv, StandardCharsets.UTF_8);
+
+        byte[] inMemory = Files.readAllBytes(UserFollowFixer.fix(in));
+        Path spilled = dir.resolve("spilled.csv");
+        Path spillDir = Files.createDirectories(dir.resolve("spill"));
+        SpillingFollowFixer.fix(in, spilled, spillDir, 64 << 10);   // 很小的预算，强制多段溢写
+
+        assertArrayEquals(inMemory, Files.readAllBytes(spilled));
+    }
+
+    @Test
+    void edgeArrayGrowsByDoubling() throws IOException {
+        long[] edges = {1, 2, 3};
+        long[] grown = UserFollowFixer.grow(edges);
+        assertEquals(6, grown.length);
+        assertEquals(List.of(1L, 2L, 3L, 0L, 0L, 0L), Arrays.stream(grown).boxed().toList());
+    }
+
+    private static Set<String> ids(String cell) {
+        Set<String> s = new TreeSet<>();
+        if (cell.isEmpty()) return s;
+        assertEquals("c(\"", cell.substring(0, 3));
+        s.addAll(Arrays.asList(cell.substring(3, cell.length() - 2).split(",")));
+        return s;
+    }
+}